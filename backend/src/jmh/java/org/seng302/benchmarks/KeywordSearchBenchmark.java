@@ -0,0 +1,82 @@
+package org.seng302.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.seng302.Main;
+import org.seng302.model.Keyword;
+import org.seng302.model.repository.KeywordRepository;
+import org.seng302.services.KeywordSearchIndex;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares keyword autocomplete through the in-memory KeywordSearchIndex with the LIKE '%query%' repository query
+ * it replaced, on the 1000 keywords of the example dataset.
+ * The application is started against an in-memory H2 database which is seeded with keywords_1000.sql.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeywordSearchBenchmark {
+
+    private static final String KEYWORDS_SQL = "src/main/resources/Example Data (Full Dataset)/SQL Files/keywords_1000.sql";
+
+    @Param({"s", "ea", "ing", "secret", "qwerty"})
+    public String searchQuery;
+
+    private ConfigurableApplicationContext context;
+    private KeywordRepository keywordRepository;
+    private KeywordSearchIndex keywordSearchIndex;
+
+    /**
+     * Starts the application and seeds the database with the example keywords.
+     */
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        context = new SpringApplicationBuilder(Main.class)
+                .web(WebApplicationType.NONE)
+                .profiles("local")
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:keyword-benchmark",
+                        "spring.datasource.initialization-mode=never",
+                        "logging.level.root=warn"
+                )
+                .run();
+
+        try (Connection connection = context.getBean(DataSource.class).getConnection()) {
+            ScriptUtils.executeSqlScript(connection, new FileSystemResource(KEYWORDS_SQL));
+        }
+
+        keywordRepository = context.getBean(KeywordRepository.class);
+        keywordSearchIndex = context.getBean(KeywordSearchIndex.class);
+        keywordSearchIndex.rebuild();
+    }
+
+    /**
+     * Shuts the application down.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Keyword> repositoryQuery() {
+        return keywordRepository.findTop6ByNameIgnoreCaseContaining(searchQuery);
+    }
+
+    @Benchmark
+    public List<Keyword> searchIndex() {
+        return keywordSearchIndex.search(searchQuery, 6);
+    }
+}
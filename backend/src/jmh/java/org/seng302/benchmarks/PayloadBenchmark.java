@@ -0,0 +1,106 @@
+package org.seng302.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.seng302.model.*;
+import org.seng302.model.enums.BusinessType;
+import org.seng302.model.enums.Role;
+import org.seng302.view.outgoing.BusinessPayload;
+import org.seng302.view.outgoing.ListingPayload;
+import org.seng302.view.outgoing.ProductPayload;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures converting listings, products and businesses to the payloads the endpoints return, and serializing listing
+ * payloads to JSON the way the controllers' responses are, for a page of results and a large result.
+ * Each listing is for a product of a different business, and every other listing is bookmarked by the current user.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadBenchmark {
+
+    @Param({"12", "100"})
+    public int results;
+
+    private User currentUser;
+    private List<Business> businesses;
+    private List<Product> products;
+    private List<Listing> listings;
+    private List<ListingPayload> listingPayloads;
+    private ObjectMapper objectMapper;
+
+    /**
+     * Creates the listings, their products and businesses.
+     */
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Address address = new Address("3/24", "Ilam Road", "Christchurch", "Canterbury", "New Zealand", "90210", "Ilam");
+        currentUser = new User("first", "last", "middle", "nick", "bio", "test@example.com",
+                LocalDate.of(2000, Month.JANUARY, 1), "123456789", address, "Password123!",
+                LocalDateTime.of(2021, Month.JANUARY, 1, 0, 0), Role.USER);
+        currentUser.setId(1);
+
+        businesses = new ArrayList<>();
+        products = new ArrayList<>();
+        listings = new ArrayList<>();
+        for (int i = 0; i < results; i++) {
+            Business business = new Business(currentUser.getId(), "Corner Shop " + i, "some text", address,
+                    BusinessType.RETAIL_TRADE, LocalDateTime.now(), currentUser, "$", "NZD");
+            business.setId(i + 1);
+            businesses.add(business);
+
+            Product product = new Product("PRODUCT" + i, business, "Apple " + i, "Description", "Manufacturer", 2.0, "9400547002634");
+            products.add(product);
+
+            InventoryItem inventoryItem = new InventoryItem(product, product.getProductId(), 10, 2.0, 20.0,
+                    LocalDate.now().minusDays(10), LocalDate.now().plusDays(20), LocalDate.now().plusDays(20),
+                    LocalDate.now().plusDays(30));
+            inventoryItem.setId(i + 1);
+
+            Listing listing = new Listing(inventoryItem, 5, 2.0, "more info", LocalDateTime.now(), LocalDateTime.now().plusDays(7));
+            listing.setId(i + 1);
+            if (i % 2 == 0) {
+                listing.addUserToANewBookmark(currentUser);
+            }
+            listings.add(listing);
+        }
+
+        listingPayloads = ListingPayload.toListingPayload(listings, currentUser);
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    @Benchmark
+    public List<ListingPayload> listingPayloads() throws Exception {
+        return ListingPayload.toListingPayload(listings, currentUser);
+    }
+
+    @Benchmark
+    public List<ProductPayload> productPayloads() throws Exception {
+        List<ProductPayload> productPayloads = new ArrayList<>();
+        for (Product product : products) {
+            productPayloads.add(product.convertToPayload());
+        }
+        return productPayloads;
+    }
+
+    @Benchmark
+    public List<BusinessPayload> businessPayloads() throws Exception {
+        return BusinessPayload.toBusinessPayload(businesses);
+    }
+
+    @Benchmark
+    public byte[] listingPayloadsJson() throws Exception {
+        return objectMapper.writeValueAsBytes(listingPayloads);
+    }
+}
@@ -0,0 +1,82 @@
+package org.seng302.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.seng302.Main;
+import org.seng302.model.Product;
+import org.seng302.utils.CustomRepositoryUtils;
+import org.seng302.utils.SearchUtils;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the name predicates of a search with CustomRepositoryUtils.getPredicates, which every product,
+ * business and listing name search does, for search queries with more and more names.
+ * The application is started against an in-memory H2 database to get Hibernate's criteria builder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchPredicateBenchmark {
+
+    @Param({
+            "Countdown",
+            "\"New World\"",
+            "New World OR Countdown OR \"Pak'nSave\"",
+            "Apple OR Pear OR Plum OR Peach OR Feijoa OR Kiwifruit OR Orange OR Lemon"
+    })
+    public String searchQuery;
+
+    private ConfigurableApplicationContext context;
+    private EntityManager entityManager;
+    private CriteriaBuilder criteriaBuilder;
+    private Path<String> namePath;
+    private List<String> names;
+
+    /**
+     * Starts the application and creates the path to the product name which the predicates compare against.
+     */
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        context = new SpringApplicationBuilder(Main.class)
+                .web(WebApplicationType.NONE)
+                .profiles("local")
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:predicate-benchmark",
+                        "spring.datasource.initialization-mode=never",
+                        "logging.level.root=warn"
+                )
+                .run();
+
+        entityManager = context.getBean(EntityManagerFactory.class).createEntityManager();
+        criteriaBuilder = entityManager.getCriteriaBuilder();
+        namePath = criteriaBuilder.createQuery(Product.class).from(Product.class).get("name");
+        names = new ArrayList<>(SearchUtils.convertSearchQueryToNames(searchQuery));
+    }
+
+    /**
+     * Shuts the application down.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        entityManager.close();
+        context.close();
+    }
+
+    @Benchmark
+    public List<Predicate> getPredicates() {
+        return CustomRepositoryUtils.getPredicates(names, namePath, criteriaBuilder);
+    }
+}
@@ -0,0 +1,91 @@
+package org.seng302.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.seng302.utils.SearchQuery;
+import org.seng302.utils.SearchQueryCompiler;
+import org.seng302.utils.SearchUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares compiling search queries with SearchQueryCompiler, with and without its cache, against the split and
+ * concatenate parser which SearchUtils.convertSearchQueryToNames used before, and measures
+ * SearchUtils.convertSearchQueryToNames itself, which every name search calls.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchQueryBenchmark {
+
+    @Param({
+            "",
+            "Countdown",
+            "New World OR Countdown",
+            "Big AND Crunchy OR Red AND Apple",
+            "\"Pak'nSave\" OR \"New World\" OR Four Square"
+    })
+    public String searchQuery;
+
+    @Benchmark
+    public List<String> legacyParser() {
+        return legacyConvertSearchQueryToNames(searchQuery);
+    }
+
+    @Benchmark
+    public SearchQuery compileUncached() throws Exception {
+        return SearchQueryCompiler.parse(searchQuery);
+    }
+
+    @Benchmark
+    public SearchQuery compileCached() throws Exception {
+        return SearchQueryCompiler.compile(searchQuery);
+    }
+
+    @Benchmark
+    public List<String> convertSearchQueryToNames() throws Exception {
+        return SearchUtils.convertSearchQueryToNames(searchQuery);
+    }
+
+    /**
+     * The parser SearchUtils.convertSearchQueryToNames used before search queries were compiled, kept here as the
+     * baseline.
+     */
+    private static List<String> legacyConvertSearchQueryToNames(String searchQuery) {
+        List<String> names = new ArrayList<>();
+        if (searchQuery.equals("")) {
+            names.add("");
+            return names;
+        }
+        List<String> tokens = Arrays.asList(searchQuery.split(" "));
+        String concatName = "";
+        String previousToken = "";
+        for (int i = 0; i < tokens.size(); i++) {
+            String currentToken = tokens.get(i);
+            boolean endOfTokens = (i == (tokens.size() - 1));
+            boolean startOfTokens = (i == 0);
+            boolean andOperator = (previousToken.equalsIgnoreCase("AND"));
+            boolean orOperator = (previousToken.equalsIgnoreCase("OR"));
+            if (startOfTokens) {
+                concatName = currentToken;
+            } else if (andOperator) {
+                concatName += " " + currentToken;
+            } else if (orOperator) {
+                names.add(concatName);
+                concatName = currentToken;
+            } else if (!(currentToken.equalsIgnoreCase("AND")) && !(currentToken.equalsIgnoreCase("OR"))) {
+                concatName += " " + currentToken;
+            }
+            if (endOfTokens && (concatName.length() > 0)) {
+                names.add(concatName);
+            }
+            previousToken = currentToken;
+        }
+        return names;
+    }
+}
@@ -0,0 +1,71 @@
+package org.seng302.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.seng302.services.FileStorageService;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures FileStorageService.generateThumbnail, which runs on every image upload, for photos of a few sizes.
+ * The images are generated noise with shapes drawn on them, so they don't compress unrealistically well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ThumbnailBenchmark {
+
+    @Param({"640x480", "1920x1080", "4032x3024"})
+    public String size;
+
+    @Param({"jpg", "png"})
+    public String fileExtension;
+
+    private FileStorageService fileStorageService;
+    private MultipartFile image;
+
+    /**
+     * Generates the image to make thumbnails of.
+     */
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        fileStorageService = new FileStorageService("");
+
+        String[] dimensions = size.split("x");
+        int width = Integer.parseInt(dimensions[0]);
+        int height = Integer.parseInt(dimensions[1]);
+        BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(302);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                bufferedImage.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        Graphics2D graphics = bufferedImage.createGraphics();
+        for (int i = 0; i < 50; i++) {
+            graphics.setColor(new Color(random.nextInt(0x1000000)));
+            graphics.fillOval(random.nextInt(width), random.nextInt(height), random.nextInt(width / 2), random.nextInt(height / 2));
+        }
+        graphics.dispose();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(bufferedImage, fileExtension, bytes);
+        image = new MockMultipartFile("image", "image." + fileExtension, null, bytes.toByteArray());
+    }
+
+    @Benchmark
+    public InputStream generateThumbnail() throws IOException {
+        return fileStorageService.generateThumbnail(image, fileExtension);
+    }
+}
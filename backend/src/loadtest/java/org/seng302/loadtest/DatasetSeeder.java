@@ -0,0 +1,116 @@
+package org.seng302.loadtest;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Seeds a database with the Example Data (Full Dataset) SQL files: 10000 users, 1000 businesses and their products,
+ * inventory items and listings, and 300 marketplace cards.
+ * The dataset's listings closed and its cards expired in 2022, so after running the scripts every listing, inventory
+ * item and card is moved into the future, otherwise the listing search and card pages would be empty.
+ */
+public class DatasetSeeder {
+
+    private static final Logger logger = LogManager.getLogger(DatasetSeeder.class.getName());
+
+    // Scripts in the order README_SQL.md says to run them, each depends on the rows of the ones before it.
+    private static final List<String> SCRIPTS = List.of(
+            "addresses_11000.sql",
+            "users_10000.sql",
+            "businesses_1000.sql",
+            "users_businesses_3000.sql",
+            "products_inventory_items_listings_1.sql",
+            "products_inventory_items_listings_2.sql",
+            "keywords_1000.sql",
+            "marketplace_cards_300.sql",
+            "keywords_cards.sql"
+    );
+
+    private final DataSource dataSource;
+    private final Path scriptFolder;
+
+    /**
+     * Constructor for DatasetSeeder.
+     * @param dataSource Database to seed, which must already have the application's schema.
+     * @param scriptFolder Folder with the dataset's SQL files.
+     */
+    public DatasetSeeder(DataSource dataSource, Path scriptFolder) {
+        this.dataSource = dataSource;
+        this.scriptFolder = scriptFolder;
+    }
+
+    /**
+     * Runs the dataset's scripts, unless the database already has users (e.g. a MariaDB instance seeded by an earlier
+     * run), then moves the dates of listings, inventory items and cards so they are open relative to now.
+     * @throws SQLException thrown if a script or update fails.
+     */
+    public void seed() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            if (countUsers(connection) > 0) {
+                logger.info("Database already has users, not running the dataset scripts");
+            } else {
+                for (String script : SCRIPTS) {
+                    long start = System.nanoTime();
+                    ScriptUtils.executeSqlScript(connection,
+                            new EncodedResource(new FileSystemResource(scriptFolder.resolve(script)), StandardCharsets.UTF_8));
+                    logger.info("Ran {} in {} ms", script, (System.nanoTime() - start) / 1_000_000);
+                }
+            }
+            shiftDates(connection);
+        }
+    }
+
+    /**
+     * Counts the users in the database.
+     */
+    private int countUsers(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM user");
+             ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    /**
+     * Makes every listing open for the next month, every inventory item sellable until after its listings close, and
+     * every card displayed for the next two weeks.
+     */
+    private void shiftDates(Connection connection) throws SQLException {
+        LocalDateTime now = LocalDateTime.now();
+        int listings = update(connection, "UPDATE listing SET created = ?, closes = ?",
+                now.minusDays(1), now.plusDays(30));
+        int inventoryItems = update(connection,
+                "UPDATE inventory_item SET manufactured = ?, sell_by = ?, best_before = ?, expires = ?",
+                now.minusDays(30), now.plusDays(60), now.plusDays(60), now.plusDays(90));
+        int cards = update(connection, "UPDATE marketplace_card SET created = ?, display_period_end = ?",
+                now.minusDays(1), now.plusDays(14));
+        logger.info("Moved the dates of {} listings, {} inventory items and {} cards", listings, inventoryItems, cards);
+    }
+
+    /**
+     * Runs an update with date parameters.
+     * @return Number of rows updated.
+     */
+    private int update(Connection connection, String sql, LocalDateTime... dates) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < dates.length; i++) {
+                statement.setTimestamp(i + 1, Timestamp.valueOf(dates[i]));
+            }
+            return statement.executeUpdate();
+        }
+    }
+}
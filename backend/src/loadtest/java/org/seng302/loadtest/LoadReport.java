@@ -0,0 +1,150 @@
+package org.seng302.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Results of a load test by endpoint: how many requests were sent, how many failed and why, and the latency
+ * percentiles. Latencies are measured from when a request was meant to be sent, not when it was, so a slow
+ * application which makes requests queue up shows up in the latencies instead of lowering the request rate.
+ */
+public class LoadReport {
+
+    private static final double[] PERCENTILES = {50, 90, 95, 99};
+
+    private final Map<String, EndpointResults> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * Results of one endpoint. Latencies are kept in microseconds.
+     */
+    private static class EndpointResults {
+        private long[] latencies = new long[1024];
+        private int count;
+        private final Map<String, Integer> errors = new TreeMap<>();
+
+        synchronized void record(long latencyMicros, String error) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyMicros;
+            if (error != null) {
+                errors.merge(error, 1, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * Records a response, or a request which got no response.
+     * @param endpoint Endpoint the request was for, e.g. "GET /listings".
+     * @param latencyNanos Time from when the request was meant to be sent until its response arrived or it failed.
+     * @param error Why the request failed, e.g. "status 500" or the exception's class, null if it succeeded.
+     */
+    public void record(String endpoint, long latencyNanos, String error) {
+        endpoints.computeIfAbsent(endpoint, key -> new EndpointResults()).record(latencyNanos / 1000, error);
+    }
+
+    /**
+     * Summarises the results of each endpoint, and of every endpoint together under "ALL".
+     * @param seconds How long the requests were sent for, to work out the throughput.
+     * @return Summary of each endpoint, in order of endpoint.
+     */
+    public Map<String, Map<String, Object>> summarise(double seconds) {
+        Map<String, Map<String, Object>> summaries = new TreeMap<>();
+        long[] all = new long[0];
+        Map<String, Integer> allErrors = new TreeMap<>();
+        for (Map.Entry<String, EndpointResults> entry : endpoints.entrySet()) {
+            EndpointResults results = entry.getValue();
+            long[] latencies;
+            Map<String, Integer> errors;
+            synchronized (results) {
+                latencies = Arrays.copyOf(results.latencies, results.count);
+                errors = new TreeMap<>(results.errors);
+            }
+            summaries.put(entry.getKey(), summarise(latencies, errors, seconds));
+
+            long[] combined = Arrays.copyOf(all, all.length + latencies.length);
+            System.arraycopy(latencies, 0, combined, all.length, latencies.length);
+            all = combined;
+            errors.forEach((error, count) -> allErrors.merge(error, count, Integer::sum));
+        }
+        summaries.put("ALL", summarise(all, allErrors, seconds));
+        return summaries;
+    }
+
+    private static Map<String, Object> summarise(long[] latencies, Map<String, Integer> errors, double seconds) {
+        Arrays.sort(latencies);
+        int errorCount = errors.values().stream().mapToInt(Integer::intValue).sum();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", latencies.length);
+        summary.put("throughputPerSecond", latencies.length / seconds);
+        summary.put("errors", errorCount);
+        summary.put("errorRate", latencies.length == 0 ? 0.0 : (double) errorCount / latencies.length);
+        for (double percentile : PERCENTILES) {
+            summary.put(String.format("p%.0fMillis", percentile), percentile(latencies, percentile) / 1000.0);
+        }
+        summary.put("maxMillis", latencies.length == 0 ? 0.0 : latencies[latencies.length - 1] / 1000.0);
+        summary.put("errorsByCause", errors);
+        return summary;
+    }
+
+    /**
+     * Nearest rank percentile of sorted latencies.
+     */
+    private static long percentile(long[] sortedLatencies, double percentile) {
+        if (sortedLatencies.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * sortedLatencies.length);
+        return sortedLatencies[Math.max(rank, 1) - 1];
+    }
+
+    /**
+     * Prints a table of the summaries, one row per endpoint.
+     * @param summaries Summaries from summarise.
+     * @param out Where to print them.
+     */
+    public static void print(Map<String, Map<String, Object>> summaries, PrintStream out) {
+        String format = "%-24s %9s %10s %8s %9s %9s %9s %9s %9s%n";
+        out.printf(format, "endpoint", "requests", "req/s", "errors", "p50 ms", "p90 ms", "p95 ms", "p99 ms", "max ms");
+        for (Map.Entry<String, Map<String, Object>> entry : summaries.entrySet()) {
+            Map<String, Object> summary = entry.getValue();
+            out.printf(format, entry.getKey(), summary.get("requests"),
+                    String.format("%.1f", (double) summary.get("throughputPerSecond")),
+                    String.format("%.1f%%", (double) summary.get("errorRate") * 100),
+                    millis(summary.get("p50Millis")), millis(summary.get("p90Millis")), millis(summary.get("p95Millis")),
+                    millis(summary.get("p99Millis")), millis(summary.get("maxMillis")));
+        }
+        for (Map.Entry<String, Map<String, Object>> entry : summaries.entrySet()) {
+            if (!entry.getKey().equals("ALL") && !((Map<?, ?>) entry.getValue().get("errorsByCause")).isEmpty()) {
+                out.printf("%s errors: %s%n", entry.getKey(), entry.getValue().get("errorsByCause"));
+            }
+        }
+    }
+
+    private static String millis(Object millis) {
+        return String.format("%.1f", (double) millis);
+    }
+
+    /**
+     * Writes the settings of the run and the summaries as JSON.
+     * @param file File to write.
+     * @param settings Settings the load test ran with.
+     * @param summaries Summaries from summarise.
+     * @throws IOException thrown if the file can't be written.
+     */
+    public static void write(Path file, Map<String, Object> settings, Map<String, Map<String, Object>> summaries)
+            throws IOException {
+        Map<String, Object> results = new LinkedHashMap<>();
+        results.put("settings", settings);
+        results.put("endpoints", summaries);
+        Files.createDirectories(file.getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), results);
+    }
+}
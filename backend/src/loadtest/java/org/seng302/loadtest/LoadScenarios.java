@@ -0,0 +1,239 @@
+package org.seng302.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.imageio.ImageIO;
+import javax.sql.DataSource;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the load test's scenarios against a running application seeded with the full dataset:
+ * logging in, searching listings, browsing the card sections, buying a listing and uploading a profile image.
+ * Every dataset user's password is Qwerty123!. Some users are logged in up front and the scenarios which need a
+ * session send a random one of their cookies; the login scenario logs in other users, so it doesn't end the sessions.
+ * Scenarios are only called from the thread sending requests, so they don't need to be thread safe.
+ */
+public class LoadScenarios {
+
+    private static final Logger logger = LogManager.getLogger(LoadScenarios.class.getName());
+
+    private static final String PASSWORD = "Qwerty123!";
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    // Names in the dataset's products and businesses, and ORs of them, as people would search for them.
+    private static final List<String> SEARCH_QUERIES = List.of(
+            "", "Cheese", "Sprouts", "Wine", "Beef", "Apple", "Bread", "Cheese OR Wine", "\"Cheese - Blue\"",
+            "Coffee OR Tea", "Chicken AND Breast", "Rowe Inc");
+    private static final List<String> SEARCH_TYPES = List.of("listingName", "listingName", "listingName", "businessName");
+    private static final List<String> LISTING_ORDERS = List.of("productNameASC", "priceASC", "priceDESC", "expiryDateASC");
+    private static final List<String> CARD_SECTIONS = List.of("ForSale", "Wanted", "Exchange");
+
+    private final HttpClient client;
+    private final URI baseUri;
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Random random = new Random(302);
+
+    private final List<Session> sessions = new ArrayList<>();
+    private final List<String> loginEmails = new ArrayList<>();
+    private final Queue<Integer> listingIds = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger nextLogin = new AtomicInteger();
+    private byte[] image;
+
+    /**
+     * A logged in user.
+     */
+    private static class Session {
+        private final int userId;
+        private final String cookie;
+
+        Session(int userId, String cookie) {
+            this.userId = userId;
+            this.cookie = cookie;
+        }
+    }
+
+    /**
+     * Constructor for LoadScenarios.
+     * @param client Client the requests will be sent with.
+     * @param baseUri Address of the running application, e.g. http://localhost:9499.
+     * @param dataSource The application's database, to find the users and listings to use.
+     */
+    public LoadScenarios(HttpClient client, URI baseUri, DataSource dataSource) {
+        this.client = client;
+        this.baseUri = baseUri;
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Logs in the users whose sessions the scenarios use, and picks the users the login scenario logs in and the
+     * listings the buy scenario buys.
+     * @param sessionCount Number of users to log in up front.
+     */
+    public void prepare(int sessionCount) throws SQLException, IOException, InterruptedException {
+        List<Map.Entry<Integer, String>> users = new ArrayList<>();
+        List<Integer> listings = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection()) {
+            // Users without businesses, so a buyer never buys their own business's listing.
+            try (PreparedStatement statement = connection.prepareStatement("SELECT id, email FROM user "
+                    + "WHERE role = 'USER' AND id NOT IN (SELECT user_id FROM users_businesses) ORDER BY id");
+                 ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    users.add(Map.entry(resultSet.getInt(1), resultSet.getString(2)));
+                }
+            }
+            try (PreparedStatement statement = connection.prepareStatement("SELECT id FROM listing ORDER BY id");
+                 ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    listings.add(resultSet.getInt(1));
+                }
+            }
+        }
+        if (users.size() <= sessionCount) {
+            throw new IllegalStateException(String.format("Only %d users to log in, fewer than the %d sessions and a user to log in",
+                    users.size(), sessionCount));
+        }
+
+        for (Map.Entry<Integer, String> user : users.subList(0, sessionCount)) {
+            HttpResponse<String> response = client.send(login(user.getValue()), HttpResponse.BodyHandlers.ofString());
+            String cookie = response.headers().firstValue("Set-Cookie")
+                    .orElseThrow(() -> new IllegalStateException("Could not log in " + user.getValue() + ": " + response.statusCode()));
+            sessions.add(new Session(user.getKey(), cookie.substring(0, cookie.indexOf(';'))));
+        }
+        for (Map.Entry<Integer, String> user : users.subList(sessionCount, users.size())) {
+            loginEmails.add(user.getValue());
+        }
+        Collections.shuffle(listings, random);
+        listingIds.addAll(listings);
+        image = createImage();
+        logger.info("Logged in {} users, {} users to log in and {} listings to buy", sessions.size(), loginEmails.size(),
+                listingIds.size());
+    }
+
+    /**
+     * Creates the scenarios.
+     * @param weights How often each scenario is picked, by name (login, search, cards, buy, image), a scenario
+     *                without a weight is left out.
+     * @return The scenarios with a weight above 0.
+     */
+    public List<Scenario> create(Map<String, Integer> weights) {
+        List<Scenario> scenarios = new ArrayList<>();
+        scenarios.add(new Scenario("login", "POST /login", weights.getOrDefault("login", 0), 200,
+                () -> login(loginEmails.get(nextLogin.getAndIncrement() % loginEmails.size()))));
+        scenarios.add(new Scenario("search", "GET /listings", weights.getOrDefault("search", 0), 200,
+                this::searchListings));
+        scenarios.add(new Scenario("cards", "GET /cards", weights.getOrDefault("cards", 0), 200,
+                this::browseCards));
+        scenarios.add(new Scenario("buy", "PUT /listings/{id}/buy", weights.getOrDefault("buy", 0), 200,
+                this::buyListing));
+        scenarios.add(new Scenario("image", "POST /images", weights.getOrDefault("image", 0), 201,
+                this::uploadImage));
+        scenarios.removeIf(scenario -> scenario.getWeight() <= 0);
+        return scenarios;
+    }
+
+    private HttpRequest login(String email) {
+        String body;
+        try {
+            body = objectMapper.writeValueAsString(Map.of("email", email, "password", PASSWORD));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return HttpRequest.newBuilder(baseUri.resolve("/login"))
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private HttpRequest searchListings() {
+        String query = String.format("/listings?searchQuery=%s&searchType=%s&orderBy=%s&page=%d&pageSize=12",
+                encode(pick(SEARCH_QUERIES)), pick(SEARCH_TYPES), pick(LISTING_ORDERS), random.nextInt(3));
+        return withSession(HttpRequest.newBuilder(baseUri.resolve(query))).GET().build();
+    }
+
+    private HttpRequest browseCards() {
+        String query = String.format("/cards?section=%s&page=%d", pick(CARD_SECTIONS), random.nextInt(5));
+        return withSession(HttpRequest.newBuilder(baseUri.resolve(query))).GET().build();
+    }
+
+    /**
+     * Buys the next of the shuffled listings, so each listing is bought once. When every listing has been bought
+     * this keeps buying the last one, which fails and shows up as errors.
+     */
+    private HttpRequest buyListing() {
+        Integer listingId = listingIds.size() > 1 ? listingIds.poll() : listingIds.peek();
+        return withSession(HttpRequest.newBuilder(baseUri.resolve("/listings/" + listingId + "/buy")))
+                .header("Idempotency-Key", UUID.randomUUID().toString())
+                .PUT(HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+
+    /**
+     * Uploads a profile image for the session's user, sent as a multipart form like the browser's upload.
+     */
+    private HttpRequest uploadImage() {
+        Session session = pick(sessions);
+        String boundary = "LoadTestBoundary" + UUID.randomUUID().toString().replace("-", "");
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] header = ("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"images\"; filename=\"profile.jpg\"\r\n"
+                + "Content-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+        byte[] footer = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+        body.writeBytes(header);
+        body.writeBytes(image);
+        body.writeBytes(footer);
+        String query = "/images?uncheckedImageType=USER_IMAGE&userId=" + session.userId;
+        return HttpRequest.newBuilder(baseUri.resolve(query))
+                .timeout(TIMEOUT)
+                .header("Cookie", session.cookie)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+    }
+
+    private HttpRequest.Builder withSession(HttpRequest.Builder builder) {
+        return builder.timeout(TIMEOUT).header("Cookie", pick(sessions).cookie);
+    }
+
+    private <T> T pick(List<T> values) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates a photo sized jpg of noise, so it doesn't compress unrealistically well.
+     */
+    private byte[] createImage() throws IOException {
+        BufferedImage bufferedImage = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < bufferedImage.getHeight(); y++) {
+            for (int x = 0; x < bufferedImage.getWidth(); x++) {
+                bufferedImage.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(bufferedImage, "jpg", bytes);
+        return bytes.toByteArray();
+    }
+}
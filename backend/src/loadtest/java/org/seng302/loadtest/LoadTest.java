@@ -0,0 +1,200 @@
+package org.seng302.loadtest;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.seng302.Main;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end load test. Seeds a database with the Example Data (Full Dataset), starts the application against it,
+ * then sends the scenarios' requests at a fixed rate and reports the latency percentiles, throughput and error rate
+ * of each endpoint. The results are printed and kept as JSON in load-test-results/, named by when the run started.
+ *
+ * Run it with ./gradlew loadTest, set up with system properties:
+ * loadtest.profile (local, an in-memory H2 database, or mariadb), loadtest.datasource.url, .username and .password
+ * (defaults to the profile's database), loadtest.rps (20), loadtest.duration.in.seconds (60),
+ * loadtest.warmup.in.seconds (15), loadtest.sessions (50), loadtest.max-in-flight (200),
+ * loadtest.weights (login=10,search=45,cards=25,buy=15,image=5) and loadtest.dataset (the dataset's SQL folder).
+ *
+ * Requests are sent on schedule whether or not earlier ones have been answered, like independent users would, up to
+ * max-in-flight unanswered requests; requests past that are counted as "client saturated" errors.
+ * Uploaded images are stored in the storage folder of the working directory, as they are when the application runs.
+ */
+public class LoadTest {
+
+    private static final Logger logger = LogManager.getLogger(LoadTest.class.getName());
+
+    private static final String H2_URL = "jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1";
+
+    public static void main(String[] args) throws Exception {
+        String profile = System.getProperty("loadtest.profile", "local");
+        String datasourceUrl = System.getProperty("loadtest.datasource.url", profile.equals("local") ? H2_URL : null);
+        double rps = Double.parseDouble(System.getProperty("loadtest.rps", "20"));
+        Duration duration = Duration.ofSeconds(Long.parseLong(System.getProperty("loadtest.duration.in.seconds", "60")));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(System.getProperty("loadtest.warmup.in.seconds", "15")));
+        int sessionCount = Integer.parseInt(System.getProperty("loadtest.sessions", "50"));
+        int maxInFlight = Integer.parseInt(System.getProperty("loadtest.max-in-flight", "200"));
+        Map<String, Integer> weights = parseWeights(System.getProperty("loadtest.weights",
+                "login=10,search=45,cards=25,buy=15,image=5"));
+        Path dataset = Paths.get(System.getProperty("loadtest.dataset",
+                "src/main/resources/Example Data (Full Dataset)/SQL Files"));
+        String startedAt = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd-HHmmss"));
+
+        // Seeded without the application runner, which would create the admin before the dataset's users and throw
+        // off the ids the dataset's scripts refer to.
+        try (ConfigurableApplicationContext seeding = new SpringApplicationBuilder(Main.class)
+                .web(WebApplicationType.NONE)
+                .profiles(profile, "test")
+                .run(arguments(datasourceUrl))) {
+            new DatasetSeeder(seeding.getBean(DataSource.class), dataset).seed();
+        }
+
+        // Started again so everything built at startup (the search index, the inventory ledger) includes the dataset.
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Main.class)
+                .profiles(profile)
+                .run(arguments(datasourceUrl, "--server.port=" + System.getProperty("loadtest.port", "0")))) {
+            int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            LoadScenarios loadScenarios = new LoadScenarios(client, URI.create("http://localhost:" + port),
+                    context.getBean(DataSource.class));
+            loadScenarios.prepare(sessionCount);
+            List<Scenario> scenarios = loadScenarios.create(weights);
+
+            logger.info("Warming up at {} requests per second for {}", rps, warmup);
+            run(client, scenarios, rps, warmup, maxInFlight, new LoadReport());
+            logger.info("Sending {} requests per second for {}", rps, duration);
+            LoadReport report = new LoadReport();
+            run(client, scenarios, rps, duration, maxInFlight, report);
+
+            Map<String, Map<String, Object>> summaries = report.summarise(duration.toMillis() / 1000.0);
+            LoadReport.print(summaries, System.out);
+
+            Map<String, Object> settings = new LinkedHashMap<>();
+            settings.put("startedAt", startedAt);
+            settings.put("profile", profile);
+            settings.put("datasourceUrl", datasourceUrl);
+            settings.put("rps", rps);
+            settings.put("durationInSeconds", duration.getSeconds());
+            settings.put("warmupInSeconds", warmup.getSeconds());
+            settings.put("sessions", sessionCount);
+            settings.put("maxInFlight", maxInFlight);
+            settings.put("weights", weights);
+            Path results = Paths.get("load-test-results", "loadtest-" + startedAt + ".json");
+            LoadReport.write(results, settings, summaries);
+            logger.info("Results written to {}", results.toAbsolutePath());
+        }
+    }
+
+    /**
+     * Arguments to start the application against the database under test with, passed as command line arguments so
+     * they override the profile's properties. The example data isn't loaded into the H2 database, as the dataset is,
+     * and the application only logs warnings so logging doesn't skew the latencies.
+     */
+    private static String[] arguments(String datasourceUrl, String... extraArguments) {
+        List<String> arguments = new ArrayList<>(List.of(
+                "--spring.datasource.initialization-mode=never",
+                "--logging.level.root=warn",
+                "--logging.level.org.seng302.loadtest=info"
+        ));
+        if (datasourceUrl != null) {
+            arguments.add("--spring.datasource.url=" + datasourceUrl);
+        }
+        for (String property : List.of("username", "password")) {
+            String value = System.getProperty("loadtest.datasource." + property);
+            if (value != null) {
+                arguments.add("--spring.datasource." + property + "=" + value);
+            }
+        }
+        arguments.addAll(List.of(extraArguments));
+        return arguments.toArray(new String[0]);
+    }
+
+    /**
+     * Parses scenario weights written like login=10,search=45.
+     */
+    private static Map<String, Integer> parseWeights(String weights) {
+        Map<String, Integer> parsed = new LinkedHashMap<>();
+        for (String weight : weights.split(",")) {
+            String[] nameAndWeight = weight.trim().split("=");
+            parsed.put(nameAndWeight[0].trim(), Integer.parseInt(nameAndWeight[1].trim()));
+        }
+        return parsed;
+    }
+
+    /**
+     * Sends requests for randomly picked scenarios, in proportion to their weights, at a fixed rate and records the
+     * responses, then waits for the last requests to be answered.
+     */
+    private static void run(HttpClient client, List<Scenario> scenarios, double rps, Duration duration, int maxInFlight,
+                            LoadReport report) throws InterruptedException {
+        int totalWeight = scenarios.stream().mapToInt(Scenario::getWeight).sum();
+        Random random = new Random();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rps);
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+
+        for (long scheduled = start; scheduled < end; scheduled += interval) {
+            long wait;
+            while ((wait = scheduled - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Scenario scenario = pick(scenarios, random.nextInt(totalWeight));
+            if (!inFlight.tryAcquire()) {
+                report.record(scenario.getEndpoint(), System.nanoTime() - scheduled, "client saturated");
+                continue;
+            }
+            long sentAt = scheduled;
+            client.sendAsync(scenario.nextRequest(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, exception) -> {
+                        String error = null;
+                        if (exception != null) {
+                            Throwable cause = exception instanceof CompletionException ? exception.getCause() : exception;
+                            error = cause.getClass().getSimpleName();
+                        } else if (response.statusCode() != scenario.getExpectedStatus()) {
+                            error = "status " + response.statusCode();
+                        }
+                        report.record(scenario.getEndpoint(), System.nanoTime() - sentAt, error);
+                        inFlight.release();
+                    });
+        }
+
+        if (!inFlight.tryAcquire(maxInFlight, 60, TimeUnit.SECONDS)) {
+            logger.warn("{} requests still unanswered after a minute", maxInFlight - inFlight.availablePermits());
+        }
+    }
+
+    /**
+     * Picks the scenario a random number up to the total weight falls in.
+     */
+    private static Scenario pick(List<Scenario> scenarios, int randomWeight) {
+        for (Scenario scenario : scenarios) {
+            randomWeight -= scenario.getWeight();
+            if (randomWeight < 0) {
+                return scenario;
+            }
+        }
+        return scenarios.get(scenarios.size() - 1);
+    }
+}
@@ -0,0 +1,53 @@
+package org.seng302.loadtest;
+
+import java.net.http.HttpRequest;
+import java.util.function.Supplier;
+
+/**
+ * Something a user does, replayed by the load test: the request it sends to one endpoint, how often it is picked
+ * relative to the other scenarios, and the status which means it worked.
+ */
+public class Scenario {
+
+    private final String name;
+    private final String endpoint;
+    private final int weight;
+    private final int expectedStatus;
+    private final Supplier<HttpRequest> requests;
+
+    /**
+     * Constructor for Scenario.
+     * @param name Name of the scenario, e.g. "search".
+     * @param endpoint Endpoint the results are reported under, e.g. "GET /listings".
+     * @param weight How often the scenario is picked relative to the others, 0 to leave it out.
+     * @param expectedStatus HTTP status of a successful response, anything else is counted as an error.
+     * @param requests Creates the next request to send, called on the thread sending requests.
+     */
+    public Scenario(String name, String endpoint, int weight, int expectedStatus, Supplier<HttpRequest> requests) {
+        this.name = name;
+        this.endpoint = endpoint;
+        this.weight = weight;
+        this.expectedStatus = expectedStatus;
+        this.requests = requests;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public int getExpectedStatus() {
+        return expectedStatus;
+    }
+
+    public HttpRequest nextRequest() {
+        return requests.get();
+    }
+}
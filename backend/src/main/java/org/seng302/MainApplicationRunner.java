@@ -10,6 +10,9 @@ import org.seng302.model.MarketplaceCard;
 import org.seng302.model.repository.*;
 import org.seng302.model.enums.Role;
 import org.seng302.model.User;
+import org.seng302.services.CardKeywordIndex;
+import org.seng302.services.ConversationInboxService;
+import org.seng302.services.ScheduledJobLockService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.ApplicationArguments;
@@ -41,15 +44,33 @@ public class MainApplicationRunner implements ApplicationRunner {
     private final ProductRepository productRepository;
     private final MarketplaceCardRepository marketplaceCardRepository;
     private final MarketCardNotificationRepository marketCardNotificationRepository;
+    private final CardKeywordIndex cardKeywordIndex;
 
     @Value("${dgaa.email}")
     private String dgaaEmail;
     @Value("${dgaa.password}")
     private String dgaaPassword;
 
+    @Value("${fixed-delay.in.milliseconds}")
+    private long dgaaCheckDelay;
+    @Value("${fixed-delay-for-notification.in.milliseconds}")
+    private long notificationCheckDelay;
+    @Value("${scheduled-job.lease.max-hold.in.milliseconds:600000}")
+    private long leaseMaxHold;
+
     @Autowired
     private ConfigurableApplicationContext context;
 
+    @Autowired
+    private ScheduledJobLockService scheduledJobLockService;
+
+    @Autowired
+    private ConversationInboxService conversationInboxService;
+
+    private static final String DGAA_CHECK_JOB = "checkDGAAExists";
+    private static final String NOTIFICATION_CHECK_JOB = "checkNotifications";
+    private static final String CREATOR_LOCATION_BACKFILL_JOB = "fillMissingCreatorLocations";
+
     private static final String NOTIFICATION_MESSAGE_FORMAT = "Your card (%s) will be expired in %s.";
     private static final String EXPIRED_NOTIFICATION_MESSAGE = "Your card (%s) expired %s ago and will soon be deleted.";
     public static final String DELETED_NOTIFICATION_MESSAGE = "Your card (%s) has been deleted.";
@@ -65,13 +86,15 @@ public class MainApplicationRunner implements ApplicationRunner {
                                  AddressRepository addressRepository,
                                  ProductRepository productRepository,
                                  MarketplaceCardRepository marketplaceCardRepository,
-                                 MarketCardNotificationRepository marketCardNotificationRepository) {
+                                 MarketCardNotificationRepository marketCardNotificationRepository,
+                                 CardKeywordIndex cardKeywordIndex) {
         this.userRepository = userRepository;
         this.businessRepository = businessRepository;
         this.addressRepository = addressRepository;
         this.productRepository = productRepository;
         this.marketplaceCardRepository = marketplaceCardRepository;
         this.marketCardNotificationRepository = marketCardNotificationRepository;
+        this.cardKeywordIndex = cardKeywordIndex;
     }
 
     /**
@@ -80,11 +103,16 @@ public class MainApplicationRunner implements ApplicationRunner {
      */
     @Override
     public void run(ApplicationArguments args) throws Exception {
+        // Every node starts up, but only the one holding the lease fills in the creator locations.
+        scheduledJobLockService.runExclusively(CREATOR_LOCATION_BACKFILL_JOB, Duration.ofMillis(leaseMaxHold),
+                Duration.ofMillis(leaseMaxHold), this::fillMissingCreatorLocations);
+
         if (isPresent(dgaaEmail) && isPresent(dgaaPassword)) {
             logger.info("Startup application with {}", args);
             userRepository.findAll().forEach(logger::info);
             businessRepository.findAll().forEach(logger::info);
             addressRepository.findAll().forEach(logger::info);
+            conversationInboxService.addMissingEntries();
 
         } else {
             logger.fatal("Environment variables for DGAA email and/or password are not defined.");
@@ -93,19 +121,66 @@ public class MainApplicationRunner implements ApplicationRunner {
         }
     }
 
+    /**
+     * Fills in the creator suburb and city of the cards which do not have them yet (e.g. cards inserted by SQL
+     * scripts), so they can be ordered by location. This is run at startup by whichever node holds the lease for it.
+     * The card keyword index is rebuilt if any cards were filled in, as it orders cards by their creator location too.
+     */
+    public void fillMissingCreatorLocations() {
+        int filledCards = marketplaceCardRepository.fillMissingCreatorLocations();
+        logger.info("Filled in the creator location of {} marketplace cards", filledCards);
+        if (filledCards > 0) {
+            cardKeywordIndex.rebuild();
+        }
+    }
+
+    /**
+     * Periodically runs checkDGAAExists on whichever node holds the lease for it, so that only one node
+     * checks (and possibly creates) the DGAA per tick. The period between checks can be altered by changing the
+     * fixed-delay.in.milliseconds section in the application.properties file.
+     *
+     * @throws Exception thrown if checkDGAAExists fails.
+     */
+    @Scheduled(fixedDelayString = "${fixed-delay.in.milliseconds}")
+    public void scheduledCheckDGAAExists() throws Exception {
+        scheduledJobLockService.runExclusively(DGAA_CHECK_JOB, Duration.ofMillis(leaseMaxHold),
+                minimumLeaseHold(dgaaCheckDelay), this::checkDGAAExists);
+    }
+
+    /**
+     * Periodically runs checkNotifications on whichever node holds the lease for it, so that only one node
+     * scans the cards per tick. The period between checks can be altered by changing the
+     * fixed-delay-for-notification.in.milliseconds section in the application.properties file.
+     *
+     * @throws Exception thrown if checkNotifications fails.
+     */
+    @Scheduled(fixedDelayString = "${fixed-delay-for-notification.in.milliseconds}")
+    public void scheduledCheckNotifications() throws Exception {
+        scheduledJobLockService.runExclusively(NOTIFICATION_CHECK_JOB, Duration.ofMillis(leaseMaxHold),
+                minimumLeaseHold(notificationCheckDelay), this::checkNotifications);
+    }
+
+    /**
+     * The lease is held for most of the job's delay so that other nodes (whose schedules are offset) do not
+     * run the job again in the same tick. A small margin is left so clock drift does not skip a tick.
+     *
+     * @param fixedDelay delay between runs of the job in milliseconds
+     * @return the minimum time a lease for the job is held
+     */
+    private static Duration minimumLeaseHold(long fixedDelay) {
+        return Duration.ofMillis(fixedDelay - fixedDelay / 10);
+    }
+
     /**
      * Checks to see whether a Default Global Application Admin exists.
      * If one does not exist the function automatically creates a
      * Default Global Application Admin with a predefined username and password.
-     * This is a scheduled task and will therefore periodically check. The
-     * period between checks can be altered by changing the
-     * fixed-delay.in.milliseconds section in the application.properties file.
+     * This is run periodically by scheduledCheckDGAAExists.
      * The system logs are updated when checked.
      *
      * @throws IllegalAddressArgumentException thrown if a new address's data is not valid.
      * @throws IllegalUserArgumentException thrown if a new DGAA's data is not valid.
      */
-    @Scheduled(fixedDelayString = "${fixed-delay.in.milliseconds}")
     public void checkDGAAExists() throws IllegalAddressArgumentException, IllegalUserArgumentException {
         if (!(userRepository.existsByRole(Role.DEFAULTGLOBALAPPLICATIONADMIN))) {
             Address address = new Address(
@@ -142,8 +217,8 @@ public class MainApplicationRunner implements ApplicationRunner {
     /**
      * Check displayPeriodEnd for all Market cards, and compare with current time, if the card will expired in next 24h,
      * create/update a notification for this card.
+     * This is run periodically by scheduledCheckNotifications.
      */
-    @Scheduled(fixedDelayString = "${fixed-delay-for-notification.in.milliseconds}")
     public void checkNotifications() {
         // Time
         LocalDateTime currentTime = LocalDateTime.now();
@@ -178,6 +253,7 @@ public class MainApplicationRunner implements ApplicationRunner {
                     logger.debug("Marketplace card ({}) has been deleted.", marketplaceCard.getTitle());
                     marketCardNotificationRepository.deleteAllByMarketCardId(marketplaceCard.getId());
                     marketplaceCardRepository.delete(marketplaceCard);
+                    cardKeywordIndex.removeCard(marketplaceCard.getId());
                     marketplaceCard = null;
                 }
 
@@ -0,0 +1,46 @@
+package org.seng302;
+
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.type.Type;
+import org.seng302.services.RequestMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * Counts the SQL statements Hibernate prepares and the entities it loads from the rows it fetches, in
+ * {@link RequestMetrics}. Registers itself as the statement inspector and interceptor of the session factory, so it is
+ * shared by every session and only counts, never changing the SQL or the entities.
+ */
+@Component
+public class QueryMetricsInterceptor extends EmptyInterceptor implements StatementInspector, HibernatePropertiesCustomizer {
+
+    private final transient RequestMetrics requestMetrics;
+
+    @Autowired
+    public QueryMetricsInterceptor(RequestMetrics requestMetrics) {
+        this.requestMetrics = requestMetrics;
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put("hibernate.session_factory.statement_inspector", this);
+        hibernateProperties.put("hibernate.session_factory.interceptor", this);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        requestMetrics.recordStatement();
+        return sql;
+    }
+
+    @Override
+    public boolean onLoad(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+        requestMetrics.recordRowFetched();
+        return false;
+    }
+}
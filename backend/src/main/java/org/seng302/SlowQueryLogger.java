@@ -0,0 +1,330 @@
+package org.seng302;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Logs SQL statements which take longer than slow-query.threshold.in.milliseconds to the slow query log (see
+ * log4j2.xml), with their elapsed time, row count, the application method that ran them and the
+ * endpoint being handled, e.g.
+ * "812 ms, 40 rows - ListingRepositoryCustomImpl.getListings from GET /listings (ListingResource.getListings)".
+ * The data source is wrapped so every statement is timed, from when it is executed until its results are closed,
+ * which includes fetching the rows. Only slow statements have their origin looked up, so fast ones cost a clock read.
+ * Bind values can also be logged for debugging, but only numbers and booleans are written as they are, as the others
+ * may be personal details, passwords or session tokens.
+ */
+@Component
+public class SlowQueryLogger implements BeanPostProcessor {
+
+    private static final Logger slowQueryLog = LogManager.getLogger("org.seng302.SlowQueryLog");
+
+    private final long thresholdNanos;
+
+    private final boolean logBindValues;
+
+    private final Consumer<String> log;
+
+    /**
+     * Constructor for SlowQueryLogger. The properties are read from the environment, as post processors are created
+     * before @Value placeholders can be resolved.
+     * @param environment Has slow-query.threshold.in.milliseconds, the time in milliseconds a statement has to take to
+     *                    be logged (negative to log none), and slow-query.log-bind-values, whether the masked bind
+     *                    values of slow statements are logged.
+     */
+    @Autowired
+    public SlowQueryLogger(Environment environment) {
+        this(environment.getProperty("slow-query.threshold.in.milliseconds", Long.class, 500L),
+                environment.getProperty("slow-query.log-bind-values", Boolean.class, false),
+                slowQueryLog::warn);
+    }
+
+    /**
+     * Constructor for SlowQueryLogger with where the slow statements are written.
+     * @param threshold Time in milliseconds a statement has to take to be logged, negative to log none.
+     * @param logBindValues Whether the masked bind values of slow statements are logged.
+     * @param log Writes a slow statement's message.
+     */
+    public SlowQueryLogger(long threshold, boolean logBindValues, Consumer<String> log) {
+        this.thresholdNanos = threshold < 0 ? -1 : threshold * 1_000_000;
+        this.logBindValues = logBindValues;
+        this.log = log;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource && thresholdNanos >= 0) {
+            return wrap((DataSource) bean);
+        }
+        return bean;
+    }
+
+    /**
+     * Wraps a data source so the statements run on its connections are timed.
+     * @param dataSource The data source.
+     * @return The wrapped data source.
+     */
+    public DataSource wrap(DataSource dataSource) {
+        // Closeable is kept so the connection pool is still closed when the application shuts down.
+        Class<?>[] types = dataSource instanceof Closeable
+                ? new Class<?>[] {DataSource.class, Closeable.class}
+                : new Class<?>[] {DataSource.class};
+        return (DataSource) proxy(types, dataSource, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            return result instanceof Connection ? proxy(Connection.class, result, new ConnectionHandler()) : result;
+        });
+    }
+
+    /**
+     * Calls a method of a wrapped object, throwing what it throws.
+     */
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Object target, TargetHandler handler) {
+        return (T) proxy(new Class<?>[] {type}, target, handler);
+    }
+
+    /**
+     * Creates a proxy with the given interfaces which passes calls to the handler, apart from unwrapping.
+     */
+    private static Object proxy(Class<?>[] types, Object target, TargetHandler handler) {
+        return Proxy.newProxyInstance(SlowQueryLogger.class.getClassLoader(), types,
+                (instance, method, args) -> {
+                    if (method.getName().equals("unwrap") || method.getName().equals("isWrapperFor")) {
+                        return invoke(target, method, args);
+                    }
+                    return handler.invoke(target, method, args);
+                });
+    }
+
+    /**
+     * Handles a call to a wrapped object.
+     */
+    private interface TargetHandler {
+        Object invoke(Object target, Method method, Object[] args) throws Throwable;
+    }
+
+    /**
+     * Wraps the statements a connection creates.
+     */
+    private class ConnectionHandler implements TargetHandler {
+
+        @Override
+        public Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            Object result = SlowQueryLogger.invoke(target, method, args);
+            String name = method.getName();
+            if (result instanceof CallableStatement) {
+                return proxy(CallableStatement.class, result, new StatementHandler((String) args[0]));
+            } else if (result instanceof PreparedStatement && name.equals("prepareStatement")) {
+                return proxy(PreparedStatement.class, result, new StatementHandler((String) args[0]));
+            } else if (result instanceof Statement && name.equals("createStatement")) {
+                return proxy(Statement.class, result, new StatementHandler(null));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Records the bind values of a statement and times its executions.
+     */
+    private class StatementHandler implements TargetHandler {
+
+        private final String sql;
+
+        private final Map<Integer, Object> bindValues = new TreeMap<>();
+
+        private Execution execution;
+
+        StatementHandler(String sql) {
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                bindValues.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                bindValues.clear();
+            } else if (name.equals("close")) {
+                finishExecution(-1);
+            }
+            if (!name.startsWith("execute")) {
+                return SlowQueryLogger.invoke(target, method, args);
+            }
+
+            finishExecution(-1);
+            String executedSql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+            execution = new Execution(executedSql, logBindValues ? new TreeMap<>(bindValues) : null);
+            Object result = SlowQueryLogger.invoke(target, method, args);
+            if (result instanceof ResultSet) {
+                Execution resultExecution = execution;
+                return proxy(ResultSet.class, result, (resultSet, resultSetMethod, resultSetArgs) -> {
+                    Object value = SlowQueryLogger.invoke(resultSet, resultSetMethod, resultSetArgs);
+                    if (resultSetMethod.getName().equals("next") && Boolean.TRUE.equals(value)) {
+                        resultExecution.rows++;
+                    } else if (resultSetMethod.getName().equals("close")) {
+                        finish(resultExecution, -1);
+                    }
+                    return value;
+                });
+            } else if (result instanceof Number) {
+                finishExecution(((Number) result).longValue());
+            } else if (result instanceof int[]) {
+                long rows = 0;
+                for (int count : (int[]) result) {
+                    rows += Math.max(count, 0);
+                }
+                finishExecution(rows);
+            } else if (result instanceof long[]) {
+                long rows = 0;
+                for (long count : (long[]) result) {
+                    rows += Math.max(count, 0);
+                }
+                finishExecution(rows);
+            } else {
+                finishExecution(-1);
+            }
+            return result;
+        }
+
+        private void finishExecution(long rows) {
+            if (execution != null) {
+                finish(execution, rows);
+                execution = null;
+            }
+        }
+    }
+
+    /**
+     * One execution of a statement.
+     */
+    private static class Execution {
+
+        private final long started = System.nanoTime();
+
+        private final String sql;
+
+        private final Map<Integer, Object> bindValues;
+
+        private long rows;
+
+        private boolean finished;
+
+        Execution(String sql, Map<Integer, Object> bindValues) {
+            this.sql = sql;
+            this.bindValues = bindValues;
+        }
+    }
+
+    /**
+     * Logs an execution if it was slow. Executions are only logged once.
+     * @param execution The execution.
+     * @param updatedRows Rows updated by the statement, or -1 to use the rows fetched.
+     */
+    private void finish(Execution execution, long updatedRows) {
+        if (execution.finished) {
+            return;
+        }
+        execution.finished = true;
+        long elapsed = System.nanoTime() - execution.started;
+        if (elapsed < thresholdNanos) {
+            return;
+        }
+        long rows = updatedRows >= 0 ? updatedRows : execution.rows;
+        StringBuilder message = new StringBuilder()
+                .append(elapsed / 1_000_000).append(" ms, ").append(rows).append(" rows - ")
+                .append(findCaller().orElse("unknown")).append(" from ").append(findEndpoint())
+                .append(" - ").append(execution.sql.replaceAll("\\s+", " ").trim());
+        if (execution.bindValues != null) {
+            message.append(" - binds ").append(formatBindValues(execution.bindValues));
+        }
+        log.accept(message.toString());
+    }
+
+    /**
+     * Finds the application method (outside of this class and Spring's generated proxies) that ran the statement.
+     * @return Class and method name, e.g. ListingRepositoryCustomImpl.getListings.
+     */
+    private static Optional<String> findCaller() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith("org.seng302.")
+                        && !frame.getClassName().startsWith(SlowQueryLogger.class.getName())
+                        && !frame.getClassName().contains("$$"))
+                .findFirst()
+                .map(frame -> frame.getClassName().substring(frame.getClassName().lastIndexOf('.') + 1)
+                        + "." + frame.getMethodName()));
+    }
+
+    /**
+     * Finds the endpoint being handled on the current thread.
+     * @return e.g. "GET /listings (ListingResource.getListings)", or "no request" for scheduled jobs.
+     */
+    private static String findEndpoint() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes)) {
+            return "no request";
+        }
+        HttpServletRequest request = ((ServletRequestAttributes) attributes).getRequest();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String endpoint = request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+        Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+        if (handler instanceof HandlerMethod) {
+            HandlerMethod handlerMethod = (HandlerMethod) handler;
+            endpoint += " (" + handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName() + ")";
+        }
+        return endpoint;
+    }
+
+    /**
+     * Formats bind values, masking everything but numbers and booleans so only their length is logged.
+     * @return e.g. "[1=2, 2=<3 chars>, 3=null]".
+     */
+    private static String formatBindValues(Map<Integer, Object> bindValues) {
+        StringBuilder formatted = new StringBuilder("[");
+        for (Map.Entry<Integer, Object> bindValue : bindValues.entrySet()) {
+            if (formatted.length() > 1) {
+                formatted.append(", ");
+            }
+            formatted.append(bindValue.getKey()).append('=');
+            Object value = bindValue.getValue();
+            if (value == null) {
+                formatted.append("null");
+            } else if (value instanceof byte[]) {
+                formatted.append('<').append(((byte[]) value).length).append(" bytes>");
+            } else if (value instanceof Number || value instanceof Boolean) {
+                formatted.append(value);
+            } else {
+                formatted.append('<').append(value.toString().length()).append(" chars>");
+            }
+        }
+        return formatted.append(']').toString();
+    }
+}
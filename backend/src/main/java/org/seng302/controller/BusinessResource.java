@@ -15,6 +15,7 @@ import org.seng302.utils.PaginationUtils;
 import org.seng302.utils.SearchUtils;
 import org.seng302.exceptions.IllegalAddressArgumentException;
 import org.seng302.exceptions.IllegalBusinessArgumentException;
+import org.seng302.exceptions.IllegalSearchQueryException;
 import org.seng302.model.Address;
 import org.seng302.Validation;
 import org.seng302.view.incoming.BusinessModifyPayload;
@@ -27,11 +28,14 @@ import org.seng302.model.enums.Role;
 import org.seng302.view.incoming.UserIdPayload;
 import org.seng302.model.User;
 import org.seng302.model.repository.UserRepository;
+import org.seng302.services.BusinessLocationIndex;
+import org.seng302.services.BusinessSearchIndex;
 import org.seng302.view.outgoing.BusinessIdPayload;
 import org.seng302.view.outgoing.BusinessPayload;
 import org.seng302.view.incoming.BusinessRegistrationPayload;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -45,8 +49,12 @@ import org.apache.logging.log4j.Logger;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * Controller class for businesses. This class includes:
@@ -68,6 +76,12 @@ public class BusinessResource {
     @Autowired
     private AddressRepository addressRepository;
 
+    @Autowired
+    private BusinessSearchIndex businessSearchIndex;
+
+    @Autowired
+    private BusinessLocationIndex businessLocationIndex;
+
     private Address address;
 
     private static final Logger logger = LogManager.getLogger(BusinessResource.class.getName());
@@ -76,11 +90,14 @@ public class BusinessResource {
             "update the business info for a business they do not administer AND the user is not a global application admin";
 
     public BusinessResource(
-            BusinessRepository businessRepository, UserRepository userRepository, AddressRepository addressRepository
+            BusinessRepository businessRepository, UserRepository userRepository, AddressRepository addressRepository,
+            BusinessSearchIndex businessSearchIndex, BusinessLocationIndex businessLocationIndex
     ) {
         this.businessRepository = businessRepository;
         this.userRepository = userRepository;
         this.addressRepository = addressRepository;
+        this.businessSearchIndex = businessSearchIndex;
+        this.businessLocationIndex = businessLocationIndex;
     }
 
     /**
@@ -178,6 +195,8 @@ public class BusinessResource {
                 );
                 business.addAdministrators(currentUser); //add user to administrators list
                 Business createdBusiness = businessRepository.save(business);
+                businessSearchIndex.indexBusiness(createdBusiness);
+                businessLocationIndex.indexBusiness(createdBusiness);
                 logger.info("Successful Business Registration - {}", createdBusiness);
                 return ResponseEntity.status(HttpStatus.CREATED).body(new BusinessIdPayload(createdBusiness.getId()));
             } catch (IllegalBusinessArgumentException e) {
@@ -472,10 +491,25 @@ public class BusinessResource {
     private Page<Business> parseAndExecuteQuery(String searchQuery, String businessType, Pageable paging) {
         BusinessType convertedBusinessType = toBusinessType(businessType);
         if (searchQuery.equals("") && businessType.equals("")) return businessRepository.findAll(paging);
-        List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
-        if (businessType.equals("")) return businessRepository.findAllBusinessesByNames(names, paging);
-        if (searchQuery.equals("")) return businessRepository.findBusinessesByBusinessType(convertedBusinessType, paging);
-        return businessRepository.findAllBusinessesByNamesAndType(names, convertedBusinessType, paging);
+        // An invalid business type matches no businesses.
+        if (!businessType.equals("") && convertedBusinessType == null) return new PageImpl<>(List.of(), paging, 0);
+        List<String> names;
+        try {
+            names = searchQuery.equals("") ? null : SearchUtils.convertSearchQueryToNames(searchQuery);
+        } catch (IllegalSearchQueryException exception) {
+            logger.error("400 [BAD REQUEST] - {}", exception.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Search query too complex");
+        }
+        // The business index finds, orders and pages the matching businesses, so only the businesses on the requested
+        // page are loaded.
+        Page<Integer> businessIds = businessSearchIndex.search(names, convertedBusinessType, paging);
+        if (businessIds.isEmpty()) return new PageImpl<>(List.of(), paging, businessIds.getTotalElements());
+        Map<Integer, Business> businessesById = new HashMap<>();
+        businessRepository.findAllByIdIn(businessIds.getContent())
+                .forEach(business -> businessesById.put(business.getId(), business));
+        List<Business> businesses = businessIds.stream().map(businessesById::get).filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        return new PageImpl<>(businesses, paging, businessIds.getTotalElements());
     }
 
     /**
@@ -545,6 +579,8 @@ public class BusinessResource {
 
         // save and flush. fail --> 500 SERVER ERROR
         businessRepository.saveAndFlush(updatedBusiness);
+        businessSearchIndex.indexBusiness(updatedBusiness);
+        businessLocationIndex.indexBusiness(updatedBusiness);
     }
 
     /**
@@ -13,18 +13,19 @@ package org.seng302.controller;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.seng302.exceptions.IllegalInventoryItemArgumentException;
+import org.seng302.exceptions.InsufficientInventoryException;
 import org.seng302.model.repository.BusinessRepository;
 import org.seng302.model.InventoryItem;
 import org.seng302.utils.PaginationUtils;
 import org.seng302.view.outgoing.InventoryItemPayload;
 import org.seng302.model.repository.InventoryItemRepository;
 import org.seng302.view.incoming.InventoryRegistrationPayload;
-import org.seng302.model.Listing;
 import org.seng302.model.Product;
 import org.seng302.model.repository.ProductRepository;
 import org.seng302.Authorization;
 import org.seng302.model.User;
 import org.seng302.model.repository.UserRepository;
+import org.seng302.services.InventoryLedger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -63,6 +64,9 @@ public class InventoryItemResource {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private InventoryLedger inventoryLedger;
+
     private static final Logger logger = LogManager.getLogger(InventoryItemResource.class.getName());
 
     /**
@@ -72,15 +76,18 @@ public class InventoryItemResource {
      * @param productRepository       ProductRepository
      * @param businessRepository      BusinessRepository
      * @param userRepository          UserRepository
+     * @param inventoryLedger         InventoryLedger
      */
     public InventoryItemResource(InventoryItemRepository inventoryItemRepository,
                                  ProductRepository productRepository,
                                  BusinessRepository businessRepository,
-                                 UserRepository userRepository) {
+                                 UserRepository userRepository,
+                                 InventoryLedger inventoryLedger) {
         this.inventoryItemRepository = inventoryItemRepository;
         this.productRepository = productRepository;
         this.businessRepository = businessRepository;
         this.userRepository = userRepository;
+        this.inventoryLedger = inventoryLedger;
     }
 
     /**
@@ -421,11 +428,8 @@ public class InventoryItemResource {
         }
         Product selectProduct = optionalSelectProduct.get();
 
-        // Calculates the total quantity of the inventory item being changed from all listings (if any).
-        int totalQuantityFromListings = 0;
-        for (Listing listing: selectInventoryItem.getListings()) {
-            totalQuantityFromListings += listing.getQuantity();
-        }
+        // The total quantity of the inventory item being changed in all listings (if any), kept by the inventory ledger.
+        int totalQuantityFromListings = selectInventoryItem.getReserved();
         logger.debug("Total quantity from listings: {}.", totalQuantityFromListings);
 
         if (!productId.equals(selectProduct.getProductId())) {
@@ -458,8 +462,6 @@ public class InventoryItemResource {
         selectInventoryItem.setProductId(productId);
         logger.debug("Inventory item's productId has been change to {}.", productId);
         selectInventoryItem.setProduct(selectProduct);
-        selectInventoryItem.setQuantity(quantity);
-        logger.debug("Inventory item's quantity has been change to {}.", quantity);
         selectInventoryItem.setPricePerItem(pricePerItem);
         logger.debug("Inventory item's pricePerItem has been change to {}.", pricePerItem);
         selectInventoryItem.setTotalPrice(totalPrice);
@@ -475,8 +477,18 @@ public class InventoryItemResource {
         selectInventoryItem.setExpires(expires);
         logger.debug("Inventory item's expires has been change to {}.", expires);
 
-
-        inventoryItemRepository.saveAndFlush(selectInventoryItem);
+        // The quantity is changed by the inventory ledger in the same transaction as the other details, and is checked
+        // against the listings again in case one was created since the inventory item was read.
+        try {
+            inventoryLedger.updateInventoryItem(selectInventoryItem, quantity);
+        } catch (InsufficientInventoryException e) {
+            logger.error("Inventory Item Updating Failure - 400 [BAD REQUEST] - {}", e.getMessage());
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Invalid quantity, must be more than the total quantity in your current listings"
+            );
+        }
+        logger.debug("Inventory item's quantity has been change to {}.", quantity);
         logger.info("Inventory Item Updating Success - 200 [OK] - " +
                 "Inventory item (Id: {}) has been update for business with ID {}", inventoryItemId, businessId);
 
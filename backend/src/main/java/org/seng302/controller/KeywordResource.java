@@ -17,11 +17,12 @@ import org.seng302.Authorization;
 import org.seng302.exceptions.IllegalKeywordArgumentException;
 import org.seng302.model.Keyword;
 import org.seng302.model.KeywordNotification;
-import org.seng302.model.MarketplaceCard;
 import org.seng302.model.User;
 import org.seng302.model.repository.KeywordNotificationRepository;
 import org.seng302.model.repository.KeywordRepository;
 import org.seng302.model.repository.UserRepository;
+import org.seng302.services.CardKeywordIndex;
+import org.seng302.services.KeywordSearchIndex;
 import org.seng302.view.incoming.KeywordCreationPayload;
 import org.seng302.view.outgoing.KeywordIdPayload;
 import org.seng302.view.outgoing.KeywordPayload;
@@ -56,12 +57,25 @@ public class KeywordResource {
     @Autowired
     private KeywordNotificationRepository keywordNotificationRepository;
 
+    @Autowired
+    private CardKeywordIndex cardKeywordIndex;
+
+    @Autowired
+    private KeywordSearchIndex keywordSearchIndex;
+
     private static final Logger logger = LogManager.getLogger(KeywordResource.class.getName());
 
-    public KeywordResource(KeywordRepository keywordRepository, UserRepository userRepository, KeywordNotificationRepository keywordNotificationRepository) {
+    // Maximum number of keywords returned by a search.
+    private static final int SEARCH_RESULT_LIMIT = 6;
+
+    public KeywordResource(KeywordRepository keywordRepository, UserRepository userRepository,
+                           KeywordNotificationRepository keywordNotificationRepository, CardKeywordIndex cardKeywordIndex,
+                           KeywordSearchIndex keywordSearchIndex) {
         this.keywordRepository = keywordRepository;
         this.userRepository = userRepository;
         this.keywordNotificationRepository = keywordNotificationRepository;
+        this.cardKeywordIndex = cardKeywordIndex;
+        this.keywordSearchIndex = keywordSearchIndex;
     }
 
     /**
@@ -95,6 +109,7 @@ public class KeywordResource {
         try {
             Keyword newKeyword = new Keyword(keyword, created);
             keywordRepository.save(newKeyword);
+            keywordSearchIndex.indexKeyword(newKeyword);
             logger.info("Keyword {} successfully created - [CREATED]", keyword);
 
             try {
@@ -127,6 +142,7 @@ public class KeywordResource {
      *
      * Preconditions: Valid JSESSIONID
      * Postconditions: Returns a list of Keywords matching searchQuery (up to 6 matches)
+     *                 Keywords starting with searchQuery come first, then keywords used by the most cards
      *
      * @param sessionToken JSESSIONID for verifying the user is logged in
      * @param searchQuery Query for searching keyword names
@@ -140,7 +156,7 @@ public class KeywordResource {
         // 401
         Authorization.getUserVerifySession(sessionToken, userRepository);
 
-        List<Keyword> result = keywordRepository.findTop6ByNameIgnoreCaseContaining(searchQuery);
+        List<Keyword> result = keywordSearchIndex.search(searchQuery, SEARCH_RESULT_LIMIT);
 
         logger.info("Search Success - 200 [OK] -  Keywords retrieved for search query {}", searchQuery);
         logger.debug("Keywords Found: {}", result);
@@ -203,16 +219,16 @@ public class KeywordResource {
 
         logger.debug("Keyword Deletion Update - Keyword found");
 
-        List<MarketplaceCard> cards = keyword.get().getCards();
-        for (MarketplaceCard card: cards) {
-            card.removeKeyword(keyword.get());
-        }
+        // Bulk statements are used so that the cards with this keyword never have to be loaded.
+        int cardCount = keywordRepository.deleteCardKeywordsByKeywordId(id);
 
-        logger.debug("Keyword Deletion Update - Keyword removed from cards");
+        logger.debug("Keyword Deletion Update - Keyword removed from {} cards", cardCount);
 
         keywordNotificationRepository.deleteAllByKeywordId(id);
         logger.debug("Keyword Notification Deletion - Keyword notifications deleted for keyword with ID {}", id);
-        keywordRepository.delete(keyword.get());
+        keywordRepository.deleteKeywordById(id);
+        cardKeywordIndex.removeKeyword(id);
+        keywordSearchIndex.removeKeyword(id);
         logger.info("Keyword Deletion - 200 [OK] - Keyword at id {} successfully deleted", id);
     }
 }
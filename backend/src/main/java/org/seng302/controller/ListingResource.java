@@ -10,6 +10,7 @@
  */
 package org.seng302.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -17,6 +18,11 @@ import org.seng302.exceptions.*;
 import org.seng302.model.*;
 import org.seng302.model.repository.*;
 import org.seng302.model.enums.BusinessType;
+import org.seng302.services.BusinessLocationIndex;
+import org.seng302.services.InventoryLedger;
+import org.seng302.services.ListingCloseScheduler;
+import org.seng302.services.ListingPurchaseService;
+import org.seng302.services.ListingRangeIndex;
 import org.seng302.utils.PaginationUtils;
 import org.seng302.utils.SearchUtils;
 import org.seng302.view.incoming.ListingCreationPayload;
@@ -25,6 +31,8 @@ import org.seng302.view.outgoing.*;
 import org.seng302.Authorization;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -81,8 +89,25 @@ public class ListingResource {
     @Autowired
     private BookmarkedListingMessageRepository bookmarkedListingMessageRepository;
 
+    @Autowired
+    private BusinessLocationIndex businessLocationIndex;
+
+    @Autowired
+    private ListingRangeIndex listingRangeIndex;
+
+    @Autowired
+    private ListingCloseScheduler listingCloseScheduler;
+
+    @Autowired
+    private ListingPurchaseService listingPurchaseService;
+
+    @Autowired
+    private InventoryLedger inventoryLedger;
+
     private static final Logger logger = LogManager.getLogger(ListingResource.class.getName());
 
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
 
     /**
      * Constructor used to insert mocked repositories for testing.
@@ -95,6 +120,12 @@ public class ListingResource {
      * @param soldListingRepository SoldListingRepository
      * @param listingNotificationRepository ListingNotificationRepository
      * @param soldListingNotificationRepository SoldListingNotificationRepository
+     * @param bookmarkedListingMessageRepository BookmarkedListingMessageRepository
+     * @param businessLocationIndex BusinessLocationIndex
+     * @param listingRangeIndex ListingRangeIndex
+     * @param listingCloseScheduler ListingCloseScheduler
+     * @param listingPurchaseService ListingPurchaseService
+     * @param inventoryLedger InventoryLedger
      */
     public ListingResource(ListingRepository listingRepository,
                            InventoryItemRepository inventoryItemRepository,
@@ -104,7 +135,12 @@ public class ListingResource {
                            SoldListingRepository soldListingRepository,
                            ListingNotificationRepository listingNotificationRepository,
                            SoldListingNotificationRepository soldListingNotificationRepository,
-                           BookmarkedListingMessageRepository bookmarkedListingMessageRepository) {
+                           BookmarkedListingMessageRepository bookmarkedListingMessageRepository,
+                           BusinessLocationIndex businessLocationIndex,
+                           ListingRangeIndex listingRangeIndex,
+                           ListingCloseScheduler listingCloseScheduler,
+                           ListingPurchaseService listingPurchaseService,
+                           InventoryLedger inventoryLedger) {
         this.listingRepository = listingRepository;
         this.inventoryItemRepository = inventoryItemRepository;
         this.productRepository = productRepository;
@@ -114,6 +150,11 @@ public class ListingResource {
         this.listingNotificationRepository = listingNotificationRepository;
         this.soldListingNotificationRepository = soldListingNotificationRepository;
         this.bookmarkedListingMessageRepository = bookmarkedListingMessageRepository;
+        this.businessLocationIndex = businessLocationIndex;
+        this.listingRangeIndex = listingRangeIndex;
+        this.listingCloseScheduler = listingCloseScheduler;
+        this.listingPurchaseService = listingPurchaseService;
+        this.inventoryLedger = inventoryLedger;
     }
 
     /**
@@ -258,10 +299,14 @@ public class ListingResource {
                     created,
                     closes
             );
-            listingRepository.save(listing);
+            // The listing's items are reserved in the same transaction it's saved in, so concurrent listings of the
+            // same inventory item can't list more items than there are.
+            inventoryLedger.createListing(listing);
+            listingRangeIndex.indexListing(listing);
+            listingCloseScheduler.scheduleListing(listing);
 
             logger.info("Listing Creation Success - 201 [CREATED] - Listing created for business with ID {}", id);
-        } catch (IllegalListingArgumentException e) {
+        } catch (IllegalListingArgumentException | InsufficientInventoryException e) {
             logger.error("Couldn't make listing {}", e.getMessage());
             throw new ResponseStatusException(
                     HttpStatus.BAD_REQUEST,
@@ -286,6 +331,8 @@ public class ListingResource {
      * @param fromDate From date (closing).
      * @param toDate To date (closing).
      * @param barcode A barcode to match listings to.
+     * @param includeFacets Whether to count the matching listings by business type, price range and closing date
+     *                      range, returned as JSON in the Facets header (the same counts as /listings/facets).
      * @return A list of ListingPayload objects matching the search query
      */
     @GetMapping("/listings")
@@ -301,7 +348,8 @@ public class ListingResource {
             @RequestParam(required = false) Double maximumPrice,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fromDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime toDate,
-            @RequestParam(required = false) String barcode
+            @RequestParam(required = false) String barcode,
+            @RequestParam(defaultValue = "false") boolean includeFacets
     ) throws Exception {
         logger.debug(
                 "Listing search request received with search query {}, business type {}, order by {}, page {}, page size {}",
@@ -376,6 +424,12 @@ public class ListingResource {
         HttpHeaders responseHeaders = new HttpHeaders();
         responseHeaders.add("Total-Pages", String.valueOf(totalPages));
         responseHeaders.add("Total-Rows", String.valueOf(totalRows));
+        if (includeFacets) {
+            ListingFacetsPayload facets = countFacets(
+                    searchType, toNames(searchQuery), toBusinessTypes(businessTypes), minimumPrice, maximumPrice, fromDate, toDate, barcode
+            );
+            responseHeaders.add("Facets", objectMapper.writeValueAsString(facets));
+        }
 
         logger.info(
                 "Search Success - 200 [OK] - Listings retrieved for search query {}, business type {}, order by {}, page {}, page size {}",
@@ -388,6 +442,69 @@ public class ListingResource {
                 .body(ListingPayload.toListingPayload(pagedResult.getContent(), currentUser));
     }
 
+    /**
+     * Counts the listings matching a search by business type, price range and closing date range, so the filter
+     * options can show how many results each would give. Takes the same search and filter parameters as the listing
+     * search. Every count is computed by one grouped query rather than one query per filter value.
+     *
+     * @param sessionToken Session token used to authenticate user (is user logged in?).
+     * @param searchQuery Search query.
+     * @param searchType Search type.
+     * @param businessTypes Business types to search by.
+     * @param minimumPrice Minimum price.
+     * @param maximumPrice Maximum price.
+     * @param fromDate From date (closing).
+     * @param toDate To date (closing).
+     * @param barcode A barcode to match listings to.
+     * @return the total number of matching listings and the counts for each business type, price range and closing
+     * date range
+     */
+    @GetMapping("/listings/facets")
+    public ListingFacetsPayload retrieveListingFacets(
+            @CookieValue(value = "JSESSIONID", required = false) String sessionToken,
+            @RequestParam(defaultValue = "") String searchQuery,
+            @RequestParam(defaultValue = "listingName") String searchType,
+            @RequestParam(required = false) List<String> businessTypes,
+            @RequestParam(required = false) Double minimumPrice,
+            @RequestParam(required = false) Double maximumPrice,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fromDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime toDate,
+            @RequestParam(required = false) String barcode
+    ) {
+        logger.debug("Listing facets request received with search query {}, search type {}", searchQuery, searchType);
+
+        Authorization.getUserVerifySession(sessionToken, userRepository);
+
+        ListingFacetsPayload facets = countFacets(
+                searchType, toNames(searchQuery), toBusinessTypes(businessTypes), minimumPrice, maximumPrice, fromDate, toDate, barcode
+        );
+
+        logger.info("Listing Facets Success - 200 [OK] - Listing facets retrieved for search query {}, search type {}", searchQuery, searchType);
+        return facets;
+    }
+
+    /**
+     * Get method for retrieving the statistics of the cache of compiled listing search queries (DGAA/GAA's only).
+     * A low hit rate means searches aren't reusing their query plans, e.g. because the cache is too small.
+     *
+     * @param sessionToken JSESSIONID for verifying the user is logged in
+     * @return the number of cached queries and the cache's hit and miss counts
+     */
+    @GetMapping("/listings/search/planCache")
+    public SearchPlanCacheStatisticsPayload retrieveSearchPlanCacheStatistics(
+            @CookieValue(value = "JSESSIONID", required = false) String sessionToken
+    ) {
+        User currentUser = Authorization.getUserVerifySession(sessionToken, userRepository);
+
+        if (!Authorization.isGAAorDGAA(currentUser)) {
+            logger.error("Search Plan Cache Statistics Retrieval Error - 403 [FORBIDDEN] - User doesn't have permissions to view search plan cache statistics");
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Invalid permissions to view search plan cache statistics");
+        }
+
+        logger.info("Search Plan Cache Statistics Retrieval Success - 200 [OK] - Listing search plan cache statistics retrieved");
+        return listingRepository.getSearchPlanCacheStatistics();
+    }
+
     /**
      * Get method for retrieving a specific listing.
      * @param businessId Integer Id of business
@@ -777,110 +894,50 @@ public class ListingResource {
     }
 
     /**
-     * PUT endpoint to purchase a given listing.
-     * Creates a SoldListing to store the sale history for the business, creates a ListingNotification for the purchaser to remind them about the purchase,
-     * creates a ListingNotification for the users who had the listing bookmarked to inform them of its removal, and deletes the Listing.
+     * PUT endpoint to purchase a given listing (see ListingPurchaseService.purchase).
+     * Clients can send an Idempotency-Key header with a key they generate for the purchase, and send the same key
+     * when retrying it, so a retry of a purchase which succeeded also succeeds.
      *
-     * @param sessionToken user's session token
-     * @param id           given listing id
+     * @param sessionToken   user's session token
+     * @param id             given listing id
+     * @param idempotencyKey key identifying the purchase, optional
      */
     @PutMapping("/listings/{id}/buy")
     @ResponseStatus(value = HttpStatus.OK, reason = "Listing bought successfully")
-    public void buyListing(@CookieValue(value = "JSESSIONID", required = false) String sessionToken, @PathVariable String id) {
+    public void buyListing(@CookieValue(value = "JSESSIONID", required = false) String sessionToken, @PathVariable String id,
+                           @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         // 401
         User currentUser = Authorization.getUserVerifySession(sessionToken, userRepository);
         logger.debug("User retrieved, ID: {}.", currentUser.getId());
 
-        // 406
-        Optional<Listing> optionalListing = listingRepository.findById(Integer.valueOf(id));
-        if (optionalListing.isEmpty()) {
-            logger.error("406 [NOT ACCEPTABLE] - Select listing ({}) not exist", id);
-            throw new ResponseStatusException(
-                    HttpStatus.NOT_ACCEPTABLE,
-                    "Listing does not exist"
-            );
-        }
-
-        Listing listing = optionalListing.get();
-        String nameOfProduct = listing.getInventoryItem().getProduct().getName();
-        logger.debug("Listing {} retrieved, ID: {}.", nameOfProduct, listing.getId());
-
-        Optional<Business> optionalBusiness = businessRepository.findBusinessById(listing.getBusinessId());
-        if (optionalBusiness.isEmpty()) {
-            logger.error("500 [INTERNAL SERVER ERROR] - Business with ID {} for listing with ID {} does not exist", listing.getBusinessId(), id);
-            throw new ResponseStatusException(
-                    HttpStatus.INTERNAL_SERVER_ERROR,
-                    "Business for listing does not exist"
-            );
-        }
-        Business business = optionalBusiness.get();
-
-        Optional<InventoryItem> optionalInventoryItem = inventoryItemRepository.findInventoryItemById(listing.getInventoryItem().getId());
-        if (optionalInventoryItem.isEmpty()) {
-            logger.error("500 [INTERNAL SERVER ERROR] - Inventory item with ID {} for listing with ID {} does not exist", listing.getInventoryItem().getId(), id);
+        // 400
+        if (idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > ListingPurchase.KEY_LENGTH)) {
+            logger.error("400 [BAD REQUEST] - Invalid idempotency key {}", idempotencyKey);
             throw new ResponseStatusException(
-                    HttpStatus.INTERNAL_SERVER_ERROR,
-                    "Inventory item for listing does not exist"
+                    HttpStatus.BAD_REQUEST,
+                    "Invalid idempotency key"
             );
         }
 
+        Integer listingId = Integer.valueOf(id);
         try {
-            SoldListing soldListing = new SoldListing(business, currentUser, listing.getCreated(),
-                    listing.getInventoryItem().getProduct().getProductId(),
-                    listing.getQuantity(), listing.getPrice(),
-                    listing.getTotalBookmarks());
-            soldListing = soldListingRepository.save(soldListing);
-            logger.info("Sold Listing Creation Success - Sold listing created for business with ID {}", listing.getBusinessId());
-
-            try {
-                String soldListingMessage = String.format("A listing of yours, %s x%d, has been sold.", listing.getInventoryItem().getProduct().getName(), listing.getQuantity());
-                SoldListingNotification soldListingNotification = new SoldListingNotification(business.getId(), soldListing, soldListingMessage);
-                soldListingNotificationRepository.save(soldListingNotification);
-
-                logger.info("Sold Listing Notification Creation Success - Sold listing notification created for business with ID {}", business.getId());
-            } catch (IllegalSoldListingNotificationArgumentException e) {
-                logger.error("Couldn't create sold listing notification - {}", e.getMessage());
-            }
-        } catch (IllegalSoldListingArgumentException e) {
-            logger.error("Couldn't create sold listing - {}", e.getMessage());
-        }
-        try {
-            String purchaserMessage = String.format("You have purchased %s x%d for $%.2f. Your purchase can be picked up from %s.",
-                                                    listing.getInventoryItem().getProduct().getName(), listing.getQuantity(),
-                                                    listing.getPrice(), business.getAddress().toOneLineString());
-            ListingNotification purchaserListingNotification = new ListingNotification(purchaserMessage);
-            purchaserListingNotification.addUser(currentUser);
-            listingNotificationRepository.save(purchaserListingNotification);
-
-            logger.info("Listing Notification Creation Success - Listing purchase notification created for purchaser");
-        } catch (IllegalListingNotificationArgumentException e) {
-            logger.error("Couldn't create listing purchase notification - {}", e.getMessage());
-        }
-
-        try {
-            String bookmarkMessage = String.format("A listing you bookmarked, %s x%d from %s, has been removed.",
-                                                    listing.getInventoryItem().getProduct().getName(), listing.getQuantity(),
-                                                    business.getName());
-            ListingNotification bookmarkListingNotification = new ListingNotification(bookmarkMessage);
-            for (User user : listing.getBookmarkedListings()) {
-                bookmarkListingNotification.addUser(user);
+            listingPurchaseService.purchase(listingId, currentUser, idempotencyKey);
+        } catch (ConcurrencyFailureException | DataIntegrityViolationException e) {
+            // Another purchase of the listing won, which may have been a retry of this one with the same key.
+            boolean retried = idempotencyKey != null && listingPurchaseService.findPurchase(currentUser.getId(), idempotencyKey)
+                    .filter(purchase -> purchase.getListingId().equals(listingId)).isPresent();
+            if (!retried) {
+                logger.error("409 [CONFLICT] - Listing with ID {} was bought or modified by another user - {}", id, e.getMessage());
+                throw new ResponseStatusException(
+                        HttpStatus.CONFLICT,
+                        "Listing has been bought or modified by another user"
+                );
             }
-            bookmarkListingNotification.removeUser(currentUser);
-            listingNotificationRepository.save(bookmarkListingNotification);
-
-            logger.info("Listing Notification Creation Success - Listing removal notification created");
-        } catch (IllegalListingNotificationArgumentException e) {
-            logger.error("Couldn't create listing removal notification - {}", e.getMessage());
+            logger.info("Listing with ID {} was already bought by user with ID {}", id, currentUser.getId());
         }
 
-        listingRepository.delete(listing);
-        logger.info("Listing Notification Deletion Success - Listing with ID {} has been deleted", id);
-
-        logger.debug("Inventory item retrieved, ID: {}.", listing.getInventoryItem().getId());
-        InventoryItem inventoryItem = optionalInventoryItem.get();
-        inventoryItem.setQuantity(inventoryItem.getQuantity() - listing.getQuantity());
-
-        inventoryItemRepository.save(inventoryItem);
+        listingRangeIndex.removeListing(listingId);
+        listingCloseScheduler.cancelListing(listingId);
     }
 
     @DeleteMapping("/home/bookmarkMessages/{id}")
@@ -962,6 +1019,8 @@ public class ListingResource {
         // delete listing.
         try {
            listingRepository.deleteListing(listingId);
+           listingRangeIndex.removeListing(listingId);
+           listingCloseScheduler.cancelListing(listingId);
         } catch (FailedToDeleteListingException error) {
             logger.error(error.getMessage());
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Something went wrong attempting to delete the listing");
@@ -991,26 +1050,85 @@ public class ListingResource {
             LocalDateTime fromDate, LocalDateTime toDate,
             String barcode
     ) {
-        List<BusinessType> convertedBusinessTypes = new ArrayList<>();
-        if (businessTypes != null) {
-            for (String businessType : businessTypes) {
-                convertedBusinessTypes.add(toBusinessType(businessType));
-            }
-        }
+        List<BusinessType> convertedBusinessTypes = toBusinessTypes(businessTypes);
+
+        // When the range index can answer the price and closing date filters, the query only checks the candidate
+        // listings it finds (still against the ranges, in case the index is out of date) instead of every listing.
+        List<Integer> listingIds = listingRangeIndex.findListingIds(minimumPrice, maximumPrice, fromDate, toDate).orElse(null);
 
-        List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
+        List<String> names = toNames(searchQuery);
         switch (searchType) {
             case "listingName":
+                if (listingIds != null) {
+                    return listingRepository.findAllListingsByProductName(
+                            names, paging, convertedBusinessTypes, minimumPrice, maximumPrice, fromDate, toDate, barcode, listingIds
+                    );
+                }
                 return listingRepository.findAllListingsByProductName(
-                        names, paging, convertedBusinessTypes.isEmpty() ? null : convertedBusinessTypes, minimumPrice, maximumPrice, fromDate, toDate, barcode
+                        names, paging, convertedBusinessTypes, minimumPrice, maximumPrice, fromDate, toDate, barcode
                 );
             case "businessName":
+                if (listingIds != null) {
+                    return listingRepository.findAllListingsByBusinessName(
+                            names, paging, convertedBusinessTypes, minimumPrice, maximumPrice, fromDate, toDate, barcode, listingIds
+                    );
+                }
                 return listingRepository.findAllListingsByBusinessName(
-                        names, paging, convertedBusinessTypes.isEmpty() ? null : convertedBusinessTypes, minimumPrice, maximumPrice, fromDate, toDate, barcode
+                        names, paging, convertedBusinessTypes, minimumPrice, maximumPrice, fromDate, toDate, barcode
+                );
+            case "location":
+                // The location index finds the businesses in the locations, so the query only filters by business id.
+                List<Integer> businessIds = businessLocationIndex.findBusinessIds(names);
+                if (listingIds != null) {
+                    return listingRepository.findAllListingsByBusinessIds(
+                            businessIds, paging, convertedBusinessTypes, minimumPrice, maximumPrice, fromDate, toDate, barcode, listingIds
+                    );
+                }
+                return listingRepository.findAllListingsByBusinessIds(
+                        businessIds, paging, convertedBusinessTypes, minimumPrice, maximumPrice, fromDate, toDate, barcode
+                );
+            default:
+                logger.error("400 [BAD REQUEST] - {} is not a valid search type parameter", searchType);
+                throw new ResponseStatusException(
+                        HttpStatus.BAD_REQUEST,
+                        "searchType Field invalid"
+                );
+        }
+    }
+
+    /**
+     * Counts the listings matching a search by business type, price range and closing date range, with one grouped
+     * query.
+     *
+     * @param searchType Search type.
+     * @param names Names the search query expands to.
+     * @param businessTypes Business types to search by (null for any).
+     * @param minimumPrice Minimum price.
+     * @param maximumPrice Maximum price.
+     * @param fromDate From date (closing).
+     * @param toDate To date (closing).
+     * @param barcode A barcode to match listings to.
+     * @return the counts of the matching listings
+     */
+    private ListingFacetsPayload countFacets(
+            String searchType, List<String> names,
+            List<BusinessType> businessTypes,
+            Double minimumPrice, Double maximumPrice,
+            LocalDateTime fromDate, LocalDateTime toDate,
+            String barcode
+    ) {
+        switch (searchType) {
+            case "listingName":
+                return listingRepository.countListingFacetsByProductName(
+                        names, businessTypes, minimumPrice, maximumPrice, fromDate, toDate, barcode
+                );
+            case "businessName":
+                return listingRepository.countListingFacetsByBusinessName(
+                        names, businessTypes, minimumPrice, maximumPrice, fromDate, toDate, barcode
                 );
             case "location":
-                return listingRepository.findAllListingsByLocation(
-                        names, paging, convertedBusinessTypes.isEmpty() ? null : convertedBusinessTypes, minimumPrice, maximumPrice, fromDate, toDate, barcode
+                return listingRepository.countListingFacetsByBusinessIds(
+                        businessLocationIndex.findBusinessIds(names), businessTypes, minimumPrice, maximumPrice, fromDate, toDate, barcode
                 );
             default:
                 logger.error("400 [BAD REQUEST] - {} is not a valid search type parameter", searchType);
@@ -1036,6 +1154,36 @@ public class ListingResource {
         return bookmarkedListingMessagePayloads;
     }
 
+    /**
+     * Converts a search query to the names to search for.
+     * @param searchQuery Search query.
+     * @return The names the search query expands to.
+     * @throws ResponseStatusException (400) if the search query expands to too many names.
+     */
+    private List<String> toNames(String searchQuery) {
+        try {
+            return SearchUtils.convertSearchQueryToNames(searchQuery);
+        } catch (IllegalSearchQueryException exception) {
+            logger.error("400 [BAD REQUEST] - {}", exception.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Search query too complex");
+        }
+    }
+
+    /**
+     * Converts the business types of a search to their enum representations.
+     * @param businessTypes String representations of business types (may be null).
+     * @return The business types, or null if none were given (so the search isn't filtered by business type).
+     */
+    private List<BusinessType> toBusinessTypes(List<String> businessTypes) {
+        List<BusinessType> convertedBusinessTypes = new ArrayList<>();
+        if (businessTypes != null) {
+            for (String businessType : businessTypes) {
+                convertedBusinessTypes.add(toBusinessType(businessType));
+            }
+        }
+        return convertedBusinessTypes.isEmpty() ? null : convertedBusinessTypes;
+    }
+
     /**
      * Converts a string representation of business type to a enum representation (BusinessType). If the string does
      * not represent a valid business type then null is returned.
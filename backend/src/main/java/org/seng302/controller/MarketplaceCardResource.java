@@ -13,6 +13,7 @@ import org.seng302.model.repository.KeywordRepository;
 import org.seng302.model.repository.MarketCardNotificationRepository;
 import org.seng302.model.repository.MarketplaceCardRepository;
 import org.seng302.model.repository.UserRepository;
+import org.seng302.services.CardKeywordIndex;
 import org.seng302.utils.PaginationUtils;
 import org.seng302.view.incoming.MarketplaceCardCreationPayload;
 import org.seng302.view.incoming.MarketplaceCardUpdatePayload;
@@ -24,14 +25,14 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpHeaders;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.stream.Collectors;
 
 import java.time.LocalDateTime;
 
@@ -39,7 +40,7 @@ import java.time.LocalDateTime;
  * MarketplaceCard Resource class.
  * This class contains the endpoints for cards.
  * The POST /cards endpoint is used to create cards.
- * The GET /cards endpoint is used to retrieve all cards that are stored.
+ * The GET /cards endpoint is used to retrieve all cards that are stored (optionally filtered by keywords).
  * The GET /cards/id endpoint is used to retrieve the details for a single card.
  * The GET /users/{id}/cards endpoint is used to retrieve all active cards from a given user by ID.
  * The PUT /cards/{id}/extenddisplayperiod endpoint is used to extend the display period of a card nearing expiry.
@@ -60,6 +61,9 @@ public class MarketplaceCardResource {
     @Autowired
     private MarketCardNotificationRepository marketCardNotificationRepository;
 
+    @Autowired
+    private CardKeywordIndex cardKeywordIndex;
+
     private static final Logger logger = LogManager.getLogger(MarketplaceCardResource.class.getName());
 
     /**
@@ -68,15 +72,19 @@ public class MarketplaceCardResource {
      * @param marketplaceCardRepository - Stores cards.
      * @param userRepository            - Stores user.
      * @param keywordRepository         - Stores keywords.
+     * @param marketCardNotificationRepository - Stores card notifications.
+     * @param cardKeywordIndex          - In-memory index of the keywords of each card.
      */
     public MarketplaceCardResource(
             MarketplaceCardRepository marketplaceCardRepository, UserRepository userRepository,
-            KeywordRepository keywordRepository, MarketCardNotificationRepository marketCardNotificationRepository
+            KeywordRepository keywordRepository, MarketCardNotificationRepository marketCardNotificationRepository,
+            CardKeywordIndex cardKeywordIndex
     ) {
         this.marketplaceCardRepository = marketplaceCardRepository;
         this.userRepository = userRepository;
         this.keywordRepository = keywordRepository;
         this.marketCardNotificationRepository = marketCardNotificationRepository;
+        this.cardKeywordIndex = cardKeywordIndex;
     }
 
     /**
@@ -119,18 +127,12 @@ public class MarketplaceCardResource {
                                 cardPayload.getDescription()
                         );
 
-                        // Loop through keywords and update card and keywords accordingly.
-                        List<Integer> keywordIds = cardPayload.getKeywordIds();
-                        for (Integer keywordId : keywordIds) {
-                            Optional<Keyword> existingKeyword = keywordRepository.findById(keywordId);
-                            if (existingKeyword.isPresent()) { // If keyword exists then update existing keyword.
-                                Keyword existingKeywordPresent = existingKeyword.get();
-                                card.addKeyword(existingKeywordPresent);
-                            } else {
-                                throw new IllegalKeywordArgumentException(String.format("Keyword with ID %d not found", keywordId));
-                            }
+                        // Fetch every keyword at once and add them to the card.
+                        for (Keyword keyword : resolveKeywords(cardPayload.getKeywordIds())) {
+                            card.addKeyword(keyword);
                         }
                         MarketplaceCard createdCard = marketplaceCardRepository.save(card);
+                        cardKeywordIndex.indexCard(createdCard);
                         logger.info("Successful Card Creation - {}", createdCard);
                         return ResponseEntity.status(HttpStatus.CREATED).body(new MarketplaceCardIdPayload(createdCard.getId()));
                     } else {
@@ -209,12 +211,12 @@ public class MarketplaceCardResource {
             }
 
             // Checks keyword IDs exist
-            List<Integer> keywordIds = updatedCardPayload.getKeywordIds();
-            for (Integer keyword : keywordIds) {
-                if (keywordRepository.findById(keyword).isEmpty()) {
-                    logger.error("Keyword ID: {} not found", keyword);
-                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Keyword ID not found");
-                }
+            List<Keyword> keywords;
+            try {
+                keywords = resolveKeywords(updatedCardPayload.getKeywordIds());
+            } catch (IllegalKeywordArgumentException e) {
+                logger.error("Card Update Failure - 400 [BAD_REQUEST] - {}", e.getMessage());
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Keyword ID not found");
             }
 
             // Checks if title was sent
@@ -233,12 +235,9 @@ public class MarketplaceCardResource {
                 // Set changes
                 storedCard.get().setTitle(updatedCardPayload.getTitle());
                 storedCard.get().setDescription(updatedCardPayload.getDescription());
-                storedCard.get().removeAllKeywords();
-                for (Integer keyword : updatedCardPayload.getKeywordIds()) {
-                    Optional<Keyword> optionalKeyword = keywordRepository.findById(keyword);
-                    optionalKeyword.ifPresent(value -> storedCard.get().addKeyword(value));
-                }
+                storedCard.get().updateKeywords(keywords);
                 marketplaceCardRepository.saveAndFlush(storedCard.get());
+                cardKeywordIndex.indexCard(storedCard.get());
 
             } catch (IllegalMarketplaceCardArgumentException e) {
                 logger.error("Card Update Failure - 400 [BAD_REQUEST] - {}", e.getMessage());
@@ -264,6 +263,8 @@ public class MarketplaceCardResource {
      * @param orderBy      Ordering
      * @param page         Page number
      * @param pageSize     Number of elements to return per page
+     * @param keywordIds   Keywords the cards must have (Optional)
+     * @param keywordOperator AND if cards must have every keyword, OR if they must have any of them
      * @return List of MarketplaceCardPayloads
      * @throws Exception when card can't be converted to payload (DTO).
      */
@@ -273,9 +274,12 @@ public class MarketplaceCardResource {
             @RequestParam String section,
             @RequestParam(defaultValue = "createdDESC") String orderBy,
             @RequestParam(defaultValue = "0") String page,
-            @RequestParam(defaultValue = "6") String pageSize
+            @RequestParam(defaultValue = "6") String pageSize,
+            @RequestParam(required = false) List<Integer> keywordIds,
+            @RequestParam(defaultValue = "OR") String keywordOperator
     ) throws Exception {
-        logger.debug("Get card request received with section {}, order by {}, page {}, page size {}", section, orderBy, page, pageSize);
+        logger.debug("Get card request received with section {}, order by {}, page {}, page size {}, keywords {} ({})",
+                section, orderBy, page, pageSize, keywordIds, keywordOperator);
 
         // Checks user logged in 401
         Authorization.getUserVerifySession(sessionToken, userRepository);
@@ -292,6 +296,23 @@ public class MarketplaceCardResource {
             );
         }
 
+        // Checks keyword operator is valid
+        boolean matchAllKeywords;
+        switch (keywordOperator.toUpperCase()) {
+            case "AND":
+                matchAllKeywords = true;
+                break;
+            case "OR":
+                matchAllKeywords = false;
+                break;
+            default:
+                logger.error("400 [BAD REQUEST] - {} is not a valid keyword operator", keywordOperator);
+                throw new ResponseStatusException(
+                        HttpStatus.BAD_REQUEST,
+                        "Keyword operator invalid"
+                );
+        }
+
         // Checks page is number
         int pageNo = PaginationUtils.parsePageNumber(page);
         int pageSizeNo = PaginationUtils.parsePageSizeNumber(pageSize);
@@ -313,10 +334,11 @@ public class MarketplaceCardResource {
                 sortBy = Sort.by(Sort.Order.desc("title").ignoreCase());
                 break;
             case "locationASC":
-                sortBy = Sort.by(Sort.Order.asc("creator.homeAddress.suburb").ignoreCase()).and(Sort.by(Sort.Order.asc("creator.homeAddress.city").ignoreCase()).and(Sort.by(Sort.Order.desc("created").ignoreCase())));
+                // The creator's suburb and city are copied (lower cased) onto each card, so no join or lower() is needed.
+                sortBy = Sort.by(Sort.Order.asc("creatorSuburb"), Sort.Order.asc("creatorCity"), Sort.Order.desc("created"));
                 break;
             case "locationDESC":
-                sortBy = Sort.by(Sort.Order.desc("creator.homeAddress.suburb").ignoreCase()).and(Sort.by(Sort.Order.desc("creator.homeAddress.city").ignoreCase()).and(Sort.by(Sort.Order.desc("created").ignoreCase())));
+                sortBy = Sort.by(Sort.Order.desc("creatorSuburb"), Sort.Order.desc("creatorCity"), Sort.Order.desc("created"));
                 break;
             default:
                 logger.error("400 [BAD REQUEST] - {} is not a valid order by parameter", orderBy);
@@ -328,7 +350,24 @@ public class MarketplaceCardResource {
 
         Pageable paging = PageRequest.of(pageNo, pageSizeNo, sortBy);
 
-        Page<MarketplaceCard> pagedResult = marketplaceCardRepository.findAllBySection(sectionType, paging);
+        Page<MarketplaceCard> pagedResult;
+        if (keywordIds == null || keywordIds.isEmpty()) {
+            pagedResult = marketplaceCardRepository.findAllBySection(sectionType, paging);
+        } else {
+            // The keyword index finds, orders and pages the matching cards, so only the cards on the requested page
+            // are loaded.
+            Page<Integer> cardIds = cardKeywordIndex.findCardIds(sectionType, keywordIds, matchAllKeywords, paging);
+            if (cardIds.isEmpty()) {
+                pagedResult = new PageImpl<>(new ArrayList<>(), paging, cardIds.getTotalElements());
+            } else {
+                Map<Integer, MarketplaceCard> cardsById = new HashMap<>();
+                marketplaceCardRepository.findAllByIdIn(cardIds.getContent())
+                        .forEach(card -> cardsById.put(card.getId(), card));
+                List<MarketplaceCard> cards = cardIds.stream().map(cardsById::get).filter(Objects::nonNull)
+                        .collect(Collectors.toList());
+                pagedResult = new PageImpl<>(cards, paging, cardIds.getTotalElements());
+            }
+        }
 
         int totalPages = pagedResult.getTotalPages();
         int totalRows = (int) pagedResult.getTotalElements();
@@ -471,6 +510,35 @@ public class MarketplaceCardResource {
         return marketplaceCardOptional.get();
     }
 
+    /**
+     * Fetches the keywords with the given ids using a single query, however many ids there are.
+     *
+     * @param keywordIds ids of the keywords (may contain duplicates).
+     * @return the keywords in the order their ids were given, without duplicates.
+     * @throws IllegalKeywordArgumentException when a keyword with one of the ids does not exist.
+     */
+    private List<Keyword> resolveKeywords(List<Integer> keywordIds) throws IllegalKeywordArgumentException {
+        List<Integer> distinctKeywordIds = keywordIds.stream().distinct().collect(Collectors.toList());
+        if (distinctKeywordIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Integer, Keyword> keywordsById = new HashMap<>();
+        for (Keyword keyword : keywordRepository.findAllById(distinctKeywordIds)) {
+            keywordsById.put(keyword.getId(), keyword);
+        }
+
+        List<Keyword> keywords = new ArrayList<>();
+        for (Integer keywordId : distinctKeywordIds) {
+            Keyword keyword = keywordsById.get(keywordId);
+            if (keyword == null) {
+                throw new IllegalKeywordArgumentException(String.format("Keyword with ID %d not found", keywordId));
+            }
+            keywords.add(keyword);
+        }
+        return keywords;
+    }
+
     /**
      * DELETE method for delete a specific marketplace card by given id.
      *
@@ -513,6 +581,7 @@ public class MarketplaceCardResource {
         // delete selected card
         logger.debug("Marketplace card ({}) has been deleted.", marketplaceCard.getTitle());
         marketplaceCardRepository.delete(marketplaceCard);
+        cardKeywordIndex.removeCard(id);
 
         logger.info("Marketplace Card Delete Success - 200 [OK] -  Marketplace card with ID {} deleted", id);
         logger.debug("Delete marketplace card with ID {}: {}", id, marketplaceCard);
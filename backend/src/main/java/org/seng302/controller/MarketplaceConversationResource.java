@@ -6,17 +6,25 @@ import org.seng302.Authorization;
 import org.seng302.exceptions.IllegalMessageContentException;
 import org.seng302.model.*;
 import org.seng302.model.repository.*;
+import org.seng302.services.ConversationInboxService;
+import org.seng302.services.MessageStreamRegistry;
 import org.seng302.view.incoming.MarketplaceConversationMessagePayload;
 import org.seng302.view.outgoing.MarketplaceConversationIdPayload;
 import org.seng302.view.outgoing.ConversationPayload;
+import org.seng302.utils.PaginationUtils;
 import org.seng302.view.outgoing.MessagePayload;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import javax.transaction.Transactional;
@@ -28,6 +36,10 @@ import java.util.Optional;
  *                                       exists, conversation is created and its ID is returned.
  * GET "/home/conversation" endpoint used for retrieving all the conversations related to a given user. An empty array
  *                          is returned if no conversations exist for the user.
+ * GET "/home/conversation/{conversationId}/messages" endpoint used for retrieving a page of messages in a conversation.
+ * GET "/home/conversation/{conversationId}/messages/since" endpoint used for retrieving the messages sent after a given
+ *                                                          message in a conversation.
+ * GET "/home/conversation/stream" endpoint used for receiving the messages sent to a user as they are sent.
  * DELETE "/users/conversation/{conversationId} endpoint used to delete a marketplace conversation.
  */
 @RestController
@@ -45,6 +57,12 @@ public class MarketplaceConversationResource {
     @Autowired
     private MarketplaceConversationMessageRepository marketplaceConversationMessageRepository;
 
+    @Autowired
+    private ConversationInboxService conversationInboxService;
+
+    @Autowired
+    private MessageStreamRegistry messageStreamRegistry;
+
     // the name of the cookie used for authentication.
     private static final String COOKIE_AUTH = "JSESSIONID";
     // the error message to be logged when requested route does not exist.
@@ -59,16 +77,22 @@ public class MarketplaceConversationResource {
      * @param marketplaceCardRepository The marketplace card repository
      * @param marketplaceConversationRepository The marketplace conversation repository
      * @param marketplaceConversationMessageRepository The marketplace conversation message repository
+     * @param conversationInboxService Maintains the inbox entry of each conversation member
+     * @param messageStreamRegistry Delivers new messages to the open message streams of their recipient
      */
     public MarketplaceConversationResource(UserRepository userRepository,
                                            MarketplaceCardRepository marketplaceCardRepository,
                                            MarketplaceConversationRepository marketplaceConversationRepository,
-                                           MarketplaceConversationMessageRepository marketplaceConversationMessageRepository
+                                           MarketplaceConversationMessageRepository marketplaceConversationMessageRepository,
+                                           ConversationInboxService conversationInboxService,
+                                           MessageStreamRegistry messageStreamRegistry
     ) {
         this.userRepository = userRepository;
         this.marketplaceCardRepository = marketplaceCardRepository;
         this.marketplaceConversationRepository = marketplaceConversationRepository;
         this.marketplaceConversationMessageRepository = marketplaceConversationMessageRepository;
+        this.conversationInboxService = conversationInboxService;
+        this.messageStreamRegistry = messageStreamRegistry;
     }
 
     private static final Logger logger = LogManager.getLogger(MarketplaceConversationResource.class.getName());
@@ -151,6 +175,7 @@ public class MarketplaceConversationResource {
         try {
             conversation = new Conversation(sender, receiver, card);
             marketplaceConversationRepository.save(conversation);
+            conversationInboxService.addConversation(conversation);
             logger.info("Successful Conversation Creation - {}", conversation);
             return conversation;
         } catch (IllegalArgumentException e) {
@@ -168,9 +193,11 @@ public class MarketplaceConversationResource {
      * @param content The message content.
      */
     private void createMessage(Conversation conversation, User sender, String content) {
+        Message message;
         try {
-            Message message = new Message(conversation, sender, content);
+            message = new Message(conversation, sender, content);
             marketplaceConversationMessageRepository.save(message);
+            conversationInboxService.recordMessage(message);
             logger.info("Successful Message Creation - {}", message);
         } catch (IllegalArgumentException | IllegalMessageContentException e) {
             //400
@@ -188,10 +215,43 @@ public class MarketplaceConversationResource {
         }
 
         marketplaceConversationRepository.save(conversation);
+
+        // deliver the message to the other member if they have not left the conversation
+        if (conversation.getInstigator().getId() == sender.getId()) {
+            if (!conversation.isDeletedByReceiver()) {
+                messageStreamRegistry.publish(conversation.getReceiver().getId(), message.toMessagePayload());
+            }
+        } else if (!conversation.isDeletedByInstigator()) {
+            messageStreamRegistry.publish(conversation.getInstigator().getId(), message.toMessagePayload());
+        }
     }
 
     /**
-     * Retrieve all conversations related to a given user.
+     * Open a stream (server-sent events) of the messages sent to the user, so new messages are received as they are
+     * sent instead of by polling. Each message is sent as a "message" event whose data is the message payload,
+     * including the ID of its conversation.
+     * The stream is closed after a while (or if the user does not keep up with it) and the client should reconnect
+     * and fetch any messages it missed from "/home/conversation/{conversationId}/messages/since".
+     * Only messages sent through the node holding the stream are streamed, so when more than one node is running
+     * clients must still fetch the messages they missed.
+     * No user ID is provided in the URL as the JSESSIONID is used to determine which user is requesting the stream.
+     *
+     * @param sessionToken The token used to identify the user.
+     * @return The stream of messages.
+     */
+    @GetMapping(value = "/home/conversation/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getMarketplaceConversationMessageStream(
+            @CookieValue(value = "JSESSIONID", required = false) String sessionToken) {
+        //401
+        User currentUser = Authorization.getUserVerifySession(sessionToken, userRepository);
+
+        logger.info("Message stream opened for user with ID {}", currentUser.getId());
+        return messageStreamRegistry.subscribe(currentUser.getId());
+    }
+
+    /**
+     * Retrieve all conversations related to a given user, most recently active first, with a preview of the last
+     * message and the number of unread messages of each.
      * If there are no conversations, then an empty array is returned.
      * No user ID is provided in the URL as the JSESSIONID is used to determine which user is requesting their conversations.
      *
@@ -204,29 +264,92 @@ public class MarketplaceConversationResource {
         //401
         User currentUser = Authorization.getUserVerifySession(sessionToken, userRepository);
 
-        List<Conversation> conversationList = marketplaceConversationRepository.findAllByInstigatorIdAndDeletedByInstigatorOrReceiverIdAndDeletedByReceiver_OrderByCreatedDesc(
-                currentUser.getId(), false, currentUser.getId(), false
-        );
+        List<ConversationPayload> inbox = conversationInboxService.getInbox(currentUser.getId());
         logger.info("Conversations retrieved user with ID {}", currentUser.getId());
 
-        return toConversationPayloadList(conversationList);
+        return inbox;
     }
 
     /**
-     * Retrieve all messages in a given conversation.
+     * Retrieve the messages in a given conversation, newest first.
+     * Every message is returned unless a limit is given, in which case only the newest limit messages are. With a
+     * before cursor only the messages older than the cursor message are returned, so older messages can be loaded by
+     * passing the ID of the last message received.
      * If there are no messages, then an empty array is returned.
      * No user ID is provided in the URL as the JSESSIONID is used to determine which user is requesting the messages for the conversation.
      *
      * @param sessionToken The token used to identify the user.
+     * @param conversationId The ID of the conversation.
+     * @param before The ID of a message in the conversation, only messages older than it are returned (optional).
+     * @param limit The maximum number of messages to return (optional, every message by default).
      * @return Array of messages belonging to the given conversation.
      */
     @GetMapping("/home/conversation/{conversationId}/messages")
     public List<MessagePayload> getMarketplaceConversationMessages(
             @CookieValue(value = "JSESSIONID", required = false) String sessionToken,
-            @PathVariable Integer conversationId) {
+            @PathVariable Integer conversationId,
+            @RequestParam(required = false) Integer before,
+            @RequestParam(required = false) String limit) {
+
+        User currentUser = Authorization.getUserVerifySession(sessionToken, userRepository);
+        Conversation currentConversation = getReadableConversation(currentUser, conversationId);
+        Pageable page = parseMessageLimit(limit);
+
+        List<Message> messageList;
+        if (before == null) {
+            messageList = marketplaceConversationMessageRepository.findLatestByConversationId(conversationId, page);
+            // Only opening the newest messages counts as reading the conversation.
+            markConversationRead(currentConversation, currentUser);
+        } else {
+            Message cursor = getCursorMessage(conversationId, before);
+            messageList = marketplaceConversationMessageRepository.findBeforeByConversationId(
+                    conversationId, cursor.getCreated(), cursor.getId(), page);
+        }
+
+        return toMessagePayloadList(messageList);
+    }
+
+    /**
+     * Retrieve the messages in a given conversation which were sent after the given message, newest first.
+     * This lets clients which already have the conversation open fetch only the messages they haven't seen.
+     * If a limit is given at most limit messages (those following the cursor) are returned, so if limit messages are
+     * returned the request should be repeated with the ID of the first (newest) message as the cursor.
+     *
+     * @param sessionToken The token used to identify the user.
+     * @param conversationId The ID of the conversation.
+     * @param after The ID of the newest message the client has.
+     * @param limit The maximum number of messages to return (optional, every message by default).
+     * @return Array of the messages sent after the given message.
+     */
+    @GetMapping("/home/conversation/{conversationId}/messages/since")
+    public List<MessagePayload> getMarketplaceConversationMessagesSince(
+            @CookieValue(value = "JSESSIONID", required = false) String sessionToken,
+            @PathVariable Integer conversationId,
+            @RequestParam Integer after,
+            @RequestParam(required = false) String limit) {
 
-        //401
         User currentUser = Authorization.getUserVerifySession(sessionToken, userRepository);
+        Conversation currentConversation = getReadableConversation(currentUser, conversationId);
+        Message cursor = getCursorMessage(conversationId, after);
+
+        List<Message> messageList = new ArrayList<>(marketplaceConversationMessageRepository.findAfterByConversationId(
+                conversationId, cursor.getCreated(), cursor.getId(), parseMessageLimit(limit)));
+        Collections.reverse(messageList);
+
+        if (!messageList.isEmpty()) {
+            markConversationRead(currentConversation, currentUser);
+        }
+        return toMessagePayloadList(messageList);
+    }
+
+    /**
+     * Gets a conversation whose messages the user wants to read, checking that they are allowed to.
+     *
+     * @param currentUser The user requesting the messages.
+     * @param conversationId The ID of the conversation.
+     * @return The conversation.
+     */
+    private Conversation getReadableConversation(User currentUser, Integer conversationId) {
         Optional<Conversation> optionalConversation = marketplaceConversationRepository.findConversationById(conversationId);
 
         // 406
@@ -245,18 +368,62 @@ public class MarketplaceConversationResource {
                     "The user does not have permission to perform the requested action"
             );
         }
+        return currentConversation;
+    }
 
-        List<Message> messageList = marketplaceConversationMessageRepository.findAllByConversationId_OrderByCreatedDesc(conversationId);
+    /**
+     * Gets the message a page of messages starts from.
+     *
+     * @param conversationId The ID of the conversation the message must be in.
+     * @param messageId The ID of the message.
+     * @return The message.
+     */
+    private Message getCursorMessage(Integer conversationId, Integer messageId) {
+        Optional<Message> cursor = marketplaceConversationMessageRepository.findMessageById(messageId);
 
-        // Sets the current user to have seen all messages in conversation
-        if (currentConversation.getInstigator().getId() == currentUser.getId()) {
-            currentConversation.setReadByInstigator(true);
-        } else if (currentConversation.getReceiver().getId() == currentUser.getId()) {
-            currentConversation.setReadByReceiver(true);
+        // 400
+        if (cursor.isEmpty() || cursor.get().getConversation().getId() != conversationId) {
+            logger.error("400 [BAD REQUEST] - Message {} is not in conversation {}", messageId, conversationId);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid message ID");
         }
-        marketplaceConversationRepository.save(currentConversation);
+        return cursor.get();
+    }
 
-        return toMessagePayloadList(messageList);
+    /**
+     * Parses the maximum number of messages to return, which is capped at the maximum page size.
+     * Without a limit every message is returned, as the conversation view doesn't page through messages yet.
+     *
+     * @param limit A string representation of the limit, or null for no limit.
+     * @return A page of up to limit messages, or unpaged if no limit was given.
+     */
+    private Pageable parseMessageLimit(String limit) {
+        if (limit == null) {
+            return Pageable.unpaged();
+        }
+        int messageLimit = PaginationUtils.parsePageSizeNumber(limit);
+        if (messageLimit < 1) {
+            logger.error("400 [BAD REQUEST] - {} is not a valid message limit", limit);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limit parameter invalid");
+        }
+        return PageRequest.of(0, messageLimit);
+    }
+
+    /**
+     * Sets the current user to have seen all messages in the conversation, saving it only if that changed.
+     *
+     * @param conversation The conversation being read.
+     * @param currentUser The user reading the conversation.
+     */
+    private void markConversationRead(Conversation conversation, User currentUser) {
+        if (conversation.getInstigator().getId() == currentUser.getId() && !conversation.getReadByInstigator()) {
+            conversation.setReadByInstigator(true);
+            marketplaceConversationRepository.save(conversation);
+            conversationInboxService.markRead(conversation.getId(), currentUser.getId());
+        } else if (conversation.getReceiver().getId() == currentUser.getId() && !conversation.getReadByReceiver()) {
+            conversation.setReadByReceiver(true);
+            marketplaceConversationRepository.save(conversation);
+            conversationInboxService.markRead(conversation.getId(), currentUser.getId());
+        }
     }
 
     /**
@@ -313,7 +480,8 @@ public class MarketplaceConversationResource {
             conversation.setDeletedByReceiver(true);
         } else if (Authorization.isGAAorDGAA(currentUser)) {
             // if the current user is a GAA or DGAA then they can delete the conversation and its associated messages.
-            marketplaceConversationMessageRepository.deleteByConversation(conversation);
+            conversationInboxService.removeConversation(conversationId);
+            marketplaceConversationMessageRepository.deleteAllByConversationId(conversationId);
             marketplaceConversationRepository.deleteById(conversationId);
             logger.debug("Conversation and messages deleted");
             return; // need to return since conversation is deleted.
@@ -324,12 +492,14 @@ public class MarketplaceConversationResource {
 
         if (conversation.hasNoMembers()) {
             // if there is no remaining members in the conversation then delete it and its associated messages.
-            marketplaceConversationMessageRepository.deleteByConversation(conversation);
+            conversationInboxService.removeConversation(conversationId);
+            marketplaceConversationMessageRepository.deleteAllByConversationId(conversationId);
             marketplaceConversationRepository.deleteById(conversationId);
             logger.debug("Conversation and messages deleted");
         } else {
             // if a user removes themself from a conversation then update the members in the conversation.
             marketplaceConversationRepository.save(conversation);
+            conversationInboxService.removeMember(conversationId, currentUser.getId());
             logger.debug("User removed from conversation");
         }
     }
@@ -0,0 +1,64 @@
+package org.seng302.controller;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.seng302.Authorization;
+import org.seng302.model.User;
+import org.seng302.model.repository.UserRepository;
+import org.seng302.services.RequestMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CookieValue;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Metrics Resource class.
+ * The GET /metrics endpoint is used by Prometheus to scrape the request metrics (latency histograms, SQL statements,
+ * rows fetched and response bytes of each route). Only GAAs and DGAAs can view them, so the scraper sends the
+ * JSESSIONID cookie of an admin's session.
+ */
+@RestController
+public class MetricsResource {
+
+    private static final Logger logger = LogManager.getLogger(MetricsResource.class.getName());
+
+    // Content type of the Prometheus text exposition format.
+    public static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final RequestMetrics requestMetrics;
+
+    private final UserRepository userRepository;
+
+    @Autowired
+    public MetricsResource(RequestMetrics requestMetrics, UserRepository userRepository) {
+        this.requestMetrics = requestMetrics;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Get method for the request metrics (DGAA/GAA's only).
+     *
+     * @param sessionToken JSESSIONID for verifying the user is logged in
+     * @return The metrics in the Prometheus text format.
+     */
+    @GetMapping("/metrics")
+    public ResponseEntity<String> getMetrics(
+            @CookieValue(value = "JSESSIONID", required = false) String sessionToken
+    ) {
+        User currentUser = Authorization.getUserVerifySession(sessionToken, userRepository);
+
+        if (!Authorization.isGAAorDGAA(currentUser)) {
+            logger.error("Metrics Retrieval Error - 403 [FORBIDDEN] - User doesn't have permissions to view metrics");
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Invalid permissions to view metrics");
+        }
+
+        logger.info("Metrics Retrieval Success - 200 [OK] - Request metrics retrieved");
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, PROMETHEUS_CONTENT_TYPE)
+                .body(requestMetrics.scrape());
+    }
+}
@@ -14,6 +14,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.seng302.Validation;
 import org.seng302.exceptions.IllegalProductArgumentException;
+import org.seng302.exceptions.IllegalSearchQueryException;
 import org.seng302.model.*;
 import org.seng302.Authorization;
 import org.seng302.model.User;
@@ -456,7 +457,13 @@ public class ProductResource {
             }
         }
 
-        List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
+        List<String> names;
+        try {
+            names = SearchUtils.convertSearchQueryToNames(searchQuery);
+        } catch (IllegalSearchQueryException exception) {
+            logger.error("400 [BAD REQUEST] - {}", exception.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Search query too complex");
+        }
 
         if (barcode != null && !barcode.equals("")) {
             return productRepository.findAllProductsByBusinessIdAndIncludedFieldsAndBarcode(names, searchBy, businessId, paging, barcode);
@@ -13,11 +13,15 @@ package org.seng302.controller;
 import org.seng302.exceptions.IllegalAddressArgumentException;
 import org.seng302.exceptions.IllegalForgotPasswordArgumentException;
 import org.seng302.exceptions.IllegalUserArgumentException;
+import org.seng302.exceptions.IllegalSearchQueryException;
 import org.seng302.model.Address;
 import org.seng302.Authorization;
 import org.seng302.model.ForgotPassword;
 import org.seng302.model.repository.ForgotPasswordRepository;
+import org.seng302.model.repository.MarketplaceCardRepository;
+import org.seng302.services.CardKeywordIndex;
 import org.seng302.services.EmailService;
+import org.seng302.services.UserNameSearchIndex;
 import org.seng302.utils.PaginationUtils;
 import org.seng302.utils.SearchUtils;
 import org.seng302.view.incoming.*;
@@ -32,6 +36,7 @@ import org.seng302.view.outgoing.UserPayloadParent;
 import org.seng302.view.outgoing.UserPayloadSecure;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -49,8 +54,12 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.seng302.Authorization.*;
 import static org.seng302.model.enums.Role.*;
@@ -78,6 +87,15 @@ public class UserResource {
     @Autowired
     private ForgotPasswordRepository forgotPasswordRepository;
 
+    @Autowired
+    private MarketplaceCardRepository marketplaceCardRepository;
+
+    @Autowired
+    private UserNameSearchIndex userNameSearchIndex;
+
+    @Autowired
+    private CardKeywordIndex cardKeywordIndex;
+
     @Autowired
     private EmailService emailService;
 
@@ -101,10 +119,15 @@ public class UserResource {
 
     private static final String REGISTRATION_ERROR_MESSAGE_EMAIL = "Registration Failure - Email already in use %s";
 
-    public UserResource(UserRepository userRepository, AddressRepository addressRepository, ForgotPasswordRepository forgotPasswordRepository) {
+    public UserResource(UserRepository userRepository, AddressRepository addressRepository,
+                        ForgotPasswordRepository forgotPasswordRepository, MarketplaceCardRepository marketplaceCardRepository,
+                        UserNameSearchIndex userNameSearchIndex, CardKeywordIndex cardKeywordIndex) {
         this.userRepository = userRepository;
         this.addressRepository = addressRepository;
         this.forgotPasswordRepository = forgotPasswordRepository;
+        this.marketplaceCardRepository = marketplaceCardRepository;
+        this.userNameSearchIndex = userNameSearchIndex;
+        this.cardKeywordIndex = cardKeywordIndex;
     }
 
     /**
@@ -293,6 +316,7 @@ public class UserResource {
 
             newUser.setSessionUUID(getUniqueSessionUUID());
             User createdUser = userRepository.save(newUser);
+            userNameSearchIndex.indexUser(createdUser);
 
             ResponseCookie cookie = ResponseCookie.from(COOKIE_AUTH, createdUser.getSessionUUID()).maxAge(3600).sameSite(SAME_SITE_STRICT).httpOnly(true).build();
             response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
@@ -585,8 +609,20 @@ public class UserResource {
      */
     private Page<User> parseAndExecuteQuery(String searchQuery, Pageable paging) {
         if (searchQuery.equals("")) return userRepository.findAll(paging); // All users should be returned.
-        List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
-        return userRepository.findAllUsersByNames(names, paging);
+        List<String> names;
+        try {
+            names = SearchUtils.convertSearchQueryToNames(searchQuery);
+        } catch (IllegalSearchQueryException exception) {
+            logger.error("400 [BAD REQUEST] - {}", exception.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Search query too complex");
+        }
+        // The name index finds, orders and pages the matching users, so only the users on the requested page are loaded.
+        Page<Integer> userIds = userNameSearchIndex.search(names, paging);
+        if (userIds.isEmpty()) return new PageImpl<>(List.of(), paging, userIds.getTotalElements());
+        Map<Integer, User> usersById = new HashMap<>();
+        userRepository.findAllByIdIn(userIds.getContent()).forEach(user -> usersById.put(user.getId(), user));
+        List<User> users = userIds.stream().map(usersById::get).filter(Objects::nonNull).collect(Collectors.toList());
+        return new PageImpl<>(users, paging, userIds.getTotalElements());
     }
 
     /**
@@ -794,7 +830,21 @@ public class UserResource {
             );
         }
 
+        Address oldAddress = selectedUser.getHomeAddress();
+        String oldSuburb = oldAddress == null ? null : oldAddress.getSuburb();
+        String oldCity = oldAddress == null ? null : oldAddress.getCity();
+
         userRepository.save(updateUserInfo(currentUser, selectedUser, userProfileModifyPayload));
         logger.info("Selected user (ID: {}) profile update saved.", selectedUser.getId());
+        userNameSearchIndex.indexUser(selectedUser);
+
+        // The user's cards keep a copy of their suburb and city (for ordering by location), so update them too.
+        Address newAddress = selectedUser.getHomeAddress();
+        if (newAddress != null
+                && (!Objects.equals(oldSuburb, newAddress.getSuburb()) || !Objects.equals(oldCity, newAddress.getCity()))) {
+            int updatedCards = marketplaceCardRepository.updateCreatorLocation(selectedUser.getId(), newAddress.getSuburb(), newAddress.getCity());
+            cardKeywordIndex.updateCreatorLocation(selectedUser.getId(), newAddress.getSuburb(), newAddress.getCity());
+            logger.debug("Creator location of {} cards of user (ID: {}) updated.", updatedCards, selectedUser.getId());
+        }
     }
 }
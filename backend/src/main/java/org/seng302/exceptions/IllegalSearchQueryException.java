@@ -0,0 +1,17 @@
+package org.seng302.exceptions;
+
+/**
+ * A custom exception for SearchQueryCompiler. This exception is thrown whenever a search query can't be searched for
+ * (e.g. it expands to too many names).
+ */
+public class IllegalSearchQueryException extends Exception {
+
+    /**
+     * A constructor for IllegalSearchQueryException.
+     * @param errorMessage the error message to be included when exception is thrown (e.g. "Search query too complex")
+     */
+    public IllegalSearchQueryException(String errorMessage) {
+        super(errorMessage);
+    }
+
+}
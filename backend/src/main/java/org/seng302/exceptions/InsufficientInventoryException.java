@@ -0,0 +1,17 @@
+package org.seng302.exceptions;
+
+/**
+ * A custom exception for InventoryLedger. This exception is thrown whenever an inventory item doesn't have enough
+ * items for a change (e.g. a listing of more items than haven't been listed yet).
+ */
+public class InsufficientInventoryException extends Exception{
+
+    /**
+     * A constructor for InsufficientInventoryException.
+     * @param errorMessage the error message to be included when exception is thrown (e.g. "Not enough items")
+     */
+    public InsufficientInventoryException(String errorMessage) {
+        super(errorMessage);
+    }
+
+}
@@ -0,0 +1,72 @@
+package org.seng302.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Class for archived listings
+ * A listing is moved here once it has closed or its inventory item has expired, so that the listing table only holds
+ * listings which can still be bought and searches don't have to skip over dead rows.
+ * The id is the id the listing had, and the details are a snapshot which isn't modified after archiving.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+public class ArchivedListing {
+
+    @Id
+    @Column(name = "id", nullable = false)
+    private Integer id;
+
+    @Column(name = "businessId", nullable = false)
+    private Integer businessId;
+
+    @Column(name = "inventoryItemId", nullable = false)
+    private Integer inventoryItemId;
+
+    @Column(name = "productId", nullable = false)
+    private String productId;
+
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity;
+
+    @Column(name = "price", nullable = false)
+    private Double price;
+
+    @Column(name = "moreInfo", length = 600)
+    private String moreInfo;
+
+    @Column(name = "created")
+    private LocalDateTime created;
+
+    @Column(name = "closes")
+    private LocalDateTime closes;
+
+    @Column(name = "bookmarks", nullable = false)
+    private Integer bookmarks;
+
+    @Column(name = "archived", nullable = false)
+    private LocalDateTime archived;
+
+    /**
+     * Creates the archived copy of a listing.
+     * @param listing the listing which is being archived.
+     * @param archived the date and time the listing was archived.
+     */
+    public ArchivedListing(Listing listing, LocalDateTime archived) {
+        this.id = listing.getId();
+        this.businessId = listing.getBusinessId();
+        this.inventoryItemId = listing.getInventoryItem().getId();
+        this.productId = listing.getInventoryItem().getProductId();
+        this.quantity = listing.getQuantity();
+        this.price = listing.getPrice();
+        this.moreInfo = listing.getMoreInfo();
+        this.created = listing.getCreated();
+        this.closes = listing.getCloses();
+        this.bookmarks = listing.getBookmarkedListings().size();
+        this.archived = archived;
+    }
+}
@@ -0,0 +1,98 @@
+package org.seng302.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.seng302.view.outgoing.ConversationPayload;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * ConversationInboxEntry Entity, a member's view of a conversation in their inbox.
+ * Each member of a conversation who has not left it has one entry, which keeps a preview of the last message, when the
+ * conversation was last active and how many messages the member hasn't read, so an inbox can be listed with a single
+ * query (ordered by the user_id, last_activity index) instead of loading the messages of every conversation.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "conversation_inbox_entry",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "conversation_id"}),
+        indexes = @Index(name = "conversation_inbox_user_activity_index", columnList = "user_id, last_activity"))
+public class ConversationInboxEntry {
+
+    /**
+     * Maximum length of the last message preview.
+     */
+    public static final int PREVIEW_LENGTH = 100;
+
+    /**
+     * ID field for the ConversationInboxEntry entity
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "inbox_entry_id", nullable = false)
+    private int id;
+
+    /**
+     * ID of the user whose inbox this entry is in
+     */
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    /**
+     * The conversation, lazily fetched
+     */
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "conversation_id", nullable = false)
+    private Conversation conversation;
+
+    /**
+     * Start of the content of the last message in the conversation, null if there are no messages yet
+     */
+    @Column(name = "last_message", length = PREVIEW_LENGTH)
+    private String lastMessage;
+
+    /**
+     * Date and time of the last message, or of the conversation creation if there are no messages yet
+     */
+    @Column(name = "last_activity", nullable = false)
+    private LocalDateTime lastActivity;
+
+    /**
+     * Number of messages in the conversation the user hasn't read
+     */
+    @Column(name = "unread_count", nullable = false)
+    private int unreadCount;
+
+    /**
+     * Constructor for ConversationInboxEntry
+     * @param userId ID of the member whose inbox the entry is in
+     * @param conversation Conversation
+     */
+    public ConversationInboxEntry(Integer userId, Conversation conversation) {
+        this.userId = userId;
+        this.conversation = conversation;
+        this.lastActivity = conversation.getCreated();
+        this.unreadCount = 0;
+    }
+
+    /**
+     * Shortens a message to the length of the last message preview.
+     * @param content Content of a message
+     * @return The start of the message
+     */
+    public static String toPreview(String content) {
+        return content.length() > PREVIEW_LENGTH ? content.substring(0, PREVIEW_LENGTH) : content;
+    }
+
+    /**
+     * Converts the entry into the payload representation of its conversation, including the inbox details.
+     * @return ConversationPayload object representing the conversation.
+     */
+    public ConversationPayload toConversationPayload() {
+        ConversationPayload payload = conversation.toConversationPayload();
+        payload.setInboxDetails(lastMessage, lastActivity, unreadCount);
+        return payload;
+    }
+}
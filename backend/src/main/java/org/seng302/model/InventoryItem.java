@@ -47,7 +47,7 @@ public class InventoryItem {
     @Column(name = "business_id", nullable = false)
     private Integer businessId;
 
-    @Column(name = "quantity", nullable = false)
+    @Column(name = "quantity", nullable = false, updatable = false)
     private Integer quantity;
 
     @Column(name = "price_per_item")
@@ -72,6 +72,13 @@ public class InventoryItem {
             cascade = CascadeType.ALL)
     private List<Listing> listings = new ArrayList<>();
 
+    // Number of the items held by listings. Like quantity, it's only changed in the database by the conditional
+    // updates of the inventory ledger (see InventoryLedger), so saving an inventory item that was read before a
+    // listing was created, bought or deleted can't overwrite the change.
+    @Column(name = "reserved", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "integer default 0 not null")
+    private int reserved;
+
     /**
      * Constructor for inventory items.
      *
@@ -232,6 +239,7 @@ public class InventoryItem {
      */
     public void addListing(Listing listing) {
         this.listings.add(listing);
+        this.reserved += listing.getQuantity();
     }
 
     /**
@@ -244,22 +252,28 @@ public class InventoryItem {
         for (int i = 0; i < listings.size(); i++){
             if (listings.get(i).getId() == listingId){
                 this.listings.remove(i);
+                this.reserved = Math.max(0, this.reserved - listing.getQuantity());
             }
         }
         listing.setInventoryItem(null);
     }
 
     /**
-     * Loops through the current listings for this inventory item and calculates the total currently listed.
+     * Gets the total quantity of this inventory item listed for sale, which is kept by the inventory ledger instead of
+     * being summed from the listings.
      * This quantity is needed to validate whether a listing should be created based on its quantity.
-     * @return totalListed the total quantity of this inventory item listed for sale.
+     * @return the total quantity of this inventory item listed for sale.
      */
     public int getInventoryItemQuantityListed() {
-        int totalListed = 0;
-        for (Listing listing: listings) {
-            totalListed += listing.getQuantity();
-        }
-        return totalListed;
+        return reserved;
+    }
+
+    /**
+     * Gets the number of items which aren't held by listings.
+     * @return the quantity which can still be listed.
+     */
+    public int getAvailableQuantity() {
+        return quantity - reserved;
     }
 
     /**
@@ -75,6 +75,12 @@ public class Listing {
     @Column(name = "totalBookmarks")
     private Integer totalBookmarks;
 
+    // Incremented on every update, so a listing bought, modified or closed by someone else since it was read can't be
+    // bought again (the delete of a stale listing fails instead of removing nothing).
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "integer default 0 not null")
+    private int version;
+
     private static final Logger logger = LogManager.getLogger(Listing.class.getName());
 
     // Values need for validation.
@@ -311,7 +317,6 @@ public class Listing {
      * @return true when quantity is valid
      */
     private boolean isValidQuantity(int quantity, InventoryItem inventoryItem) {
-        return (quantity > MIN_QUANTITY) &&
-                ((quantity + inventoryItem.getInventoryItemQuantityListed()) <= inventoryItem.getQuantity());
+        return (quantity > MIN_QUANTITY) && (quantity <= inventoryItem.getAvailableQuantity());
     }
 }
@@ -0,0 +1,66 @@
+package org.seng302.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * ListingPurchase Entity, the record of a purchase made with an idempotency key.
+ * Clients send a key they generate with a purchase and send the same key again when they retry it (e.g. after a
+ * timeout), so a retry of a purchase which succeeded finds this record and succeeds again instead of failing because
+ * the listing no longer exists. Keys are unique per purchaser.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "listing_purchase",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "idempotency_key"}))
+public class ListingPurchase {
+
+    /**
+     * Maximum length of an idempotency key.
+     */
+    public static final int KEY_LENGTH = 100;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private int id;
+
+    /**
+     * ID of the user who bought the listing
+     */
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    /**
+     * Key the purchaser sent with the purchase
+     */
+    @Column(name = "idempotency_key", nullable = false, length = KEY_LENGTH)
+    private String idempotencyKey;
+
+    /**
+     * ID the bought listing had
+     */
+    @Column(name = "listing_id", nullable = false)
+    private Integer listingId;
+
+    @Column(name = "purchased", nullable = false)
+    private LocalDateTime purchased;
+
+    /**
+     * Creates the record of a purchase.
+     * @param userId ID of the purchaser.
+     * @param idempotencyKey key the purchaser sent with the purchase.
+     * @param listingId ID of the bought listing.
+     * @param purchased date and time of the purchase.
+     */
+    public ListingPurchase(Integer userId, String idempotencyKey, Integer listingId, LocalDateTime purchased) {
+        this.userId = userId;
+        this.idempotencyKey = idempotencyKey;
+        this.listingId = listingId;
+        this.purchased = purchased;
+    }
+}
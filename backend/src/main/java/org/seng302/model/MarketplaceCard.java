@@ -10,8 +10,7 @@ import org.seng302.view.outgoing.MarketplaceCardPayload;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 /**
  * Class for a marketplace card.
@@ -20,6 +19,10 @@ import java.util.List;
 @Embeddable
 @NoArgsConstructor  // generate a no-args constructor needed by JPA (lombok pre-processor)
 @Entity             // declare this class as a JPA entity (that can be mapped to a SQL table)
+@Table(name = "marketplace_card", indexes = {
+        // Lets location ordered section pages be read straight from the index instead of joining and sorting.
+        @Index(name = "marketplace_card_section_location_index", columnList = "section, creator_suburb, creator_city, created")
+})
 public class MarketplaceCard {
 
     @Id // this field (attribute) is the table primary key
@@ -38,6 +41,14 @@ public class MarketplaceCard {
     @Enumerated(EnumType.STRING)
     private Section section;
 
+    // Lower cased copies of the creator's home address suburb and city, used to order cards by location.
+    // These are kept in sync by MarketplaceCardRepository.updateCreatorLocation when the creator's address changes.
+    @Column(name = "creator_suburb")
+    private String creatorSuburb;
+
+    @Column(name = "creator_city")
+    private String creatorCity;
+
     @Column(name = "created", nullable = false)
     private LocalDateTime created;
 
@@ -50,13 +61,16 @@ public class MarketplaceCard {
     @Column(name = "description", length = 500)
     private String description;
 
+    // A set (rather than a list) so that Hibernate inserts and deletes single card_keywords rows when keywords
+    // change, instead of deleting and re-inserting every row of the card.
     @JsonManagedReference
     @ToString.Exclude
     @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(name = "card_keywords",
             joinColumns = {@JoinColumn(name = "card_id")},
             inverseJoinColumns = {@JoinColumn(name = "keyword_id")})
-    private List<Keyword> keywords = new ArrayList<>();
+    @OrderBy("id")
+    private Set<Keyword> keywords = new LinkedHashSet<>();
 
     @OneToMany(mappedBy = "marketplaceCard", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     private List<MarketCardNotification> marketCardNotifications = new ArrayList<>();
@@ -96,6 +110,9 @@ public class MarketplaceCard {
 
         this.creatorId = creatorId;
         this.creator = creator;
+        if (creator != null) {
+            setCreatorLocation(creator.getHomeAddress());
+        }
         this.section = section;
         this.created = created;
         this.displayPeriodEnd = created.plusWeeks(2);
@@ -138,6 +155,36 @@ public class MarketplaceCard {
         return description;
     }
 
+    public String getCreatorSuburb() {
+        return creatorSuburb;
+    }
+
+    public String getCreatorCity() {
+        return creatorCity;
+    }
+
+    /**
+     * Copies the suburb and city of the creator's home address onto this card, so cards can be ordered by
+     * location without joining the user and address tables.
+     *
+     * @param homeAddress the creator's home address.
+     */
+    public void setCreatorLocation(Address homeAddress) {
+        this.creatorSuburb = homeAddress == null ? null : toLocationSortKey(homeAddress.getSuburb());
+        this.creatorCity = homeAddress == null ? null : toLocationSortKey(homeAddress.getCity());
+    }
+
+    /**
+     * Lower cases part of an address so that location ordering ignores case without needing lower() in the query
+     * (which would stop the database from using the location index).
+     *
+     * @param location a suburb or city, may be null.
+     * @return the lower cased location.
+     */
+    private static String toLocationSortKey(String location) {
+        return location == null ? null : location.toLowerCase(Locale.ROOT);
+    }
+
     public List<MarketCardNotification> getMarketCardNotifications() {
         return marketCardNotifications;
     }
@@ -205,7 +252,7 @@ public class MarketplaceCard {
         this.creatorId = creatorId;
     }
 
-    public void setKeywords(List<Keyword> keywords) {
+    public void setKeywords(Set<Keyword> keywords) {
         this.keywords = keywords;
     }
 
@@ -214,11 +261,11 @@ public class MarketplaceCard {
     }
 
     /**
-     * Returns a list of keywords that the card contains.
+     * Returns the keywords that the card contains.
      *
-     * @return keywords a list of keyword entities.
+     * @return keywords a set of keyword entities.
      */
-    public List<Keyword> getKeywords() {
+    public Set<Keyword> getKeywords() {
         return keywords;
     }
 
@@ -239,19 +286,38 @@ public class MarketplaceCard {
      */
     public void removeKeyword(Keyword keyword) {
         int keywordId = keyword.getId();
-        for (int i = 0; i < keywords.size(); i++) {
-            if (keywords.get(i).getId() == keywordId) {
-                this.keywords.remove(i);
-            }
-        }
+        keywords.removeIf(existingKeyword -> existingKeyword.getId() == keywordId);
     }
 
     /**
      * Removes all Keywords from the Marketplace Card
      */
     public void removeAllKeywords() {
-        while (!keywords.isEmpty()) {
-            this.keywords.remove(0);
+        keywords.clear();
+    }
+
+    /**
+     * Changes the keywords of this card to the given keywords.
+     * Only the keywords which are no longer wanted are removed and only the new keywords are added, so only the
+     * changed card_keywords rows are written when the card is saved.
+     *
+     * @param newKeywords the keywords the card should have.
+     */
+    public void updateKeywords(Collection<Keyword> newKeywords) {
+        Set<Integer> newKeywordIds = new HashSet<>();
+        for (Keyword keyword : newKeywords) {
+            newKeywordIds.add(keyword.getId());
+        }
+        keywords.removeIf(keyword -> !newKeywordIds.contains(keyword.getId()));
+
+        Set<Integer> existingKeywordIds = new HashSet<>();
+        for (Keyword keyword : keywords) {
+            existingKeywordIds.add(keyword.getId());
+        }
+        for (Keyword keyword : newKeywords) {
+            if (existingKeywordIds.add(keyword.getId())) {
+                keywords.add(keyword);
+            }
         }
     }
 
@@ -295,10 +361,10 @@ public class MarketplaceCard {
     /**
      * Converts the keywords belonging to a card to Keyword Payloads (needed by GET requests).
      *
-     * @param keywords the list of keywords belonging to the card.
+     * @param keywords the keywords belonging to the card.
      * @return a list of keywords converted to keyword payloads.
      */
-    public List<KeywordPayload> toKeywordPayloads(List<Keyword> keywords) {
+    public List<KeywordPayload> toKeywordPayloads(Collection<Keyword> keywords) {
         List<KeywordPayload> keywordPayloads = new ArrayList<>();
         for (Keyword keyword : keywords) {
             KeywordPayload keywordPayload = new KeywordPayload(keyword.getId(), keyword.getName(), keyword.getCreated());
@@ -14,6 +14,10 @@ import java.time.LocalDateTime;
 @Data
 @NoArgsConstructor
 @Entity
+@Table(name = "message", indexes = {
+        // Lets a page of a conversation's messages be read in order straight from the index.
+        @Index(name = "message_conversation_created_index", columnList = "conversation_id, created, message_id")
+})
 public class Message {
 
     /**
@@ -71,6 +75,6 @@ public class Message {
      * @return MessagePayload object representing the message.
      */
     public MessagePayload toMessagePayload() {
-        return new MessagePayload(sender.getId(), conversation.getMarketplaceCard().getId(), content, created);
+        return new MessagePayload(id, conversation.getId(), sender.getId(), conversation.getMarketplaceCard().getId(), content, created);
     }
 }
@@ -0,0 +1,118 @@
+/**
+ * Summary. This file contains the definition for ScheduledJobLease.
+ *
+ * Description. This file contains the definition for ScheduledJobLease.
+ *
+ * @link   team-400/src/main/java/org/seng302/model/ScheduledJobLease
+ * @file   This file contains the definition for ScheduledJobLease.
+ * @author team-400.
+ * @since  18.10.2021
+ */
+
+package org.seng302.model;
+
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Class for ScheduledJobLease entity.
+ * One row exists per scheduled job. The node which currently holds the lease (owner) is the only node allowed to run
+ * the job until the lease expires (leaseUntil). Timing for the most recent run of the job is also stored here.
+ */
+@NoArgsConstructor // generate a no-args constructor needed by JPA (lombok pre-processor)
+@Entity // declare this class as a JPA entity (that can be mapped to a SQL table)
+@Table(name = "scheduled_job_lease")
+public class ScheduledJobLease {
+
+    @Id // this field (attribute) is the table primary key
+    @Column(name = "job_name", nullable = false, length = 100)
+    private String jobName;
+
+    @Column(name = "owner")
+    private String owner;
+
+    @Column(name = "lease_until", nullable = false)
+    private LocalDateTime leaseUntil;
+
+    @Column(name = "last_started")
+    private LocalDateTime lastStarted;
+
+    @Column(name = "last_finished")
+    private LocalDateTime lastFinished;
+
+    @Column(name = "last_duration_ms")
+    private Long lastDurationMillis;
+
+    @Column(name = "run_count", nullable = false)
+    private long runCount;
+
+    /**
+     * Constructor for a lease which has never been held (it is immediately available to any node).
+     * @param jobName unique name of the scheduled job
+     * @param leaseUntil time the (non-existent) lease is considered expired from
+     */
+    public ScheduledJobLease(String jobName, LocalDateTime leaseUntil) {
+        this.jobName = jobName;
+        this.leaseUntil = leaseUntil;
+        this.runCount = 0;
+    }
+
+    /**
+     * Gets the name of the scheduled job
+     * @return jobName
+     */
+    public String getJobName() { return jobName; }
+
+    /**
+     * Gets the id of the node which last acquired the lease
+     * @return owner
+     */
+    public String getOwner() { return owner; }
+
+    /**
+     * Gets the time the current lease expires
+     * @return leaseUntil
+     */
+    public LocalDateTime getLeaseUntil() { return leaseUntil; }
+
+    /**
+     * Gets the time the last run of the job started
+     * @return lastStarted
+     */
+    public LocalDateTime getLastStarted() { return lastStarted; }
+
+    /**
+     * Gets the time the last run of the job finished
+     * @return lastFinished
+     */
+    public LocalDateTime getLastFinished() { return lastFinished; }
+
+    /**
+     * Gets how long the last run of the job took in milliseconds
+     * @return lastDurationMillis
+     */
+    public Long getLastDurationMillis() { return lastDurationMillis; }
+
+    /**
+     * Gets the number of times the job has been run across all nodes
+     * @return runCount
+     */
+    public long getRunCount() { return runCount; }
+
+    /**
+     * Override the toString method for debugging purposes.
+     * @return a string representing the ScheduledJobLease.
+     */
+    @Override
+    public String toString() {
+        return "{\"jobName\":\"" + jobName + "\"" +
+                ",\"owner\":\"" + owner + "\"" +
+                ",\"leaseUntil\":\"" + leaseUntil + "\"" +
+                ",\"lastStarted\":\"" + lastStarted + "\"" +
+                ",\"lastFinished\":\"" + lastFinished + "\"" +
+                ",\"lastDurationMillis\":" + lastDurationMillis +
+                ",\"runCount\":" + runCount + "}";
+    }
+}
@@ -0,0 +1,23 @@
+package org.seng302.model.repository;
+
+import org.seng302.model.ArchivedListing;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+
+/**
+ * Provides an interface to the database, and
+ * functions to handle the ArchivedListing entities.
+ */
+@RepositoryRestResource(exported = false)
+public interface ArchivedListingRepository extends JpaRepository<ArchivedListing, Integer> {
+
+    /**
+     * Find all archived listings of a particular business
+     * @param businessId ID of business to find
+     * @param pageable Pageable
+     * @return Page of ArchivedListings
+     */
+    Page<ArchivedListing> findAllByBusinessId(Integer businessId, Pageable pageable);
+}
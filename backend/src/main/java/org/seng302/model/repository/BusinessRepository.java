@@ -16,8 +16,10 @@ import org.seng302.model.enums.BusinessType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,6 +30,30 @@ import java.util.Optional;
 @RepositoryRestResource
 public interface BusinessRepository extends JpaRepository<Business, String>, BusinessRepositoryCustom {
 
+    /**
+     * The name and type of a business and the other values businesses are ordered by, used to build the in-memory
+     * business search index.
+     */
+    interface BusinessNameAndType {
+        Integer getId();
+        String getName();
+        BusinessType getBusinessType();
+        String getCity();
+        String getRegion();
+        String getCountry();
+    }
+
+    /**
+     * The places of a business's address, used to build the in-memory business location index.
+     */
+    interface BusinessLocation {
+        Integer getId();
+        String getSuburb();
+        String getCity();
+        String getRegion();
+        String getCountry();
+    }
+
     /**
      * Search for an business account by its id
      * @param id id
@@ -61,6 +87,27 @@ public interface BusinessRepository extends JpaRepository<Business, String>, Bus
      */
     Page<Business> findBusinessesByBusinessType(BusinessType type, Pageable pageable);
 
+    /**
+     * Retrieves the name, type and address city, region and country of every business without loading the businesses.
+     * @return A list of the name and type of each business
+     */
+    @Query("SELECT b.id AS id, b.name AS name, b.businessType AS businessType, a.city AS city, a.region AS region, " +
+            "a.country AS country FROM Business b LEFT JOIN b.address a")
+    List<BusinessNameAndType> findAllBusinessNamesAndTypes();
+
+    /**
+     * Retrieves the suburb, city, region and country of every business (used to build the business location index).
+     * @return A list of the places of each business's address
+     */
+    @Query("SELECT b.id AS id, a.suburb AS suburb, a.city AS city, a.region AS region, a.country AS country FROM Business b JOIN b.address a")
+    List<BusinessLocation> findAllBusinessLocations();
+
+    /**
+     * Retrieves the businesses with the given ids (used to fetch the page of businesses found by a business search).
+     * @param ids The ids of the businesses to retrieve
+     * @return The businesses with the given ids, in no particular order
+     */
+    List<Business> findAllByIdIn(Collection<Integer> ids);
 
 }
 
@@ -0,0 +1,126 @@
+package org.seng302.model.repository;
+
+import org.seng302.model.Conversation;
+import org.seng302.model.ConversationInboxEntry;
+import org.seng302.model.User;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * ConversationInboxEntryRepository interface.
+ * This is used to store the inbox entry of each member of a conversation.
+ */
+@RepositoryRestResource(exported = false)
+public interface ConversationInboxEntryRepository extends JpaRepository<ConversationInboxEntry, Integer> {
+
+    /**
+     * Return the inbox of a user, most recently active conversation first.
+     * The conversations, their members and cards are fetched in the same query.
+     * @param userId The ID of the user.
+     * @return The user's inbox entries.
+     */
+    @Query("SELECT e FROM ConversationInboxEntry e " +
+            "JOIN FETCH e.conversation c JOIN FETCH c.instigator JOIN FETCH c.receiver JOIN FETCH c.marketplaceCard " +
+            "WHERE e.userId = :userId ORDER BY e.lastActivity DESC, e.id DESC")
+    List<ConversationInboxEntry> findInboxByUserId(@Param("userId") Integer userId);
+
+    /**
+     * Return the members of the conversations in an inbox with their images, so the images of every member are
+     * loaded with one query instead of one per member. Fetching them in findInboxByUserId would fetch both members'
+     * image lists at once, which Hibernate can't do.
+     * @param userIds The IDs of the members.
+     * @return The members, with their images fetched.
+     */
+    @Query("SELECT DISTINCT u FROM User u LEFT JOIN FETCH u.userImages WHERE u.id IN :userIds")
+    List<User> findMembersWithImages(@Param("userIds") Collection<Integer> userIds);
+
+    /**
+     * Records a new message in the inbox entries of a conversation: the preview and last activity are updated, the
+     * sender's unread count is cleared and every other member's unread count goes up by one.
+     * @param conversationId The ID of the conversation.
+     * @param senderId The ID of the user who sent the message.
+     * @param lastMessage The start of the message.
+     * @param lastActivity The date and time the message was sent.
+     * @return The number of entries updated.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ConversationInboxEntry e SET e.lastMessage = :lastMessage, e.lastActivity = :lastActivity, " +
+            "e.unreadCount = CASE WHEN e.userId = :senderId THEN 0 ELSE (e.unreadCount + 1) END " +
+            "WHERE e.conversation.id = :conversationId")
+    int recordMessage(@Param("conversationId") Integer conversationId,
+                      @Param("senderId") Integer senderId,
+                      @Param("lastMessage") String lastMessage,
+                      @Param("lastActivity") LocalDateTime lastActivity);
+
+    /**
+     * Clears a user's unread count for a conversation.
+     * @param conversationId The ID of the conversation.
+     * @param userId The ID of the user who read the conversation.
+     * @return The number of entries updated.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ConversationInboxEntry e SET e.unreadCount = 0 " +
+            "WHERE e.conversation.id = :conversationId AND e.userId = :userId AND e.unreadCount > 0")
+    int markRead(@Param("conversationId") Integer conversationId, @Param("userId") Integer userId);
+
+    /**
+     * Removes a conversation from a user's inbox (used when they leave the conversation).
+     * @param conversationId The ID of the conversation.
+     * @param userId The ID of the user.
+     * @return The number of entries deleted.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM ConversationInboxEntry e WHERE e.conversation.id = :conversationId AND e.userId = :userId")
+    int deleteByConversationIdAndUserId(@Param("conversationId") Integer conversationId, @Param("userId") Integer userId);
+
+    /**
+     * Removes a conversation from every inbox (used when the conversation is deleted).
+     * @param conversationId The ID of the conversation.
+     * @return The number of entries deleted.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM ConversationInboxEntry e WHERE e.conversation.id = :conversationId")
+    int deleteAllByConversationId(@Param("conversationId") Integer conversationId);
+
+    /**
+     * Removes several conversations from every inbox (used when purging conversations).
+     * @param conversationIds The IDs of the conversations.
+     * @return The number of entries deleted.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM ConversationInboxEntry e WHERE e.conversation.id IN :conversationIds")
+    int deleteAllByConversationIdIn(@Param("conversationIds") Collection<Integer> conversationIds);
+
+    /**
+     * Return the conversations which have a member (who hasn't left) without an inbox entry, e.g. conversations
+     * created before inbox entries existed.
+     * @return A list of conversations missing inbox entries.
+     */
+    @Query("SELECT c FROM Conversation c WHERE " +
+            "(c.deletedByInstigator = false AND NOT EXISTS (SELECT e.id FROM ConversationInboxEntry e " +
+            "WHERE e.conversation = c AND e.userId = c.instigator.id)) OR " +
+            "(c.deletedByReceiver = false AND NOT EXISTS (SELECT e.id FROM ConversationInboxEntry e " +
+            "WHERE e.conversation = c AND e.userId = c.receiver.id))")
+    List<Conversation> findConversationsMissingEntries();
+
+    /**
+     * Return the IDs of the users who have an inbox entry for a conversation.
+     * @param conversationId The ID of the conversation.
+     * @return A list of user IDs.
+     */
+    @Query("SELECT e.userId FROM ConversationInboxEntry e WHERE e.conversation.id = :conversationId")
+    List<Integer> findUserIdsByConversationId(@Param("conversationId") Integer conversationId);
+}
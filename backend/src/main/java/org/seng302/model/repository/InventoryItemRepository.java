@@ -14,7 +14,11 @@ import org.seng302.model.InventoryItem;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -49,5 +53,67 @@ public interface InventoryItemRepository extends JpaRepository<InventoryItem, In
      */
     List<InventoryItem> findAllByBusinessId(Integer businessId);
 
+    /*
+     * Inventory ledger. Each of these is a single conditional update, so the check and the change can't be split by
+     * a concurrent one and the quantity never drops below the number of items reserved by listings.
+     */
+
+    /**
+     * Reserves items of an inventory item for a listing.
+     * @param id id of the inventory item
+     * @param quantity number of items to reserve
+     * @return 1 if the items were reserved, 0 if the inventory item doesn't exist or has fewer unreserved items
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE InventoryItem i SET i.reserved = i.reserved + :quantity " +
+            "WHERE i.id = :id AND i.quantity - i.reserved >= :quantity")
+    int reserveQuantity(@Param("id") Integer id, @Param("quantity") Integer quantity);
+
+    /**
+     * Releases items reserved for a listing which has been deleted.
+     * @param id id of the inventory item
+     * @param quantity number of items to release
+     * @return 1 if the inventory item exists, otherwise 0
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE InventoryItem i SET i.reserved = CASE WHEN i.reserved > :quantity THEN (i.reserved - :quantity) ELSE 0 END " +
+            "WHERE i.id = :id")
+    int releaseQuantity(@Param("id") Integer id, @Param("quantity") Integer quantity);
+
+    /**
+     * Takes the items of a bought listing out of an inventory item, along with their reservation.
+     * @param id id of the inventory item
+     * @param quantity number of items sold
+     * @return 1 if the items were taken, 0 if the inventory item doesn't exist or has fewer items than the quantity
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE InventoryItem i SET i.quantity = i.quantity - :quantity, " +
+            "i.reserved = CASE WHEN i.reserved > :quantity THEN (i.reserved - :quantity) ELSE 0 END " +
+            "WHERE i.id = :id AND i.quantity >= :quantity")
+    int sellQuantity(@Param("id") Integer id, @Param("quantity") Integer quantity);
+
+    /**
+     * Changes the number of items in an inventory item.
+     * @param id id of the inventory item
+     * @param quantity the new number of items
+     * @return 1 if the quantity was changed, 0 if the inventory item doesn't exist or has more items reserved
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE InventoryItem i SET i.quantity = :quantity WHERE i.id = :id AND i.reserved <= :quantity")
+    int updateQuantity(@Param("id") Integer id, @Param("quantity") Integer quantity);
+
+    /**
+     * Recalculates the reserved items of every inventory item from its listings.
+     * @return the number of inventory items updated
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE InventoryItem i SET i.reserved = " +
+            "(SELECT COALESCE(SUM(l.quantity), 0) FROM Listing l WHERE l.inventoryItem.id = i.id)")
+    int reconcileReservations();
 
 }
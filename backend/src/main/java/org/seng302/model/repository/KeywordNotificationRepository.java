@@ -2,7 +2,10 @@ package org.seng302.model.repository;
 
 import org.seng302.model.KeywordNotification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 
 /**
@@ -13,10 +16,12 @@ import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 public interface KeywordNotificationRepository extends JpaRepository<KeywordNotification, Integer> {
 
     /**
-     * Delete all notifications for a given keyword.
+     * Delete all notifications for a given keyword with a single statement (the notifications are not loaded).
      *
      * @param id The ID of the keyword you want to delete notifications for.
      */
-    void deleteAllByKeywordId(Integer id);
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM KeywordNotification n WHERE n.keyword.id = :id")
+    void deleteAllByKeywordId(@Param("id") Integer id);
 
 }
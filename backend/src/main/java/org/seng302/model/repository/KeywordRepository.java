@@ -2,6 +2,9 @@ package org.seng302.model.repository;
 
 import org.seng302.model.Keyword;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 
 import java.util.List;
@@ -34,4 +37,23 @@ public interface KeywordRepository extends JpaRepository<Keyword, Integer> {
      * @return a unique keyword
      */
     Optional<Keyword> findById(Integer id);
+
+    /**
+     * Removes a keyword from every card which has it, with a single statement (the cards are not loaded).
+     * @param id id of the keyword
+     * @return the number of cards the keyword was removed from
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "DELETE FROM card_keywords WHERE keyword_id = :id", nativeQuery = true)
+    int deleteCardKeywordsByKeywordId(@Param("id") Integer id);
+
+    /**
+     * Deletes a keyword with a single statement (the keyword is not loaded).
+     * The keyword must already have been removed from every card.
+     * @param id id of the keyword
+     * @return the number of keywords deleted
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Keyword k WHERE k.id = :id")
+    int deleteKeywordById(@Param("id") Integer id);
 }
@@ -0,0 +1,23 @@
+package org.seng302.model.repository;
+
+import org.seng302.model.ListingPurchase;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+
+import java.util.Optional;
+
+/**
+ * Provides an interface to the database, and
+ * functions to handle the ListingPurchase entities.
+ */
+@RepositoryRestResource(exported = false)
+public interface ListingPurchaseRepository extends JpaRepository<ListingPurchase, Integer> {
+
+    /**
+     * Find the purchase a user made with an idempotency key
+     * @param userId ID of the purchaser
+     * @param idempotencyKey key sent with the purchase
+     * @return the purchase, if the user has made one with the key
+     */
+    Optional<ListingPurchase> findByUserIdAndIdempotencyKey(Integer userId, String idempotencyKey);
+}
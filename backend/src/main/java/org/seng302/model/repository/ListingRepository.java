@@ -16,8 +16,12 @@ import org.seng302.model.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -51,4 +55,21 @@ public interface ListingRepository extends JpaRepository<Listing, Integer>, List
      * @return A page of listings.
      */
      Page<Listing> findByBusinessIdAndInventoryItemProductBarcode(Integer businessId, String barcode, Pageable paging);
+
+    /**
+     * The price and closing time of a listing, used to build the in-memory listing range index.
+     */
+    interface ListingRange {
+        Integer getId();
+        Double getPrice();
+        LocalDateTime getCloses();
+    }
+
+    /**
+     * Finds the price and closing time of every listing which hasn't closed yet.
+     * @param now The current time.
+     * @return The prices and closing times of the open listings.
+     */
+    @Query("SELECT l.id AS id, l.price AS price, l.closes AS closes FROM Listing l WHERE l.closes >= :now")
+    List<ListingRange> findAllOpenListingRanges(@Param("now") LocalDateTime now);
 }
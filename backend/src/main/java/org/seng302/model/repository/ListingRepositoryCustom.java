@@ -3,6 +3,8 @@ package org.seng302.model.repository;
 import org.seng302.exceptions.FailedToDeleteListingException;
 import org.seng302.model.Listing;
 import org.seng302.model.enums.BusinessType;
+import org.seng302.view.outgoing.ListingFacetsPayload;
+import org.seng302.view.outgoing.SearchPlanCacheStatisticsPayload;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -29,8 +31,8 @@ public interface ListingRepositoryCustom {
     );
 
     /**
-     * Finds all listings with matching locations
-     * @param locations list of locations
+     * Finds all listings with matching business names
+     * @param names list of business names
      * @param pageable Pageable
      * @param businessTypes types of businesses
      * @param minimumPrice minimum price for price range
@@ -40,13 +42,49 @@ public interface ListingRepositoryCustom {
      * @param barcode a barcode to match listings to
      * @return returns a Page of listings
      */
-    Page<Listing> findAllListingsByLocation(
-            List<String> locations, Pageable pageable,
+    Page<Listing> findAllListingsByBusinessName(
+            List<String> names, Pageable pageable,
             List<BusinessType> businessTypes, Double minimumPrice, Double maximumPrice, LocalDateTime fromDate, LocalDateTime toDate, String barcode
     );
 
     /**
-     * Finds all listings with matching business names
+     * Finds all listings of the given businesses
+     * @param businessIds ids of the businesses
+     * @param pageable Pageable
+     * @param businessTypes types of businesses
+     * @param minimumPrice minimum price for price range
+     * @param maximumPrice maximum price for price range
+     * @param fromDate from date for close date range
+     * @param toDate to date for close date range
+     * @param barcode a barcode to match listings to
+     * @return returns a Page of listings
+     */
+    Page<Listing> findAllListingsByBusinessIds(
+            List<Integer> businessIds, Pageable pageable,
+            List<BusinessType> businessTypes, Double minimumPrice, Double maximumPrice, LocalDateTime fromDate, LocalDateTime toDate, String barcode
+    );
+
+    /**
+     * Finds all listings with matching product names among candidate listings found by the listing range index
+     * @param names list of product names
+     * @param pageable Pageable
+     * @param businessTypes types of businesses
+     * @param minimumPrice minimum price for price range
+     * @param maximumPrice maximum price for price range
+     * @param fromDate from date for close date range
+     * @param toDate to date for close date range
+     * @param barcode a barcode to match listings to
+     * @param listingIds ids of the candidate listings, which must also be in the price and close date ranges
+     * @return returns a Page of listings
+     */
+    Page<Listing> findAllListingsByProductName(
+            List<String> names, Pageable pageable,
+            List<BusinessType> businessTypes, Double minimumPrice, Double maximumPrice, LocalDateTime fromDate, LocalDateTime toDate, String barcode,
+            List<Integer> listingIds
+    );
+
+    /**
+     * Finds all listings with matching business names among candidate listings found by the listing range index
      * @param names list of business names
      * @param pageable Pageable
      * @param businessTypes types of businesses
@@ -55,13 +93,81 @@ public interface ListingRepositoryCustom {
      * @param fromDate from date for close date range
      * @param toDate to date for close date range
      * @param barcode a barcode to match listings to
+     * @param listingIds ids of the candidate listings, which must also be in the price and close date ranges
      * @return returns a Page of listings
      */
     Page<Listing> findAllListingsByBusinessName(
             List<String> names, Pageable pageable,
+            List<BusinessType> businessTypes, Double minimumPrice, Double maximumPrice, LocalDateTime fromDate, LocalDateTime toDate, String barcode,
+            List<Integer> listingIds
+    );
+
+    /**
+     * Finds all listings of the given businesses among candidate listings found by the listing range index
+     * @param businessIds ids of the businesses
+     * @param pageable Pageable
+     * @param businessTypes types of businesses
+     * @param minimumPrice minimum price for price range
+     * @param maximumPrice maximum price for price range
+     * @param fromDate from date for close date range
+     * @param toDate to date for close date range
+     * @param barcode a barcode to match listings to
+     * @param listingIds ids of the candidate listings, which must also be in the price and close date ranges
+     * @return returns a Page of listings
+     */
+    Page<Listing> findAllListingsByBusinessIds(
+            List<Integer> businessIds, Pageable pageable,
+            List<BusinessType> businessTypes, Double minimumPrice, Double maximumPrice, LocalDateTime fromDate, LocalDateTime toDate, String barcode,
+            List<Integer> listingIds
+    );
+
+    /**
+     * Counts the listings with matching product names by business type, price range and closing date
+     * @param names list of product names
+     * @param businessTypes types of businesses
+     * @param minimumPrice minimum price for price range
+     * @param maximumPrice maximum price for price range
+     * @param fromDate from date for close date range
+     * @param toDate to date for close date range
+     * @param barcode a barcode to match listings to
+     * @return returns the facet counts
+     */
+    ListingFacetsPayload countListingFacetsByProductName(
+            List<String> names,
             List<BusinessType> businessTypes, Double minimumPrice, Double maximumPrice, LocalDateTime fromDate, LocalDateTime toDate, String barcode
     );
 
+    /**
+     * Counts the listings with matching business names by business type, price range and closing date
+     * @param names list of business names
+     * @param businessTypes types of businesses
+     * @param minimumPrice minimum price for price range
+     * @param maximumPrice maximum price for price range
+     * @param fromDate from date for close date range
+     * @param toDate to date for close date range
+     * @param barcode a barcode to match listings to
+     * @return returns the facet counts
+     */
+    ListingFacetsPayload countListingFacetsByBusinessName(
+            List<String> names,
+            List<BusinessType> businessTypes, Double minimumPrice, Double maximumPrice, LocalDateTime fromDate, LocalDateTime toDate, String barcode
+    );
+
+    /**
+     * Counts the listings of the given businesses by business type, price range and closing date
+     * @param businessIds ids of the businesses
+     * @param businessTypes types of businesses
+     * @param minimumPrice minimum price for price range
+     * @param maximumPrice maximum price for price range
+     * @param fromDate from date for close date range
+     * @param toDate to date for close date range
+     * @param barcode a barcode to match listings to
+     * @return returns the facet counts
+     */
+    ListingFacetsPayload countListingFacetsByBusinessIds(
+            List<Integer> businessIds,
+            List<BusinessType> businessTypes, Double minimumPrice, Double maximumPrice, LocalDateTime fromDate, LocalDateTime toDate, String barcode
+    );
 
     /**
      * Given a listing id attempt to delete it. And created a notification for all bookmarked users.
@@ -72,4 +178,24 @@ public interface ListingRepositoryCustom {
      */
     Boolean deleteListing(Integer id) throws FailedToDeleteListingException;
 
+    /**
+     * Gets the statistics of the cache of compiled listing search queries.
+     * @return the number of cached queries and the cache's hit and miss counts
+     */
+    SearchPlanCacheStatisticsPayload getSearchPlanCacheStatistics();
+
+    /**
+     * Finds the ids of listings which have closed or whose inventory item has expired
+     * @param limit the most ids to return
+     * @return the ids of closed or expired listings, lowest first
+     */
+    List<Integer> findClosedOrExpiredListingIds(int limit);
+
+    /**
+     * Moves listings into the archived listing table, notifying the users who bookmarked them
+     * @param ids the ids of the listings to archive
+     * @return the number of listings archived
+     */
+    int archiveListings(List<Integer> ids);
+
 }
@@ -2,39 +2,69 @@ package org.seng302.model.repository;
 
 import org.seng302.exceptions.FailedToDeleteListingException;
 import org.seng302.exceptions.IllegalListingNotificationArgumentException;
+import org.seng302.model.ArchivedListing;
 import org.seng302.model.Listing;
 import org.seng302.model.ListingNotification;
 import org.seng302.model.enums.BusinessType;
-import org.seng302.utils.CustomRepositoryUtils;
+import org.seng302.view.outgoing.ListingFacetsPayload;
+import org.seng302.view.outgoing.SearchPlanCacheStatisticsPayload;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PropertyPath;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
-import javax.persistence.criteria.*;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
- * Custom Implementation of Listing Repository for searching
+ * Custom Implementation of Listing Repository for searching.
+ * Searches are run as JPQL with bind variables. The JPQL for each shape of search is compiled once and cached in a
+ * ListingSearchPlanCache, so repeated searches with the same shape reuse Hibernate's query plan.
  */
 public class ListingRepositoryCustomImpl implements ListingRepositoryCustom {
 
     @Autowired
     private EntityManager entityManager;
 
+    private static final Logger logger = LogManager.getLogger(ListingRepositoryCustomImpl.class.getName());
 
-    private static final String BUSINESS_STRING = "business";
+    // Number of search shapes whose JPQL is cached.
+    private static final int PLAN_CACHE_SIZE = 256;
 
-    private static final String INVENTORY_ITEM_STRING = "inventoryItem";
+    private final ListingSearchPlanCache planCache = new ListingSearchPlanCache(PLAN_CACHE_SIZE);
 
-    private static final String PRODUCT_STRING = "product";
+    private static final String PRODUCT_NAME_PATH = "l.inventoryItem.product.name";
 
-    private static final String CLOSES_STRING = "closes";
+    private static final String BUSINESS_NAME_PATH = "l.inventoryItem.product.business.name";
+
+    private static final String BUSINESS_TYPE_PATH = "l.inventoryItem.product.business.businessType";
+
+    // Upper bounds of the price ranges listings are counted in (the last range has no upper bound).
+    private static final int[] PRICE_RANGE_BOUNDS = {5, 10, 20, 50};
+
+    private static final String PRICE_RANGE_EXPRESSION = priceRangeExpression();
+
+    private static final List<String> PRICE_RANGES = priceRangeLabels();
+
+    // Listings are grouped by the day they close, which is then put into one of the closing date ranges.
+    private static final String CLOSING_DAY_EXPRESSION = "CAST(l.closes AS date)";
+
+    private static final List<String> CLOSING_RANGES = List.of("today", "withinAWeek", "withinAMonth", "later");
 
     /**
      * Search for listings by product name and optional filters.
@@ -61,21 +91,14 @@ public class ListingRepositoryCustomImpl implements ListingRepositoryCustom {
             LocalDateTime fromDate, LocalDateTime toDate,
             String barcode
     ) {
-        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
-        CriteriaQuery<Listing> query = criteriaBuilder.createQuery(Listing.class);
-        Root<Listing> listing = query.from(Listing.class);
-
-        Path<String> namePath = listing.get(INVENTORY_ITEM_STRING).get(PRODUCT_STRING).get("name");
-
-        ArrayList<Predicate> predicates = CustomRepositoryUtils.getPredicates(names, namePath, criteriaBuilder);
-
-        return getListings(pageable, businessTypes, minimumPrice, maximumPrice, fromDate, toDate, barcode, criteriaBuilder, query, listing, predicates);
+        SearchFilters filters = new SearchFilters(businessTypes, minimumPrice, maximumPrice, fromDate, toDate, barcode, null);
+        return getListings(new NameMatch("productName", PRODUCT_NAME_PATH, names), filters, pageable);
     }
 
     /**
-     * Search for listings by location and optional filters.
+     * Search for listings by business name and optional filters.
      *
-     * @param locations    A list of locations
+     * @param names        A list of business names.
      * @param pageable     A pageable object containing the requested page number, the number of results in a page and a sort object.
      * @param businessTypes The types of businesses to search for. (Optional)
      * @param minimumPrice Lower end of prices to include in search. (Optional)
@@ -85,41 +108,21 @@ public class ListingRepositoryCustomImpl implements ListingRepositoryCustom {
      * @param barcode      The barcode to match to listings (Optional)
      * @return A Page object containing all matching listing results.
      *
-     * Preconditions:  A non-null list of locations to search for.
+     * Preconditions:  A non-null list of names to search for businesses.
      *                 A non-null pageable object.
      * Postconditions: A page object containing all matching listing results.
      */
     @Override
-    public Page<Listing> findAllListingsByLocation(List<String> locations, Pageable pageable, List<BusinessType> businessTypes, Double minimumPrice, Double maximumPrice, LocalDateTime fromDate, LocalDateTime toDate, String barcode) {
-        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
-        CriteriaQuery<Listing> query = criteriaBuilder.createQuery(Listing.class);
-
-        Root<Listing> listing = query.from(Listing.class);
-
-        Path<String> addressPath = listing.get(INVENTORY_ITEM_STRING).get(PRODUCT_STRING).get(BUSINESS_STRING).get("address");
-
-        ArrayList<Predicate> predicates = new ArrayList<>();
-        for (String location : locations) {
-            if (location.startsWith("\"") && location.endsWith("\"")) {
-                location = location.replace("\"", "");
-                predicates.add(criteriaBuilder.equal(addressPath.get("suburb"), location));
-                predicates.add(criteriaBuilder.equal(addressPath.get("region"), location));
-                predicates.add(criteriaBuilder.equal(addressPath.get("city"), location));
-                predicates.add(criteriaBuilder.equal(addressPath.get("country"), location));
-            } else {
-                predicates.add(criteriaBuilder.like(criteriaBuilder.upper(addressPath.get("suburb")), "%" + location.toUpperCase() + "%"));
-                predicates.add(criteriaBuilder.like(criteriaBuilder.upper(addressPath.get("region")), "%" + location.toUpperCase() + "%"));
-                predicates.add(criteriaBuilder.like(criteriaBuilder.upper(addressPath.get("city")), "%" + location.toUpperCase() + "%"));
-                predicates.add(criteriaBuilder.like(criteriaBuilder.upper(addressPath.get("country")), "%" + location.toUpperCase() + "%"));
-            }
-        }
-        return getListings(pageable, businessTypes, minimumPrice, maximumPrice, fromDate, toDate, barcode, criteriaBuilder, query, listing, predicates);
+    public Page<Listing> findAllListingsByBusinessName(List<String> names, Pageable pageable, List<BusinessType> businessTypes, Double minimumPrice, Double maximumPrice, LocalDateTime fromDate, LocalDateTime toDate, String barcode) {
+        SearchFilters filters = new SearchFilters(businessTypes, minimumPrice, maximumPrice, fromDate, toDate, barcode, null);
+        return getListings(new NameMatch("businessName", BUSINESS_NAME_PATH, names), filters, pageable);
     }
 
     /**
-     * Search for listings by business name and optional filters.
+     * Search for listings of the given businesses and optional filters (used by location searches, which find the
+     * businesses in a location with the BusinessLocationIndex).
      *
-     * @param names        A list of business names.
+     * @param businessIds  The ids of the businesses whose listings may be returned.
      * @param pageable     A pageable object containing the requested page number, the number of results in a page and a sort object.
      * @param businessTypes The types of businesses to search for. (Optional)
      * @param minimumPrice Lower end of prices to include in search. (Optional)
@@ -129,115 +132,517 @@ public class ListingRepositoryCustomImpl implements ListingRepositoryCustom {
      * @param barcode      The barcode to match to listings (Optional)
      * @return A Page object containing all matching listing results.
      *
-     * Preconditions:  A non-null list of names to search for businesses.
+     * Preconditions:  A non-null list of business ids.
      *                 A non-null pageable object.
      * Postconditions: A page object containing all matching listing results.
      */
     @Override
-    public Page<Listing> findAllListingsByBusinessName(List<String> names, Pageable pageable, List<BusinessType> businessTypes, Double minimumPrice, Double maximumPrice, LocalDateTime fromDate, LocalDateTime toDate, String barcode) {
-        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
-        CriteriaQuery<Listing> query = criteriaBuilder.createQuery(Listing.class);
+    public Page<Listing> findAllListingsByBusinessIds(List<Integer> businessIds, Pageable pageable, List<BusinessType> businessTypes, Double minimumPrice, Double maximumPrice, LocalDateTime fromDate, LocalDateTime toDate, String barcode) {
+        SearchFilters filters = new SearchFilters(businessTypes, minimumPrice, maximumPrice, fromDate, toDate, barcode, null);
+        return getListings(new BusinessIdMatch(businessIds), filters, pageable);
+    }
+
+    /**
+     * Search for listings by product name among candidate listings found by the ListingRangeIndex. The price and
+     * closing date ranges are still checked, so a listing the index has out of date is never returned, but only for
+     * the candidates rather than every listing the search joins through.
+     *
+     * @param names        A list of product names.
+     * @param pageable     A pageable object containing the requested page number, the number of results in a page and a sort object.
+     * @param businessTypes The types of businesses to search for. (Optional)
+     * @param minimumPrice Lower end of prices to include in search. (Optional)
+     * @param maximumPrice Higher end of prices to include in search. (Optional)
+     * @param fromDate     Earlier end of close dates to include in search. (Optional)
+     * @param toDate       Later end of close dates to include in search. (Optional)
+     * @param barcode      The barcode to match to listings (Optional)
+     * @param listingIds   The ids of the candidate listings.
+     * @return A Page object containing all matching listing results.
+     */
+    @Override
+    public Page<Listing> findAllListingsByProductName(List<String> names, Pageable pageable, List<BusinessType> businessTypes, Double minimumPrice, Double maximumPrice, LocalDateTime fromDate, LocalDateTime toDate, String barcode, List<Integer> listingIds) {
+        SearchFilters filters = new SearchFilters(businessTypes, minimumPrice, maximumPrice, fromDate, toDate, barcode, listingIds);
+        return getListings(new NameMatch("productName", PRODUCT_NAME_PATH, names), filters, pageable);
+    }
+
+    /**
+     * Search for listings by business name among candidate listings found by the ListingRangeIndex, which must also
+     * be within the price and closing date ranges.
+     *
+     * @param names        A list of business names.
+     * @param pageable     A pageable object containing the requested page number, the number of results in a page and a sort object.
+     * @param businessTypes The types of businesses to search for. (Optional)
+     * @param minimumPrice Lower end of prices to include in search. (Optional)
+     * @param maximumPrice Higher end of prices to include in search. (Optional)
+     * @param fromDate     Earlier end of close dates to include in search. (Optional)
+     * @param toDate       Later end of close dates to include in search. (Optional)
+     * @param barcode      The barcode to match to listings (Optional)
+     * @param listingIds   The ids of the candidate listings.
+     * @return A Page object containing all matching listing results.
+     */
+    @Override
+    public Page<Listing> findAllListingsByBusinessName(List<String> names, Pageable pageable, List<BusinessType> businessTypes, Double minimumPrice, Double maximumPrice, LocalDateTime fromDate, LocalDateTime toDate, String barcode, List<Integer> listingIds) {
+        SearchFilters filters = new SearchFilters(businessTypes, minimumPrice, maximumPrice, fromDate, toDate, barcode, listingIds);
+        return getListings(new NameMatch("businessName", BUSINESS_NAME_PATH, names), filters, pageable);
+    }
+
+    /**
+     * Search for listings of the given businesses among candidate listings found by the ListingRangeIndex, which must
+     * also be within the price and closing date ranges.
+     *
+     * @param businessIds  The ids of the businesses whose listings may be returned.
+     * @param pageable     A pageable object containing the requested page number, the number of results in a page and a sort object.
+     * @param businessTypes The types of businesses to search for. (Optional)
+     * @param minimumPrice Lower end of prices to include in search. (Optional)
+     * @param maximumPrice Higher end of prices to include in search. (Optional)
+     * @param fromDate     Earlier end of close dates to include in search. (Optional)
+     * @param toDate       Later end of close dates to include in search. (Optional)
+     * @param barcode      The barcode to match to listings (Optional)
+     * @param listingIds   The ids of the candidate listings.
+     * @return A Page object containing all matching listing results.
+     */
+    @Override
+    public Page<Listing> findAllListingsByBusinessIds(List<Integer> businessIds, Pageable pageable, List<BusinessType> businessTypes, Double minimumPrice, Double maximumPrice, LocalDateTime fromDate, LocalDateTime toDate, String barcode, List<Integer> listingIds) {
+        SearchFilters filters = new SearchFilters(businessTypes, minimumPrice, maximumPrice, fromDate, toDate, barcode, listingIds);
+        return getListings(new BusinessIdMatch(businessIds), filters, pageable);
+    }
 
-        Root<Listing> listing = query.from(Listing.class);
+    /**
+     * Counts the listings matching a product name search by business type, price range and closing date.
+     * Takes the same names and optional filters as findAllListingsByProductName.
+     * @return the facet counts of the matching listings
+     */
+    @Override
+    public ListingFacetsPayload countListingFacetsByProductName(List<String> names, List<BusinessType> businessTypes, Double minimumPrice, Double maximumPrice, LocalDateTime fromDate, LocalDateTime toDate, String barcode) {
+        SearchFilters filters = new SearchFilters(businessTypes, minimumPrice, maximumPrice, fromDate, toDate, barcode, null);
+        return countFacets(new NameMatch("productName", PRODUCT_NAME_PATH, names), filters);
+    }
 
-        Path<String> businessNamePath = listing.get(INVENTORY_ITEM_STRING).get(PRODUCT_STRING).get(BUSINESS_STRING).get("name");
+    /**
+     * Counts the listings matching a business name search by business type, price range and closing date.
+     * Takes the same names and optional filters as findAllListingsByBusinessName.
+     * @return the facet counts of the matching listings
+     */
+    @Override
+    public ListingFacetsPayload countListingFacetsByBusinessName(List<String> names, List<BusinessType> businessTypes, Double minimumPrice, Double maximumPrice, LocalDateTime fromDate, LocalDateTime toDate, String barcode) {
+        SearchFilters filters = new SearchFilters(businessTypes, minimumPrice, maximumPrice, fromDate, toDate, barcode, null);
+        return countFacets(new NameMatch("businessName", BUSINESS_NAME_PATH, names), filters);
+    }
 
-        ArrayList<Predicate> predicates = CustomRepositoryUtils.getPredicates(names, businessNamePath, criteriaBuilder);
+    /**
+     * Counts the listings of the given businesses by business type, price range and closing date.
+     * Takes the same business ids and optional filters as findAllListingsByBusinessIds.
+     * @return the facet counts of the matching listings
+     */
+    @Override
+    public ListingFacetsPayload countListingFacetsByBusinessIds(List<Integer> businessIds, List<BusinessType> businessTypes, Double minimumPrice, Double maximumPrice, LocalDateTime fromDate, LocalDateTime toDate, String barcode) {
+        SearchFilters filters = new SearchFilters(businessTypes, minimumPrice, maximumPrice, fromDate, toDate, barcode, null);
+        return countFacets(new BusinessIdMatch(businessIds), filters);
+    }
 
-        return getListings(pageable, businessTypes, minimumPrice, maximumPrice, fromDate, toDate, barcode, criteriaBuilder, query, listing, predicates);
+    /**
+     * Gets the statistics of the cache of compiled listing search queries.
+     * @return the number of cached queries and the cache's hit and miss counts
+     */
+    @Override
+    public SearchPlanCacheStatisticsPayload getSearchPlanCacheStatistics() {
+        return new SearchPlanCacheStatisticsPayload(planCache.size(), planCache.getHitCount(), planCache.getMissCount());
     }
 
     /**
-     * Gets the page of Listings from predicates and applies the optional filters.
+     * Gets the page of Listings matching the search and the optional filters.
+     * Listings which have closed, or whose inventory item has expired, are never returned.
      *
+     * @param match What a listing must match, e.g. names of the searched field
+     * @param filters The optional filters
      * @param pageable Pageable for Pagination/Sorting
-     * @param businessTypes Type of Businesses
-     * @param minimumPrice Lower end of price range
-     * @param maximumPrice Higher end of price range
-     * @param fromDate Earlier date of close date range
-     * @param toDate Later date of close date range
-     * @param barcode A barcode to match the listings to
-     * @param criteriaBuilder Criteria builder
-     * @param query Query for Listings location
-     * @param listing Root for listing location
-     * @param predicates Predicates from searchQuery
      * @return A Page of Listings that apply to filters (can be empty)
      *
-     * Preconditions:  predicates contains at least one Predicate
-     *                 pageable is a valid Pageable
-     *                 query and listing are for the same place
+     * Preconditions:  pageable is a valid Pageable
      * Postconditions: A matching Page of Listings
      */
-    private Page<Listing> getListings(Pageable pageable, List<BusinessType> businessTypes, Double minimumPrice, Double maximumPrice, LocalDateTime fromDate, LocalDateTime toDate, String barcode, CriteriaBuilder criteriaBuilder, CriteriaQuery<Listing> query, Root<Listing> listing, ArrayList<Predicate> predicates) {
-
-        // Optional filters
-        ArrayList<Predicate> predicateList = new ArrayList<>();
-        if (businessTypes != null) {
-            // where businessType = type
-            Predicate predicateForBusinessType = criteriaBuilder.isTrue(listing.get(INVENTORY_ITEM_STRING).get(PRODUCT_STRING).get(BUSINESS_STRING).get("businessType").in(businessTypes));
-            predicateList.add(predicateForBusinessType);
-        }
-        if (minimumPrice != null) {
-            Predicate predicateForMinimumPrice = criteriaBuilder.greaterThanOrEqualTo(listing.get("price"), minimumPrice);
-            predicateList.add(predicateForMinimumPrice);
+    private Page<Listing> getListings(SearchMatch match, SearchFilters filters, Pageable pageable) {
+        if (match.matchesNothing() || filters.matchesNothing()) {
+            return new PageImpl<>(List.of(), pageable, 0);
         }
-        if (maximumPrice != null) {
-            Predicate predicateForMaximumPrice = criteriaBuilder.lessThanOrEqualTo(listing.get("price"), maximumPrice);
-            predicateList.add(predicateForMaximumPrice);
+
+        ListingSearchPlanCache.ListingSearchPlan plan = getPlan(match, filters, pageable.getSort());
+
+        TypedQuery<Listing> query = entityManager.createQuery(plan.getSelectJpql(), Listing.class);
+        TypedQuery<Long> countQuery = entityManager.createQuery(plan.getCountJpql(), Long.class);
+        for (Query jpqlQuery : List.<Query>of(query, countQuery)) {
+            match.bind(jpqlQuery);
+            filters.bind(jpqlQuery);
         }
-        if (fromDate != null) {
-            Predicate predicateForFromDate = criteriaBuilder.greaterThanOrEqualTo(
-                    listing.get(CLOSES_STRING).as(LocalDateTime.class), fromDate
-            );
-            predicateList.add(predicateForFromDate);
+
+        // this query fetches the listings as per the page limit
+        List<Listing> listings = query.setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize()).getResultList();
+
+        // fetches the count of all listings as per given criteria, used to display "Showing 1-5 of x results"
+        Long count = countQuery.getSingleResult();
+
+        return new PageImpl<>(listings, pageable, count);
+    }
+
+    /**
+     * Counts the listings matching the search and the optional filters by business type, price range and closing
+     * date. The counts are aggregated by the database in a single grouped query (grouped by business type, price
+     * range and closing day) rather than with a count query per facet value.
+     *
+     * @param match What a listing must match, e.g. names of the searched field
+     * @param filters The optional filters
+     * @return the facet counts, including the values with no listings
+     */
+    private ListingFacetsPayload countFacets(SearchMatch match, SearchFilters filters) {
+        ListingFacetsPayload facets = new ListingFacetsPayload(BusinessType.values(), PRICE_RANGES, CLOSING_RANGES);
+        if (match.matchesNothing() || filters.matchesNothing()) {
+            return facets;
         }
-        if (toDate != null) {
-            Predicate predicateForToDate = criteriaBuilder.lessThanOrEqualTo(
-                    listing.get(CLOSES_STRING).as(LocalDateTime.class), toDate
-            );
-            predicateList.add(predicateForToDate);
+
+        ListingSearchPlanCache.ListingSearchPlan plan = getPlan(match, filters, Sort.unsorted());
+
+        TypedQuery<Object[]> facetQuery = entityManager.createQuery(plan.getFacetJpql(), Object[].class);
+        match.bind(facetQuery);
+        filters.bind(facetQuery);
+
+        LocalDate today = LocalDate.now();
+        for (Object[] row : facetQuery.getResultList()) {
+            long count = ((Number) row[3]).longValue();
+            facets.add(String.valueOf(row[0]), PRICE_RANGES.get(((Number) row[1]).intValue()), getClosingRange(today, row[2]), count);
         }
-        if (barcode != null && !barcode.equals("")) {
-            // where businessType = type
-            Predicate predicateForBarcode = criteriaBuilder.equal(listing.get(INVENTORY_ITEM_STRING).get(PRODUCT_STRING).get("barcode"), barcode);
-            predicateList.add(predicateForBarcode);
+        return facets;
+    }
+
+    /**
+     * Gets the compiled JPQL for the shape of a search, compiling it if it isn't cached.
+     */
+    private ListingSearchPlanCache.ListingSearchPlan getPlan(SearchMatch match, SearchFilters filters, Sort sort) {
+        String shape = match.getShape() + ':' + filters.getShape() + ':' + sort;
+        return planCache.get(shape, () -> compilePlan(match, filters, sort));
+    }
+
+    /**
+     * Compiles the JPQL for a shape of search.
+     *
+     * @param match What a listing must match
+     * @param filters The optional filters
+     * @param sort The ordering of the results
+     * @return the select, count and facet JPQL of the search
+     */
+    private static ListingSearchPlanCache.ListingSearchPlan compilePlan(SearchMatch match, SearchFilters filters, Sort sort) {
+        StringBuilder where = new StringBuilder(" FROM Listing l WHERE l.inventoryItem.expires >= :earliestExpiry AND l.closes >= :now AND ");
+        match.appendCondition(where);
+        filters.appendConditions(where);
+
+        StringBuilder orderBy = new StringBuilder();
+        for (Sort.Order order : sort) {
+            // Resolving the property against Listing rejects unknown properties, so only valid paths reach the JPQL.
+            PropertyPath propertyPath = PropertyPath.from(order.getProperty(), Listing.class);
+            String path = "l." + propertyPath.toDotPath();
+            if (order.isIgnoreCase() && String.class.equals(propertyPath.getLeafProperty().getType())) {
+                path = "UPPER(" + path + ")";
+            }
+            orderBy.append(orderBy.length() == 0 ? " ORDER BY " : ", ")
+                    .append(path).append(order.isAscending() ? " ASC" : " DESC");
         }
 
-        Predicate predicateExpireDate = criteriaBuilder.greaterThanOrEqualTo(
-                listing.get(INVENTORY_ITEM_STRING).get("expires").as(LocalDateTime.class), LocalDateTime.now()
+        String facetGroups = BUSINESS_TYPE_PATH + ", " + PRICE_RANGE_EXPRESSION + ", " + CLOSING_DAY_EXPRESSION;
+        return new ListingSearchPlanCache.ListingSearchPlan(
+                "SELECT l" + where + orderBy,
+                "SELECT COUNT(l)" + where,
+                "SELECT " + facetGroups + ", COUNT(l)" + where + " GROUP BY " + facetGroups
         );
-        predicateList.add(predicateExpireDate);
+    }
 
-        Predicate predicateForFromDate = criteriaBuilder.greaterThanOrEqualTo(
-                listing.get(CLOSES_STRING).as(LocalDateTime.class), LocalDateTime.now()
-        );
-        predicateList.add(predicateForFromDate);
+    /**
+     * Builds a CASE expression giving the index in PRICE_RANGES of the range a listing's price is in.
+     */
+    private static String priceRangeExpression() {
+        StringBuilder expression = new StringBuilder("CASE");
+        for (int i = 0; i < PRICE_RANGE_BOUNDS.length; i++) {
+            expression.append(" WHEN l.price < ").append(PRICE_RANGE_BOUNDS[i]).append(" THEN ").append(i);
+        }
+        return expression.append(" ELSE ").append(PRICE_RANGE_BOUNDS.length).append(" END").toString();
+    }
 
+    /**
+     * Gets the labels of the price ranges, e.g. 0-5 up to 50+.
+     */
+    private static List<String> priceRangeLabels() {
+        List<String> labels = new ArrayList<>();
+        int lower = 0;
+        for (int bound : PRICE_RANGE_BOUNDS) {
+            labels.add(lower + "-" + bound);
+            lower = bound;
+        }
+        labels.add(lower + "+");
+        return List.copyOf(labels);
+    }
 
-        predicateList.add(criteriaBuilder.or(predicates.toArray(new Predicate[predicates.size()])));
+    /**
+     * Gets the closing date range of a listing from the day it closes.
+     * @param today the current date
+     * @param closingDay the date the listing closes (as returned by the database)
+     * @return one of CLOSING_RANGES
+     */
+    private static String getClosingRange(LocalDate today, Object closingDay) {
+        LocalDate day = closingDay instanceof java.sql.Date ? ((java.sql.Date) closingDay).toLocalDate()
+                : closingDay instanceof LocalDate ? (LocalDate) closingDay
+                : LocalDate.parse(closingDay.toString().substring(0, 10));
+        long days = ChronoUnit.DAYS.between(today, day);
+        if (days <= 0) {
+            return CLOSING_RANGES.get(0);
+        } else if (days <= 7) {
+            return CLOSING_RANGES.get(1);
+        } else if (days <= 30) {
+            return CLOSING_RANGES.get(2);
+        }
+        return CLOSING_RANGES.get(3);
+    }
 
-        // the where clause of the query
-        query.where(criteriaBuilder.and(predicateList.toArray(new Predicate[predicateList.size()])));
+    /**
+     * Gets the earliest expiry date of an inventory item which hasn't expired. An inventory item has expired once the
+     * start of its expiry date has passed.
+     * @param now the current time
+     * @return the earliest expiry date of a live inventory item
+     */
+    private static LocalDate getEarliestExpiry(LocalDateTime now) {
+        return now.toLocalTime().equals(LocalTime.MIDNIGHT) ? now.toLocalDate() : now.toLocalDate().plusDays(1);
+    }
 
-        // the order by clause of the query
-        query.orderBy(QueryUtils.toOrders(pageable.getSort(), listing, criteriaBuilder));
+    /**
+     * Removes the quotation marks around an exact match name.
+     * @param name a name in quotation marks
+     * @return the name without its outer quotation marks
+     */
+    private static String removeOuterQuotes(String name) {
+        return name.replaceAll("^\"+|\"+$", "");
+    }
 
-        // this query fetches the listings as per the page limit
-        List<Listing> listings = entityManager.createQuery(query).setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize()).getResultList();
-
-        // create a count query used to display "Showing 1-5 of x results"
-        CriteriaQuery<Long> countQuery = criteriaBuilder.createQuery(Long.class);
-        Root<Listing> listingRootCount = countQuery.from(Listing.class);
-        countQuery.select(criteriaBuilder.count(listingRootCount)).where(criteriaBuilder
-                .and(predicateList.toArray(
-                        new Predicate[predicateList.size()])),
-                        criteriaBuilder.or(predicates.toArray(new Predicate[predicates.size()]))
-        );
+    /**
+     * The part of a listing search which decides which listings match, apart from the optional filters.
+     */
+    private interface SearchMatch {
+
+        /**
+         * Whether the search can't match any listing (so no query needs to be run).
+         */
+        boolean matchesNothing();
+
+        /**
+         * Gets the part of the shape of the search which decides the JPQL of appendCondition.
+         */
+        String getShape();
+
+        /**
+         * Appends the condition a listing must match to a where clause.
+         */
+        void appendCondition(StringBuilder where);
+
+        /**
+         * Binds the values of the condition to a query.
+         */
+        void bind(Query query);
+    }
 
-        // fetches the count of all listings as per given criteria
-        Long count = entityManager.createQuery(countQuery).getSingleResult();
+    /**
+     * Matches listings where the searched field contains any of the names (ignoring case), or for names in quotation
+     * marks, is exactly the name.
+     */
+    private static class NameMatch implements SearchMatch {
+
+        private final String searchType;
+        private final String fieldPath;
+        private final List<String> names;
+        private final boolean[] exact;
+
+        /**
+         * @param searchType Name of the kind of search
+         * @param fieldPath JPQL path of the field the names are searched for in
+         * @param names Names from the searchQuery
+         */
+        NameMatch(String searchType, String fieldPath, List<String> names) {
+            this.searchType = searchType;
+            this.fieldPath = fieldPath;
+            this.names = names;
+            this.exact = new boolean[names.size()];
+            for (int i = 0; i < names.size(); i++) {
+                exact[i] = names.get(i).startsWith("\"") && names.get(i).endsWith("\"");
+            }
+        }
 
-        return new PageImpl<>(listings, pageable, count);
+        @Override
+        public boolean matchesNothing() {
+            return names.isEmpty();
+        }
+
+        @Override
+        public String getShape() {
+            StringBuilder shape = new StringBuilder(searchType).append(':');
+            for (boolean isExact : exact) {
+                shape.append(isExact ? 'E' : 'L');
+            }
+            return shape.toString();
+        }
+
+        @Override
+        public void appendCondition(StringBuilder where) {
+            where.append('(');
+            for (int i = 0; i < exact.length; i++) {
+                if (i > 0) {
+                    where.append(" OR ");
+                }
+                if (exact[i]) {
+                    where.append(fieldPath).append(" = :name").append(i);
+                } else {
+                    where.append("UPPER(").append(fieldPath).append(") LIKE :name").append(i);
+                }
+            }
+            where.append(')');
+        }
+
+        @Override
+        public void bind(Query query) {
+            for (int i = 0; i < names.size(); i++) {
+                String name = names.get(i);
+                query.setParameter("name" + i, exact[i] ? removeOuterQuotes(name) : "%" + name.toUpperCase() + "%");
+            }
+        }
+    }
+
+    /**
+     * Matches the listings of any of the given businesses. Listings store the id of their business, so this
+     * doesn't need to join through the inventory item and product.
+     */
+    private static class BusinessIdMatch implements SearchMatch {
+
+        private final List<Integer> businessIds;
+
+        BusinessIdMatch(List<Integer> businessIds) {
+            this.businessIds = businessIds;
+        }
+
+        @Override
+        public boolean matchesNothing() {
+            return businessIds.isEmpty();
+        }
+
+        @Override
+        public String getShape() {
+            return "businessIds";
+        }
+
+        @Override
+        public void appendCondition(StringBuilder where) {
+            where.append("l.businessId IN :businessIds");
+        }
+
+        @Override
+        public void bind(Query query) {
+            query.setParameter("businessIds", businessIds);
+        }
+    }
+
+    /**
+     * The optional filters of a listing search.
+     */
+    private static class SearchFilters {
+
+        private final List<BusinessType> businessTypes;
+        private final Double minimumPrice;
+        private final Double maximumPrice;
+        private final LocalDateTime fromDate;
+        private final LocalDateTime toDate;
+        private final String barcode;
+        private final List<Integer> listingIds;
+
+        SearchFilters(List<BusinessType> businessTypes, Double minimumPrice, Double maximumPrice, LocalDateTime fromDate, LocalDateTime toDate, String barcode, List<Integer> listingIds) {
+            this.businessTypes = businessTypes;
+            this.minimumPrice = minimumPrice;
+            this.maximumPrice = maximumPrice;
+            this.fromDate = fromDate;
+            this.toDate = toDate;
+            this.barcode = barcode == null || barcode.equals("") ? null : barcode;
+            this.listingIds = listingIds;
+        }
+
+        /**
+         * Whether the filters can't match any listing, which is the case for an empty list of business types or
+         * candidate listings.
+         */
+        boolean matchesNothing() {
+            return (businessTypes != null && businessTypes.isEmpty()) || (listingIds != null && listingIds.isEmpty());
+        }
+
+        /**
+         * Gets which filters are used, as part of the shape of a search.
+         * @return one character per filter, '1' if the filter is used and '0' if not
+         */
+        String getShape() {
+            StringBuilder shape = new StringBuilder();
+            for (Object filter : new Object[]{businessTypes, minimumPrice, maximumPrice, fromDate, toDate, barcode, listingIds}) {
+                shape.append(filter == null ? '0' : '1');
+            }
+            return shape.toString();
+        }
+
+        /**
+         * Appends the conditions for the filters which are used to a where clause.
+         * @param where the where clause
+         */
+        void appendConditions(StringBuilder where) {
+            if (businessTypes != null) {
+                where.append(" AND l.inventoryItem.product.business.businessType IN :businessTypes");
+            }
+            if (minimumPrice != null) {
+                where.append(" AND l.price >= :minimumPrice");
+            }
+            if (maximumPrice != null) {
+                where.append(" AND l.price <= :maximumPrice");
+            }
+            if (fromDate != null) {
+                where.append(" AND l.closes >= :fromDate");
+            }
+            if (toDate != null) {
+                where.append(" AND l.closes <= :toDate");
+            }
+            if (barcode != null) {
+                where.append(" AND l.inventoryItem.product.barcode = :barcode");
+            }
+            if (listingIds != null) {
+                where.append(" AND l.id IN :listingIds");
+            }
+        }
+
+        /**
+         * Binds the current time and the values of the filters which are used to a query.
+         * @param query a query compiled with appendConditions
+         */
+        void bind(Query query) {
+            LocalDateTime now = LocalDateTime.now();
+            query.setParameter("now", now);
+            query.setParameter("earliestExpiry", getEarliestExpiry(now));
+            if (businessTypes != null) {
+                query.setParameter("businessTypes", businessTypes);
+            }
+            if (minimumPrice != null) {
+                query.setParameter("minimumPrice", minimumPrice);
+            }
+            if (maximumPrice != null) {
+                query.setParameter("maximumPrice", maximumPrice);
+            }
+            if (fromDate != null) {
+                query.setParameter("fromDate", fromDate);
+            }
+            if (toDate != null) {
+                query.setParameter("toDate", toDate);
+            }
+            if (barcode != null) {
+                query.setParameter("barcode", barcode);
+            }
+            if (listingIds != null) {
+                query.setParameter("listingIds", listingIds);
+            }
+        }
     }
 
 
@@ -272,10 +677,107 @@ public class ListingRepositoryCustomImpl implements ListingRepositoryCustom {
         try {
             entityManager.remove(listing);
             entityManager.persist(notification);
+            releaseReservations(List.of(listing));
             entityManager.flush();
         } catch (Exception err) {
             throw new FailedToDeleteListingException(err.getMessage());
         }
         return true;
     }
+
+    /**
+     * Finds the ids of listings which have closed or whose inventory item has expired, i.e. those no search returns.
+     *
+     * @param limit The most ids to return.
+     * @return The ids of closed or expired listings, lowest first.
+     */
+    @Override
+    public List<Integer> findClosedOrExpiredListingIds(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        return entityManager.createQuery(
+                "SELECT l.id FROM Listing l WHERE l.closes < :now OR l.inventoryItem.expires < :earliestExpiry ORDER BY l.id",
+                Integer.class)
+                .setParameter("now", now)
+                .setParameter("earliestExpiry", getEarliestExpiry(now))
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Moves listings into the archived listing table. Like deleteListing, every user who bookmarked a listing is sent
+     * a notification that it has been removed. The archived copies and notifications are inserted together at the
+     * end of the batch so Hibernate can send them as JDBC batches.
+     *
+     * @param ids The ids of the listings to archive.
+     * @return The number of listings archived.
+     */
+    @Override
+    @Transactional
+    public int archiveListings(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<Listing> listings = entityManager.createQuery(
+                "SELECT DISTINCT l FROM Listing l JOIN FETCH l.inventoryItem i JOIN FETCH i.product p JOIN FETCH p.business " +
+                        "LEFT JOIN FETCH l.bookmarkedListings WHERE l.id IN :ids", Listing.class)
+                .setParameter("ids", ids)
+                .getResultList();
+        LocalDateTime archived = LocalDateTime.now();
+
+        List<ArchivedListing> archivedListings = new ArrayList<>(listings.size());
+        List<ListingNotification> notifications = new ArrayList<>();
+        for (Listing listing : listings) {
+            archivedListings.add(new ArchivedListing(listing, archived));
+            if (!listing.getBookmarkedListings().isEmpty()) {
+                try {
+                    ListingNotification notification = new ListingNotification(String.format(
+                            "Listing for '%s' from business '%s' has been removed as it is no longer available.",
+                            listing.getInventoryItem().getProduct().getName(),
+                            listing.getInventoryItem().getProduct().getBusiness().getName()));
+                    notification.setUsers(new ArrayList<>(listing.getBookmarkedListings()));
+                    notifications.add(notification);
+                } catch (IllegalListingNotificationArgumentException err) {
+                    logger.error("Failed to create listing notification for archiving listing ({})", listing.getId());
+                }
+            }
+        }
+
+        // The read markers of bookmark messages aren't cascaded, so they're removed before their messages.
+        entityManager.createQuery("DELETE FROM HasBookmarkedListingMessage h WHERE h.bookmarkedListingMessage IN " +
+                "(SELECT m FROM BookmarkedListingMessage m WHERE m.listing.id IN :ids)")
+                .setParameter("ids", ids)
+                .executeUpdate();
+        for (Listing listing : listings) {
+            List<Listing> itemListings = listing.getInventoryItem().getListings();
+            if (Hibernate.isInitialized(itemListings)) {
+                itemListings.removeIf(itemListing -> itemListing.getId() == listing.getId());
+            }
+            entityManager.remove(listing);
+        }
+        archivedListings.forEach(entityManager::persist);
+        notifications.forEach(entityManager::persist);
+        releaseReservations(listings);
+        entityManager.flush();
+        return listings.size();
+    }
+
+    /**
+     * Releases the items reserved by listings which are being removed (see InventoryLedger), with one update per
+     * inventory item. The items are updated in id order so concurrent batches lock them in the same order.
+     *
+     * @param listings The listings being removed.
+     */
+    private void releaseReservations(List<Listing> listings) {
+        Map<Integer, Integer> released = new TreeMap<>();
+        for (Listing listing : listings) {
+            released.merge(listing.getInventoryItem().getId(), listing.getQuantity(), Integer::sum);
+        }
+        for (Map.Entry<Integer, Integer> entry : released.entrySet()) {
+            entityManager.createQuery("UPDATE InventoryItem i " +
+                    "SET i.reserved = CASE WHEN i.reserved > :quantity THEN (i.reserved - :quantity) ELSE 0 END WHERE i.id = :id")
+                    .setParameter("quantity", entry.getValue())
+                    .setParameter("id", entry.getKey())
+                    .executeUpdate();
+        }
+    }
 }
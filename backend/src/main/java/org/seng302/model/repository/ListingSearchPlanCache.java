@@ -0,0 +1,107 @@
+package org.seng302.model.repository;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of the JPQL used by the listing searches, keyed by the shape of a search (which field is
+ * searched, how many names there are and which of them are exact matches, which optional filters are used and the
+ * ordering). Searches with the same shape only differ in their bind variables, so they run the exact same JPQL and
+ * Hibernate can reuse its compiled query plan rather than translating a new criteria query every time.
+ * Hits and misses are counted so the hit rate of the cache can be monitored.
+ */
+public class ListingSearchPlanCache {
+
+    private final Map<String, ListingSearchPlan> plans;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Constructor for ListingSearchPlanCache.
+     * @param maximumSize the maximum number of plans which are kept
+     */
+    public ListingSearchPlanCache(int maximumSize) {
+        this.plans = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ListingSearchPlan> eldest) {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    /**
+     * Gets the plan for a search shape, compiling and caching it if it isn't already cached.
+     * @param shape a key which is the same for every search that would compile to the same JPQL
+     * @param compiler compiles the plan for the shape
+     * @return the plan for the shape
+     */
+    public ListingSearchPlan get(String shape, Supplier<ListingSearchPlan> compiler) {
+        ListingSearchPlan plan;
+        synchronized (plans) {
+            plan = plans.get(shape);
+        }
+        if (plan != null) {
+            hitCount.incrementAndGet();
+            return plan;
+        }
+        missCount.incrementAndGet();
+        plan = compiler.get();
+        synchronized (plans) {
+            plans.put(shape, plan);
+        }
+        return plan;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Gets the number of plans currently cached.
+     * @return the number of cached plans
+     */
+    public int size() {
+        synchronized (plans) {
+            return plans.size();
+        }
+    }
+
+    /**
+     * The compiled JPQL for a listing search shape: a query for a page of listings, a query counting every
+     * matching listing and a query counting the matching listings by facet. All take the same named parameters.
+     */
+    public static class ListingSearchPlan {
+
+        private final String selectJpql;
+
+        private final String countJpql;
+
+        private final String facetJpql;
+
+        public ListingSearchPlan(String selectJpql, String countJpql, String facetJpql) {
+            this.selectJpql = selectJpql;
+            this.countJpql = countJpql;
+            this.facetJpql = facetJpql;
+        }
+
+        public String getSelectJpql() {
+            return selectJpql;
+        }
+
+        public String getCountJpql() {
+            return countJpql;
+        }
+
+        public String getFacetJpql() {
+            return facetJpql;
+        }
+    }
+}
@@ -5,8 +5,14 @@ import org.seng302.model.enums.Section;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,6 +23,21 @@ import java.util.Optional;
 @RepositoryRestResource
 public interface MarketplaceCardRepository extends JpaRepository<MarketplaceCard, Integer> {
 
+    /**
+     * A (card, keyword) row from the card_keywords join, with the card's creator and the values it can be ordered by,
+     * used to build the in-memory keyword index. keywordId is null for cards without keywords.
+     */
+    interface CardKeywordPair {
+        Integer getCardId();
+        Section getSection();
+        Integer getCreatorId();
+        LocalDateTime getCreated();
+        String getTitle();
+        String getCreatorSuburb();
+        String getCreatorCity();
+        Integer getKeywordId();
+    }
+
     /**
      * Search for a marketplace card by its id.
      * @param id Integer id
@@ -32,6 +53,22 @@ public interface MarketplaceCardRepository extends JpaRepository<MarketplaceCard
      */
     Page<MarketplaceCard> findAllBySection(Section section, Pageable page);
 
+    /**
+     * Retrieves the cards with the given ids (used to fetch the page of cards found by the keyword index).
+     * @param ids the ids of the cards to retrieve
+     * @return the cards with the given ids, in no particular order
+     */
+    List<MarketplaceCard> findAllByIdIn(Collection<Integer> ids);
+
+    /**
+     * Retrieves every card with each of its keyword ids (one row per card and keyword) without loading the cards.
+     * @return a list of card and keyword id pairs
+     */
+    @Query("SELECT c.id AS cardId, c.section AS section, c.creatorId AS creatorId, c.created AS created, c.title AS title, " +
+            "c.creatorSuburb AS creatorSuburb, c.creatorCity AS creatorCity, k.id AS keywordId " +
+            "FROM MarketplaceCard c LEFT JOIN c.keywords k")
+    List<CardKeywordPair> findAllCardKeywordPairs();
+
     /**
      * search to get all marketplace cards
      * @return A list of marketplace card
@@ -62,4 +99,33 @@ public interface MarketplaceCardRepository extends JpaRepository<MarketplaceCard
     List<MarketplaceCard> findMarketplaceCardByCreatorId(
             Integer creatorId
     );
+
+    /**
+     * Copies a user's new home suburb and city onto every card they created, with a single statement.
+     * The values are lower cased the same way as MarketplaceCard does, as they are only used for ordering.
+     * @param creatorId the id of the user whose address changed
+     * @param suburb the suburb of the new address
+     * @param city the city of the new address
+     * @return the number of cards updated
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE MarketplaceCard c SET c.creatorSuburb = lower(:suburb), c.creatorCity = lower(:city) " +
+            "WHERE c.creatorId = :creatorId")
+    int updateCreatorLocation(@Param("creatorId") Integer creatorId,
+                              @Param("suburb") String suburb,
+                              @Param("city") String city);
+
+    /**
+     * Fills in the creator suburb and city of every card which does not have them yet from its creator's home address
+     * (e.g. cards inserted by SQL scripts rather than through MarketplaceCard).
+     * @return the number of cards updated
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE MarketplaceCard c " +
+            "SET c.creatorSuburb = (SELECT lower(u.homeAddress.suburb) FROM User u WHERE u.id = c.creatorId), " +
+            "c.creatorCity = (SELECT lower(u.homeAddress.city) FROM User u WHERE u.id = c.creatorId) " +
+            "WHERE c.creatorSuburb IS NULL AND c.creatorCity IS NULL")
+    int fillMissingCreatorLocations();
 }
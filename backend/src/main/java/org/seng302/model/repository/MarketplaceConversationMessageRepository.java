@@ -12,12 +12,17 @@
 
 package org.seng302.model.repository;
 
-import org.seng302.model.Conversation;
 import org.seng302.model.Message;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -38,13 +43,27 @@ public interface MarketplaceConversationMessageRepository extends JpaRepository<
     );
 
     /**
-     * This method is used to delete messages found in a conversation.
+     * This method is used to delete messages found in a conversation, with a single statement rather than loading
+     * and deleting each message.
      * This method is called when a conversation is deleted.
      *
-     * @param conversation the conversation which contains the messages.
-     * @return the list of messages that are deleted.
+     * @param conversationId the ID of the conversation which contains the messages.
+     * @return the number of messages that are deleted.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM Message m WHERE m.conversation.id = :conversationId")
+    int deleteAllByConversationId(@Param("conversationId") Integer conversationId);
+
+    /**
+     * Deletes the messages of several conversations with a single statement (used when purging conversations).
+     * @param conversationIds the IDs of the conversations which contain the messages.
+     * @return the number of messages that are deleted.
      */
-    List<Message> deleteByConversation(Conversation conversation);
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM Message m WHERE m.conversation.id IN :conversationIds")
+    int deleteAllByConversationIdIn(@Param("conversationIds") Collection<Integer> conversationIds);
 
     /**
      * Return all messages associated with the provided conversation ID.
@@ -53,5 +72,45 @@ public interface MarketplaceConversationMessageRepository extends JpaRepository<
      */
     List<Message> findAllByConversationId_OrderByCreatedDesc(Integer conversationId);
 
+    /**
+     * Return the newest messages of a conversation, newest first.
+     * @param conversationId The conversation ID.
+     * @param page The number of messages to return (only the page size is used).
+     * @return Up to a page of the newest messages.
+     */
+    @Query("SELECT m FROM Message m WHERE m.conversation.id = :conversationId ORDER BY m.created DESC, m.id DESC")
+    List<Message> findLatestByConversationId(@Param("conversationId") Integer conversationId, Pageable page);
+
+    /**
+     * Return the messages of a conversation which are older than the given message (the cursor), newest first.
+     * Messages are ordered by (created, id) so that messages created at the same time are neither skipped nor repeated.
+     * @param conversationId The conversation ID.
+     * @param created The creation time of the cursor message.
+     * @param id The ID of the cursor message.
+     * @param page The number of messages to return (only the page size is used).
+     * @return Up to a page of messages older than the cursor.
+     */
+    @Query("SELECT m FROM Message m WHERE m.conversation.id = :conversationId " +
+            "AND (m.created < :created OR (m.created = :created AND m.id < :id)) " +
+            "ORDER BY m.created DESC, m.id DESC")
+    List<Message> findBeforeByConversationId(@Param("conversationId") Integer conversationId,
+                                             @Param("created") LocalDateTime created,
+                                             @Param("id") Integer id,
+                                             Pageable page);
 
+    /**
+     * Return the messages of a conversation which are newer than the given message (the cursor), oldest first.
+     * @param conversationId The conversation ID.
+     * @param created The creation time of the cursor message.
+     * @param id The ID of the cursor message.
+     * @param page The number of messages to return (only the page size is used).
+     * @return Up to a page of the messages following the cursor.
+     */
+    @Query("SELECT m FROM Message m WHERE m.conversation.id = :conversationId " +
+            "AND (m.created > :created OR (m.created = :created AND m.id > :id)) " +
+            "ORDER BY m.created ASC, m.id ASC")
+    List<Message> findAfterByConversationId(@Param("conversationId") Integer conversationId,
+                                            @Param("created") LocalDateTime created,
+                                            @Param("id") Integer id,
+                                            Pageable page);
 }
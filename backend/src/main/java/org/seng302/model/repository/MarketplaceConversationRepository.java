@@ -13,9 +13,15 @@
 package org.seng302.model.repository;
 
 import org.seng302.model.Conversation;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -43,4 +49,23 @@ public interface MarketplaceConversationRepository extends JpaRepository<Convers
     List<Conversation> findAllByInstigatorIdAndDeletedByInstigatorOrReceiverIdAndDeletedByReceiver_OrderByCreatedDesc(
             Integer instigatorId, boolean deletedByInstigator, Integer receiverId, boolean deletedByReceiver
     );
+
+    /**
+     * Return the IDs of conversations which both members have deleted/left, oldest first.
+     * @param page The number of IDs to return (only the page size is used).
+     * @return Up to a page of conversation IDs.
+     */
+    @Query("SELECT c.id FROM Conversation c WHERE c.deletedByInstigator = true AND c.deletedByReceiver = true " +
+            "ORDER BY c.id ASC")
+    List<Integer> findIdsWithNoMembers(Pageable page);
+
+    /**
+     * Deletes several conversations with a single statement, their messages and inbox entries must be deleted first.
+     * @param conversationIds The IDs of the conversations.
+     * @return The number of conversations deleted.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM Conversation c WHERE c.id IN :conversationIds")
+    int deleteAllByIdIn(@Param("conversationIds") Collection<Integer> conversationIds);
 }
@@ -0,0 +1,70 @@
+/**
+ * Summary. This file contains the definition for the ScheduledJobLeaseRepository.
+ *
+ * Description. This file contains the definition for the ScheduledJobLeaseRepository.
+ *
+ * @link   team-400/src/main/java/org/seng302/model/repository/ScheduledJobLeaseRepository
+ * @file   This file contains the definition for ScheduledJobLeaseRepository.
+ * @author team-400.
+ * @since  18.10.2021
+ */
+package org.seng302.model.repository;
+
+import org.seng302.model.ScheduledJobLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * ScheduledJobLeaseRepository interface.
+ * The lease rows are only ever changed with conditional updates so that two nodes can never both hold a lease.
+ */
+@RepositoryRestResource(exported = false)
+public interface ScheduledJobLeaseRepository extends JpaRepository<ScheduledJobLease, String> {
+
+    /**
+     * Attempts to take the lease for a job. This only succeeds when the current lease has expired or
+     * is already held by the given owner.
+     *
+     * @param jobName name of the scheduled job
+     * @param owner id of the node attempting to take the lease
+     * @param now current time
+     * @param leaseUntil time the new lease expires
+     * @return 1 if the lease was taken, 0 otherwise
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE ScheduledJobLease l SET l.owner = :owner, l.leaseUntil = :leaseUntil, l.lastStarted = :now " +
+            "WHERE l.jobName = :jobName AND (l.leaseUntil <= :now OR l.owner = :owner)")
+    int acquire(@Param("jobName") String jobName,
+                @Param("owner") String owner,
+                @Param("now") LocalDateTime now,
+                @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Records the timing of a finished run and shortens the lease to the given time.
+     * Nothing is changed if the lease has since been taken over by another node.
+     *
+     * @param jobName name of the scheduled job
+     * @param owner id of the node which ran the job
+     * @param finished time the run finished
+     * @param durationMillis how long the run took in milliseconds
+     * @param leaseUntil time the lease should now expire
+     * @return 1 if the run was recorded, 0 if the lease is no longer held by the owner
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE ScheduledJobLease l SET l.leaseUntil = :leaseUntil, l.lastFinished = :finished, " +
+            "l.lastDurationMillis = :durationMillis, l.runCount = l.runCount + 1 " +
+            "WHERE l.jobName = :jobName AND l.owner = :owner")
+    int release(@Param("jobName") String jobName,
+                @Param("owner") String owner,
+                @Param("finished") LocalDateTime finished,
+                @Param("durationMillis") long durationMillis,
+                @Param("leaseUntil") LocalDateTime leaseUntil);
+}
@@ -13,9 +13,13 @@ package org.seng302.model.repository;
 import org.seng302.model.enums.Role;
 import org.seng302.model.User;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,6 +30,22 @@ import java.util.Optional;
 @RepositoryRestResource
 public interface UserRepository extends JpaRepository<User, String>, UserRepositoryCustom {
 
+    /**
+     * The names of a user and the other values users are ordered by, used to build the in-memory user name search
+     * index.
+     */
+    interface UserNames {
+        Integer getId();
+        String getNickname();
+        String getFirstName();
+        String getMiddleName();
+        String getLastName();
+        String getEmail();
+        String getCity();
+        String getRegion();
+        String getCountry();
+    }
+
     /**
      * Search for a user account by their email address.
      * @param emailAddress Email address
@@ -100,4 +120,20 @@ public interface UserRepository extends JpaRepository<User, String>, UserReposit
      */
     boolean existsByRole(Role role);
 
+    /**
+     * Retrieves the names, email and home address city, region and country of every user without loading the users.
+     * @return A list of the names of each user
+     */
+    @Query("SELECT u.id AS id, u.nickname AS nickname, u.firstName AS firstName, u.middleName AS middleName, " +
+            "u.lastName AS lastName, u.email AS email, a.city AS city, a.region AS region, a.country AS country " +
+            "FROM User u LEFT JOIN u.homeAddress a")
+    List<UserNames> findAllUserNames();
+
+    /**
+     * Retrieves the users with the given ids (used to fetch the page of users found by a user search).
+     * @param ids The ids of the users to retrieve
+     * @return The users with the given ids, in no particular order
+     */
+    List<User> findAllByIdIn(Collection<Integer> ids);
+
 }
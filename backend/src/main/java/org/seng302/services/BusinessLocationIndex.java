@@ -0,0 +1,176 @@
+package org.seng302.services;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.seng302.model.Address;
+import org.seng302.model.Business;
+import org.seng302.model.repository.BusinessRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * In-memory dictionary of the places businesses are located in, used for searching for listings by location.
+ * Each business is posted under every level of its address (suburb, city, region and country), so a place maps to a
+ * bitmap of every business located anywhere within it, e.g. a region's bitmap covers the businesses of all of its
+ * cities and suburbs. A location search is then a lookup (or, for partial names, a scan of the distinct place names,
+ * of which there are far fewer than businesses) followed by a union of bitmaps, instead of four LIKE predicates per
+ * name through the listing, inventory item, product, business and address join.
+ * Places are keyed by their upper cased names, so both exact and partial matches ignore case.
+ * Creating and modifying a business updates the index, as either can change where the business is.
+ */
+@Service
+public class BusinessLocationIndex extends PeriodicallyRebuiltIndex {
+
+    private static final Logger logger = LogManager.getLogger(BusinessLocationIndex.class.getName());
+
+    private final BusinessRepository businessRepository;
+
+    // business id -> the upper cased places of its address, from suburb up to country
+    private Map<Integer, List<String>> placesByBusiness = new HashMap<>();
+
+    // upper cased place name -> the ids of the businesses in it
+    private Map<String, BitSet> places = new HashMap<>();
+
+    /**
+     * Constructor for BusinessLocationIndex.
+     * @param businessRepository Stores businesses, used to (re)build the index.
+     */
+    @Autowired
+    public BusinessLocationIndex(BusinessRepository businessRepository) {
+        this.businessRepository = businessRepository;
+    }
+
+    /**
+     * Rebuilds the whole index from the business and address tables. This runs when the application starts and then
+     * periodically, the period can be altered by changing business-location-index.rebuild.in.milliseconds.
+     */
+    @Scheduled(fixedDelayString = "${business-location-index.rebuild.in.milliseconds:600000}")
+    public void rebuild() {
+        rebuildFrom(this::read);
+    }
+
+    /**
+     * Reads the address of every business into new maps.
+     * @return Swaps the new maps in.
+     */
+    private Runnable read() {
+        Map<Integer, List<String>> newPlacesByBusiness = new HashMap<>();
+        Map<String, BitSet> newPlaces = new HashMap<>();
+
+        List<BusinessRepository.BusinessLocation> locations = businessRepository.findAllBusinessLocations();
+        if (locations == null) {
+            locations = List.of();
+        }
+        for (BusinessRepository.BusinessLocation location : locations) {
+            addPostings(location.getId(), placesOf(location.getSuburb(), location.getCity(), location.getRegion(), location.getCountry()),
+                    newPlacesByBusiness, newPlaces);
+        }
+
+        logger.info("Business location index rebuilt with {} businesses and {} places", newPlacesByBusiness.size(), newPlaces.size());
+        return () -> {
+            placesByBusiness = newPlacesByBusiness;
+            places = newPlaces;
+        };
+    }
+
+    /**
+     * Adds a business to the index, replacing whatever was indexed for it before (used on create and modify, since
+     * the address of a business can change).
+     * @param business a saved business
+     */
+    public void indexBusiness(Business business) {
+        Address address = business.getAddress();
+        List<String> businessPlaces = address == null ? List.of()
+                : placesOf(address.getSuburb(), address.getCity(), address.getRegion(), address.getCountry());
+        int businessId = business.getId();
+        change(() -> {
+            removePostings(businessId);
+            addPostings(businessId, businessPlaces, placesByBusiness, places);
+        });
+    }
+
+    /**
+     * Finds the businesses located in any of the given locations (as parsed by SearchUtils.convertSearchQueryToNames).
+     * A location in quotes must be exactly the suburb, city, region or country of a business, otherwise it only has to
+     * be contained in one of them. Both ignore case.
+     *
+     * @param locations the locations to search for
+     * @return the ids of the matching businesses in ascending order
+     */
+    public List<Integer> findBusinessIds(List<String> locations) {
+        BitSet matches = new BitSet();
+
+        lock.readLock().lock();
+        try {
+            for (String location : locations) {
+                if (location.startsWith("\"") && location.endsWith("\"")) {
+                    BitSet businesses = places.get(location.replace("\"", "").toUpperCase());
+                    if (businesses != null) {
+                        matches.or(businesses);
+                    }
+                } else {
+                    String query = location.toUpperCase();
+                    for (Map.Entry<String, BitSet> place : places.entrySet()) {
+                        if (place.getKey().contains(query)) {
+                            matches.or(place.getValue());
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Integer> businessIds = new ArrayList<>(matches.cardinality());
+        for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id + 1)) {
+            businessIds.add(id);
+        }
+        return businessIds;
+    }
+
+    /**
+     * Gets the places of an address which are set, upper cased, from the most to the least specific.
+     */
+    private static List<String> placesOf(String suburb, String city, String region, String country) {
+        List<String> addressPlaces = new ArrayList<>(4);
+        for (String place : new String[]{suburb, city, region, country}) {
+            if (place != null && !addressPlaces.contains(place.toUpperCase())) {
+                addressPlaces.add(place.toUpperCase());
+            }
+        }
+        return addressPlaces;
+    }
+
+    /**
+     * Adds a business and its postings under each of its places to the given maps.
+     */
+    private static void addPostings(int businessId, List<String> businessPlaces,
+                                    Map<Integer, List<String>> placesByBusiness, Map<String, BitSet> places) {
+        placesByBusiness.put(businessId, businessPlaces);
+        for (String place : businessPlaces) {
+            places.computeIfAbsent(place, name -> new BitSet()).set(businessId);
+        }
+    }
+
+    /**
+     * Clears every posting of a business. Must be called while holding the write lock.
+     * @param businessId id of the business
+     */
+    private void removePostings(int businessId) {
+        List<String> businessPlaces = placesByBusiness.remove(businessId);
+        if (businessPlaces != null) {
+            for (String place : businessPlaces) {
+                BitSet businesses = places.get(place);
+                if (businesses != null) {
+                    businesses.clear(businessId);
+                    if (businesses.isEmpty()) {
+                        places.remove(place);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package org.seng302.services;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.seng302.model.Address;
+import org.seng302.model.Business;
+import org.seng302.model.enums.BusinessType;
+import org.seng302.model.repository.BusinessRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * In-memory directory of businesses, used for searching for businesses by name and/or business type.
+ * Every substring of up to three characters of each (lower cased) business name is mapped to a bitmap of the ids of
+ * the businesses containing it, and each business type is mapped to a bitmap of the businesses of that type, so a
+ * search resolves to business ids with bitmap unions/intersections. The values businesses can be ordered by are also
+ * kept, so the matches are ordered and paged here and only the requested page of businesses is then loaded.
+ * Creating and modifying a business updates the index.
+ */
+@Service
+public class BusinessSearchIndex extends PeriodicallyRebuiltIndex {
+
+    private static final Logger logger = LogManager.getLogger(BusinessSearchIndex.class.getName());
+
+    // Longest substring of a business name which is indexed.
+    private static final int GRAM_LENGTH = 3;
+
+    // Properties of a business which search results can be ordered by.
+    private static final List<String> SORT_PROPERTIES = List.of("name", "address.city", "address.region",
+            "address.country", "businessType");
+
+    private final BusinessRepository businessRepository;
+
+    // business id -> lower cased business name
+    private Map<Integer, String> namesByBusiness = new HashMap<>();
+
+    // business id -> business type
+    private Map<Integer, BusinessType> typesByBusiness = new HashMap<>();
+
+    // business id -> values of SORT_PROPERTIES
+    private Map<Integer, String[]> sortValuesByBusiness = new HashMap<>();
+
+    // substring of a lower cased business name -> business ids
+    private Map<String, BitSet> businessesByGram = new HashMap<>();
+
+    // business type -> business ids
+    private Map<BusinessType, BitSet> businessesByType = new EnumMap<>(BusinessType.class);
+
+    /**
+     * Constructor for BusinessSearchIndex.
+     * @param businessRepository Stores businesses, used to (re)build the index.
+     */
+    @Autowired
+    public BusinessSearchIndex(BusinessRepository businessRepository) {
+        this.businessRepository = businessRepository;
+    }
+
+    /**
+     * Rebuilds the whole index from the business table. This runs when the application starts and then
+     * periodically, the period can be altered by changing business-search-index.rebuild.in.milliseconds.
+     */
+    @Scheduled(fixedDelayString = "${business-search-index.rebuild.in.milliseconds:600000}")
+    public void rebuild() {
+        rebuildFrom(this::read);
+    }
+
+    /**
+     * Reads the name, type and sort values of every business into new maps.
+     * @return Swaps the new maps in.
+     */
+    private Runnable read() {
+        Map<Integer, String> newNamesByBusiness = new HashMap<>();
+        Map<Integer, BusinessType> newTypesByBusiness = new HashMap<>();
+        Map<Integer, String[]> newSortValuesByBusiness = new HashMap<>();
+        Map<String, BitSet> newBusinessesByGram = new HashMap<>();
+        Map<BusinessType, BitSet> newBusinessesByType = new EnumMap<>(BusinessType.class);
+
+        List<BusinessRepository.BusinessNameAndType> businesses = businessRepository.findAllBusinessNamesAndTypes();
+        if (businesses == null) {
+            businesses = List.of();
+        }
+        for (BusinessRepository.BusinessNameAndType business : businesses) {
+            addPostings(business.getId(), business.getName(), business.getBusinessType(),
+                    newNamesByBusiness, newTypesByBusiness, newBusinessesByGram, newBusinessesByType);
+            newSortValuesByBusiness.put(business.getId(), sortValues(business.getName(), business.getCity(),
+                    business.getRegion(), business.getCountry(), business.getBusinessType()));
+        }
+
+        logger.info("Business search index rebuilt with {} businesses and {} n-grams", newNamesByBusiness.size(), newBusinessesByGram.size());
+        return () -> {
+            namesByBusiness = newNamesByBusiness;
+            typesByBusiness = newTypesByBusiness;
+            sortValuesByBusiness = newSortValuesByBusiness;
+            businessesByGram = newBusinessesByGram;
+            businessesByType = newBusinessesByType;
+        };
+    }
+
+    /**
+     * Adds a business to the index, replacing whatever was indexed for it before (used on create and modify).
+     * @param business a saved business
+     */
+    public void indexBusiness(Business business) {
+        int businessId = business.getId();
+        String name = business.getName();
+        BusinessType businessType = business.getBusinessType();
+        Address address = business.getAddress();
+        String[] sortValues = address == null ? sortValues(name, null, null, null, businessType)
+                : sortValues(name, address.getCity(), address.getRegion(), address.getCountry(), businessType);
+        change(() -> {
+            removePostings(businessId);
+            addPostings(businessId, name, businessType, namesByBusiness, typesByBusiness, businessesByGram, businessesByType);
+            sortValuesByBusiness.put(businessId, sortValues);
+        });
+    }
+
+    /**
+     * Finds the businesses matching any of the given names (as parsed by SearchUtils.convertSearchQueryToNames)
+     * and of the given business type.
+     * A name in quotes must be exactly the business name, otherwise it only has to be contained in it. Matching
+     * ignores case.
+     *
+     * @param names the names to search for, or null to match any name
+     * @param businessType the type of business to search for, or null to match any type
+     * @return the ids of the matching businesses in ascending order
+     */
+    public List<Integer> search(List<String> names, BusinessType businessType) {
+        BitSet matches;
+
+        lock.readLock().lock();
+        try {
+            matches = findMatches(names, businessType);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Integer> businessIds = new ArrayList<>(matches.cardinality());
+        for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id + 1)) {
+            businessIds.add(id);
+        }
+        return businessIds;
+    }
+
+    /**
+     * Finds a page of the businesses matching any of the given names and of the given business type, in the requested
+     * order.
+     *
+     * @param names the names to search for, or null to match any name
+     * @param businessType the type of business to search for, or null to match any type
+     * @param paging the requested page, ordered by name, address city, region and country or business type, ignoring
+     *               case or not
+     * @return the ids of the businesses on the page, with the total number of matching businesses
+     */
+    public Page<Integer> search(List<String> names, BusinessType businessType, Pageable paging) {
+        lock.readLock().lock();
+        try {
+            return IndexPaging.page(findMatches(names, businessType), sortValuesByBusiness, SORT_PROPERTIES, paging);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the businesses matching any of the given names and of the given business type. Must be called while
+     * holding the read lock.
+     * @param names the names to search for, or null to match any name
+     * @param businessType the type of business to search for, or null to match any type
+     * @return ids of the matching businesses
+     */
+    private BitSet findMatches(List<String> names, BusinessType businessType) {
+        BitSet matches;
+        if (names == null) {
+            matches = new BitSet();
+            namesByBusiness.keySet().forEach(matches::set);
+        } else {
+            matches = findNameMatches(names);
+        }
+        if (businessType != null) {
+            matches.and(businessesByType.getOrDefault(businessType, new BitSet()));
+        }
+        return matches;
+    }
+
+    /**
+     * Finds the businesses whose names match any of the given names. Must be called while holding the read lock.
+     * @param names the names to search for
+     * @return ids of the matching businesses
+     */
+    private BitSet findNameMatches(List<String> names) {
+        BitSet matches = new BitSet();
+        for (String name : names) {
+            boolean exact = name.startsWith("\"") && name.endsWith("\"");
+            String query = (exact ? name.replaceAll("^\"+|\"+$", "") : name).toLowerCase(Locale.ROOT);
+            if (query.isEmpty()) {
+                if (!exact) {
+                    namesByBusiness.keySet().forEach(matches::set);
+                }
+                continue;
+            }
+            BitSet candidates = findCandidates(query);
+            if (!exact && query.length() <= GRAM_LENGTH) {
+                // every business in the posting list contains the query
+                matches.or(candidates);
+                continue;
+            }
+            for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+                String businessName = namesByBusiness.get(id);
+                if (businessName != null && (exact ? businessName.equals(query) : businessName.contains(query))) {
+                    matches.set(id);
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Finds the ids of the businesses whose names contain every n-gram of the query. Must be called while holding the
+     * read lock.
+     * @param query a non-empty lower cased query
+     * @return ids of the candidate businesses
+     */
+    private BitSet findCandidates(String query) {
+        if (query.length() <= GRAM_LENGTH) {
+            return businessesByGram.getOrDefault(query, new BitSet());
+        }
+        BitSet candidates = null;
+        for (int start = 0; start + GRAM_LENGTH <= query.length(); start++) {
+            BitSet businessIds = businessesByGram.get(query.substring(start, start + GRAM_LENGTH));
+            if (businessIds == null) {
+                return new BitSet();
+            }
+            if (candidates == null) {
+                candidates = (BitSet) businessIds.clone();
+            } else {
+                candidates.and(businessIds);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Adds a business and the postings for its type and every n-gram of its name to the given maps.
+     */
+    private static void addPostings(int businessId, String name, BusinessType businessType,
+                                    Map<Integer, String> namesByBusiness, Map<Integer, BusinessType> typesByBusiness,
+                                    Map<String, BitSet> businessesByGram, Map<BusinessType, BitSet> businessesByType) {
+        String lowerCaseName = name == null ? "" : name.toLowerCase(Locale.ROOT);
+        namesByBusiness.put(businessId, lowerCaseName);
+        for (String gram : grams(lowerCaseName)) {
+            businessesByGram.computeIfAbsent(gram, key -> new BitSet()).set(businessId);
+        }
+        if (businessType != null) {
+            typesByBusiness.put(businessId, businessType);
+            businessesByType.computeIfAbsent(businessType, type -> new BitSet()).set(businessId);
+        }
+    }
+
+    /**
+     * Clears every posting of a business. Must be called while holding the write lock.
+     * @param businessId id of the business
+     */
+    private void removePostings(int businessId) {
+        sortValuesByBusiness.remove(businessId);
+        String name = namesByBusiness.remove(businessId);
+        if (name != null) {
+            for (String gram : grams(name)) {
+                BitSet businessIds = businessesByGram.get(gram);
+                if (businessIds != null) {
+                    businessIds.clear(businessId);
+                    if (businessIds.isEmpty()) {
+                        businessesByGram.remove(gram);
+                    }
+                }
+            }
+        }
+        BusinessType businessType = typesByBusiness.remove(businessId);
+        if (businessType != null) {
+            businessesByType.get(businessType).clear(businessId);
+        }
+    }
+
+    /**
+     * Gets the values of SORT_PROPERTIES for a business. The business type is ordered by its name, as it is stored.
+     */
+    private static String[] sortValues(String name, String city, String region, String country, BusinessType businessType) {
+        return new String[] {name, city, region, country, businessType == null ? null : businessType.name()};
+    }
+
+    /**
+     * Gets every substring of up to GRAM_LENGTH characters of a name.
+     * @param name a lower cased name
+     * @return the n-grams of the name
+     */
+    private static Set<String> grams(String name) {
+        Set<String> grams = new HashSet<>();
+        for (int start = 0; start < name.length(); start++) {
+            for (int end = start + 1; end <= Math.min(name.length(), start + GRAM_LENGTH); end++) {
+                grams.add(name.substring(start, end));
+            }
+        }
+        return grams;
+    }
+}
@@ -0,0 +1,267 @@
+package org.seng302.services;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.seng302.model.Keyword;
+import org.seng302.model.MarketplaceCard;
+import org.seng302.model.enums.Section;
+import org.seng302.model.repository.MarketplaceCardRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * In-memory inverted index from keyword ids to the ids of the cards which have that keyword.
+ * Each posting list is a bitmap over card ids (card ids are auto incremented so the bitmaps stay dense), which lets
+ * keyword filters with AND/OR semantics be answered with bitmap intersections/unions instead of joins.
+ * It also keeps the values cards can be ordered by, so the matching cards are ordered and paged here and only the
+ * cards on the requested page are loaded.
+ * The endpoints that create, edit and delete cards and keywords, and change a creator's address, keep it up to date.
+ */
+@Service
+public class CardKeywordIndex extends PeriodicallyRebuiltIndex {
+
+    private static final Logger logger = LogManager.getLogger(CardKeywordIndex.class.getName());
+
+    private static final List<String> SORT_PROPERTIES = List.of("created", "title", "creatorSuburb", "creatorCity");
+
+    // Fixed width, so created dates (years 0000-9999) order the same as text as they do as dates.
+    private static final DateTimeFormatter CREATED_SORT_FORMAT = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.nnnnnnnnn");
+
+    private final MarketplaceCardRepository marketplaceCardRepository;
+
+    // keyword id -> card ids
+    private Map<Integer, BitSet> cardsByKeyword = new HashMap<>();
+
+    // section -> card ids
+    private Map<Section, BitSet> cardsBySection = new EnumMap<>(Section.class);
+
+    // card id -> keyword ids (needed to remove a card's old postings when it is edited or deleted)
+    private Map<Integer, Set<Integer>> keywordsByCard = new HashMap<>();
+
+    // creator id -> card ids (needed to update the location of a creator's cards when their address changes)
+    private Map<Integer, BitSet> cardsByCreator = new HashMap<>();
+
+    // card id -> values of SORT_PROPERTIES
+    private Map<Integer, String[]> sortValuesByCard = new HashMap<>();
+
+    /**
+     * Constructor for CardKeywordIndex.
+     * @param marketplaceCardRepository Stores cards, used to (re)build the index.
+     */
+    @Autowired
+    public CardKeywordIndex(MarketplaceCardRepository marketplaceCardRepository) {
+        this.marketplaceCardRepository = marketplaceCardRepository;
+    }
+
+    /**
+     * Rebuilds the whole index from the card_keywords table. This runs when the application starts and then
+     * periodically, the period can be altered by changing card-keyword-index.rebuild.in.milliseconds.
+     */
+    @Scheduled(fixedDelayString = "${card-keyword-index.rebuild.in.milliseconds:600000}")
+    public void rebuild() {
+        rebuildFrom(this::read);
+    }
+
+    /**
+     * Reads the card_keywords table, with the creator and sort values of each card, into new maps.
+     * @return Swaps the new maps in.
+     */
+    private Runnable read() {
+        Map<Integer, BitSet> newCardsByKeyword = new HashMap<>();
+        Map<Section, BitSet> newCardsBySection = new EnumMap<>(Section.class);
+        Map<Integer, Set<Integer>> newKeywordsByCard = new HashMap<>();
+        Map<Integer, BitSet> newCardsByCreator = new HashMap<>();
+        Map<Integer, String[]> newSortValuesByCard = new HashMap<>();
+
+        List<MarketplaceCardRepository.CardKeywordPair> pairs = marketplaceCardRepository.findAllCardKeywordPairs();
+        if (pairs == null) {
+            pairs = List.of();
+        }
+        for (MarketplaceCardRepository.CardKeywordPair pair : pairs) {
+            int cardId = pair.getCardId();
+            Set<Integer> keywordIds = newKeywordsByCard.computeIfAbsent(cardId, id -> new HashSet<>());
+            newSortValuesByCard.computeIfAbsent(cardId, id -> sortValues(pair.getCreated(), pair.getTitle(),
+                    pair.getCreatorSuburb(), pair.getCreatorCity()));
+            if (pair.getCreatorId() != null) {
+                newCardsByCreator.computeIfAbsent(pair.getCreatorId(), id -> new BitSet()).set(cardId);
+            }
+            if (pair.getSection() != null) {
+                newCardsBySection.computeIfAbsent(pair.getSection(), section -> new BitSet()).set(cardId);
+            }
+            if (pair.getKeywordId() != null) {
+                keywordIds.add(pair.getKeywordId());
+                newCardsByKeyword.computeIfAbsent(pair.getKeywordId(), id -> new BitSet()).set(cardId);
+            }
+        }
+
+        logger.info("Card keyword index rebuilt with {} cards and {} keywords", newKeywordsByCard.size(), newCardsByKeyword.size());
+        return () -> {
+            cardsByKeyword = newCardsByKeyword;
+            cardsBySection = newCardsBySection;
+            keywordsByCard = newKeywordsByCard;
+            cardsByCreator = newCardsByCreator;
+            sortValuesByCard = newSortValuesByCard;
+        };
+    }
+
+    /**
+     * Adds a card to the index, replacing whatever was indexed for it before (used on create and edit).
+     * @param card a saved card
+     */
+    public void indexCard(MarketplaceCard card) {
+        int cardId = card.getId();
+        Section cardSection = card.getSection();
+        int creatorId = card.getCreatorId();
+        String[] sortValues = sortValues(card.getCreated(), card.getTitle(), card.getCreatorSuburb(), card.getCreatorCity());
+        Set<Integer> cardKeywordIds = new HashSet<>();
+        for (Keyword keyword : card.getKeywords()) {
+            cardKeywordIds.add(keyword.getId());
+        }
+        change(() -> {
+            removePostings(cardId);
+            for (Integer keywordId : cardKeywordIds) {
+                cardsByKeyword.computeIfAbsent(keywordId, id -> new BitSet()).set(cardId);
+            }
+            keywordsByCard.put(cardId, new HashSet<>(cardKeywordIds));
+            if (cardSection != null) {
+                cardsBySection.computeIfAbsent(cardSection, section -> new BitSet()).set(cardId);
+            }
+            cardsByCreator.computeIfAbsent(creatorId, id -> new BitSet()).set(cardId);
+            sortValuesByCard.put(cardId, sortValues);
+        });
+    }
+
+    /**
+     * Changes the location the cards of a creator are ordered by (used when the creator's address changes, see
+     * MarketplaceCardRepository.updateCreatorLocation).
+     * @param creatorId id of the creator
+     * @param suburb the suburb of the creator's new address
+     * @param city the city of the creator's new address
+     */
+    public void updateCreatorLocation(int creatorId, String suburb, String city) {
+        String suburbSortKey = suburb == null ? null : suburb.toLowerCase(Locale.ROOT);
+        String citySortKey = city == null ? null : city.toLowerCase(Locale.ROOT);
+        change(() -> {
+            BitSet cards = cardsByCreator.getOrDefault(creatorId, new BitSet());
+            for (int cardId = cards.nextSetBit(0); cardId >= 0; cardId = cards.nextSetBit(cardId + 1)) {
+                String[] sortValues = sortValuesByCard.get(cardId);
+                if (sortValues != null) {
+                    sortValues[2] = suburbSortKey;
+                    sortValues[3] = citySortKey;
+                }
+            }
+        });
+    }
+
+    /**
+     * Removes a card from the index (used when a card is deleted).
+     * @param cardId id of the deleted card
+     */
+    public void removeCard(int cardId) {
+        change(() -> removePostings(cardId));
+    }
+
+    /**
+     * Removes a keyword and its posting list from the index (used when a keyword is deleted).
+     * @param keywordId id of the deleted keyword
+     */
+    public void removeKeyword(int keywordId) {
+        change(() -> {
+            BitSet cards = cardsByKeyword.remove(keywordId);
+            if (cards != null) {
+                for (int cardId = cards.nextSetBit(0); cardId >= 0; cardId = cards.nextSetBit(cardId + 1)) {
+                    Set<Integer> keywordIds = keywordsByCard.get(cardId);
+                    if (keywordIds != null) {
+                        keywordIds.remove(keywordId);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Finds a page of the cards in a section which match the given keywords, in the requested order.
+     *
+     * @param section the section the cards must be in
+     * @param keywordIds the keywords to match (must not be empty)
+     * @param matchAll true if a card must have every keyword (AND), false if it must have any of them (OR)
+     * @param paging the requested page, ordered by created, title, creatorSuburb or creatorCity, ignoring case or not
+     * @return the ids of the cards on the page, with the total number of matching cards
+     */
+    public Page<Integer> findCardIds(Section section, Collection<Integer> keywordIds, boolean matchAll, Pageable paging) {
+        lock.readLock().lock();
+        try {
+            BitSet result = null;
+            for (Integer keywordId : keywordIds) {
+                BitSet cards = cardsByKeyword.getOrDefault(keywordId, new BitSet());
+                if (result == null) {
+                    result = (BitSet) cards.clone();
+                } else if (matchAll) {
+                    result.and(cards);
+                } else {
+                    result.or(cards);
+                }
+            }
+            if (result == null) {
+                return new PageImpl<>(new ArrayList<>(), paging, 0);
+            }
+            result.and(cardsBySection.getOrDefault(section, new BitSet()));
+            return IndexPaging.page(result, sortValuesByCard, SORT_PROPERTIES, paging);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts how many cards have the given keyword.
+     * @param keywordId id of the keyword
+     * @return the number of cards with the keyword
+     */
+    public int countCards(int keywordId) {
+        lock.readLock().lock();
+        try {
+            BitSet cards = cardsByKeyword.get(keywordId);
+            return cards == null ? 0 : cards.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Clears every posting of a card. Must be called while holding the write lock.
+     * @param cardId id of the card
+     */
+    private void removePostings(int cardId) {
+        Set<Integer> keywordIds = keywordsByCard.remove(cardId);
+        if (keywordIds != null) {
+            for (Integer keywordId : keywordIds) {
+                BitSet cards = cardsByKeyword.get(keywordId);
+                if (cards != null) {
+                    cards.clear(cardId);
+                }
+            }
+        }
+        for (BitSet cards : cardsBySection.values()) {
+            cards.clear(cardId);
+        }
+        for (BitSet cards : cardsByCreator.values()) {
+            cards.clear(cardId);
+        }
+        sortValuesByCard.remove(cardId);
+    }
+
+    /**
+     * Gets the values of SORT_PROPERTIES for a card. The created date is formatted so its text sorts in time order.
+     */
+    private static String[] sortValues(LocalDateTime created, String title, String creatorSuburb, String creatorCity) {
+        return new String[] {created == null ? null : created.format(CREATED_SORT_FORMAT), title, creatorSuburb, creatorCity};
+    }
+}
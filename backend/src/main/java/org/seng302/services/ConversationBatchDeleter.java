@@ -0,0 +1,58 @@
+package org.seng302.services;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.seng302.model.repository.ConversationInboxEntryRepository;
+import org.seng302.model.repository.MarketplaceConversationMessageRepository;
+import org.seng302.model.repository.MarketplaceConversationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Deletes a batch of conversations with their messages and inbox entries in a single transaction, so a failure part
+ * way through a batch doesn't leave conversations without their messages or inbox entries pointing at nothing.
+ * Kept apart from ConversationPurgeService so each call goes through the transactional proxy.
+ */
+@Service
+public class ConversationBatchDeleter {
+
+    private static final Logger logger = LogManager.getLogger(ConversationBatchDeleter.class.getName());
+
+    private final MarketplaceConversationRepository marketplaceConversationRepository;
+
+    private final MarketplaceConversationMessageRepository marketplaceConversationMessageRepository;
+
+    private final ConversationInboxEntryRepository conversationInboxEntryRepository;
+
+    /**
+     * Constructor for ConversationBatchDeleter.
+     * @param marketplaceConversationRepository Stores conversations.
+     * @param marketplaceConversationMessageRepository Stores the messages of conversations.
+     * @param conversationInboxEntryRepository Stores the inbox entries of conversations.
+     */
+    @Autowired
+    public ConversationBatchDeleter(MarketplaceConversationRepository marketplaceConversationRepository,
+                                    MarketplaceConversationMessageRepository marketplaceConversationMessageRepository,
+                                    ConversationInboxEntryRepository conversationInboxEntryRepository) {
+        this.marketplaceConversationRepository = marketplaceConversationRepository;
+        this.marketplaceConversationMessageRepository = marketplaceConversationMessageRepository;
+        this.conversationInboxEntryRepository = conversationInboxEntryRepository;
+    }
+
+    /**
+     * Deletes the inbox entries, then the messages, then the conversations themselves.
+     * @param conversationIds Ids of the conversations to delete.
+     * @return The number of conversations deleted.
+     */
+    @Transactional
+    public int deleteConversations(List<Integer> conversationIds) {
+        conversationInboxEntryRepository.deleteAllByConversationIdIn(conversationIds);
+        int messages = marketplaceConversationMessageRepository.deleteAllByConversationIdIn(conversationIds);
+        int deleted = marketplaceConversationRepository.deleteAllByIdIn(conversationIds);
+        logger.debug("Deleted {} conversations with {} messages", deleted, messages);
+        return deleted;
+    }
+}
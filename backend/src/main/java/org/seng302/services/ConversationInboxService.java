@@ -0,0 +1,165 @@
+package org.seng302.services;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.seng302.model.Conversation;
+import org.seng302.model.ConversationInboxEntry;
+import org.seng302.model.Message;
+import org.seng302.model.repository.ConversationInboxEntryRepository;
+import org.seng302.model.repository.MarketplaceConversationMessageRepository;
+import org.seng302.view.outgoing.ConversationPayload;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Maintains the conversation inbox read model (one ConversationInboxEntry per member of each conversation).
+ * Entries are created with their conversation, updated with a single statement when a message is sent or read, and
+ * removed when a member leaves or the conversation is deleted, so listing an inbox never needs to look at messages.
+ */
+@Service
+public class ConversationInboxService {
+
+    private static final Logger logger = LogManager.getLogger(ConversationInboxService.class.getName());
+
+    private final ConversationInboxEntryRepository conversationInboxEntryRepository;
+
+    private final MarketplaceConversationMessageRepository marketplaceConversationMessageRepository;
+
+    /**
+     * Constructor for ConversationInboxService.
+     * @param conversationInboxEntryRepository Stores the inbox entries.
+     * @param marketplaceConversationMessageRepository Stores messages, used to fill in missing entries.
+     */
+    @Autowired
+    public ConversationInboxService(ConversationInboxEntryRepository conversationInboxEntryRepository,
+                                    MarketplaceConversationMessageRepository marketplaceConversationMessageRepository) {
+        this.conversationInboxEntryRepository = conversationInboxEntryRepository;
+        this.marketplaceConversationMessageRepository = marketplaceConversationMessageRepository;
+    }
+
+    /**
+     * Gets a user's inbox, most recently active conversation first. Runs the same number of queries however many
+     * conversations there are: the entries are fetched with their conversations, members and cards, the members'
+     * images with one more query, and the members' other associations are batch fetched.
+     * @param userId ID of the user.
+     * @return The conversations in the user's inbox.
+     */
+    @Transactional
+    public List<ConversationPayload> getInbox(int userId) {
+        List<ConversationInboxEntry> entries = conversationInboxEntryRepository.findInboxByUserId(userId);
+        // The members' images are fetched into the members loaded above, in the same persistence context.
+        Set<Integer> memberIds = new HashSet<>();
+        for (ConversationInboxEntry entry : entries) {
+            memberIds.add(entry.getConversation().getInstigator().getId());
+            memberIds.add(entry.getConversation().getReceiver().getId());
+        }
+        if (!memberIds.isEmpty()) {
+            conversationInboxEntryRepository.findMembersWithImages(memberIds);
+        }
+
+        List<ConversationPayload> inbox = new ArrayList<>();
+        for (ConversationInboxEntry entry : entries) {
+            inbox.add(entry.toConversationPayload());
+        }
+        return inbox;
+    }
+
+    /**
+     * Adds a new conversation to the inboxes of both its members.
+     * @param conversation A saved conversation.
+     */
+    public void addConversation(Conversation conversation) {
+        conversationInboxEntryRepository.saveAll(List.of(
+                new ConversationInboxEntry(conversation.getInstigator().getId(), conversation),
+                new ConversationInboxEntry(conversation.getReceiver().getId(), conversation)
+        ));
+    }
+
+    /**
+     * Updates the inbox entries of a conversation for a new message.
+     * @param message A saved message.
+     */
+    public void recordMessage(Message message) {
+        conversationInboxEntryRepository.recordMessage(message.getConversation().getId(), message.getSender().getId(),
+                ConversationInboxEntry.toPreview(message.getContent()), message.getCreated());
+    }
+
+    /**
+     * Clears a member's unread count for a conversation.
+     * @param conversationId ID of the conversation.
+     * @param userId ID of the member who read it.
+     */
+    public void markRead(int conversationId, int userId) {
+        conversationInboxEntryRepository.markRead(conversationId, userId);
+    }
+
+    /**
+     * Removes a conversation from the inbox of a member who left it.
+     * @param conversationId ID of the conversation.
+     * @param userId ID of the member.
+     */
+    public void removeMember(int conversationId, int userId) {
+        conversationInboxEntryRepository.deleteByConversationIdAndUserId(conversationId, userId);
+    }
+
+    /**
+     * Removes a conversation from every inbox, must be called before the conversation is deleted.
+     * @param conversationId ID of the conversation.
+     */
+    public void removeConversation(int conversationId) {
+        conversationInboxEntryRepository.deleteAllByConversationId(conversationId);
+    }
+
+    /**
+     * Creates the missing inbox entries of members who haven't left their conversation, e.g. for conversations
+     * created before the inbox existed. The unread count of a new entry is 1 if the member hasn't read the
+     * conversation, as how many messages they missed is not recorded anywhere else.
+     * @return The number of entries created.
+     */
+    public int addMissingEntries() {
+        List<ConversationInboxEntry> newEntries = new ArrayList<>();
+        for (Conversation conversation : conversationInboxEntryRepository.findConversationsMissingEntries()) {
+            List<Integer> existingUserIds = conversationInboxEntryRepository.findUserIdsByConversationId(conversation.getId());
+            List<Message> lastMessages = marketplaceConversationMessageRepository.findLatestByConversationId(
+                    conversation.getId(), PageRequest.of(0, 1));
+            Message lastMessage = lastMessages.isEmpty() ? null : lastMessages.get(0);
+
+            int instigatorId = conversation.getInstigator().getId();
+            if (!conversation.isDeletedByInstigator() && !existingUserIds.contains(instigatorId)) {
+                newEntries.add(createEntry(instigatorId, conversation, lastMessage, conversation.getReadByInstigator()));
+            }
+            int receiverId = conversation.getReceiver().getId();
+            if (!conversation.isDeletedByReceiver() && !existingUserIds.contains(receiverId)) {
+                newEntries.add(createEntry(receiverId, conversation, lastMessage, conversation.getReadByReceiver()));
+            }
+        }
+        conversationInboxEntryRepository.saveAll(newEntries);
+        logger.info("Created {} missing conversation inbox entries", newEntries.size());
+        return newEntries.size();
+    }
+
+    /**
+     * Creates an inbox entry for a conversation which may already have messages.
+     * @param userId ID of the member.
+     * @param conversation The conversation.
+     * @param lastMessage The newest message in the conversation, null if there are none.
+     * @param read Whether the member has read the conversation.
+     * @return The new entry.
+     */
+    private static ConversationInboxEntry createEntry(int userId, Conversation conversation, Message lastMessage, boolean read) {
+        ConversationInboxEntry entry = new ConversationInboxEntry(userId, conversation);
+        if (lastMessage != null) {
+            entry.setLastMessage(ConversationInboxEntry.toPreview(lastMessage.getContent()));
+            entry.setLastActivity(lastMessage.getCreated());
+            entry.setUnreadCount(read ? 0 : 1);
+        }
+        return entry;
+    }
+}
@@ -0,0 +1,90 @@
+package org.seng302.services;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.seng302.model.repository.MarketplaceConversationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Periodically deletes the conversations which both members have deleted/left, along with their messages and
+ * inbox entries. Conversations are normally deleted when their last member leaves, but if both members leave at the
+ * same time neither request sees the other has left, so the conversation would otherwise be kept forever.
+ * Conversations are deleted a batch at a time with one statement per table, rather than one per message, and each
+ * batch is deleted in its own transaction.
+ */
+@Service
+public class ConversationPurgeService {
+
+    private static final Logger logger = LogManager.getLogger(ConversationPurgeService.class.getName());
+
+    private static final String PURGE_JOB = "purgeConversations";
+
+    private final MarketplaceConversationRepository marketplaceConversationRepository;
+
+    private final ConversationBatchDeleter conversationBatchDeleter;
+
+    private final ScheduledJobLockService scheduledJobLockService;
+
+    @Value("${conversation-purge.in.milliseconds:3600000}")
+    private long purgeDelay;
+
+    private final int batchSize;
+
+    @Value("${scheduled-job.lease.max-hold.in.milliseconds:600000}")
+    private long leaseMaxHold;
+
+    /**
+     * Constructor for ConversationPurgeService.
+     * @param marketplaceConversationRepository Stores conversations.
+     * @param conversationBatchDeleter Deletes each batch of conversations with their messages and inbox entries.
+     * @param scheduledJobLockService Makes sure only one node purges conversations at a time.
+     * @param batchSize Most conversations to delete in one transaction.
+     */
+    @Autowired
+    public ConversationPurgeService(MarketplaceConversationRepository marketplaceConversationRepository,
+                                    ConversationBatchDeleter conversationBatchDeleter,
+                                    ScheduledJobLockService scheduledJobLockService,
+                                    @Value("${conversation-purge.batch-size:500}") int batchSize) {
+        this.marketplaceConversationRepository = marketplaceConversationRepository;
+        this.conversationBatchDeleter = conversationBatchDeleter;
+        this.scheduledJobLockService = scheduledJobLockService;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Periodically runs purgeConversations on whichever node holds the lease for it. The period can be altered by
+     * changing conversation-purge.in.milliseconds.
+     *
+     * @throws Exception thrown if purgeConversations fails.
+     */
+    @Scheduled(fixedDelayString = "${conversation-purge.in.milliseconds:3600000}")
+    public void scheduledPurgeConversations() throws Exception {
+        scheduledJobLockService.runExclusively(PURGE_JOB, Duration.ofMillis(leaseMaxHold),
+                Duration.ofMillis(purgeDelay - purgeDelay / 10), this::purgeConversations);
+    }
+
+    /**
+     * Deletes every conversation which both members have left, a batch at a time. A failed batch is rolled back,
+     * leaving it to be deleted by the next purge.
+     * @return The number of conversations deleted.
+     */
+    public int purgeConversations() {
+        int purged = 0;
+        List<Integer> conversationIds;
+        do {
+            conversationIds = marketplaceConversationRepository.findIdsWithNoMembers(PageRequest.of(0, batchSize));
+            if (!conversationIds.isEmpty()) {
+                purged += conversationBatchDeleter.deleteConversations(conversationIds);
+            }
+        } while (conversationIds.size() == batchSize);
+        logger.info("Purged {} conversations which both members had left", purged);
+        return purged;
+    }
+}
@@ -0,0 +1,69 @@
+package org.seng302.services;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.*;
+
+/**
+ * Orders and pages the ids matched by an in-memory search index, so only the entities on the requested page need to
+ * be loaded instead of passing every match to the database to be ordered.
+ * Each index keeps the values its results can be ordered by as an array per id, in the order of its sort properties.
+ * Values are ordered like the database orders them: nulls first when ascending, and ties broken by id.
+ */
+final class IndexPaging {
+
+    private IndexPaging() {
+        // not called
+    }
+
+    /**
+     * Gets a page of the matching ids. Must be called while holding the index's read lock.
+     * @param matches ids matched by the search
+     * @param sortValues id -> the values the id can be ordered by
+     * @param sortProperties names of the properties the values are of, as used in a Sort
+     * @param paging requested page and ordering, which may also order by "id"
+     * @return the ids on the requested page, with the total number of matches
+     */
+    static Page<Integer> page(BitSet matches, Map<Integer, String[]> sortValues, List<String> sortProperties,
+                              Pageable paging) {
+        List<Integer> ids = new ArrayList<>(matches.cardinality());
+        for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id + 1)) {
+            ids.add(id);
+        }
+        if (paging.isUnpaged()) {
+            return new PageImpl<>(ids, paging, ids.size());
+        }
+        ids.sort(comparator(paging.getSort(), sortValues, sortProperties));
+        int from = (int) Math.min(paging.getOffset(), ids.size());
+        int to = Math.min(from + paging.getPageSize(), ids.size());
+        return new PageImpl<>(new ArrayList<>(ids.subList(from, to)), paging, ids.size());
+    }
+
+    /**
+     * Builds a comparator of ids from a Sort.
+     * @throws IllegalArgumentException if the Sort orders by a property the index doesn't keep
+     */
+    private static Comparator<Integer> comparator(Sort sort, Map<Integer, String[]> sortValues,
+                                                  List<String> sortProperties) {
+        Comparator<Integer> comparator = (first, second) -> 0;
+        for (Sort.Order order : sort) {
+            Comparator<Integer> byProperty;
+            if (order.getProperty().equals("id")) {
+                byProperty = Comparator.naturalOrder();
+            } else {
+                int index = sortProperties.indexOf(order.getProperty());
+                if (index < 0) {
+                    throw new IllegalArgumentException("Cannot order search results by " + order.getProperty());
+                }
+                Comparator<String> values = Comparator.nullsFirst(
+                        order.isIgnoreCase() ? String.CASE_INSENSITIVE_ORDER : Comparator.naturalOrder());
+                byProperty = Comparator.comparing(id -> sortValues.get(id)[index], values);
+            }
+            comparator = comparator.thenComparing(order.isDescending() ? byProperty.reversed() : byProperty);
+        }
+        return comparator.thenComparing(Comparator.naturalOrder());
+    }
+}
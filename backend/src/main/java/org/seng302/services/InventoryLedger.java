@@ -0,0 +1,163 @@
+package org.seng302.services;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.seng302.exceptions.InsufficientInventoryException;
+import org.seng302.model.InventoryItem;
+import org.seng302.model.Listing;
+import org.seng302.model.repository.InventoryItemRepository;
+import org.seng302.model.repository.ListingRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+
+/**
+ * Keeps the number of items of each inventory item and how many of them are reserved by listings. Every change is a
+ * single conditional update (see InventoryItemRepository), so checking whether there are enough items is O(1) rather
+ * than summing the listings, and concurrent changes by different admins or buyers can't list or sell more items
+ * than there are.
+ * Listings reserve their items when they are created, and release them when they are deleted, closed (see
+ * ListingRepositoryCustomImpl) or bought. The reservations are recalculated from the listings periodically, which
+ * fills them in for listings created before the ledger existed and repairs any drift. A listing is saved in the same
+ * transaction as its reservation, and both lock the inventory item's row, so a recalculation can't run between them
+ * and leave out a listing whose items are already reserved.
+ */
+@Service
+public class InventoryLedger {
+
+    private static final Logger logger = LogManager.getLogger(InventoryLedger.class.getName());
+
+    private static final String RECONCILE_JOB = "reconcileInventoryReservations";
+
+    private final InventoryItemRepository inventoryItemRepository;
+
+    private final ListingRepository listingRepository;
+
+    private final ScheduledJobLockService scheduledJobLockService;
+
+    @Value("${inventory-ledger.reconcile.in.milliseconds:3600000}")
+    private long reconcileDelay;
+
+    @Value("${scheduled-job.lease.max-hold.in.milliseconds:600000}")
+    private long leaseMaxHold;
+
+    /**
+     * Constructor for InventoryLedger.
+     * @param inventoryItemRepository Stores inventory items and their reservations.
+     * @param listingRepository Stores the listings which reserve items.
+     * @param scheduledJobLockService Makes sure only one node recalculates the reservations at a time.
+     */
+    @Autowired
+    public InventoryLedger(InventoryItemRepository inventoryItemRepository, ListingRepository listingRepository,
+                           ScheduledJobLockService scheduledJobLockService) {
+        this.inventoryItemRepository = inventoryItemRepository;
+        this.listingRepository = listingRepository;
+        this.scheduledJobLockService = scheduledJobLockService;
+    }
+
+    /**
+     * Reserves items for a listing.
+     * @param inventoryItemId id of the inventory item
+     * @param quantity number of items in the listing
+     * @throws InsufficientInventoryException thrown if fewer items than the quantity are unreserved
+     */
+    @Transactional
+    public void reserve(int inventoryItemId, int quantity) throws InsufficientInventoryException {
+        if (inventoryItemRepository.reserveQuantity(inventoryItemId, quantity) == 0) {
+            throw new InsufficientInventoryException(String.format(
+                    "Inventory item with ID %d has fewer than %d unreserved items", inventoryItemId, quantity));
+        }
+        logger.debug("Reserved {} items of inventory item with ID {}", quantity, inventoryItemId);
+    }
+
+    /**
+     * Reserves the items of a new listing and saves it, so the listing is never missing while its items are reserved.
+     * @param listing the new listing
+     * @return the saved listing
+     * @throws InsufficientInventoryException thrown if fewer items than the listing's quantity are unreserved
+     */
+    @Transactional
+    public Listing createListing(Listing listing) throws InsufficientInventoryException {
+        reserve(listing.getInventoryItem().getId(), listing.getQuantity());
+        return listingRepository.save(listing);
+    }
+
+    /**
+     * Releases the items of a listing which has been deleted.
+     * @param inventoryItemId id of the inventory item
+     * @param quantity number of items in the listing
+     */
+    @Transactional
+    public void release(int inventoryItemId, int quantity) {
+        inventoryItemRepository.releaseQuantity(inventoryItemId, quantity);
+        logger.debug("Released {} items of inventory item with ID {}", quantity, inventoryItemId);
+    }
+
+    /**
+     * Takes the items of a bought listing out of its inventory item.
+     * @param inventoryItemId id of the inventory item
+     * @param quantity number of items in the listing
+     * @throws InsufficientInventoryException thrown if the inventory item has fewer items than the quantity
+     */
+    @Transactional
+    public void sell(int inventoryItemId, int quantity) throws InsufficientInventoryException {
+        if (inventoryItemRepository.sellQuantity(inventoryItemId, quantity) == 0) {
+            throw new InsufficientInventoryException(String.format(
+                    "Inventory item with ID %d has fewer than %d items", inventoryItemId, quantity));
+        }
+        logger.debug("Sold {} items of inventory item with ID {}", quantity, inventoryItemId);
+    }
+
+    /**
+     * Changes the number of items in an inventory item.
+     * @param inventoryItemId id of the inventory item
+     * @param quantity the new number of items
+     * @throws InsufficientInventoryException thrown if more items than the quantity are reserved by listings
+     */
+    @Transactional
+    public void updateQuantity(int inventoryItemId, int quantity) throws InsufficientInventoryException {
+        if (inventoryItemRepository.updateQuantity(inventoryItemId, quantity) == 0) {
+            throw new InsufficientInventoryException(String.format(
+                    "Inventory item with ID %d has more than %d items reserved", inventoryItemId, quantity));
+        }
+        logger.debug("Quantity of inventory item with ID {} changed to {}", inventoryItemId, quantity);
+    }
+
+    /**
+     * Changes the number of items in an inventory item and saves its other details. Nothing is saved if the quantity
+     * is below the items reserved, including details already flushed from a managed inventory item.
+     * @param inventoryItem the inventory item with its new details
+     * @param quantity the new number of items
+     * @throws InsufficientInventoryException thrown if more items than the quantity are reserved by listings
+     */
+    @Transactional(rollbackFor = InsufficientInventoryException.class)
+    public void updateInventoryItem(InventoryItem inventoryItem, int quantity) throws InsufficientInventoryException {
+        updateQuantity(inventoryItem.getId(), quantity);
+        inventoryItemRepository.saveAndFlush(inventoryItem);
+    }
+
+    /**
+     * Periodically runs reconcile on whichever node holds the lease for it. This also runs when the application
+     * starts, the period can be altered by changing inventory-ledger.reconcile.in.milliseconds.
+     *
+     * @throws Exception thrown if reconcile fails.
+     */
+    @Scheduled(fixedDelayString = "${inventory-ledger.reconcile.in.milliseconds:3600000}")
+    public void scheduledReconcile() throws Exception {
+        scheduledJobLockService.runExclusively(RECONCILE_JOB, Duration.ofMillis(leaseMaxHold),
+                Duration.ofMillis(reconcileDelay - reconcileDelay / 10), this::reconcile);
+    }
+
+    /**
+     * Recalculates the reserved items of every inventory item from its listings.
+     */
+    @Transactional
+    public void reconcile() {
+        int updated = inventoryItemRepository.reconcileReservations();
+        logger.info("Reconciled the reservations of {} inventory items", updated);
+    }
+}
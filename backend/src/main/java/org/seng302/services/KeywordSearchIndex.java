@@ -0,0 +1,227 @@
+package org.seng302.services;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.seng302.model.Keyword;
+import org.seng302.model.repository.KeywordRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * In-memory n-gram index over keyword names, used for keyword autocomplete.
+ * Every substring of up to three characters of each (lower cased) keyword name is indexed, so a search for up to
+ * three characters is a single posting list lookup, and a longer search intersects the posting lists of its trigrams
+ * and then checks the few remaining candidates actually contain the search.
+ * Matches are ranked with names starting with the search first, then by how many cards use the keyword.
+ * The endpoints that create and delete keywords keep it up to date.
+ */
+@Service
+public class KeywordSearchIndex extends PeriodicallyRebuiltIndex {
+
+    private static final Logger logger = LogManager.getLogger(KeywordSearchIndex.class.getName());
+
+    // Longest substring of a keyword name which is indexed.
+    private static final int GRAM_LENGTH = 3;
+
+    private final KeywordRepository keywordRepository;
+
+    private final CardKeywordIndex cardKeywordIndex;
+
+    // keyword id -> keyword
+    private Map<Integer, Keyword> keywordsById = new HashMap<>();
+
+    // substring of a lower cased keyword name -> keyword ids
+    private Map<String, BitSet> keywordsByGram = new HashMap<>();
+
+    /**
+     * Constructor for KeywordSearchIndex.
+     * @param keywordRepository Stores keywords, used to (re)build the index.
+     * @param cardKeywordIndex Index of the keywords of each card, used to rank keywords by usage.
+     */
+    @Autowired
+    public KeywordSearchIndex(KeywordRepository keywordRepository, CardKeywordIndex cardKeywordIndex) {
+        this.keywordRepository = keywordRepository;
+        this.cardKeywordIndex = cardKeywordIndex;
+    }
+
+    /**
+     * Rebuilds the whole index from the keyword table. This runs when the application starts and then
+     * periodically, the period can be altered by changing keyword-search-index.rebuild.in.milliseconds.
+     */
+    @Scheduled(fixedDelayString = "${keyword-search-index.rebuild.in.milliseconds:600000}")
+    public void rebuild() {
+        rebuildFrom(this::read);
+    }
+
+    /**
+     * Reads the keyword table into new maps.
+     * @return Swaps the new maps in.
+     */
+    private Runnable read() {
+        Map<Integer, Keyword> newKeywordsById = new HashMap<>();
+        Map<String, BitSet> newKeywordsByGram = new HashMap<>();
+
+        List<Keyword> keywords = keywordRepository.findAll();
+        if (keywords == null) {
+            keywords = List.of();
+        }
+        for (Keyword keyword : keywords) {
+            addPostings(keyword, newKeywordsById, newKeywordsByGram);
+        }
+
+        logger.info("Keyword search index rebuilt with {} keywords and {} n-grams", newKeywordsById.size(), newKeywordsByGram.size());
+        return () -> {
+            keywordsById = newKeywordsById;
+            keywordsByGram = newKeywordsByGram;
+        };
+    }
+
+    /**
+     * Adds a keyword to the index (used when a keyword is created).
+     * @param keyword a saved keyword
+     */
+    public void indexKeyword(Keyword keyword) {
+        change(() -> {
+            removePostings(keyword.getId());
+            addPostings(keyword, keywordsById, keywordsByGram);
+        });
+    }
+
+    /**
+     * Removes a keyword from the index (used when a keyword is deleted).
+     * @param keywordId id of the deleted keyword
+     */
+    public void removeKeyword(int keywordId) {
+        change(() -> removePostings(keywordId));
+    }
+
+    /**
+     * Finds the keywords whose names contain the search query (ignoring case).
+     * Keywords whose names start with the query come first, then keywords used by more cards, then by name.
+     *
+     * @param searchQuery the text to search for, an empty query matches every keyword
+     * @param limit the maximum number of keywords to return
+     * @return up to limit matching keywords, best match first
+     */
+    public List<Keyword> search(String searchQuery, int limit) {
+        String query = searchQuery.toLowerCase(Locale.ROOT);
+        List<Keyword> matches = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            if (query.isEmpty()) {
+                matches.addAll(keywordsById.values());
+            } else {
+                BitSet candidates = findCandidates(query);
+                for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+                    Keyword keyword = keywordsById.get(id);
+                    // Candidates from longer queries only share every trigram with the query, so must be checked.
+                    if (keyword != null && (query.length() <= GRAM_LENGTH || lowerCaseName(keyword).contains(query))) {
+                        matches.add(keyword);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Work out the ranking of each match once rather than on every comparison.
+        Map<Integer, String> names = new HashMap<>();
+        Map<Integer, Integer> usage = new HashMap<>();
+        for (Keyword keyword : matches) {
+            names.put(keyword.getId(), lowerCaseName(keyword));
+            usage.put(keyword.getId(), cardKeywordIndex.countCards(keyword.getId()));
+        }
+        matches.sort(Comparator
+                .comparing((Keyword keyword) -> !names.get(keyword.getId()).startsWith(query))
+                .thenComparing(keyword -> usage.get(keyword.getId()), Comparator.reverseOrder())
+                .thenComparing(keyword -> names.get(keyword.getId()))
+                .thenComparing(Keyword::getId));
+
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    /**
+     * Finds the ids of the keywords which contain every n-gram of the query. Must be called while holding the
+     * read lock.
+     * @param query a non-empty lower cased query
+     * @return ids of the candidate keywords
+     */
+    private BitSet findCandidates(String query) {
+        if (query.length() <= GRAM_LENGTH) {
+            return keywordsByGram.getOrDefault(query, new BitSet());
+        }
+        BitSet candidates = null;
+        for (int start = 0; start + GRAM_LENGTH <= query.length(); start++) {
+            BitSet keywordIds = keywordsByGram.get(query.substring(start, start + GRAM_LENGTH));
+            if (keywordIds == null) {
+                return new BitSet();
+            }
+            if (candidates == null) {
+                candidates = (BitSet) keywordIds.clone();
+            } else {
+                candidates.and(keywordIds);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Adds a keyword and the postings for every n-gram of its name to the given maps.
+     * @param keyword the keyword
+     * @param keywordsById map of keyword ids to keywords
+     * @param keywordsByGram map of n-grams to keyword ids
+     */
+    private static void addPostings(Keyword keyword, Map<Integer, Keyword> keywordsById, Map<String, BitSet> keywordsByGram) {
+        keywordsById.put(keyword.getId(), keyword);
+        for (String gram : grams(lowerCaseName(keyword))) {
+            keywordsByGram.computeIfAbsent(gram, key -> new BitSet()).set(keyword.getId());
+        }
+    }
+
+    /**
+     * Clears every posting of a keyword. Must be called while holding the write lock.
+     * @param keywordId id of the keyword
+     */
+    private void removePostings(int keywordId) {
+        Keyword keyword = keywordsById.remove(keywordId);
+        if (keyword != null) {
+            for (String gram : grams(lowerCaseName(keyword))) {
+                BitSet keywordIds = keywordsByGram.get(gram);
+                if (keywordIds != null) {
+                    keywordIds.clear(keywordId);
+                    if (keywordIds.isEmpty()) {
+                        keywordsByGram.remove(gram);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets every substring of up to GRAM_LENGTH characters of a name.
+     * @param name a lower cased name
+     * @return the n-grams of the name
+     */
+    private static Set<String> grams(String name) {
+        Set<String> grams = new HashSet<>();
+        for (int start = 0; start < name.length(); start++) {
+            for (int end = start + 1; end <= Math.min(name.length(), start + GRAM_LENGTH); end++) {
+                grams.add(name.substring(start, end));
+            }
+        }
+        return grams;
+    }
+
+    /**
+     * Gets the lower cased name of a keyword, which is what the index is built over.
+     * @param keyword the keyword
+     * @return the lower cased name
+     */
+    private static String lowerCaseName(Keyword keyword) {
+        return keyword.getName().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,89 @@
+package org.seng302.services;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.seng302.model.repository.ListingRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Periodically moves listings which have closed or whose inventory item has expired out of the listing table and
+ * into the archived listing table, so listing searches only touch live rows. The users who bookmarked an archived
+ * listing are notified in the same way as when a listing is deleted.
+ */
+@Service
+public class ListingArchiveService {
+
+    private static final Logger logger = LogManager.getLogger(ListingArchiveService.class.getName());
+
+    private static final String ARCHIVE_JOB = "archiveListings";
+
+    private final ListingRepository listingRepository;
+
+    private final ListingRangeIndex listingRangeIndex;
+
+    private final ScheduledJobLockService scheduledJobLockService;
+
+    @Value("${listing-archive.in.milliseconds:3600000}")
+    private long archiveDelay;
+
+    private final int batchSize;
+
+    @Value("${scheduled-job.lease.max-hold.in.milliseconds:600000}")
+    private long leaseMaxHold;
+
+    /**
+     * Constructor for ListingArchiveService.
+     * @param listingRepository Stores listings and archives them.
+     * @param listingRangeIndex Index of listing prices and closing times, which archived listings are removed from.
+     * @param scheduledJobLockService Makes sure only one node archives listings at a time.
+     * @param batchSize Most listings to archive in one transaction.
+     */
+    @Autowired
+    public ListingArchiveService(ListingRepository listingRepository,
+                                 ListingRangeIndex listingRangeIndex,
+                                 ScheduledJobLockService scheduledJobLockService,
+                                 @Value("${listing-archive.batch-size:500}") int batchSize) {
+        this.listingRepository = listingRepository;
+        this.listingRangeIndex = listingRangeIndex;
+        this.scheduledJobLockService = scheduledJobLockService;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Periodically runs archiveListings on whichever node holds the lease for it. The period can be altered by
+     * changing listing-archive.in.milliseconds.
+     *
+     * @throws Exception thrown if archiveListings fails.
+     */
+    @Scheduled(fixedDelayString = "${listing-archive.in.milliseconds:3600000}")
+    public void scheduledArchiveListings() throws Exception {
+        scheduledJobLockService.runExclusively(ARCHIVE_JOB, Duration.ofMillis(leaseMaxHold),
+                Duration.ofMillis(archiveDelay - archiveDelay / 10), this::archiveListings);
+    }
+
+    /**
+     * Archives every listing which has closed or whose inventory item has expired, a batch at a time. Each batch is
+     * archived in its own transaction, so a large backlog doesn't hold locks on the listing table for long.
+     * @return The number of listings archived.
+     */
+    public int archiveListings() {
+        int archived = 0;
+        List<Integer> listingIds;
+        do {
+            listingIds = listingRepository.findClosedOrExpiredListingIds(batchSize);
+            if (!listingIds.isEmpty()) {
+                archived += listingRepository.archiveListings(listingIds);
+                listingIds.forEach(listingRangeIndex::removeListing);
+                logger.debug("Archived {} listings", listingIds.size());
+            }
+        } while (listingIds.size() == batchSize);
+        logger.info("Archived {} closed or expired listings", archived);
+        return archived;
+    }
+}
@@ -0,0 +1,233 @@
+package org.seng302.services;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.seng302.model.Listing;
+import org.seng302.model.repository.ListingRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Closes listings when their closing time passes. The closing times of the open listings are kept in a priority
+ * queue, so each check only looks at the head of the queue and the work done is proportional to the number of
+ * listings which are due, not the number of listings. Due listings are archived in batches, which notifies the users
+ * who bookmarked them and removes them from the listing table (see ListingRepositoryCustomImpl.archiveListings).
+ * The queue is kept up to date by the endpoints that create, buy and delete listings, and is reseeded from the
+ * database periodically so that listings created by other nodes are picked up. Only the node holding the lease for
+ * the check closes listings on each tick; a listing can only be archived once, so a listing another node has already
+ * closed is skipped.
+ */
+@Service
+public class ListingCloseScheduler extends PeriodicallyRebuiltIndex {
+
+    private static final Logger logger = LogManager.getLogger(ListingCloseScheduler.class.getName());
+
+    private static final String CLOSE_JOB = "closeDueListings";
+
+    private final ListingRepository listingRepository;
+
+    private final ListingRangeIndex listingRangeIndex;
+
+    private final ScheduledJobLockService scheduledJobLockService;
+
+    private final int batchSize;
+
+    @Value("${listing-close.check.in.milliseconds:10000}")
+    private long checkDelay;
+
+    @Value("${scheduled-job.lease.max-hold.in.milliseconds:600000}")
+    private long leaseMaxHold;
+
+    // Deadlines ordered by closing time. Rescheduling or cancelling a listing leaves its old deadline in the queue,
+    // and deadlines which don't match closingTimes are skipped when they reach the head.
+    private PriorityQueue<Deadline> deadlines = new PriorityQueue<>();
+
+    // listing id -> its current closing time in milliseconds since the epoch
+    private Map<Integer, Long> closingTimes = new HashMap<>();
+
+    /**
+     * Constructor for ListingCloseScheduler.
+     * @param listingRepository Stores listings, used to seed the queue and to archive closed listings.
+     * @param listingRangeIndex Index of listing prices and closing times, which closed listings are removed from.
+     * @param scheduledJobLockService Makes sure only one node closes listings at a time.
+     * @param batchSize Most listings to close in one transaction.
+     */
+    @Autowired
+    public ListingCloseScheduler(ListingRepository listingRepository,
+                                 ListingRangeIndex listingRangeIndex,
+                                 ScheduledJobLockService scheduledJobLockService,
+                                 @Value("${listing-close.batch-size:500}") int batchSize) {
+        this.listingRepository = listingRepository;
+        this.listingRangeIndex = listingRangeIndex;
+        this.scheduledJobLockService = scheduledJobLockService;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Replaces the queue with the closing times of every open listing. This runs when the application starts and
+     * then periodically, the period can be altered by changing listing-close.reseed.in.milliseconds.
+     */
+    @Scheduled(fixedDelayString = "${listing-close.reseed.in.milliseconds:600000}")
+    public void reseed() {
+        rebuildFrom(this::read);
+    }
+
+    /**
+     * Reads the closing time of every open listing into a new queue.
+     * @return Swaps the new queue in.
+     */
+    private Runnable read() {
+        List<ListingRepository.ListingRange> listings = listingRepository.findAllOpenListingRanges(LocalDateTime.now());
+        if (listings == null) {
+            listings = List.of();
+        }
+        PriorityQueue<Deadline> newDeadlines = new PriorityQueue<>();
+        Map<Integer, Long> newClosingTimes = new HashMap<>();
+        for (ListingRepository.ListingRange listing : listings) {
+            if (listing.getCloses() != null) {
+                addDeadline(listing.getId(), ListingRangeIndex.toEpochMillis(listing.getCloses()), newDeadlines, newClosingTimes);
+            }
+        }
+        logger.info("Listing close scheduler seeded with {} listings", newClosingTimes.size());
+        return () -> {
+            deadlines = newDeadlines;
+            closingTimes = newClosingTimes;
+        };
+    }
+
+    /**
+     * Schedules a listing to close at its closing time, replacing its previous closing time.
+     * @param listing a saved listing
+     */
+    public void scheduleListing(Listing listing) {
+        int listingId = listing.getId();
+        Long closes = listing.getCloses() == null ? null : ListingRangeIndex.toEpochMillis(listing.getCloses());
+        change(() -> {
+            if (closes == null) {
+                closingTimes.remove(listingId);
+            } else {
+                addDeadline(listingId, closes, deadlines, closingTimes);
+            }
+        });
+    }
+
+    /**
+     * Stops a listing from being closed (used once a listing is bought or deleted).
+     * @param listingId id of the listing
+     */
+    public void cancelListing(int listingId) {
+        change(() -> closingTimes.remove(listingId));
+    }
+
+    /**
+     * Periodically runs closeDueListings on whichever node holds the lease for it. The period can be altered by
+     * changing listing-close.check.in.milliseconds, and is how late a listing can be closed after its closing time.
+     *
+     * @throws Exception thrown if closeDueListings fails.
+     */
+    @Scheduled(fixedDelayString = "${listing-close.check.in.milliseconds:10000}")
+    public void scheduledCloseDueListings() throws Exception {
+        scheduledJobLockService.runExclusively(CLOSE_JOB, Duration.ofMillis(leaseMaxHold),
+                Duration.ofMillis(checkDelay - checkDelay / 10), this::closeDueListings);
+    }
+
+    /**
+     * Closes every listing whose closing time has passed, a batch at a time.
+     * @return The number of listings closed.
+     */
+    public int closeDueListings() {
+        int closed = 0;
+        List<Integer> listingIds;
+        do {
+            listingIds = takeDueListings(ListingRangeIndex.toEpochMillis(LocalDateTime.now()));
+            if (!listingIds.isEmpty()) {
+                try {
+                    closed += listingRepository.archiveListings(listingIds);
+                } catch (Exception e) {
+                    // e.g. another node closed some of them at the same time, they're retried on the next check
+                    logger.error("Failed to close {} listings - {}", listingIds.size(), e.getMessage());
+                    requeue(listingIds);
+                    break;
+                }
+                listingIds.forEach(listingRangeIndex::removeListing);
+            }
+        } while (listingIds.size() == batchSize);
+        if (closed > 0) {
+            logger.info("Closed {} listings", closed);
+        }
+        return closed;
+    }
+
+    /**
+     * Removes up to a batch of listings which are due to close from the queue.
+     * @param now the current time in milliseconds since the epoch
+     * @return the ids of the due listings
+     */
+    private List<Integer> takeDueListings(long now) {
+        List<Integer> listingIds = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            while (listingIds.size() < batchSize && !deadlines.isEmpty() && deadlines.peek().closes <= now) {
+                Deadline deadline = deadlines.poll();
+                if (closingTimes.remove(deadline.listingId, deadline.closes)) {
+                    listingIds.add(deadline.listingId);
+                }
+            }
+            // A reseed running now may have read these listings before they were taken, so taking them is replayed.
+            replayAfterRebuild(() -> listingIds.forEach(listingId -> closingTimes.remove(listingId)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return listingIds;
+    }
+
+    /**
+     * Puts listings which failed to close back in the queue, due immediately.
+     */
+    private void requeue(List<Integer> listingIds) {
+        long now = ListingRangeIndex.toEpochMillis(LocalDateTime.now());
+        change(() -> {
+            for (Integer listingId : listingIds) {
+                if (!closingTimes.containsKey(listingId)) {
+                    addDeadline(listingId, now, deadlines, closingTimes);
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds a deadline for a listing to the given queue and closing times.
+     */
+    private static void addDeadline(int listingId, long closes, PriorityQueue<Deadline> deadlines,
+                                    Map<Integer, Long> closingTimes) {
+        closingTimes.put(listingId, closes);
+        deadlines.add(new Deadline(listingId, closes));
+    }
+
+    /**
+     * The time a listing is due to close.
+     */
+    private static class Deadline implements Comparable<Deadline> {
+
+        private final int listingId;
+
+        private final long closes;
+
+        Deadline(int listingId, long closes) {
+            this.listingId = listingId;
+            this.closes = closes;
+        }
+
+        @Override
+        public int compareTo(Deadline other) {
+            int byCloses = Long.compare(closes, other.closes);
+            return byCloses != 0 ? byCloses : Integer.compare(listingId, other.listingId);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package org.seng302.services;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.Hibernate;
+import org.seng302.exceptions.IllegalListingNotificationArgumentException;
+import org.seng302.exceptions.InsufficientInventoryException;
+import org.seng302.exceptions.IllegalSoldListingArgumentException;
+import org.seng302.exceptions.IllegalSoldListingNotificationArgumentException;
+import org.seng302.model.*;
+import org.seng302.model.repository.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Buys listings. A purchase runs in a single transaction, which deletes the listing (checking its version, so only
+ * one of any concurrent purchases of a listing can succeed), takes the items and their reservation out of the
+ * inventory item with the inventory ledger (so the inventory can't go below zero), and records the sale and its
+ * notifications. If any step fails nothing is changed.
+ * Purchases made with an idempotency key are recorded, so a client retrying a purchase which succeeded gets the same
+ * result instead of being told the listing doesn't exist.
+ */
+@Service
+public class ListingPurchaseService {
+
+    private static final Logger logger = LogManager.getLogger(ListingPurchaseService.class.getName());
+
+    private final ListingRepository listingRepository;
+
+    private final BusinessRepository businessRepository;
+
+    private final InventoryItemRepository inventoryItemRepository;
+
+    private final SoldListingRepository soldListingRepository;
+
+    private final ListingNotificationRepository listingNotificationRepository;
+
+    private final SoldListingNotificationRepository soldListingNotificationRepository;
+
+    private final ListingPurchaseRepository listingPurchaseRepository;
+
+    private final InventoryLedger inventoryLedger;
+
+    /**
+     * Constructor for ListingPurchaseService.
+     * @param listingRepository Stores listings.
+     * @param businessRepository Stores businesses.
+     * @param inventoryItemRepository Stores inventory items.
+     * @param soldListingRepository Stores the sale history of businesses.
+     * @param listingNotificationRepository Stores notifications for purchasers and users who bookmarked listings.
+     * @param soldListingNotificationRepository Stores notifications for businesses.
+     * @param listingPurchaseRepository Stores the purchases made with idempotency keys.
+     * @param inventoryLedger Takes sold items out of inventory items.
+     */
+    @Autowired
+    public ListingPurchaseService(ListingRepository listingRepository, BusinessRepository businessRepository,
+                                  InventoryItemRepository inventoryItemRepository,
+                                  SoldListingRepository soldListingRepository,
+                                  ListingNotificationRepository listingNotificationRepository,
+                                  SoldListingNotificationRepository soldListingNotificationRepository,
+                                  ListingPurchaseRepository listingPurchaseRepository,
+                                  InventoryLedger inventoryLedger) {
+        this.listingRepository = listingRepository;
+        this.businessRepository = businessRepository;
+        this.inventoryItemRepository = inventoryItemRepository;
+        this.soldListingRepository = soldListingRepository;
+        this.listingNotificationRepository = listingNotificationRepository;
+        this.soldListingNotificationRepository = soldListingNotificationRepository;
+        this.listingPurchaseRepository = listingPurchaseRepository;
+        this.inventoryLedger = inventoryLedger;
+    }
+
+    /**
+     * Buys a listing.
+     * Creates a SoldListing to store the sale history for the business, creates a ListingNotification for the purchaser
+     * to remind them about the purchase, creates a ListingNotification for the users who had the listing bookmarked to
+     * inform them of its removal, takes the items out of the inventory item and deletes the Listing.
+     * A concurrent purchase or modification of the listing makes this throw a ConcurrencyFailureException (either
+     * here or when the transaction commits), and the other purchase is the one that succeeds.
+     *
+     * @param listingId id of the listing
+     * @param purchaser the user buying the listing
+     * @param idempotencyKey key the purchaser sent with the purchase, or null
+     * @return true if the listing was bought, false if this is a retry of a purchase made with the same key
+     */
+    @Transactional
+    public boolean purchase(Integer listingId, User purchaser, String idempotencyKey) {
+        if (idempotencyKey != null) {
+            Optional<ListingPurchase> previousPurchase = findPurchase(purchaser.getId(), idempotencyKey);
+            if (previousPurchase.isPresent()) {
+                if (!previousPurchase.get().getListingId().equals(listingId)) {
+                    logger.error("400 [BAD REQUEST] - Idempotency key of user with ID {} was used for listing with ID {}",
+                            purchaser.getId(), previousPurchase.get().getListingId());
+                    throw new ResponseStatusException(
+                            HttpStatus.BAD_REQUEST,
+                            "Idempotency key has already been used for another listing"
+                    );
+                }
+                logger.info("Listing with ID {} was already bought by user with ID {}", listingId, purchaser.getId());
+                return false;
+            }
+        }
+
+        // 406
+        Optional<Listing> optionalListing = listingRepository.findById(listingId);
+        if (optionalListing.isEmpty()) {
+            logger.error("406 [NOT ACCEPTABLE] - Select listing ({}) not exist", listingId);
+            throw new ResponseStatusException(
+                    HttpStatus.NOT_ACCEPTABLE,
+                    "Listing does not exist"
+            );
+        }
+        Listing listing = optionalListing.get();
+        logger.debug("Listing {} retrieved, ID: {}.", listing.getInventoryItem().getProduct().getName(), listing.getId());
+
+        Optional<Business> optionalBusiness = businessRepository.findBusinessById(listing.getBusinessId());
+        if (optionalBusiness.isEmpty()) {
+            logger.error("500 [INTERNAL SERVER ERROR] - Business with ID {} for listing with ID {} does not exist", listing.getBusinessId(), listingId);
+            throw new ResponseStatusException(
+                    HttpStatus.INTERNAL_SERVER_ERROR,
+                    "Business for listing does not exist"
+            );
+        }
+        Business business = optionalBusiness.get();
+
+        Optional<InventoryItem> optionalInventoryItem = inventoryItemRepository.findInventoryItemById(listing.getInventoryItem().getId());
+        if (optionalInventoryItem.isEmpty()) {
+            logger.error("500 [INTERNAL SERVER ERROR] - Inventory item with ID {} for listing with ID {} does not exist", listing.getInventoryItem().getId(), listingId);
+            throw new ResponseStatusException(
+                    HttpStatus.INTERNAL_SERVER_ERROR,
+                    "Inventory item for listing does not exist"
+            );
+        }
+        InventoryItem inventoryItem = optionalInventoryItem.get();
+
+        // The delete is checked against the version of the listing that was read, and blocks until a concurrent
+        // purchase of the same listing finishes, so only one purchase gets past this point.
+        List<Listing> itemListings = inventoryItem.getListings();
+        if (itemListings != null && Hibernate.isInitialized(itemListings)) {
+            itemListings.removeIf(itemListing -> itemListing.getId() == listing.getId());
+        }
+        listingRepository.delete(listing);
+        listingRepository.flush();
+        logger.info("Listing Deletion Success - Listing with ID {} has been deleted", listingId);
+
+        // 409
+        try {
+            inventoryLedger.sell(inventoryItem.getId(), listing.getQuantity());
+        } catch (InsufficientInventoryException e) {
+            logger.error("409 [CONFLICT] - Listing with ID {} can't be bought - {}", listingId, e.getMessage());
+            throw new ResponseStatusException(
+                    HttpStatus.CONFLICT,
+                    "Not enough items in inventory for listing"
+            );
+        }
+        logger.debug("Inventory item with ID {} quantity reduced by {}.", inventoryItem.getId(), listing.getQuantity());
+
+        createSaleRecords(listing, business, purchaser);
+
+        if (idempotencyKey != null) {
+            listingPurchaseRepository.save(new ListingPurchase(purchaser.getId(), idempotencyKey, listingId, LocalDateTime.now()));
+        }
+        return true;
+    }
+
+    /**
+     * Finds the purchase a user made with an idempotency key.
+     * @param userId id of the purchaser
+     * @param idempotencyKey key the purchaser sent with the purchase
+     * @return the purchase, if there is one
+     */
+    public Optional<ListingPurchase> findPurchase(Integer userId, String idempotencyKey) {
+        return listingPurchaseRepository.findByUserIdAndIdempotencyKey(userId, idempotencyKey);
+    }
+
+    /**
+     * Creates the SoldListing of a purchase and the notifications for the business, purchaser and the users who
+     * bookmarked the listing. Failing to create any of these is logged but doesn't stop the purchase.
+     */
+    private void createSaleRecords(Listing listing, Business business, User purchaser) {
+        String nameOfProduct = listing.getInventoryItem().getProduct().getName();
+        try {
+            SoldListing soldListing = new SoldListing(business, purchaser, listing.getCreated(),
+                    listing.getInventoryItem().getProduct().getProductId(),
+                    listing.getQuantity(), listing.getPrice(),
+                    listing.getTotalBookmarks());
+            soldListing = soldListingRepository.save(soldListing);
+            logger.info("Sold Listing Creation Success - Sold listing created for business with ID {}", listing.getBusinessId());
+
+            try {
+                String soldListingMessage = String.format("A listing of yours, %s x%d, has been sold.", nameOfProduct, listing.getQuantity());
+                SoldListingNotification soldListingNotification = new SoldListingNotification(business.getId(), soldListing, soldListingMessage);
+                soldListingNotificationRepository.save(soldListingNotification);
+
+                logger.info("Sold Listing Notification Creation Success - Sold listing notification created for business with ID {}", business.getId());
+            } catch (IllegalSoldListingNotificationArgumentException e) {
+                logger.error("Couldn't create sold listing notification - {}", e.getMessage());
+            }
+        } catch (IllegalSoldListingArgumentException e) {
+            logger.error("Couldn't create sold listing - {}", e.getMessage());
+        }
+
+        try {
+            String purchaserMessage = String.format("You have purchased %s x%d for $%.2f. Your purchase can be picked up from %s.",
+                                                    nameOfProduct, listing.getQuantity(),
+                                                    listing.getPrice(), business.getAddress().toOneLineString());
+            ListingNotification purchaserListingNotification = new ListingNotification(purchaserMessage);
+            purchaserListingNotification.addUser(purchaser);
+            listingNotificationRepository.save(purchaserListingNotification);
+
+            logger.info("Listing Notification Creation Success - Listing purchase notification created for purchaser");
+        } catch (IllegalListingNotificationArgumentException e) {
+            logger.error("Couldn't create listing purchase notification - {}", e.getMessage());
+        }
+
+        try {
+            String bookmarkMessage = String.format("A listing you bookmarked, %s x%d from %s, has been removed.",
+                                                    nameOfProduct, listing.getQuantity(), business.getName());
+            ListingNotification bookmarkListingNotification = new ListingNotification(bookmarkMessage);
+            for (User user : listing.getBookmarkedListings()) {
+                bookmarkListingNotification.addUser(user);
+            }
+            bookmarkListingNotification.removeUser(purchaser);
+            listingNotificationRepository.save(bookmarkListingNotification);
+
+            logger.info("Listing Notification Creation Success - Listing removal notification created");
+        } catch (IllegalListingNotificationArgumentException e) {
+            logger.error("Couldn't create listing removal notification - {}", e.getMessage());
+        }
+    }
+}
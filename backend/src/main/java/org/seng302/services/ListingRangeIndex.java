@@ -0,0 +1,326 @@
+package org.seng302.services;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.seng302.model.Listing;
+import org.seng302.model.repository.ListingRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * In-memory index of the prices and closing times of the listings which haven't closed, used to answer the price and
+ * closing date filters of listing searches. The listing ids are kept in two sorted columns (parallel primitive arrays
+ * sorted by price and by closing time), so a range filter is a binary search for each end of the range. The narrower
+ * of the two ranges is scanned and checked against the other, giving the ids of the candidate listings, which the
+ * search query then only has to check for the candidates instead of every listing it joins through. The query still
+ * applies the range predicates to the candidates, so a listing the index has out of date is never returned.
+ * When the filters match too many listings the index declines to answer, as a long list of candidate ids is slower
+ * for the database than the range predicates. It also declines until it has first been built, since until then it
+ * may be missing listings.
+ * The index is kept up to date by the endpoints that create, buy and delete listings, and is rebuilt from the database
+ * periodically so that changes made by other nodes (and listings which have closed) are picked up.
+ */
+@Service
+public class ListingRangeIndex extends PeriodicallyRebuiltIndex {
+
+    private static final Logger logger = LogManager.getLogger(ListingRangeIndex.class.getName());
+
+    private final ListingRepository listingRepository;
+
+    private final int maxCandidates;
+
+    // Whether the index has been built from the database.
+    private boolean built;
+
+    // listing id -> its price and closing time
+    private Map<Integer, Range> ranges = new HashMap<>();
+
+    private SortedColumn byPrice = new SortedColumn(16);
+
+    private SortedColumn byCloses = new SortedColumn(16);
+
+    /**
+     * Constructor for ListingRangeIndex.
+     * @param listingRepository Stores listings, used to (re)build the index.
+     * @param maxCandidates Most candidate listings the index answers with, set by listing-range-index.max-candidates.
+     */
+    @Autowired
+    public ListingRangeIndex(ListingRepository listingRepository,
+                             @Value("${listing-range-index.max-candidates:1000}") int maxCandidates) {
+        this.listingRepository = listingRepository;
+        this.maxCandidates = maxCandidates;
+    }
+
+    /**
+     * Rebuilds the whole index from the listings which haven't closed. This runs when the application starts and
+     * then periodically, the period can be altered by changing listing-range-index.rebuild.in.milliseconds.
+     */
+    @Scheduled(fixedDelayString = "${listing-range-index.rebuild.in.milliseconds:600000}")
+    public void rebuild() {
+        rebuildFrom(this::read);
+    }
+
+    /**
+     * Reads the price and closing time of every listing which hasn't closed into new columns.
+     * @return Swaps the new columns in.
+     */
+    private Runnable read() {
+        List<ListingRepository.ListingRange> listings = listingRepository.findAllOpenListingRanges(LocalDateTime.now());
+        if (listings == null) {
+            listings = List.of();
+        }
+
+        Map<Integer, Range> newRanges = new HashMap<>();
+        for (ListingRepository.ListingRange listing : listings) {
+            if (listing.getPrice() != null && listing.getCloses() != null) {
+                newRanges.put(listing.getId(), new Range(listing.getId(), listing.getPrice(), toKey(listing.getCloses())));
+            }
+        }
+        List<Range> sorted = new ArrayList<>(newRanges.values());
+        SortedColumn newByPrice = new SortedColumn(sorted.size());
+        sorted.sort(Comparator.comparingDouble(range -> range.price));
+        for (Range range : sorted) {
+            newByPrice.append(range.price, range.id);
+        }
+        SortedColumn newByCloses = new SortedColumn(sorted.size());
+        sorted.sort(Comparator.comparingDouble(range -> range.closes));
+        for (Range range : sorted) {
+            newByCloses.append(range.closes, range.id);
+        }
+
+        logger.info("Listing range index rebuilt with {} listings", newRanges.size());
+        return () -> {
+            ranges = newRanges;
+            byPrice = newByPrice;
+            byCloses = newByCloses;
+            built = true;
+        };
+    }
+
+    /**
+     * Adds a listing to the index, replacing whatever was indexed for it before.
+     * @param listing a saved listing
+     */
+    public void indexListing(Listing listing) {
+        int listingId = listing.getId();
+        Range range = listing.getCloses() == null ? null
+                : new Range(listingId, listing.getPrice(), toKey(listing.getCloses()));
+        change(() -> {
+            removePostings(listingId);
+            if (range != null) {
+                ranges.put(range.id, range);
+                byPrice.insert(range.price, range.id);
+                byCloses.insert(range.closes, range.id);
+            }
+        });
+    }
+
+    /**
+     * Removes a listing from the index (used once a listing is bought or deleted).
+     * @param listingId id of the listing
+     */
+    public void removeListing(int listingId) {
+        change(() -> removePostings(listingId));
+    }
+
+    /**
+     * Finds the listings which haven't closed and are within the given price and closing date ranges.
+     * Each bound is optional, but at least one must be given for the index to answer.
+     *
+     * @param minimumPrice Lower end of prices (inclusive)
+     * @param maximumPrice Higher end of prices (inclusive)
+     * @param fromDate Earlier end of closing dates (inclusive)
+     * @param toDate Later end of closing dates (inclusive)
+     * @return the ids of the matching listings in ascending order, or empty if no range was given, the index hasn't
+     * been built yet or more than listing-range-index.max-candidates listings match
+     */
+    public Optional<List<Integer>> findListingIds(Double minimumPrice, Double maximumPrice,
+                                                  LocalDateTime fromDate, LocalDateTime toDate) {
+        if (minimumPrice == null && maximumPrice == null && fromDate == null && toDate == null) {
+            return Optional.empty();
+        }
+        double lowestPrice = minimumPrice == null ? Double.NEGATIVE_INFINITY : minimumPrice;
+        double highestPrice = maximumPrice == null ? Double.POSITIVE_INFINITY : maximumPrice;
+        // Listings which have closed never match, even when the index hasn't been rebuilt since they closed.
+        double earliestClose = toKey(LocalDateTime.now());
+        if (fromDate != null) {
+            earliestClose = Math.max(earliestClose, toKey(fromDate));
+        }
+        double latestClose = toDate == null ? Double.POSITIVE_INFINITY : toKey(toDate);
+
+        BitSet matches = new BitSet();
+        lock.readLock().lock();
+        try {
+            if (!built) {
+                return Optional.empty();
+            }
+            int priceStart = byPrice.lowerBound(lowestPrice);
+            int priceEnd = byPrice.upperBound(highestPrice);
+            int closesStart = byCloses.lowerBound(earliestClose);
+            int closesEnd = byCloses.upperBound(latestClose);
+
+            boolean scanPrices = priceEnd - priceStart <= closesEnd - closesStart;
+            SortedColumn column = scanPrices ? byPrice : byCloses;
+            int start = scanPrices ? priceStart : closesStart;
+            int end = scanPrices ? priceEnd : closesEnd;
+            int count = 0;
+            for (int i = start; i < end; i++) {
+                Range range = ranges.get(column.ids[i]);
+                if (scanPrices ? range.closes >= earliestClose && range.closes <= latestClose
+                        : range.price >= lowestPrice && range.price <= highestPrice) {
+                    if (++count > maxCandidates) {
+                        return Optional.empty();
+                    }
+                    matches.set(range.id);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Integer> listingIds = new ArrayList<>(matches.cardinality());
+        for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id + 1)) {
+            listingIds.add(id);
+        }
+        return Optional.of(listingIds);
+    }
+
+    /**
+     * Gets the sort key of a closing time, its milliseconds since the epoch (exactly representable as a double).
+     */
+    private static double toKey(LocalDateTime closes) {
+        return toEpochMillis(closes);
+    }
+
+    /**
+     * Converts a listing time to milliseconds since the epoch. Listing times are local date times with no zone, so
+     * they're all converted as UTC, and must only be compared with the current time converted the same way.
+     * @param time a listing time (e.g. when it closes) or LocalDateTime.now()
+     * @return the time in milliseconds since the epoch
+     */
+    static long toEpochMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * Clears every posting of a listing. Must be called while holding the write lock.
+     * @param listingId id of the listing
+     */
+    private void removePostings(int listingId) {
+        Range range = ranges.remove(listingId);
+        if (range != null) {
+            byPrice.remove(range.price, listingId);
+            byCloses.remove(range.closes, listingId);
+        }
+    }
+
+    /**
+     * The price and closing time of a listing.
+     */
+    private static class Range {
+
+        private final int id;
+
+        private final double price;
+
+        private final double closes;
+
+        Range(int id, double price, double closes) {
+            this.id = id;
+            this.price = price;
+            this.closes = closes;
+        }
+    }
+
+    /**
+     * Listing ids sorted by a key, as parallel arrays of keys and ids. Inserting and removing shift the arrays, which
+     * is cheap compared to the searches since listings are created and removed far less often than they're searched.
+     */
+    private static class SortedColumn {
+
+        private double[] keys;
+
+        private int[] ids;
+
+        private int size;
+
+        SortedColumn(int capacity) {
+            keys = new double[Math.max(capacity, 16)];
+            ids = new int[keys.length];
+        }
+
+        /**
+         * Gets the index of the first key which is at least the given key.
+         */
+        int lowerBound(double key) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (keys[middle] < key) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Gets the index of the first key which is greater than the given key.
+         */
+        int upperBound(double key) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (keys[middle] <= key) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Adds an id with a key which is at least every key already in the column.
+         */
+        void append(double key, int id) {
+            insertAt(size, key, id);
+        }
+
+        void insert(double key, int id) {
+            insertAt(upperBound(key), key, id);
+        }
+
+        void remove(double key, int id) {
+            for (int i = lowerBound(key); i < size && keys[i] == key; i++) {
+                if (ids[i] == id) {
+                    System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+                    System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+                    size--;
+                    return;
+                }
+            }
+        }
+
+        private void insertAt(int index, double key, int id) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(keys, index, keys, index + 1, size - index);
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            keys[index] = key;
+            ids[index] = id;
+            size++;
+        }
+    }
+}
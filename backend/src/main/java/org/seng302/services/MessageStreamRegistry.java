@@ -0,0 +1,236 @@
+package org.seng302.services;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.seng302.view.outgoing.MessagePayload;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory registry of the open conversation message streams (server-sent events) of each user.
+ * Publishing a message never writes to a connection itself: the message is put in the bounded buffer of each of the
+ * recipient's streams and a sender thread writes it out. If a stream's buffer is full the client is not keeping up,
+ * so the stream is closed (the client can reconnect and fetch what it missed) instead of making publishers wait.
+ * A user can only have a few streams open; opening another closes their oldest one.
+ * Streams are only held by the node the client connected to, and a message is only published to the streams on the
+ * node it was sent through. When running more than one node, a recipient whose stream is on another node gets the
+ * message the next time their client fetches the messages it missed, so the stream speeds up delivery but clients
+ * can't rely on it alone.
+ */
+@Service
+public class MessageStreamRegistry {
+
+    private static final Logger logger = LogManager.getLogger(MessageStreamRegistry.class.getName());
+
+    // Name of the event messages are sent as.
+    public static final String MESSAGE_EVENT = "message";
+
+    // Number of threads writing buffered messages to streams.
+    private static final int SENDER_THREADS = 2;
+
+    private final long timeout;
+
+    private final int bufferSize;
+
+    private final int maxStreamsPerUser;
+
+    private final Executor sender;
+
+    // Order streams were opened in, to find a user's oldest stream.
+    private final AtomicLong nextSubscription = new AtomicLong();
+
+    // user id -> open streams of that user (one per connected tab/device)
+    private final Map<Integer, Set<Subscription>> subscriptionsByUser = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for MessageStreamRegistry.
+     * @param timeout Time in milliseconds a stream stays open before the client has to reconnect.
+     * @param bufferSize Most messages buffered for a stream before it is closed.
+     * @param maxStreamsPerUser Most streams a user can have open at once.
+     */
+    @Autowired
+    public MessageStreamRegistry(@Value("${message-stream.timeout.in.milliseconds:1800000}") long timeout,
+                                 @Value("${message-stream.buffer-size:64}") int bufferSize,
+                                 @Value("${message-stream.max-per-user:5}") int maxStreamsPerUser) {
+        this(timeout, bufferSize, maxStreamsPerUser, Executors.newFixedThreadPool(SENDER_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "message-stream-sender");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    /**
+     * Constructor for MessageStreamRegistry with the executor which writes messages to streams.
+     * @param timeout Time in milliseconds a stream stays open before the client has to reconnect.
+     * @param bufferSize Most messages buffered for a stream before it is closed.
+     * @param maxStreamsPerUser Most streams a user can have open at once.
+     * @param sender Runs the tasks which write buffered messages to streams.
+     */
+    public MessageStreamRegistry(long timeout, int bufferSize, int maxStreamsPerUser, Executor sender) {
+        this.timeout = timeout;
+        this.bufferSize = bufferSize;
+        this.maxStreamsPerUser = maxStreamsPerUser;
+        this.sender = sender;
+    }
+
+    /**
+     * Opens a message stream for a user, closing their oldest streams if they already have the most they can have.
+     * @param userId ID of the user.
+     * @return The stream, to be returned from the controller.
+     */
+    public SseEmitter subscribe(int userId) {
+        SseEmitter emitter = new SseEmitter(timeout);
+        Subscription subscription = new Subscription(userId, emitter, bufferSize, nextSubscription.getAndIncrement());
+        List<Subscription> closed = new ArrayList<>();
+        subscriptionsByUser.compute(userId, (id, subscriptions) -> {
+            Set<Subscription> userSubscriptions = subscriptions == null ? ConcurrentHashMap.newKeySet() : subscriptions;
+            while (!userSubscriptions.isEmpty() && userSubscriptions.size() >= maxStreamsPerUser) {
+                Subscription oldest = Collections.min(userSubscriptions, Comparator.comparingLong(open -> open.sequence));
+                userSubscriptions.remove(oldest);
+                closed.add(oldest);
+            }
+            userSubscriptions.add(subscription);
+            return userSubscriptions;
+        });
+        for (Subscription oldest : closed) {
+            logger.debug("Too many message streams open for user (ID: {}), closing the oldest", userId);
+            oldest.emitter.complete();
+        }
+
+        emitter.onCompletion(() -> remove(subscription));
+        emitter.onTimeout(() -> remove(subscription));
+        emitter.onError(error -> remove(subscription));
+        logger.debug("Message stream opened for user (ID: {})", userId);
+        return emitter;
+    }
+
+    /**
+     * Sends a message to every open stream of a user, without waiting for it to be written.
+     * Streams which have too many messages waiting are closed.
+     * @param userId ID of the recipient.
+     * @param message The message.
+     */
+    public void publish(int userId, MessagePayload message) {
+        Set<Subscription> subscriptions = subscriptionsByUser.get(userId);
+        if (subscriptions == null) {
+            return;
+        }
+        for (Subscription subscription : subscriptions) {
+            if (subscription.buffer.offer(message)) {
+                scheduleDrain(subscription);
+            } else {
+                logger.warn("Message stream of user (ID: {}) is not keeping up, disconnecting it", userId);
+                remove(subscription);
+                subscription.emitter.complete();
+            }
+        }
+    }
+
+    /**
+     * Counts the open streams of a user.
+     * @param userId ID of the user.
+     * @return The number of open streams.
+     */
+    public int countSubscriptions(int userId) {
+        Set<Subscription> subscriptions = subscriptionsByUser.get(userId);
+        return subscriptions == null ? 0 : subscriptions.size();
+    }
+
+    /**
+     * Closes every open stream when the application shuts down.
+     */
+    @PreDestroy
+    public void closeAll() {
+        for (Set<Subscription> subscriptions : subscriptionsByUser.values()) {
+            for (Subscription subscription : subscriptions) {
+                subscription.emitter.complete();
+            }
+        }
+        subscriptionsByUser.clear();
+        if (sender instanceof ExecutorService) {
+            ((ExecutorService) sender).shutdownNow();
+        }
+    }
+
+    /**
+     * Makes sure a sender thread is (or will be) writing out a stream's buffer. Only one thread drains a stream at a
+     * time so its messages are written in order.
+     * @param subscription The stream.
+     */
+    private void scheduleDrain(Subscription subscription) {
+        if (subscription.draining.compareAndSet(false, true)) {
+            try {
+                sender.execute(() -> drain(subscription));
+            } catch (RejectedExecutionException e) {
+                subscription.draining.set(false);
+                logger.error("Message stream sender rejected a task - {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes every buffered message of a stream, closing it if the client has gone away.
+     * @param subscription The stream.
+     */
+    private void drain(Subscription subscription) {
+        try {
+            MessagePayload message;
+            while ((message = subscription.buffer.poll()) != null) {
+                subscription.emitter.send(SseEmitter.event()
+                        .id(String.valueOf(message.getId()))
+                        .name(MESSAGE_EVENT)
+                        .data(message, MediaType.APPLICATION_JSON));
+            }
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Message stream of user (ID: {}) closed - {}", subscription.userId, e.getMessage());
+            remove(subscription);
+            subscription.emitter.completeWithError(e);
+            return;
+        } finally {
+            subscription.draining.set(false);
+        }
+        // A message may have been buffered after the last poll but before draining was cleared.
+        if (!subscription.buffer.isEmpty()) {
+            scheduleDrain(subscription);
+        }
+    }
+
+    /**
+     * Removes a stream from the registry.
+     * @param subscription The stream.
+     */
+    private void remove(Subscription subscription) {
+        subscriptionsByUser.computeIfPresent(subscription.userId, (id, subscriptions) -> {
+            subscriptions.remove(subscription);
+            return subscriptions.isEmpty() ? null : subscriptions;
+        });
+    }
+
+    /**
+     * An open stream and the messages waiting to be written to it.
+     */
+    private static class Subscription {
+        private final int userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<MessagePayload> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+        private final long sequence;
+
+        private Subscription(int userId, SseEmitter emitter, int bufferSize, long sequence) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.seng302.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Base of the in-memory indexes which the endpoints keep up to date as they change the database, and which are also
+ * rebuilt from the database periodically so that changes made by other nodes (or directly in the database) are
+ * picked up.
+ * A rebuild reads the database without holding the lock, so searches carry on while it runs. A change made while
+ * the rebuild is reading may be missing from what it read, so each change is recorded until the rebuild finishes and
+ * replayed onto the rebuilt index after it is swapped in. Changes must therefore be safe to apply twice, e.g.
+ * replacing or removing whatever is indexed for an id.
+ */
+public abstract class PeriodicallyRebuiltIndex {
+
+    // Guards the index. Subclasses take the read lock to search it; changes go through change.
+    protected final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Object rebuildMonitor = new Object();
+
+    // Changes made since the running rebuild started, null when no rebuild is running. Guarded by the write lock.
+    private List<Runnable> changesDuringRebuild;
+
+    /**
+     * Rebuilds the index, one rebuild at a time.
+     * @param read Reads the database and builds the new index without touching the current one, returning what
+     *             swaps the new index in (run while holding the write lock).
+     */
+    protected void rebuildFrom(Supplier<Runnable> read) {
+        synchronized (rebuildMonitor) {
+            lock.writeLock().lock();
+            try {
+                changesDuringRebuild = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Runnable swap = null;
+            try {
+                swap = read.get();
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    if (swap != null) {
+                        swap.run();
+                        changesDuringRebuild.forEach(Runnable::run);
+                    }
+                    changesDuringRebuild = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies a change to the index, and records it to be replayed if a rebuild is running.
+     * @param change Change to the index's current maps, which must read the maps when it runs (not capture them).
+     */
+    protected void change(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            change.run();
+            replayAfterRebuild(change);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Records a change which has already been applied, to be replayed if a rebuild is running. Must be called while
+     * holding the write lock.
+     * @param change Change to the index's current maps.
+     */
+    protected void replayAfterRebuild(Runnable change) {
+        if (changesDuringRebuild != null) {
+            changesDuringRebuild.add(change);
+        }
+    }
+}
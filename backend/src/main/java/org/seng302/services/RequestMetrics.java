@@ -0,0 +1,263 @@
+package org.seng302.services;
+
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * In-memory registry of request metrics, exposed in the Prometheus text format by MetricsResource.
+ * For each route (request method and the handler's path pattern, so /listings/1 and /listings/2 are one route) it
+ * keeps a latency histogram, from which p50/p95/p99 are estimated, and the number of SQL statements, rows fetched and
+ * response bytes. Statements and rows are counted by QueryMetricsInterceptor against the request running on the
+ * current thread, which RequestMetricsFilter starts and finishes, so a route with many statements per request is an
+ * N+1 query.
+ * Everything is counted since the application started, recording is lock-free so it doesn't slow requests down.
+ */
+@Service
+public class RequestMetrics {
+
+    // Upper bounds, in seconds, of the latency histogram buckets. The last bucket (+Inf) is implied.
+    private static final double[] LATENCY_BUCKETS = {0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    // Quantiles estimated from the latency histograms.
+    private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+
+    // Route of requests which didn't match a handler, so unknown paths can't create a route each.
+    public static final String UNMATCHED_ROUTE = "UNMATCHED";
+
+    // method + " " + route -> metrics of that route
+    private final Map<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+
+    // Request running on each thread, null outside of requests (e.g. scheduled jobs).
+    private final ThreadLocal<Sample> currentSample = new ThreadLocal<>();
+
+    private final LongAdder statements = new LongAdder();
+
+    private final LongAdder rowsFetched = new LongAdder();
+
+    /**
+     * Starts counting the statements and rows of a request on the current thread.
+     * @return The sample to pass to finish once the request has been handled.
+     */
+    public Sample start() {
+        Sample sample = new Sample(System.nanoTime());
+        currentSample.set(sample);
+        return sample;
+    }
+
+    /**
+     * Records a request which has been handled on the current thread.
+     * @param sample The sample returned by start.
+     * @param method Request method.
+     * @param route Path pattern of the handler, or UNMATCHED_ROUTE.
+     * @param bytes Number of bytes written to the response body.
+     */
+    public void finish(Sample sample, String method, String route, long bytes) {
+        currentSample.remove();
+        double seconds = (System.nanoTime() - sample.started) / 1e9;
+        RouteMetrics metrics = routes.computeIfAbsent(method + " " + route, key -> new RouteMetrics(method, route));
+        metrics.record(seconds, sample.statements, sample.rowsFetched, bytes);
+    }
+
+    /**
+     * Counts a SQL statement, against the current request if there is one.
+     */
+    public void recordStatement() {
+        statements.increment();
+        Sample sample = currentSample.get();
+        if (sample != null) {
+            sample.statements++;
+        }
+    }
+
+    /**
+     * Counts a row fetched from the database, against the current request if there is one.
+     */
+    public void recordRowFetched() {
+        rowsFetched.increment();
+        Sample sample = currentSample.get();
+        if (sample != null) {
+            sample.rowsFetched++;
+        }
+    }
+
+    /**
+     * Writes every metric in the Prometheus text exposition format (version 0.0.4).
+     * @return The metrics.
+     */
+    public String scrape() {
+        Map<String, RouteMetrics> sortedRoutes = new TreeMap<>(routes);
+        StringBuilder out = new StringBuilder();
+
+        out.append("# HELP http_server_requests_seconds Time taken to handle requests.\n");
+        out.append("# TYPE http_server_requests_seconds histogram\n");
+        for (RouteMetrics metrics : sortedRoutes.values()) {
+            long cumulative = 0;
+            for (int i = 0; i <= LATENCY_BUCKETS.length; i++) {
+                cumulative += metrics.buckets[i].sum();
+                String bound = i < LATENCY_BUCKETS.length ? formatDouble(LATENCY_BUCKETS[i]) : "+Inf";
+                out.append("http_server_requests_seconds_bucket{").append(metrics.labels)
+                        .append(",le=\"").append(bound).append("\"} ").append(cumulative).append('\n');
+            }
+            out.append("http_server_requests_seconds_sum{").append(metrics.labels).append("} ")
+                    .append(formatDouble(metrics.seconds.sum())).append('\n');
+            out.append("http_server_requests_seconds_count{").append(metrics.labels).append("} ")
+                    .append(cumulative).append('\n');
+        }
+
+        out.append("# HELP http_server_requests_seconds_quantile Request latency quantiles estimated from the histogram.\n");
+        out.append("# TYPE http_server_requests_seconds_quantile gauge\n");
+        for (RouteMetrics metrics : sortedRoutes.values()) {
+            long[] counts = metrics.bucketCounts();
+            for (double quantile : QUANTILES) {
+                out.append("http_server_requests_seconds_quantile{").append(metrics.labels)
+                        .append(",quantile=\"").append(formatDouble(quantile)).append("\"} ")
+                        .append(formatDouble(estimateQuantile(counts, quantile))).append('\n');
+            }
+        }
+
+        appendRouteCounter(out, sortedRoutes, "http_server_sql_statements_total",
+                "SQL statements executed while handling requests.", metrics -> metrics.statements.sum());
+        appendRouteCounter(out, sortedRoutes, "http_server_rows_fetched_total",
+                "Rows fetched from the database while handling requests.", metrics -> metrics.rowsFetched.sum());
+        appendRouteCounter(out, sortedRoutes, "http_server_response_bytes_total",
+                "Bytes written to response bodies.", metrics -> metrics.bytes.sum());
+        appendRouteCounter(out, sortedRoutes, "http_server_sql_statements_max",
+                "Most SQL statements executed by a single request.", metrics -> metrics.maxStatements.get());
+
+        out.append("# HELP db_sql_statements_total SQL statements executed, including outside of requests.\n");
+        out.append("# TYPE db_sql_statements_total counter\n");
+        out.append("db_sql_statements_total ").append(statements.sum()).append('\n');
+        out.append("# HELP db_rows_fetched_total Rows fetched from the database, including outside of requests.\n");
+        out.append("# TYPE db_rows_fetched_total counter\n");
+        out.append("db_rows_fetched_total ").append(rowsFetched.sum()).append('\n');
+        return out.toString();
+    }
+
+    /**
+     * Estimates a quantile from histogram bucket counts, interpolating linearly within the bucket it falls in.
+     * Values in the +Inf bucket are reported as the largest bound.
+     * @param counts Number of requests in each bucket (not cumulative), the last being +Inf.
+     * @param quantile Quantile between 0 and 1.
+     * @return The estimated latency in seconds, 0 if there are no requests.
+     */
+    public static double estimateQuantile(long[] counts, double quantile) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        double rank = quantile * total;
+        long cumulative = 0;
+        for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+            if (counts[i] > 0 && cumulative + counts[i] >= rank) {
+                double lower = i == 0 ? 0 : LATENCY_BUCKETS[i - 1];
+                return lower + (LATENCY_BUCKETS[i] - lower) * (rank - cumulative) / counts[i];
+            }
+            cumulative += counts[i];
+        }
+        return LATENCY_BUCKETS[LATENCY_BUCKETS.length - 1];
+    }
+
+    private static void appendRouteCounter(StringBuilder out, Map<String, RouteMetrics> routes, String name,
+                                           String help, ToLongFunction<RouteMetrics> value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(name.endsWith("_total") ? " counter" : " gauge").append('\n');
+        for (RouteMetrics metrics : routes.values()) {
+            out.append(name).append('{').append(metrics.labels).append("} ")
+                    .append(value.applyAsLong(metrics)).append('\n');
+        }
+    }
+
+    private static String formatDouble(double value) {
+        return String.format(Locale.ROOT, "%s", value);
+    }
+
+    /**
+     * Escapes a label value as the text format requires.
+     */
+    private static String escapeLabel(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * Statements and rows of a request, only used by the thread handling it.
+     */
+    public static class Sample {
+
+        private final long started;
+
+        private int statements;
+
+        private int rowsFetched;
+
+        private Sample(long started) {
+            this.started = started;
+        }
+
+        public int getStatements() {
+            return statements;
+        }
+
+        public int getRowsFetched() {
+            return rowsFetched;
+        }
+    }
+
+    /**
+     * Metrics of one route.
+     */
+    private static class RouteMetrics {
+
+        private final String labels;
+
+        private final LongAdder[] buckets = new LongAdder[LATENCY_BUCKETS.length + 1];
+
+        private final DoubleAdder seconds = new DoubleAdder();
+
+        private final LongAdder statements = new LongAdder();
+
+        private final LongAdder rowsFetched = new LongAdder();
+
+        private final LongAdder bytes = new LongAdder();
+
+        private final AtomicLong maxStatements = new AtomicLong();
+
+        private RouteMetrics(String method, String route) {
+            this.labels = String.format("method=\"%s\",route=\"%s\"", escapeLabel(method), escapeLabel(route));
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        private void record(double seconds, int statements, int rowsFetched, long bytes) {
+            int bucket = 0;
+            while (bucket < LATENCY_BUCKETS.length && seconds > LATENCY_BUCKETS[bucket]) {
+                bucket++;
+            }
+            buckets[bucket].increment();
+            this.seconds.add(seconds);
+            this.statements.add(statements);
+            this.rowsFetched.add(rowsFetched);
+            this.bytes.add(bytes);
+            maxStatements.accumulateAndGet(statements, Math::max);
+        }
+
+        private long[] bucketCounts() {
+            long[] counts = new long[buckets.length];
+            for (int i = 0; i < buckets.length; i++) {
+                counts[i] = buckets[i].sum();
+            }
+            return counts;
+        }
+    }
+}
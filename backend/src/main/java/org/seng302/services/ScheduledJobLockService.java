@@ -0,0 +1,135 @@
+package org.seng302.services;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.seng302.model.ScheduledJobLease;
+import org.seng302.model.repository.ScheduledJobLeaseRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Provides a database backed lease so that when several backend nodes are running, only one of them runs each
+ * scheduled job per tick.
+ * A node holds the lease for a job for at least lockAtLeastFor (so nodes with slightly offset schedules do not run
+ * the job again straight after) and at most lockAtMostFor (so another node takes over if the holder dies mid run).
+ */
+@Service
+public class ScheduledJobLockService {
+
+    /**
+     * A scheduled job which may throw any exception (the exception is rethrown to the scheduler).
+     */
+    @FunctionalInterface
+    public interface LeasedJob {
+        void run() throws Exception;
+    }
+
+    private static final Logger logger = LogManager.getLogger(ScheduledJobLockService.class.getName());
+
+    // The time used for leases that have never been held.
+    private static final LocalDateTime NEVER_HELD = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final ScheduledJobLeaseRepository scheduledJobLeaseRepository;
+
+    private final String nodeId;
+
+    /**
+     * Constructor for ScheduledJobLockService.
+     * @param scheduledJobLeaseRepository Stores the leases.
+     * @param nodeId Id of this node, when empty an id is generated from the host name.
+     */
+    @Autowired
+    public ScheduledJobLockService(ScheduledJobLeaseRepository scheduledJobLeaseRepository,
+                                   @Value("${scheduled-job.node-id:}") String nodeId) {
+        this.scheduledJobLeaseRepository = scheduledJobLeaseRepository;
+        this.nodeId = (nodeId == null || nodeId.isEmpty()) ? generateNodeId() : nodeId;
+        logger.info("Scheduled jobs will be leased with node ID {}", this.nodeId);
+    }
+
+    /**
+     * Gets the id this node takes leases with.
+     * @return nodeId
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Runs the given job only if this node can take the lease for it.
+     * The timing of the run is recorded against the lease once the job finishes (even if it throws).
+     *
+     * @param jobName unique name of the job
+     * @param lockAtMostFor how long the lease is held for if this node never finishes the job
+     * @param lockAtLeastFor how long the lease is held for after the job starts, even if it finishes sooner
+     * @param job the job to run
+     * @return true if the job was run by this node, false if another node holds the lease
+     * @throws Exception any exception thrown by the job
+     */
+    public boolean runExclusively(String jobName, Duration lockAtMostFor, Duration lockAtLeastFor, LeasedJob job)
+            throws Exception {
+        LocalDateTime started = LocalDateTime.now();
+        if (!tryAcquire(jobName, started, started.plus(lockAtMostFor))) {
+            logger.debug("Scheduled job {} skipped, lease is held by another node", jobName);
+            return false;
+        }
+
+        long startNanos = System.nanoTime();
+        try {
+            job.run();
+        } finally {
+            long durationMillis = Duration.ofNanos(System.nanoTime() - startNanos).toMillis();
+            LocalDateTime finished = LocalDateTime.now();
+            LocalDateTime minimumLeaseEnd = started.plus(lockAtLeastFor);
+            LocalDateTime leaseUntil = finished.isAfter(minimumLeaseEnd) ? finished : minimumLeaseEnd;
+
+            if (scheduledJobLeaseRepository.release(jobName, nodeId, finished, durationMillis, leaseUntil) == 0) {
+                logger.warn("Scheduled job {} took {}ms and its lease expired before it finished", jobName, durationMillis);
+            } else {
+                logger.info("Scheduled job {} finished in {}ms", jobName, durationMillis);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Attempts to take the lease for a job, creating the lease row the first time a job is seen.
+     *
+     * @param jobName unique name of the job
+     * @param now current time
+     * @param leaseUntil time the lease will expire
+     * @return true if this node now holds the lease
+     */
+    private boolean tryAcquire(String jobName, LocalDateTime now, LocalDateTime leaseUntil) {
+        if (!scheduledJobLeaseRepository.existsById(jobName)) {
+            try {
+                scheduledJobLeaseRepository.saveAndFlush(new ScheduledJobLease(jobName, NEVER_HELD));
+            } catch (DataIntegrityViolationException e) {
+                // Another node created the row first, which is fine as the update below decides who gets the lease.
+                logger.debug("Lease for scheduled job {} was created by another node", jobName);
+            }
+        }
+        return scheduledJobLeaseRepository.acquire(jobName, nodeId, now, leaseUntil) == 1;
+    }
+
+    /**
+     * Generates a node id from the host name and a random suffix (several nodes may share a host).
+     * @return a node id
+     */
+    private static String generateNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,314 @@
+package org.seng302.services;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.seng302.model.Address;
+import org.seng302.model.User;
+import org.seng302.model.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * In-memory n-gram index over user names, used for searching for users by name.
+ * A user can be found by their nickname, first and middle name, first and last name, middle and last name or full
+ * name (the same combinations the search has always matched). Every substring of up to three characters of each of
+ * these (lower cased) is indexed, so a search for up to three characters is a single posting list lookup, and a longer
+ * search intersects the posting lists of its trigrams and then checks the few remaining candidates.
+ * The values users can be ordered by are also kept, so a search's results are ordered and paged here and only the
+ * requested page of users is loaded.
+ * Registering a user and modifying a profile update the index.
+ */
+@Service
+public class UserNameSearchIndex extends PeriodicallyRebuiltIndex {
+
+    private static final Logger logger = LogManager.getLogger(UserNameSearchIndex.class.getName());
+
+    // Longest substring of a name which is indexed.
+    private static final int GRAM_LENGTH = 3;
+
+    // Properties of a user which search results can be ordered by.
+    private static final List<String> SORT_PROPERTIES = List.of("firstName", "middleName", "lastName", "nickname",
+            "email", "homeAddress.city", "homeAddress.region", "homeAddress.country");
+
+    private final UserRepository userRepository;
+
+    // user id -> lower cased names the user can be found by
+    private Map<Integer, List<String>> namesByUser = new HashMap<>();
+
+    // user id -> values of SORT_PROPERTIES
+    private Map<Integer, String[]> sortValuesByUser = new HashMap<>();
+
+    // substring of a lower cased name -> user ids
+    private Map<String, BitSet> usersByGram = new HashMap<>();
+
+    /**
+     * Constructor for UserNameSearchIndex.
+     * @param userRepository Stores users, used to (re)build the index.
+     */
+    @Autowired
+    public UserNameSearchIndex(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Rebuilds the whole index from the user table. This runs when the application starts and then
+     * periodically, the period can be altered by changing user-name-search-index.rebuild.in.milliseconds.
+     */
+    @Scheduled(fixedDelayString = "${user-name-search-index.rebuild.in.milliseconds:600000}")
+    public void rebuild() {
+        rebuildFrom(this::read);
+    }
+
+    /**
+     * Reads the names and sort values of every user into new maps.
+     * @return Swaps the new maps in.
+     */
+    private Runnable read() {
+        Map<Integer, List<String>> newNamesByUser = new HashMap<>();
+        Map<Integer, String[]> newSortValuesByUser = new HashMap<>();
+        Map<String, BitSet> newUsersByGram = new HashMap<>();
+
+        List<UserRepository.UserNames> users = userRepository.findAllUserNames();
+        if (users == null) {
+            users = List.of();
+        }
+        for (UserRepository.UserNames user : users) {
+            addPostings(user.getId(), searchableNames(user.getNickname(), user.getFirstName(), user.getMiddleName(),
+                    user.getLastName()), newNamesByUser, newUsersByGram);
+            newSortValuesByUser.put(user.getId(), new String[] {user.getFirstName(), user.getMiddleName(),
+                    user.getLastName(), user.getNickname(), user.getEmail(), user.getCity(), user.getRegion(),
+                    user.getCountry()});
+        }
+
+        logger.info("User name search index rebuilt with {} users and {} n-grams", newNamesByUser.size(), newUsersByGram.size());
+        return () -> {
+            namesByUser = newNamesByUser;
+            sortValuesByUser = newSortValuesByUser;
+            usersByGram = newUsersByGram;
+        };
+    }
+
+    /**
+     * Adds a user to the index, replacing whatever was indexed for them before (used on registration and when a
+     * profile is modified).
+     * @param user a saved user
+     */
+    public void indexUser(User user) {
+        List<String> names = searchableNames(user.getNickname(), user.getFirstName(), user.getMiddleName(), user.getLastName());
+        Address address = user.getHomeAddress();
+        String[] sortValues = {user.getFirstName(), user.getMiddleName(), user.getLastName(), user.getNickname(),
+                user.getEmail(), address == null ? null : address.getCity(), address == null ? null : address.getRegion(),
+                address == null ? null : address.getCountry()};
+        int userId = user.getId();
+        change(() -> {
+            removePostings(userId);
+            addPostings(userId, names, namesByUser, usersByGram);
+            sortValuesByUser.put(userId, sortValues);
+        });
+    }
+
+    /**
+     * Finds the users matching any of the given names (as parsed by SearchUtils.convertSearchQueryToNames).
+     * A name in quotes must be exactly one of a user's names, otherwise it only has to be contained in one of them.
+     * Matching ignores case.
+     *
+     * @param names the names to search for, an empty name matches every user
+     * @return the ids of the matching users in ascending order
+     */
+    public List<Integer> search(List<String> names) {
+        BitSet matches;
+
+        lock.readLock().lock();
+        try {
+            matches = findMatches(names);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Integer> userIds = new ArrayList<>(matches.cardinality());
+        for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id + 1)) {
+            userIds.add(id);
+        }
+        return userIds;
+    }
+
+    /**
+     * Finds a page of the users matching any of the given names, in the requested order.
+     *
+     * @param names the names to search for, as for search(names)
+     * @param paging the requested page, ordered by any of the user's names, email or home address city, region and
+     *               country, ignoring case or not
+     * @return the ids of the users on the page, with the total number of matching users
+     */
+    public Page<Integer> search(List<String> names, Pageable paging) {
+        lock.readLock().lock();
+        try {
+            return IndexPaging.page(findMatches(names), sortValuesByUser, SORT_PROPERTIES, paging);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the users matching any of the given names. Must be called while holding the read lock.
+     * @param names the names to search for
+     * @return ids of the matching users
+     */
+    private BitSet findMatches(List<String> names) {
+        BitSet matches = new BitSet();
+        for (String name : names) {
+            boolean exact = name.startsWith("\"") && name.endsWith("\"");
+            String query = (exact ? name.replaceAll("^\"+|\"+$", "") : name).toLowerCase(Locale.ROOT);
+            if (query.isEmpty()) {
+                if (!exact) {
+                    namesByUser.keySet().forEach(matches::set);
+                }
+                continue;
+            }
+            BitSet candidates = findCandidates(query);
+            for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+                if (!matches.get(id) && matchesUser(namesByUser.get(id), query, exact)) {
+                    matches.set(id);
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Checks a user's names against a query. Short queries which are not exact need no check, as every user in their
+     * posting list contains them.
+     * @param names the lower cased names of the user
+     * @param query a non-empty lower cased query
+     * @param exact true if the query must equal one of the names, false if it must be contained in one
+     * @return true if the user matches
+     */
+    private static boolean matchesUser(List<String> names, String query, boolean exact) {
+        if (names == null) {
+            return false;
+        }
+        if (!exact && query.length() <= GRAM_LENGTH) {
+            return true;
+        }
+        for (String name : names) {
+            if (exact ? name.equals(query) : name.contains(query)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the ids of the users whose names contain every n-gram of the query. Must be called while holding the
+     * read lock.
+     * @param query a non-empty lower cased query
+     * @return ids of the candidate users
+     */
+    private BitSet findCandidates(String query) {
+        if (query.length() <= GRAM_LENGTH) {
+            return usersByGram.getOrDefault(query, new BitSet());
+        }
+        BitSet candidates = null;
+        for (int start = 0; start + GRAM_LENGTH <= query.length(); start++) {
+            BitSet userIds = usersByGram.get(query.substring(start, start + GRAM_LENGTH));
+            if (userIds == null) {
+                return new BitSet();
+            }
+            if (candidates == null) {
+                candidates = (BitSet) userIds.clone();
+            } else {
+                candidates.and(userIds);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Adds a user's names and the postings for every n-gram of them to the given maps.
+     * @param userId id of the user
+     * @param names the lower cased names of the user
+     * @param namesByUser map of user ids to names
+     * @param usersByGram map of n-grams to user ids
+     */
+    private static void addPostings(int userId, List<String> names, Map<Integer, List<String>> namesByUser,
+                                    Map<String, BitSet> usersByGram) {
+        namesByUser.put(userId, names);
+        for (String gram : grams(names)) {
+            usersByGram.computeIfAbsent(gram, key -> new BitSet()).set(userId);
+        }
+    }
+
+    /**
+     * Clears every posting of a user. Must be called while holding the write lock.
+     * @param userId id of the user
+     */
+    private void removePostings(int userId) {
+        sortValuesByUser.remove(userId);
+        List<String> names = namesByUser.remove(userId);
+        if (names != null) {
+            for (String gram : grams(names)) {
+                BitSet userIds = usersByGram.get(gram);
+                if (userIds != null) {
+                    userIds.clear(userId);
+                    if (userIds.isEmpty()) {
+                        usersByGram.remove(gram);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the lower cased names a user can be found by. Combinations including a missing name are left out, as the
+     * database concatenation the search used to do gives null for them.
+     * @param nickname nickname (optional)
+     * @param firstName first name
+     * @param middleName middle name (optional)
+     * @param lastName last name
+     * @return the names of the user
+     */
+    private static List<String> searchableNames(String nickname, String firstName, String middleName, String lastName) {
+        List<String> names = new ArrayList<>();
+        if (nickname != null) {
+            names.add(nickname);
+        }
+        if (firstName != null && lastName != null) {
+            names.add(firstName + " " + lastName);
+        }
+        if (middleName != null) {
+            if (firstName != null) {
+                names.add(firstName + " " + middleName);
+            }
+            if (lastName != null) {
+                names.add(middleName + " " + lastName);
+            }
+            if (firstName != null && lastName != null) {
+                names.add(firstName + " " + middleName + " " + lastName);
+            }
+        }
+        names.replaceAll(name -> name.toLowerCase(Locale.ROOT));
+        return names;
+    }
+
+    /**
+     * Gets every substring of up to GRAM_LENGTH characters of the given names.
+     * @param names lower cased names
+     * @return the n-grams of the names
+     */
+    private static Set<String> grams(List<String> names) {
+        Set<String> grams = new HashSet<>();
+        for (String name : names) {
+            for (int start = 0; start < name.length(); start++) {
+                for (int end = start + 1; end <= Math.min(name.length(), start + GRAM_LENGTH); end++) {
+                    grams.add(name.substring(start, end));
+                }
+            }
+        }
+        return grams;
+    }
+}
@@ -0,0 +1,125 @@
+package org.seng302.utils;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A compiled search query, as produced by SearchQueryCompiler.
+ * Holds the syntax tree of the query along with the names which the user, business, product and listing searches
+ * look for (a result matches the query if it matches any of the names). Compiled queries are immutable so the same
+ * instance can be shared between requests.
+ */
+public class SearchQuery {
+
+    private final Node root;
+
+    private final List<String> names;
+
+    /**
+     * Constructor for SearchQuery.
+     * @param root the root of the syntax tree, or null if the query has no terms
+     * @param names the names the query is searching for
+     */
+    SearchQuery(Node root, List<String> names) {
+        this.root = root;
+        this.names = List.copyOf(names);
+    }
+
+    /**
+     * Gets the root of the syntax tree.
+     * @return the root node, or null if the query has no terms
+     */
+    public Node getRoot() {
+        return root;
+    }
+
+    /**
+     * Gets the names the query is searching for. Terms joined by AND (or a space) are concatenated into a single name,
+     * and exact match phrases keep their quotation marks.
+     * @return an unmodifiable list of names
+     */
+    public List<String> getNames() {
+        return names;
+    }
+
+    @Override
+    public String toString() {
+        return root == null ? "" : root.toString();
+    }
+
+    /**
+     * A node of the syntax tree of a search query.
+     */
+    public interface Node {
+    }
+
+    /**
+     * A single word, or a phrase in quotation marks which must be matched exactly.
+     */
+    public static class Term implements Node {
+
+        private final String text;
+
+        private final boolean exact;
+
+        Term(String text, boolean exact) {
+            this.text = text;
+            this.exact = exact;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public boolean isExact() {
+            return exact;
+        }
+
+        @Override
+        public String toString() {
+            return exact ? "\"" + text + "\"" : text;
+        }
+    }
+
+    /**
+     * Terms or groups joined by AND (or a space).
+     */
+    public static class And implements Node {
+
+        private final List<Node> children;
+
+        And(List<Node> children) {
+            this.children = List.copyOf(children);
+        }
+
+        public List<Node> getChildren() {
+            return children;
+        }
+
+        @Override
+        public String toString() {
+            return children.stream().map(Node::toString).collect(Collectors.joining(", ", "AND(", ")"));
+        }
+    }
+
+    /**
+     * Terms or groups joined by OR.
+     */
+    public static class Or implements Node {
+
+        private final List<Node> children;
+
+        Or(List<Node> children) {
+            this.children = List.copyOf(children);
+        }
+
+        public List<Node> getChildren() {
+            return children;
+        }
+
+        @Override
+        public String toString() {
+            return children.stream().map(Node::toString).collect(Collectors.joining(", ", "OR(", ")"));
+        }
+    }
+}
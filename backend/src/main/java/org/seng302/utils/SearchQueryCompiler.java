@@ -0,0 +1,318 @@
+package org.seng302.utils;
+
+import org.seng302.exceptions.IllegalSearchQueryException;
+
+import java.util.*;
+
+/**
+ * Compiles the search queries of the user, business, product and listing searches into SearchQuery objects.
+ * A query is made up of words, exact match phrases in quotation marks, the AND and OR operators (AND binds tighter
+ * than OR, and a space between two terms is an implicit AND) and parentheses for grouping, e.g.
+ * (Big OR Small) AND "Red Apple". The parser is lenient: operators with nothing to join and unmatched parentheses
+ * are ignored, and a quotation mark which is never closed is treated as part of the word it starts. A query made up
+ * of only operators (e.g. OR) is searched for as the words it is made of.
+ * Recently compiled queries are kept in a bounded LRU cache, since most searches repeat a small number of queries
+ * (e.g. the empty query which every search page starts with).
+ */
+public class SearchQueryCompiler {
+
+    // Number of compiled queries which are cached.
+    private static final int CACHE_SIZE = 1024;
+
+    // Longer queries are compiled every time rather than being allowed to fill the cache.
+    private static final int MAX_CACHED_QUERY_LENGTH = 256;
+
+    // Limits how many names a query with nested groups can expand to, e.g. (a OR b) (c OR d) is a c, a d, b c and b d.
+    private static final int MAX_NAMES = 64;
+
+    // Limits how deeply groups can be nested, so the recursive parser can't run out of stack.
+    private static final int MAX_DEPTH = 32;
+
+    private static final Map<String, SearchQuery> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SearchQuery> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private SearchQueryCompiler() {
+        // not called
+    }
+
+    /**
+     * Gets the compiled form of a search query, compiling it only if it isn't already cached.
+     *
+     * @param searchQuery criteria to search for.
+     * @return the compiled query.
+     *
+     * Preconditions:  searchQuery is a non-null string.
+     * Postconditions: The compiled query, which may be shared with other callers and so is immutable.
+     * @throws IllegalSearchQueryException if the query expands to too many names or nests groups too deeply.
+     */
+    public static SearchQuery compile(String searchQuery) throws IllegalSearchQueryException {
+        if (searchQuery.length() > MAX_CACHED_QUERY_LENGTH) {
+            return parse(searchQuery);
+        }
+        SearchQuery compiled;
+        synchronized (cache) {
+            compiled = cache.get(searchQuery);
+        }
+        if (compiled == null) {
+            compiled = parse(searchQuery);
+            synchronized (cache) {
+                cache.put(searchQuery, compiled);
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * Compiles a search query without using the cache.
+     * An empty query compiles to a single empty name, which the searches treat as matching everything.
+     *
+     * @param searchQuery criteria to search for.
+     * @return the compiled query.
+     * @throws IllegalSearchQueryException if the query expands to too many names or nests groups too deeply.
+     */
+    public static SearchQuery parse(String searchQuery) throws IllegalSearchQueryException {
+        if (searchQuery.equals("")) {
+            return new SearchQuery(null, List.of(""));
+        }
+        List<Token> tokens = tokenize(searchQuery);
+        SearchQuery.Node root = new Parser(tokens).parseQuery();
+        if (root == null) {
+            // The query has no words, only operators (e.g. OR), so the operators are searched for as words.
+            tokens.replaceAll(token -> token.type == TokenType.AND || token.type == TokenType.OR
+                    ? new Token(TokenType.WORD, token.text) : token);
+            root = new Parser(tokens).parseQuery();
+        }
+        if (root == null) {
+            return new SearchQuery(null, List.of());
+        }
+        return new SearchQuery(root, new ArrayList<>(toNames(root)));
+    }
+
+    /**
+     * Splits a search query into tokens. Words are separated by spaces, a parenthesis at the start or end of a word
+     * is a separate token, and a quotation mark at the start of a word starts a phrase which runs up to the next
+     * quotation mark at the end of a word.
+     * @param searchQuery a search query
+     * @return the tokens of the query
+     */
+    private static List<Token> tokenize(String searchQuery) {
+        List<Token> tokens = new ArrayList<>();
+        int length = searchQuery.length();
+        int start = 0;
+        while (start < length) {
+            char character = searchQuery.charAt(start);
+            if (character == ' ') {
+                start++;
+            } else if (character == '(') {
+                tokens.add(new Token(TokenType.LEFT_PARENTHESIS, "("));
+                start++;
+            } else {
+                int end = character == '"' ? findClosingQuote(searchQuery, start + 1) : -1;
+                if (end >= 0) {
+                    tokens.add(new Token(TokenType.PHRASE, searchQuery.substring(start + 1, end)));
+                    start = end + 1;
+                } else {
+                    end = searchQuery.indexOf(' ', start);
+                    if (end < 0) {
+                        end = length;
+                    }
+                    addWord(tokens, searchQuery.substring(start, end));
+                    start = end;
+                }
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Finds the quotation mark which closes a phrase, that is the next one followed by a space, a closing
+     * parenthesis or the end of the query.
+     * @param searchQuery a search query
+     * @param from index of the first character of the phrase
+     * @return index of the closing quotation mark, or -1 if the phrase is never closed
+     */
+    private static int findClosingQuote(String searchQuery, int from) {
+        for (int index = searchQuery.indexOf('"', from); index >= 0; index = searchQuery.indexOf('"', index + 1)) {
+            if (index + 1 == searchQuery.length() || searchQuery.charAt(index + 1) == ' ' || searchQuery.charAt(index + 1) == ')') {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds the tokens of a word, splitting off any closing parentheses at the end of it.
+     * @param tokens the tokens so far
+     * @param word a non-empty word which doesn't start with an opening parenthesis
+     */
+    private static void addWord(List<Token> tokens, String word) {
+        int end = word.length();
+        while (end > 0 && word.charAt(end - 1) == ')') {
+            end--;
+        }
+        String text = word.substring(0, end);
+        if (text.equalsIgnoreCase("AND")) {
+            tokens.add(new Token(TokenType.AND, text));
+        } else if (text.equalsIgnoreCase("OR")) {
+            tokens.add(new Token(TokenType.OR, text));
+        } else if (!text.isEmpty()) {
+            tokens.add(new Token(TokenType.WORD, text));
+        }
+        for (int i = end; i < word.length(); i++) {
+            tokens.add(new Token(TokenType.RIGHT_PARENTHESIS, ")"));
+        }
+    }
+
+    /**
+     * Expands a syntax tree into the names it matches. The names of an OR are the names of each of its children,
+     * and the names of an AND are every combination of one name from each of its children joined by spaces.
+     * @param node a node of the syntax tree
+     * @return the names, without duplicates
+     * @throws IllegalSearchQueryException if the node expands to too many names.
+     */
+    private static Set<String> toNames(SearchQuery.Node node) throws IllegalSearchQueryException {
+        Set<String> names = new LinkedHashSet<>();
+        if (node instanceof SearchQuery.Term) {
+            names.add(node.toString());
+        } else if (node instanceof SearchQuery.Or) {
+            for (SearchQuery.Node child : ((SearchQuery.Or) node).getChildren()) {
+                names.addAll(toNames(child));
+                checkNameCount(names);
+            }
+        } else {
+            List<String> prefixes = null;
+            for (SearchQuery.Node child : ((SearchQuery.And) node).getChildren()) {
+                Set<String> childNames = toNames(child);
+                if (prefixes == null) {
+                    prefixes = new ArrayList<>(childNames);
+                } else {
+                    List<String> combined = new ArrayList<>();
+                    for (String prefix : prefixes) {
+                        for (String childName : childNames) {
+                            combined.add(prefix + " " + childName);
+                        }
+                    }
+                    checkNameCount(combined);
+                    prefixes = combined;
+                }
+            }
+            names.addAll(prefixes);
+        }
+        return names;
+    }
+
+    /**
+     * Checks that a query hasn't expanded to too many names.
+     * @param names the names of part of a query
+     * @throws IllegalSearchQueryException if there are too many names.
+     */
+    private static void checkNameCount(Collection<String> names) throws IllegalSearchQueryException {
+        if (names.size() > MAX_NAMES) {
+            throw new IllegalSearchQueryException(String.format("Search query expands to more than %d names", MAX_NAMES));
+        }
+    }
+
+    private enum TokenType {
+        WORD, PHRASE, AND, OR, LEFT_PARENTHESIS, RIGHT_PARENTHESIS
+    }
+
+    private static class Token {
+
+        private final TokenType type;
+
+        private final String text;
+
+        Token(TokenType type, String text) {
+            this.type = type;
+            this.text = text;
+        }
+    }
+
+    /**
+     * Recursive descent parser for the grammar
+     *   query := and (OR and)*
+     *   and   := term (AND? term)*
+     *   term  := WORD | PHRASE | '(' query ')'
+     * Parse methods return null for parts of the query which contain no words or phrases.
+     */
+    private static class Parser {
+
+        private final List<Token> tokens;
+
+        private int position = 0;
+
+        private int depth = 0;
+
+        Parser(List<Token> tokens) {
+            this.tokens = tokens;
+        }
+
+        /**
+         * Parses the whole query.
+         * @return the root of the syntax tree, or null if the query has no terms
+         * @throws IllegalSearchQueryException if groups are nested more than MAX_DEPTH deep.
+         */
+        SearchQuery.Node parseQuery() throws IllegalSearchQueryException {
+            return parseOr();
+        }
+
+        private SearchQuery.Node parseOr() throws IllegalSearchQueryException {
+            List<SearchQuery.Node> children = new ArrayList<>();
+            addIfPresent(children, parseAnd());
+            while (position < tokens.size() && tokens.get(position).type == TokenType.OR) {
+                position++;
+                addIfPresent(children, parseAnd());
+            }
+            return combine(children, false);
+        }
+
+        private SearchQuery.Node parseAnd() throws IllegalSearchQueryException {
+            List<SearchQuery.Node> children = new ArrayList<>();
+            while (position < tokens.size()) {
+                Token token = tokens.get(position);
+                if (token.type == TokenType.OR || (token.type == TokenType.RIGHT_PARENTHESIS && depth > 0)) {
+                    break;
+                }
+                // An unmatched closing parenthesis (or an AND) is skipped.
+                position++;
+                if (token.type == TokenType.WORD) {
+                    children.add(new SearchQuery.Term(token.text, false));
+                } else if (token.type == TokenType.PHRASE) {
+                    children.add(new SearchQuery.Term(token.text, true));
+                } else if (token.type == TokenType.LEFT_PARENTHESIS) {
+                    if (depth == MAX_DEPTH) {
+                        throw new IllegalSearchQueryException(String.format(
+                                "Search query nests groups more than %d deep", MAX_DEPTH));
+                    }
+                    depth++;
+                    addIfPresent(children, parseOr());
+                    depth--;
+                    if (position < tokens.size()) {
+                        position++; // the closing parenthesis
+                    }
+                }
+            }
+            return combine(children, true);
+        }
+
+        private static void addIfPresent(List<SearchQuery.Node> nodes, SearchQuery.Node node) {
+            if (node != null) {
+                nodes.add(node);
+            }
+        }
+
+        private static SearchQuery.Node combine(List<SearchQuery.Node> children, boolean and) {
+            if (children.isEmpty()) {
+                return null;
+            }
+            if (children.size() == 1) {
+                return children.get(0);
+            }
+            return and ? new SearchQuery.And(children) : new SearchQuery.Or(children);
+        }
+    }
+}
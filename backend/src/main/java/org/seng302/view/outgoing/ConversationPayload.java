@@ -27,6 +27,9 @@ public class ConversationPayload {
     private boolean deletedByReceiver;
     private boolean readByInstigator;
     private boolean readByReceiver;
+    private String lastMessage;
+    private String lastActivity;
+    private Integer unreadCount;
 
     /**
      * Constructor for conversation payloads.
@@ -72,6 +75,20 @@ public class ConversationPayload {
         this.deletedByReceiver = deletedByReceiver;
         this.readByInstigator = readByInstigator;
         this.readByReceiver = readByReceiver;
+        this.lastActivity = this.created;
+    }
+
+    /**
+     * Sets the details of the conversation kept in the user's inbox.
+     *
+     * @param lastMessage The start of the last message in the conversation, null if there are no messages.
+     * @param lastActivity The date and time of the last message (or of the conversation creation).
+     * @param unreadCount The number of messages the user hasn't read.
+     */
+    public void setInboxDetails(String lastMessage, LocalDateTime lastActivity, int unreadCount) {
+        this.lastMessage = lastMessage;
+        this.lastActivity = lastActivity.toString();
+        this.unreadCount = unreadCount;
     }
 
     public int getId() {
@@ -122,6 +139,18 @@ public class ConversationPayload {
 
     public boolean getReadByReceiver() { return readByReceiver; }
 
+    public String getLastMessage() {
+        return lastMessage;
+    }
+
+    public String getLastActivity() {
+        return lastActivity;
+    }
+
+    public Integer getUnreadCount() {
+        return unreadCount;
+    }
+
     /**
      * An override of the toString method for debugging and testing purposes.
      * @return String representation of the conversation payload.
@@ -142,6 +171,9 @@ public class ConversationPayload {
                 ",\"deletedByInstigator\":" + deletedByInstigator +
                 ",\"deletedByReceiver\":" + deletedByReceiver +
                 ",\"readByInstigator\":" + readByInstigator +
-                ",\"readByReceiver\":" + readByReceiver + "}";
+                ",\"readByReceiver\":" + readByReceiver +
+                ",\"lastMessage\":" + (lastMessage == null ? null : "\"" + lastMessage + "\"") +
+                ",\"lastActivity\":\"" + lastActivity + "\"" +
+                ",\"unreadCount\":" + unreadCount + "}";
     }
 }
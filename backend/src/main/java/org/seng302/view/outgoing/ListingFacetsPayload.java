@@ -0,0 +1,66 @@
+package org.seng302.view.outgoing;
+
+import org.seng302.model.enums.BusinessType;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Payload for the number of listings matching a search, in total and by business type, price range and closing
+ * date range. Every business type and range is included, with a count of zero if no listings are in it.
+ */
+public class ListingFacetsPayload {
+    private long total;
+    private Map<String, Long> businessTypes;
+    private Map<String, Long> prices;
+    private Map<String, Long> closes;
+
+    public ListingFacetsPayload(BusinessType[] businessTypes, List<String> priceRanges, List<String> closingRanges) {
+        this.businessTypes = new LinkedHashMap<>();
+        for (BusinessType businessType : businessTypes) {
+            this.businessTypes.put(businessType.toString(), 0L);
+        }
+        this.prices = new LinkedHashMap<>();
+        for (String priceRange : priceRanges) {
+            this.prices.put(priceRange, 0L);
+        }
+        this.closes = new LinkedHashMap<>();
+        for (String closingRange : closingRanges) {
+            this.closes.put(closingRange, 0L);
+        }
+    }
+
+    public ListingFacetsPayload() {
+    }
+
+    /**
+     * Adds a number of listings with the same business type, price range and closing date range to the counts.
+     * @param businessType the business type of the listings
+     * @param priceRange the price range of the listings
+     * @param closingRange the closing date range of the listings
+     * @param count the number of listings
+     */
+    public void add(String businessType, String priceRange, String closingRange, long count) {
+        total += count;
+        businessTypes.merge(businessType, count, Long::sum);
+        prices.merge(priceRange, count, Long::sum);
+        closes.merge(closingRange, count, Long::sum);
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public Map<String, Long> getBusinessTypes() {
+        return businessTypes;
+    }
+
+    public Map<String, Long> getPrices() {
+        return prices;
+    }
+
+    public Map<String, Long> getCloses() {
+        return closes;
+    }
+}
@@ -8,18 +8,31 @@ import java.time.LocalDateTime;
  */
 public class MessagePayload {
 
+    private Integer id;
+    private Integer conversationId;
     private Integer senderId;
     private Integer marketplaceCardId;
     private String content;
     private String created;
 
-    public MessagePayload(Integer senderId, Integer marketplaceCardId, String content, LocalDateTime created) {
+    public MessagePayload(Integer id, Integer conversationId, Integer senderId, Integer marketplaceCardId, String content,
+                          LocalDateTime created) {
+        this.id = id;
+        this.conversationId = conversationId;
         this.senderId = senderId;
         this.marketplaceCardId = marketplaceCardId;
         this.content = content;
         this.created = created.toString();
     }
 
+    public Integer getId() {
+        return id;
+    }
+
+    public Integer getConversationId() {
+        return conversationId;
+    }
+
     public Integer getSenderId() {
         return senderId;
     }
@@ -42,7 +55,9 @@ public class MessagePayload {
      */
     @Override
     public String toString() {
-        return "{\"senderId\":" + senderId +
+        return "{\"id\":" + id +
+                ",\"conversationId\":" + conversationId +
+                ",\"senderId\":" + senderId +
                 ",\"marketplaceCardId\":" + marketplaceCardId  +
                 ",\"content\":\"" + content + "\"" +
                 ",\"created\":\"" + created + "\"" +
@@ -0,0 +1,38 @@
+package org.seng302.view.outgoing;
+
+/**
+ * Payload for the statistics of a cache of compiled search queries.
+ */
+public class SearchPlanCacheStatisticsPayload {
+    private int cachedPlans;
+    private long hitCount;
+    private long missCount;
+    private double hitRate;
+
+    public SearchPlanCacheStatisticsPayload(int cachedPlans, long hitCount, long missCount) {
+        this.cachedPlans = cachedPlans;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        long lookups = hitCount + missCount;
+        this.hitRate = lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    public SearchPlanCacheStatisticsPayload() {
+    }
+
+    public int getCachedPlans() {
+        return cachedPlans;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public double getHitRate() {
+        return hitRate;
+    }
+}
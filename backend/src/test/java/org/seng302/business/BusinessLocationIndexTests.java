@@ -0,0 +1,101 @@
+package org.seng302.business;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.model.Address;
+import org.seng302.model.Business;
+import org.seng302.model.repository.BusinessRepository;
+import org.seng302.services.BusinessLocationIndex;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * BusinessLocationIndex test class
+ */
+class BusinessLocationIndexTests {
+
+    private BusinessRepository businessRepository;
+    private BusinessLocationIndex businessLocationIndex;
+
+    /**
+     * Sets up the index with a few businesses.
+     */
+    @BeforeEach
+    void setup() {
+        businessRepository = mock(BusinessRepository.class);
+        businessLocationIndex = new BusinessLocationIndex(businessRepository);
+
+        when(businessRepository.findAllBusinessLocations()).thenReturn(List.of(
+                createLocation(1, "Ilam", "Christchurch", "Canterbury", "New Zealand"),
+                createLocation(2, "Riccarton", "Christchurch", "Canterbury", "New Zealand"),
+                createLocation(3, null, "Invercargill", "Southland", "New Zealand"),
+                createLocation(4, "Ilam", "Sydney", "New South Wales", "Australia")
+        ));
+        businessLocationIndex.rebuild();
+    }
+
+    /**
+     * Creates the location of a business.
+     */
+    private BusinessRepository.BusinessLocation createLocation(int id, String suburb, String city, String region, String country) {
+        return new BusinessRepository.BusinessLocation() {
+            public Integer getId() { return id; }
+            public String getSuburb() { return suburb; }
+            public String getCity() { return city; }
+            public String getRegion() { return region; }
+            public String getCountry() { return country; }
+        };
+    }
+
+    /**
+     * Tests that a location matches every business within it, at any level of the address.
+     */
+    @Test
+    void testFindBusinessIdsMatchesEveryAddressLevel() {
+        assertThat(businessLocationIndex.findBusinessIds(List.of("Ilam"))).containsExactly(1, 4);
+        assertThat(businessLocationIndex.findBusinessIds(List.of("Christchurch"))).containsExactly(1, 2);
+        assertThat(businessLocationIndex.findBusinessIds(List.of("Southland"))).containsExactly(3);
+        assertThat(businessLocationIndex.findBusinessIds(List.of("New Zealand"))).containsExactly(1, 2, 3);
+    }
+
+    /**
+     * Tests that locations match part of a place name ignoring case, and several locations return the union.
+     */
+    @Test
+    void testFindBusinessIdsMatchesSubstringsIgnoringCase() {
+        assertThat(businessLocationIndex.findBusinessIds(List.of("CANTER"))).containsExactly(1, 2);
+        assertThat(businessLocationIndex.findBusinessIds(List.of("land"))).containsExactly(1, 2, 3);
+        assertThat(businessLocationIndex.findBusinessIds(List.of("riccarton", "sydney"))).containsExactly(2, 4);
+    }
+
+    /**
+     * Tests that a quoted location must be a whole place name, ignoring case.
+     */
+    @Test
+    void testFindBusinessIdsByQuotedLocationMatchesWholeNameOnly() {
+        assertThat(businessLocationIndex.findBusinessIds(List.of("\"Christchurch\""))).containsExactly(1, 2);
+        assertThat(businessLocationIndex.findBusinessIds(List.of("\"Christ\""))).isEmpty();
+        assertThat(businessLocationIndex.findBusinessIds(List.of("\"christCHURCH\""))).containsExactly(1, 2);
+    }
+
+    /**
+     * Tests that a business whose address changed is found by its new places and not its old ones.
+     */
+    @Test
+    void testIndexBusinessReplacesOldAddress() throws Exception {
+        Business business = mock(Business.class);
+        when(business.getId()).thenReturn(2);
+        when(business.getAddress()).thenReturn(new Address("1", "Tay Street", "Invercargill", "Southland", "New Zealand", "9810", "Georgetown"));
+
+        businessLocationIndex.indexBusiness(business);
+
+        assertThat(businessLocationIndex.findBusinessIds(List.of("Riccarton"))).isEmpty();
+        assertThat(businessLocationIndex.findBusinessIds(List.of("Christchurch"))).containsExactly(1);
+        assertThat(businessLocationIndex.findBusinessIds(List.of("Southland"))).containsExactly(2, 3);
+        assertThat(businessLocationIndex.findBusinessIds(List.of("\"Georgetown\""))).containsExactly(2);
+    }
+}
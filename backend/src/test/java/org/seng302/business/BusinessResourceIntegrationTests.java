@@ -13,7 +13,9 @@ import org.seng302.model.enums.BusinessType;
 import org.seng302.model.enums.Role;
 import org.seng302.model.User;
 import org.seng302.model.repository.UserRepository;
+import org.seng302.services.BusinessSearchIndex;
 import org.seng302.view.outgoing.AddressPayload;
+import org.seng302.services.BusinessLocationIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -35,6 +37,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.*;
@@ -63,6 +66,12 @@ class BusinessResourceIntegrationTests {
     @MockBean
     private AddressRepository addressRepository;
 
+    @MockBean
+    private BusinessSearchIndex businessSearchIndex;
+
+    @MockBean
+    private BusinessLocationIndex businessLocationIndex;
+
     private String payloadJson;
 
     private MockHttpServletResponse response;
@@ -201,7 +210,7 @@ class BusinessResourceIntegrationTests {
         gAA.setId(4);
         gAA.setSessionUUID(User.generateSessionUUID());
         this.mvc = MockMvcBuilders.standaloneSetup(
-                new BusinessResource(businessRepository, userRepository, addressRepository)
+                new BusinessResource(businessRepository, userRepository, addressRepository, businessSearchIndex, businessLocationIndex)
         ).build();
     }
 
@@ -2344,11 +2353,12 @@ class BusinessResourceIntegrationTests {
 
         // when
         List<Business> list = List.of(business);
-        Page<Business> pagedResponse = new PageImpl<>(list);
         Sort sort = Sort.by(Sort.Order.asc("name").ignoreCase());
         Pageable paging = PageRequest.of(0, 5, sort);
 
-        when(businessRepository.findAllBusinessesByNames(names, paging)).thenReturn(pagedResponse);
+        List<Integer> businessIds = list.stream().map(Business::getId).collect(Collectors.toList());
+        when(businessSearchIndex.search(names, null, paging)).thenReturn(new PageImpl<>(businessIds, paging, businessIds.size()));
+        when(businessRepository.findAllByIdIn(businessIds)).thenReturn(list);
         when(userRepository.findBySessionUUID(dGAA.getSessionUUID())).thenReturn(Optional.ofNullable(dGAA));
 
         response = mvc.perform(get("/businesses/search").param("searchQuery", searchQuery)
@@ -2381,11 +2391,12 @@ class BusinessResourceIntegrationTests {
 
         // when
         List<Business> list = List.of(business);
-        Page<Business> pagedResponse = new PageImpl<>(list);
         Sort sort = Sort.by(Sort.Order.asc("name").ignoreCase());
         Pageable paging = PageRequest.of(0, 1, sort);
 
-        when(businessRepository.findAllBusinessesByNames(names, paging)).thenReturn(pagedResponse);
+        List<Integer> businessIds = list.stream().map(Business::getId).collect(Collectors.toList());
+        when(businessSearchIndex.search(names, null, paging)).thenReturn(new PageImpl<>(businessIds, paging, businessIds.size()));
+        when(businessRepository.findAllByIdIn(businessIds)).thenReturn(list);
         when(userRepository.findBySessionUUID(dGAA.getSessionUUID())).thenReturn(Optional.ofNullable(dGAA));
 
         response = mvc.perform(get("/businesses/search").param("searchQuery", searchQuery)
@@ -2420,11 +2431,12 @@ class BusinessResourceIntegrationTests {
 
         // when
         List<Business> list = List.of(business);
-        Page<Business> pagedResponse = new PageImpl<>(list);
         Sort sort = Sort.by(Sort.Order.asc("name").ignoreCase());
         Pageable paging = PageRequest.of(0, 5, sort);
 
-        when(businessRepository.findAllBusinessesByNames(names, paging)).thenReturn(pagedResponse);
+        List<Integer> businessIds = list.stream().map(Business::getId).collect(Collectors.toList());
+        when(businessSearchIndex.search(names, null, paging)).thenReturn(new PageImpl<>(businessIds, paging, businessIds.size()));
+        when(businessRepository.findAllByIdIn(businessIds)).thenReturn(list);
         when(userRepository.findBySessionUUID(user.getSessionUUID())).thenReturn(Optional.ofNullable(user));
 
         response = mvc.perform(get("/businesses/search").param("searchQuery", searchQuery)
@@ -2448,12 +2460,13 @@ class BusinessResourceIntegrationTests {
 
         // when
         List<Business> list = List.of();
-        Page<Business> pagedResponse = new PageImpl<>(list);
         Sort sort = Sort.by(Sort.Order.asc("name").ignoreCase());
         Pageable paging = PageRequest.of(0, 5, sort);
 
         when(userRepository.findBySessionUUID(dGAA.getSessionUUID())).thenReturn(Optional.ofNullable(dGAA));
-        when(businessRepository.findAllBusinessesByNames(names, paging)).thenReturn(pagedResponse);
+        List<Integer> businessIds = list.stream().map(Business::getId).collect(Collectors.toList());
+        when(businessSearchIndex.search(names, null, paging)).thenReturn(new PageImpl<>(businessIds, paging, businessIds.size()));
+        when(businessRepository.findAllByIdIn(businessIds)).thenReturn(list);
 
         response = mvc.perform(get("/businesses/search").param("searchQuery", searchQuery)
                 .cookie(new Cookie("JSESSIONID", dGAA.getSessionUUID()))).andReturn().getResponse();
@@ -2596,11 +2609,12 @@ class BusinessResourceIntegrationTests {
 
         // when
         List<Business> list = List.of(business);
-        Page<Business> pagedResponse = new PageImpl<>(list);
         Sort sort = Sort.by(Sort.Order.asc("name").ignoreCase());
         Pageable paging = PageRequest.of(0, 5, sort);
 
-        when(businessRepository.findBusinessesByBusinessType(convertedBusinessType, paging)).thenReturn(pagedResponse);
+        List<Integer> businessIds = list.stream().map(Business::getId).collect(Collectors.toList());
+        when(businessSearchIndex.search(null, convertedBusinessType, paging)).thenReturn(new PageImpl<>(businessIds, paging, businessIds.size()));
+        when(businessRepository.findAllByIdIn(businessIds)).thenReturn(list);
         when(userRepository.findBySessionUUID(dGAA.getSessionUUID())).thenReturn(Optional.ofNullable(dGAA));
 
         response = mvc.perform(get("/businesses/search").param("businessType", businessType)
@@ -2634,11 +2648,12 @@ class BusinessResourceIntegrationTests {
 
         // when
         List<Business> list = List.of(business);
-        Page<Business> pagedResponse = new PageImpl<>(list);
         Sort sort = Sort.by(Sort.Order.asc("name").ignoreCase());
         Pageable paging = PageRequest.of(0, 5, sort);
 
-        when(businessRepository.findAllBusinessesByNamesAndType(names, convertedBusinessType, paging)).thenReturn(pagedResponse);
+        List<Integer> businessIds = list.stream().map(Business::getId).collect(Collectors.toList());
+        when(businessSearchIndex.search(names, convertedBusinessType, paging)).thenReturn(new PageImpl<>(businessIds, paging, businessIds.size()));
+        when(businessRepository.findAllByIdIn(businessIds)).thenReturn(list);
         when(userRepository.findBySessionUUID(dGAA.getSessionUUID())).thenReturn(Optional.ofNullable(dGAA));
 
         response = mvc.perform(get("/businesses/search").param("searchQuery", searchQuery)
@@ -0,0 +1,138 @@
+package org.seng302.business;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.model.Business;
+import org.seng302.model.enums.BusinessType;
+import org.seng302.model.repository.BusinessRepository;
+import org.seng302.services.BusinessSearchIndex;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * BusinessSearchIndex test class
+ */
+class BusinessSearchIndexTests {
+
+    private BusinessRepository businessRepository;
+    private BusinessSearchIndex businessSearchIndex;
+
+    /**
+     * Sets up the index with a few businesses.
+     */
+    @BeforeEach
+    void setup() {
+        businessRepository = mock(BusinessRepository.class);
+        businessSearchIndex = new BusinessSearchIndex(businessRepository);
+
+        when(businessRepository.findAllBusinessNamesAndTypes()).thenReturn(List.of(
+                createBusiness(1, "New World", BusinessType.RETAIL_TRADE, "Christchurch"),
+                createBusiness(2, "Countdown", BusinessType.RETAIL_TRADE, "auckland"),
+                createBusiness(3, "World Vision", BusinessType.CHARITABLE_ORGANISATION, "Wellington"),
+                createBusiness(4, "Burger World", BusinessType.ACCOMMODATION_AND_FOOD_SERVICES, null)
+        ));
+        businessSearchIndex.rebuild();
+    }
+
+    /**
+     * Creates the name, type and sort values of a business.
+     */
+    private BusinessRepository.BusinessNameAndType createBusiness(int id, String name, BusinessType businessType,
+                                                                  String city) {
+        return new BusinessRepository.BusinessNameAndType() {
+            public Integer getId() { return id; }
+            public String getName() { return name; }
+            public BusinessType getBusinessType() { return businessType; }
+            public String getCity() { return city; }
+            public String getRegion() { return null; }
+            public String getCountry() { return null; }
+        };
+    }
+
+    /**
+     * Tests that names match anywhere in a business name, ignoring case.
+     */
+    @Test
+    void testSearchByNameMatchesSubstringsIgnoringCase() {
+        assertThat(businessSearchIndex.search(List.of("WORLD"), null)).containsExactly(1, 3, 4);
+        assertThat(businessSearchIndex.search(List.of("ld"), null)).containsExactly(1, 3, 4);
+        assertThat(businessSearchIndex.search(List.of("world vision"), null)).containsExactly(3);
+    }
+
+    /**
+     * Tests that a quoted name must be the whole business name.
+     */
+    @Test
+    void testSearchByQuotedNameMatchesWholeNameOnly() {
+        assertThat(businessSearchIndex.search(List.of("\"new world\""), null)).containsExactly(1);
+        assertThat(businessSearchIndex.search(List.of("\"world\""), null)).isEmpty();
+    }
+
+    /**
+     * Tests that businesses matching any of the names are returned.
+     */
+    @Test
+    void testSearchBySeveralNamesReturnsUnion() {
+        assertThat(businessSearchIndex.search(List.of("countdown", "vision"), null)).containsExactly(2, 3);
+    }
+
+    /**
+     * Tests that searching by type only returns every business of that type.
+     */
+    @Test
+    void testSearchByTypeOnly() {
+        assertThat(businessSearchIndex.search(null, BusinessType.RETAIL_TRADE)).containsExactly(1, 2);
+        assertThat(businessSearchIndex.search(null, BusinessType.NON_PROFIT_ORGANISATION)).isEmpty();
+    }
+
+    /**
+     * Tests that searching by name and type returns the businesses matching both.
+     */
+    @Test
+    void testSearchByNameAndType() {
+        assertThat(businessSearchIndex.search(List.of("world"), BusinessType.RETAIL_TRADE)).containsExactly(1);
+    }
+
+    /**
+     * Tests that a modified business is found by its new name and type and not its old ones.
+     */
+    @Test
+    void testIndexBusinessReplacesOldNameAndType() {
+        Business business = mock(Business.class);
+        when(business.getId()).thenReturn(2);
+        when(business.getName()).thenReturn("Pak'nSave");
+        when(business.getBusinessType()).thenReturn(BusinessType.NON_PROFIT_ORGANISATION);
+
+        businessSearchIndex.indexBusiness(business);
+
+        assertThat(businessSearchIndex.search(List.of("countdown"), null)).isEmpty();
+        assertThat(businessSearchIndex.search(null, BusinessType.RETAIL_TRADE)).containsExactly(1);
+        assertThat(businessSearchIndex.search(List.of("pak"), BusinessType.NON_PROFIT_ORGANISATION)).containsExactly(2);
+    }
+
+    /**
+     * Tests that matching businesses are ordered ignoring case, with missing values first, and that only the requested
+     * page of them is returned along with the total number of matches.
+     */
+    @Test
+    void testSearchWithPagingOrdersAndPagesMatches() {
+        Sort byCity = Sort.by(Sort.Order.asc("address.city").ignoreCase());
+
+        Page<Integer> firstPage = businessSearchIndex.search(null, null, PageRequest.of(0, 3, byCity));
+        Page<Integer> secondPage = businessSearchIndex.search(null, null, PageRequest.of(1, 3, byCity));
+
+        assertThat(firstPage.getContent()).containsExactly(4, 2, 1);
+        assertThat(secondPage.getContent()).containsExactly(3);
+        assertThat(firstPage.getTotalElements()).isEqualTo(4);
+        Sort byTypeThenName = Sort.by(Sort.Order.desc("businessType")).and(Sort.by(Sort.Order.asc("name").ignoreCase()));
+        assertThat(businessSearchIndex.search(List.of("o"), null, PageRequest.of(0, 5, byTypeThenName)))
+                .containsExactly(2, 1, 3, 4);
+    }
+}
@@ -9,6 +9,7 @@ import org.seng302.model.User;
 import org.seng302.model.enums.BusinessType;
 import org.seng302.model.enums.Role;
 import org.seng302.model.repository.BusinessRepository;
+import org.seng302.services.BusinessSearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
@@ -647,4 +648,46 @@ class BusinessSearchOrderByTests {
         assertThat(businessPage.getContent().get(1).getName()).isEqualTo("Gisborne General Store");
         assertThat(businessPage.getContent().get(2).getName()).isEqualTo("Gore General Store");
     }
+
+    /**
+     * Tests that the business search index finds the same businesses as the findAllBusinessesByNames and
+     * findAllBusinessesByNamesAndType queries, and pages them in the same order.
+     */
+    @Test
+    void whenSearchBusinessIndex_thenReturnSameBusinessesAsRepositoryQueries() {
+        // given
+        BusinessSearchIndex businessSearchIndex = new BusinessSearchIndex(businessRepository);
+        businessSearchIndex.rebuild();
+        List<Pageable> pageables = List.of(
+                PageRequest.of(0, 20, Sort.by(Sort.Order.asc("name").ignoreCase()).and(Sort.by(Sort.Order.asc("id")))),
+                PageRequest.of(1, 3, Sort.by(Sort.Order.desc("address.city").ignoreCase())
+                        .and(Sort.by(Sort.Order.desc("address.region").ignoreCase()))
+                        .and(Sort.by(Sort.Order.desc("address.country").ignoreCase()))
+                        .and(Sort.by(Sort.Order.asc("id")))),
+                PageRequest.of(0, 5, Sort.by(Sort.Order.asc("businessType").ignoreCase())
+                        .and(Sort.by(Sort.Order.asc("name").ignoreCase()))
+                        .and(Sort.by(Sort.Order.asc("id"))))
+        );
+        List<List<String>> searches = List.of(List.of("a"), List.of("E"), List.of("in", "ou"), List.of("nothing like this"));
+
+        for (Pageable pageable : pageables) {
+            for (List<String> names : searches) {
+                for (BusinessType businessType : new BusinessType[]{null, BusinessType.RETAIL_TRADE, BusinessType.ACCOMMODATION_AND_FOOD_SERVICES}) {
+                    // when
+                    Page<Integer> businessIds = businessSearchIndex.search(names, businessType, pageable);
+                    Page<Business> expected = businessType == null
+                            ? businessRepository.findAllBusinessesByNames(names, pageable)
+                            : businessRepository.findAllBusinessesByNamesAndType(names, businessType, pageable);
+
+                    // then
+                    assertThat(businessIds.getContent()).as("search for %s %s ordered by %s", names, businessType, pageable.getSort())
+                            .containsExactlyElementsOf(expected.map(Business::getId));
+                    assertThat(businessIds.getTotalElements()).isEqualTo(expected.getTotalElements());
+                    assertThat(businessRepository.findAllByIdIn(businessIds.getContent())).extracting(Business::getId)
+                            .containsExactlyInAnyOrderElementsOf(businessIds.getContent());
+                }
+            }
+        }
+    }
 }
+
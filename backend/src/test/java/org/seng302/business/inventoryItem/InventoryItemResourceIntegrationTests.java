@@ -18,6 +18,7 @@ import org.seng302.model.repository.InventoryItemRepository;
 import org.seng302.model.enums.Role;
 import org.seng302.model.User;
 import org.seng302.model.repository.UserRepository;
+import org.seng302.services.InventoryLedger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -40,7 +41,11 @@ import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 
@@ -69,6 +74,9 @@ class InventoryItemResourceIntegrationTests {
     @MockBean
     private InventoryItemRepository inventoryItemRepository;
 
+    @MockBean
+    private InventoryLedger inventoryLedger;
+
     private final String inventoryItemPayloadJson = "{" +
             "\"productId\":\"%s\"," +
             "\"quantity\":%d," +
@@ -226,7 +234,7 @@ class InventoryItemResourceIntegrationTests {
         inventoryItem.setId(4);
 
         this.mvc = MockMvcBuilders.standaloneSetup(new InventoryItemResource(
-                inventoryItemRepository, productRepository, businessRepository, userRepository))
+                inventoryItemRepository, productRepository, businessRepository, userRepository, inventoryLedger))
                 .build();
     }
 
@@ -1805,14 +1813,14 @@ class InventoryItemResourceIntegrationTests {
                 LocalDate.of(2022, 2, 2),
                 LocalDate.of(2022, 2, 2));
 
-        inventoryItem.setListings(List.of(new Listing(
+        inventoryItem.addListing(new Listing(
                 inventoryItem,
                 4,
                 null,
                 "info",
                 LocalDateTime.now(),
                 null
-        )));
+        ));
 
         payloadJson = String.format(inventoryItemPayloadJson, newInventoryItem.getProductId(), newInventoryItem.getQuantity(),
                 newInventoryItem.getPricePerItem(), newInventoryItem.getTotalPrice(), newInventoryItem.getManufactured(),
@@ -1836,4 +1844,36 @@ class InventoryItemResourceIntegrationTests {
         assertThat(response.getErrorMessage()).isEqualTo("Invalid quantity, must be more than the total quantity in your current listings");
     }
 
+    /**
+     * Test that a BAD_REQUEST(400) status is received when the quantity of an inventory item is lowered below the
+     * total listings by a listing created after the inventory item was read (so the inventory ledger rejects it).
+     *
+     * @throws Exception Exception error
+     */
+    @Test
+    void canNotUpdateAnInventoryItemWhenListingCreatedConcurrently() throws Exception {
+        // given
+        payloadJson = String.format(inventoryItemPayloadJson, inventoryItem.getProductId(), 2,
+                inventoryItem.getPricePerItem(), inventoryItem.getTotalPrice(), inventoryItem.getManufactured(),
+                LocalDate.now().plusDays(10), LocalDate.now().plusDays(10), LocalDate.now().plusDays(30));
+
+        // when
+        when(userRepository.findBySessionUUID(user.getSessionUUID())).thenReturn(Optional.ofNullable(user));
+        when(businessRepository.findBusinessById(business.getId())).thenReturn(Optional.ofNullable(business));
+        when(productRepository.findProductByIdAndBusinessId(product.getProductId(), business.getId()))
+                .thenReturn(Optional.ofNullable(product));
+        when(inventoryItemRepository.findInventoryItemById(inventoryItem.getId()))
+                .thenReturn(Optional.ofNullable(inventoryItem));
+        doThrow(new InsufficientInventoryException("Too many items reserved")).when(inventoryLedger).updateInventoryItem(any(InventoryItem.class), eq(2));
+        response = mvc.perform(put(String.format("/businesses/%d/inventory/%d", business.getId(), inventoryItem.getId()))
+                .contentType(MediaType.APPLICATION_JSON).content(payloadJson)
+                .cookie(new Cookie("JSESSIONID", user.getSessionUUID())))
+                .andReturn().getResponse();
+
+        // then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+        assertThat(response.getErrorMessage()).isEqualTo("Invalid quantity, must be more than the total quantity in your current listings");
+        verify(inventoryItemRepository, never()).saveAndFlush(any(InventoryItem.class));
+    }
+
 }
@@ -0,0 +1,228 @@
+package org.seng302.business.inventoryItem;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.Main;
+import org.seng302.exceptions.InsufficientInventoryException;
+import org.seng302.model.*;
+import org.seng302.model.enums.BusinessType;
+import org.seng302.model.enums.Role;
+import org.seng302.model.repository.InventoryItemRepository;
+import org.seng302.model.repository.ListingRepository;
+import org.seng302.services.InventoryLedger;
+import org.seng302.services.ScheduledJobLockService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * InventoryLedger test class, against the database so the conditional updates are checked.
+ */
+@DataJpaTest
+@ContextConfiguration(classes = {Main.class})
+@Import({InventoryLedger.class, ScheduledJobLockService.class})
+@ActiveProfiles("test")
+class InventoryLedgerTests {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private InventoryLedger inventoryLedger;
+
+    @Autowired
+    private InventoryItemRepository inventoryItemRepository;
+
+    @Autowired
+    private ListingRepository listingRepository;
+
+    private Business business;
+    private InventoryItem inventoryItem;
+
+    /**
+     * Creates an inventory item with 10 items.
+     */
+    @BeforeEach
+    void setup() throws Exception {
+        Address address = entityManager.persist(new Address("3/24", "Ilam Road", "Christchurch", "Canterbury", "New Zealand", "90210", "Ilam"));
+        User user = entityManager.persist(new User("first", "last", "middle", "nick", "bio", "test@example.com",
+                LocalDate.of(2000, Month.JANUARY, 1), "123456789", address, "Password123!",
+                LocalDateTime.of(2021, Month.JANUARY, 1, 0, 0), Role.USER));
+        business = entityManager.persist(new Business(user.getId(), "Corner Shop", "some text", address,
+                BusinessType.RETAIL_TRADE, LocalDateTime.now(), user, "$", "NZD"));
+        Product product = entityManager.persist(new Product("APPLE", business, "Apple", "Description", "Manufacturer", 2.0, "9400547002634"));
+        inventoryItem = entityManager.persist(new InventoryItem(product, "APPLE", 10, 2.0, 20.0,
+                LocalDate.now().minusDays(10), LocalDate.now().plusDays(20), LocalDate.now().plusDays(20),
+                LocalDate.now().plusDays(30)));
+        entityManager.flush();
+    }
+
+    /**
+     * Reads the inventory item back from the database.
+     */
+    private InventoryItem reload() {
+        entityManager.clear();
+        return inventoryItemRepository.findInventoryItemById(inventoryItem.getId()).orElseThrow();
+    }
+
+    /**
+     * Tests that items can be reserved until none are unreserved.
+     */
+    @Test
+    void whenReserve_thenOnlyUnreservedItemsReserved() throws Exception {
+        inventoryLedger.reserve(inventoryItem.getId(), 6);
+        inventoryLedger.reserve(inventoryItem.getId(), 4);
+
+        assertThrows(InsufficientInventoryException.class, () -> inventoryLedger.reserve(inventoryItem.getId(), 1));
+        InventoryItem reloaded = reload();
+        assertThat(reloaded.getReserved()).isEqualTo(10);
+        assertThat(reloaded.getAvailableQuantity()).isZero();
+    }
+
+    /**
+     * Tests that releasing items makes them available again, and never leaves a negative reservation.
+     */
+    @Test
+    void whenRelease_thenItemsAvailableAgain() throws Exception {
+        inventoryLedger.reserve(inventoryItem.getId(), 6);
+        inventoryLedger.release(inventoryItem.getId(), 4);
+        assertThat(reload().getReserved()).isEqualTo(2);
+
+        inventoryLedger.release(inventoryItem.getId(), 5);
+        assertThat(reload().getReserved()).isZero();
+    }
+
+    /**
+     * Tests that selling takes the items and their reservation out of the inventory item, and can't take more items
+     * than there are.
+     */
+    @Test
+    void whenSell_thenQuantityAndReservationReduced() throws Exception {
+        inventoryLedger.reserve(inventoryItem.getId(), 6);
+        inventoryLedger.sell(inventoryItem.getId(), 6);
+
+        InventoryItem reloaded = reload();
+        assertThat(reloaded.getQuantity()).isEqualTo(4);
+        assertThat(reloaded.getReserved()).isZero();
+        assertThrows(InsufficientInventoryException.class, () -> inventoryLedger.sell(inventoryItem.getId(), 5));
+        assertThat(reload().getQuantity()).isEqualTo(4);
+    }
+
+    /**
+     * Tests that the quantity can't be lowered below the items reserved by listings.
+     */
+    @Test
+    void whenUpdateQuantity_thenNotBelowReserved() throws Exception {
+        inventoryLedger.reserve(inventoryItem.getId(), 6);
+
+        assertThrows(InsufficientInventoryException.class, () -> inventoryLedger.updateQuantity(inventoryItem.getId(), 5));
+        inventoryLedger.updateQuantity(inventoryItem.getId(), 6);
+        assertThat(reload().getQuantity()).isEqualTo(6);
+    }
+
+    /**
+     * Tests that saving an inventory item doesn't overwrite the quantity or reservations kept by the ledger.
+     */
+    @Test
+    void whenInventoryItemSaved_thenLedgerNotOverwritten() throws Exception {
+        inventoryLedger.reserve(inventoryItem.getId(), 6);
+        inventoryItem.setQuantity(1);
+        inventoryItem.setTotalPrice(30.0);
+        inventoryItemRepository.saveAndFlush(inventoryItem);
+
+        InventoryItem reloaded = reload();
+        assertThat(reloaded.getQuantity()).isEqualTo(10);
+        assertThat(reloaded.getReserved()).isEqualTo(6);
+        assertThat(reloaded.getTotalPrice()).isEqualTo(30.0);
+    }
+
+    /**
+     * Tests that creating a listing reserves its items and saves it, so reconciling afterwards keeps the reservation.
+     */
+    @Test
+    void whenCreateListing_thenListingSavedAndItemsReserved() throws Exception {
+        Listing listing = inventoryLedger.createListing(new Listing(inventoryItem, 6, 2.0, "more info",
+                LocalDateTime.now(), LocalDateTime.now().plusDays(7)));
+        inventoryLedger.reconcile();
+
+        assertThat(listingRepository.findById(listing.getId())).isPresent();
+        assertThat(reload().getReserved()).isEqualTo(6);
+    }
+
+    /**
+     * Tests that a listing with more items than are unreserved isn't saved.
+     */
+    @Test
+    void whenCreateListingWithTooManyItems_thenListingNotSaved() throws Exception {
+        inventoryLedger.reserve(inventoryItem.getId(), 6);
+        Listing listing = new Listing(inventoryItem, 5, 2.0, "more info", LocalDateTime.now(),
+                LocalDateTime.now().plusDays(7));
+
+        assertThrows(InsufficientInventoryException.class, () -> inventoryLedger.createListing(listing));
+        assertThat(listingRepository.findAll()).isEmpty();
+        assertThat(reload().getReserved()).isEqualTo(6);
+    }
+
+    /**
+     * Tests that updating an inventory item changes its quantity and saves its other details, and saves nothing if
+     * the quantity is below the items reserved.
+     */
+    @Test
+    void whenUpdateInventoryItem_thenQuantityAndDetailsSaved() throws Exception {
+        inventoryLedger.reserve(inventoryItem.getId(), 6);
+        InventoryItem changed = reload();
+        entityManager.detach(changed);
+        changed.setTotalPrice(30.0);
+
+        assertThrows(InsufficientInventoryException.class, () -> inventoryLedger.updateInventoryItem(changed, 5));
+        assertThat(reload().getTotalPrice()).isEqualTo(20.0);
+
+        InventoryItem updated = reload();
+        updated.setTotalPrice(30.0);
+        inventoryLedger.updateInventoryItem(updated, 8);
+        InventoryItem reloaded = reload();
+        assertThat(reloaded.getQuantity()).isEqualTo(8);
+        assertThat(reloaded.getTotalPrice()).isEqualTo(30.0);
+    }
+
+    /**
+     * Tests that reconciling recalculates the reservations from the listings.
+     */
+    @Test
+    void whenReconcile_thenReservedMatchesListings() throws Exception {
+        entityManager.persist(new Listing(inventoryItem, 3, 2.0, "more info", LocalDateTime.now(), LocalDateTime.now().plusDays(7)));
+        entityManager.persist(new Listing(inventoryItem, 4, 2.0, "more info", LocalDateTime.now(), LocalDateTime.now().plusDays(7)));
+        entityManager.flush();
+
+        inventoryLedger.reconcile();
+
+        assertThat(reload().getReserved()).isEqualTo(7);
+    }
+
+    /**
+     * Tests that deleting and archiving listings release their items.
+     */
+    @Test
+    void whenListingsRemoved_thenReservationsReleased() throws Exception {
+        Listing deleted = entityManager.persist(new Listing(inventoryItem, 3, 2.0, "more info", LocalDateTime.now(), LocalDateTime.now().plusDays(7)));
+        Listing archived = entityManager.persist(new Listing(inventoryItem, 4, 2.0, "more info", LocalDateTime.now(), LocalDateTime.now().plusDays(7)));
+        entityManager.flush();
+        inventoryLedger.reconcile();
+
+        listingRepository.deleteListing(deleted.getId());
+        assertThat(reload().getReserved()).isEqualTo(4);
+        listingRepository.archiveListings(List.of(archived.getId()));
+        assertThat(reload().getReserved()).isZero();
+    }
+}
@@ -7,7 +7,9 @@ import org.seng302.exceptions.FailedToDeleteListingException;
 import org.seng302.model.*;
 import org.seng302.model.enums.BusinessType;
 import org.seng302.model.enums.Role;
+import org.seng302.model.repository.BusinessRepository;
 import org.seng302.model.repository.ListingRepository;
+import org.seng302.services.BusinessLocationIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
@@ -42,6 +44,9 @@ class CustomListingRepositoryTests {
     @Autowired
     private ListingRepository listingRepository;
 
+    @Autowired
+    private BusinessRepository businessRepository;
+
     private Address address;
 
     private User user;
@@ -699,7 +704,7 @@ class CustomListingRepositoryTests {
         Pageable pageable = PageRequest.of(pageNo, pageSize, sortBy);
 
         // when
-        Page<Listing> listingsPage = listingRepository.findAllListingsByLocation(strings, pageable, null, null, null, null, null, null);
+        Page<Listing> listingsPage = findAllListingsByLocation(strings, pageable);
 
         // then
         assertThat(listingsPage.getContent().size()).isNotZero();
@@ -724,7 +729,7 @@ class CustomListingRepositoryTests {
         Pageable pageable = PageRequest.of(pageNo, pageSize, sortBy);
 
         // when
-        Page<Listing> listingsPage = listingRepository.findAllListingsByLocation(strings, pageable, null, null, null, null, null, null);
+        Page<Listing> listingsPage = findAllListingsByLocation(strings, pageable);
 
         // then
         assertThat(listingsPage.getContent().size()).isNotZero();
@@ -749,7 +754,7 @@ class CustomListingRepositoryTests {
         Pageable pageable = PageRequest.of(pageNo, pageSize, sortBy);
 
         // when
-        Page<Listing> listingsPage = listingRepository.findAllListingsByLocation(strings, pageable, null, null, null, null, null, null);
+        Page<Listing> listingsPage = findAllListingsByLocation(strings, pageable);
 
         // then
         assertThat(listingsPage.getContent().size()).isNotZero();
@@ -776,7 +781,7 @@ class CustomListingRepositoryTests {
         Pageable pageable = PageRequest.of(pageNo, pageSize, sortBy);
 
         // when
-        Page<Listing> listingsPage = listingRepository.findAllListingsByLocation(strings, pageable, null, null, null, null, null, null);
+        Page<Listing> listingsPage = findAllListingsByLocation(strings, pageable);
 
         // then
         assertThat(listingsPage.getContent().size()).isNotZero();
@@ -872,4 +877,15 @@ class CustomListingRepositoryTests {
                 .withMessage(String.format("Listing with id (%d). Does not exist.", nonListingListing.getId()));
     }
 
+    /**
+     * Searches for listings by location the way the listing search does, finding the businesses in the locations
+     * with a BusinessLocationIndex built from the saved businesses.
+     */
+    private Page<Listing> findAllListingsByLocation(List<String> locations, Pageable pageable) {
+        BusinessLocationIndex businessLocationIndex = new BusinessLocationIndex(businessRepository);
+        businessLocationIndex.rebuild();
+        return listingRepository.findAllListingsByBusinessIds(
+                businessLocationIndex.findBusinessIds(locations), pageable, null, null, null, null, null, null
+        );
+    }
 }
@@ -0,0 +1,73 @@
+package org.seng302.business.listing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.model.repository.ListingRepository;
+import org.seng302.services.ListingArchiveService;
+import org.seng302.services.ListingRangeIndex;
+import org.seng302.services.ScheduledJobLockService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * ListingArchiveService test class
+ */
+class ListingArchiveServiceTests {
+
+    private ListingRepository listingRepository;
+    private ListingRangeIndex listingRangeIndex;
+    private ListingArchiveService listingArchiveService;
+
+    /**
+     * Sets up the service with a mocked repository and index.
+     */
+    @BeforeEach
+    void setup() {
+        listingRepository = mock(ListingRepository.class);
+        listingRangeIndex = mock(ListingRangeIndex.class);
+        listingArchiveService = new ListingArchiveService(listingRepository, listingRangeIndex,
+                mock(ScheduledJobLockService.class), 500);
+        when(listingRepository.archiveListings(anyList()))
+                .thenAnswer(invocation -> invocation.<List<Integer>>getArgument(0).size());
+    }
+
+    /**
+     * Tests that listings are archived a full batch at a time until a partial batch is found, and that archived
+     * listings are removed from the range index.
+     */
+    @Test
+    void testArchiveListingsArchivesInBatches() {
+        List<Integer> fullBatch = IntStream.rangeClosed(1, 500).boxed().collect(Collectors.toList());
+        List<Integer> partialBatch = List.of(501, 502);
+        when(listingRepository.findClosedOrExpiredListingIds(500)).thenReturn(fullBatch).thenReturn(partialBatch);
+
+        int archived = listingArchiveService.archiveListings();
+
+        assertThat(archived).isEqualTo(502);
+        verify(listingRepository, times(2)).findClosedOrExpiredListingIds(500);
+        var order = inOrder(listingRepository);
+        order.verify(listingRepository).archiveListings(fullBatch);
+        order.verify(listingRepository).archiveListings(partialBatch);
+        verify(listingRangeIndex).removeListing(1);
+        verify(listingRangeIndex).removeListing(502);
+    }
+
+    /**
+     * Tests that nothing is archived when no listing has closed or expired.
+     */
+    @Test
+    void testArchiveListingsWithNothingToArchive() {
+        when(listingRepository.findClosedOrExpiredListingIds(anyInt())).thenReturn(new ArrayList<>());
+
+        assertThat(listingArchiveService.archiveListings()).isZero();
+        verify(listingRepository, never()).archiveListings(anyList());
+    }
+}
@@ -0,0 +1,141 @@
+package org.seng302.business.listing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.Main;
+import org.seng302.model.*;
+import org.seng302.model.enums.BusinessType;
+import org.seng302.model.enums.Role;
+import org.seng302.model.repository.ArchivedListingRepository;
+import org.seng302.model.repository.ListingNotificationRepository;
+import org.seng302.model.repository.ListingRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests archiving closed and expired listings with ListingRepositoryCustomImpl.
+ * Dates are relative to today so that the live listing hasn't closed or expired.
+ */
+@DataJpaTest
+@ContextConfiguration(classes = {Main.class})
+@ActiveProfiles("test")
+class ListingArchiveTests {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ListingRepository listingRepository;
+
+    @Autowired
+    private ArchivedListingRepository archivedListingRepository;
+
+    @Autowired
+    private ListingNotificationRepository listingNotificationRepository;
+
+    private User user;
+    private Business business;
+    private Listing liveListing;
+    private Listing closedListing;
+    private Listing expiredListing;
+
+    /**
+     * Creates a business with a live listing, a listing which has closed (and is bookmarked) and a listing whose
+     * inventory item has expired.
+     */
+    @BeforeEach
+    void setup() throws Exception {
+        Address address = entityManager.persist(new Address("3/24", "Ilam Road", "Christchurch", "Canterbury", "New Zealand", "90210", "Ilam"));
+        user = entityManager.persist(new User("first", "last", "middle", "nick", "bio", "test@example.com",
+                LocalDate.of(2000, Month.JANUARY, 1), "123456789", address, "Password123!",
+                LocalDateTime.of(2021, Month.JANUARY, 1, 0, 0), Role.USER));
+        business = entityManager.persist(new Business(user.getId(), "Corner Shop", "some text", address,
+                BusinessType.RETAIL_TRADE, LocalDateTime.now(), user, "$", "NZD"));
+
+        liveListing = createListing("LIVE", "Apple");
+        closedListing = createListing("CLOSED", "Apple Juice");
+        closedListing.setCloses(LocalDateTime.now().minusDays(1));
+        closedListing.addUserToANewBookmark(user);
+        expiredListing = createListing("EXPIRED", "Apple Pie");
+        expiredListing.getInventoryItem().setExpires(LocalDate.now().minusDays(1));
+        entityManager.flush();
+    }
+
+    /**
+     * Creates a listing which closes in a week for a new product of the business.
+     */
+    private Listing createListing(String productId, String name) throws Exception {
+        Product product = entityManager.persist(new Product(productId, business, name, "Description", "Manufacturer", 2.0, "9400547002634"));
+        InventoryItem inventoryItem = entityManager.persist(new InventoryItem(product, productId, 10, 2.0, 20.0,
+                LocalDate.now().minusDays(10), LocalDate.now().plusDays(20), LocalDate.now().plusDays(20),
+                LocalDate.now().plusDays(30)));
+        return entityManager.persist(new Listing(inventoryItem, 5, 2.0, "more info", LocalDateTime.now(),
+                LocalDateTime.now().plusDays(7)));
+    }
+
+    /**
+     * Tests that only closed and expired listings are found for archiving, lowest id first.
+     */
+    @Test
+    void whenFindClosedOrExpiredListingIds_thenOnlyDeadListingsFound() {
+        assertThat(listingRepository.findClosedOrExpiredListingIds(10)).containsExactly(closedListing.getId(), expiredListing.getId());
+        assertThat(listingRepository.findClosedOrExpiredListingIds(1)).containsExactly(closedListing.getId());
+    }
+
+    /**
+     * Tests that archived listings are moved to the archived listing table with their details.
+     */
+    @Test
+    void whenArchiveListings_thenListingsMovedToArchive() {
+        int closedId = closedListing.getId();
+        int expiredId = expiredListing.getId();
+
+        int archived = listingRepository.archiveListings(List.of(closedId, expiredId));
+        entityManager.clear();
+
+        assertThat(archived).isEqualTo(2);
+        assertThat(listingRepository.findAll()).extracting(Listing::getId).containsExactly(liveListing.getId());
+        assertThat(listingRepository.findClosedOrExpiredListingIds(10)).isEmpty();
+        Optional<ArchivedListing> archivedListing = archivedListingRepository.findById(closedId);
+        assertThat(archivedListing).isPresent();
+        assertThat(archivedListing.get().getProductId()).isEqualTo("CLOSED");
+        assertThat(archivedListing.get().getBusinessId()).isEqualTo(business.getId());
+        assertThat(archivedListing.get().getMoreInfo()).isEqualTo("more info");
+        assertThat(archivedListing.get().getBookmarks()).isEqualTo(1);
+        assertThat(archivedListingRepository.findById(expiredId)).isPresent();
+    }
+
+    /**
+     * Tests that the users who bookmarked an archived listing are notified, and no notification is created for
+     * listings nobody bookmarked.
+     */
+    @Test
+    void whenArchiveListings_thenBookmarkersNotified() {
+        listingRepository.archiveListings(List.of(closedListing.getId(), expiredListing.getId()));
+
+        List<ListingNotification> notifications = listingNotificationRepository.findAll();
+        assertThat(notifications).hasSize(1);
+        assertThat(notifications.get(0).getDescription()).contains("Apple Juice", "Corner Shop");
+        assertThat(listingNotificationRepository.findAllByUsersId(user.getId())).hasSize(1);
+    }
+
+    /**
+     * Tests that archiving no listings does nothing.
+     */
+    @Test
+    void whenArchiveNoListings_thenNothingArchived() {
+        assertThat(listingRepository.archiveListings(List.of())).isZero();
+        assertThat(archivedListingRepository.count()).isZero();
+    }
+}
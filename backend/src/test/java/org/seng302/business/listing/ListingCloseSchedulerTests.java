@@ -0,0 +1,147 @@
+package org.seng302.business.listing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.model.Listing;
+import org.seng302.model.repository.ListingRepository;
+import org.seng302.services.ListingCloseScheduler;
+import org.seng302.services.ListingRangeIndex;
+import org.seng302.services.ScheduledJobLockService;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * ListingCloseScheduler test class
+ */
+class ListingCloseSchedulerTests {
+
+    private ListingRepository listingRepository;
+    private ListingRangeIndex listingRangeIndex;
+    private ListingCloseScheduler listingCloseScheduler;
+
+    private final LocalDateTime now = LocalDateTime.now();
+
+    /**
+     * Seeds the scheduler with two listings which are due to close and one which isn't.
+     */
+    @BeforeEach
+    void setup() {
+        listingRepository = mock(ListingRepository.class);
+        listingRangeIndex = mock(ListingRangeIndex.class);
+        listingCloseScheduler = new ListingCloseScheduler(listingRepository, listingRangeIndex,
+                mock(ScheduledJobLockService.class), 500);
+
+        when(listingRepository.findAllOpenListingRanges(any(LocalDateTime.class))).thenReturn(List.of(
+                createRange(1, now.minusMinutes(1)),
+                createRange(2, now.plusDays(1)),
+                createRange(3, now.minusSeconds(1))
+        ));
+        when(listingRepository.archiveListings(anyList()))
+                .thenAnswer(invocation -> invocation.<List<Integer>>getArgument(0).size());
+        listingCloseScheduler.reseed();
+    }
+
+    /**
+     * Creates the closing time of a listing.
+     */
+    private ListingRepository.ListingRange createRange(int id, LocalDateTime closes) {
+        return new ListingRepository.ListingRange() {
+            public Integer getId() { return id; }
+            public Double getPrice() { return 1.0; }
+            public LocalDateTime getCloses() { return closes; }
+        };
+    }
+
+    /**
+     * Creates a listing with a closing time.
+     */
+    private Listing createListing(int id, LocalDateTime closes) {
+        Listing listing = mock(Listing.class);
+        when(listing.getId()).thenReturn(id);
+        when(listing.getCloses()).thenReturn(closes);
+        return listing;
+    }
+
+    /**
+     * Tests that only the listings whose closing time has passed are closed, in one batch, and that they're
+     * removed from the range index.
+     */
+    @Test
+    void testCloseDueListingsClosesOnlyDueListings() {
+        assertThat(listingCloseScheduler.closeDueListings()).isEqualTo(2);
+
+        verify(listingRepository).archiveListings(List.of(1, 3));
+        verify(listingRangeIndex).removeListing(1);
+        verify(listingRangeIndex).removeListing(3);
+        verify(listingRangeIndex, never()).removeListing(2);
+    }
+
+    /**
+     * Tests that a listing is only closed once.
+     */
+    @Test
+    void testCloseDueListingsDoesNothingWhenNothingIsDue() {
+        listingCloseScheduler.closeDueListings();
+
+        assertThat(listingCloseScheduler.closeDueListings()).isZero();
+        verify(listingRepository, times(1)).archiveListings(anyList());
+    }
+
+    /**
+     * Tests that cancelled listings aren't closed, and rescheduled listings close at their new closing time.
+     */
+    @Test
+    void testCancelledAndRescheduledListingsNotClosedAtOldTime() {
+        listingCloseScheduler.cancelListing(1);
+        listingCloseScheduler.scheduleListing(createListing(3, now.plusDays(2)));
+        listingCloseScheduler.scheduleListing(createListing(2, now.minusSeconds(5)));
+        listingCloseScheduler.scheduleListing(createListing(4, now.minusSeconds(5)));
+
+        listingCloseScheduler.closeDueListings();
+
+        verify(listingRepository).archiveListings(List.of(2, 4));
+    }
+
+    /**
+     * Tests that listings which fail to close are retried on the next check.
+     */
+    @Test
+    void testFailedListingsRetried() {
+        when(listingRepository.archiveListings(anyList())).thenThrow(new RuntimeException("conflict")).thenReturn(2);
+
+        assertThat(listingCloseScheduler.closeDueListings()).isZero();
+        assertThat(listingCloseScheduler.closeDueListings()).isEqualTo(2);
+
+        verify(listingRepository, times(2)).archiveListings(List.of(1, 3));
+    }
+
+    /**
+     * Tests that listings scheduled, cancelled and closed while a reseed is reading the database are not lost or
+     * brought back when the reseeded queue is swapped in.
+     */
+    @Test
+    void testChangesDuringReseedAreKept() {
+        when(listingRepository.findAllOpenListingRanges(any(LocalDateTime.class))).thenAnswer(invocation -> {
+            listingCloseScheduler.closeDueListings();
+            listingCloseScheduler.scheduleListing(createListing(4, now.minusSeconds(5)));
+            listingCloseScheduler.cancelListing(5);
+            return List.of(
+                    createRange(1, now.minusMinutes(1)),
+                    createRange(3, now.minusSeconds(1)),
+                    createRange(5, now.minusSeconds(1))
+            );
+        });
+
+        listingCloseScheduler.reseed();
+        listingCloseScheduler.closeDueListings();
+
+        verify(listingRepository).archiveListings(List.of(1, 3));
+        verify(listingRepository).archiveListings(List.of(4));
+    }
+}
@@ -0,0 +1,277 @@
+package org.seng302.business.listing;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.Main;
+import org.seng302.model.*;
+import org.seng302.model.enums.BusinessType;
+import org.seng302.model.enums.Role;
+import org.seng302.model.repository.InventoryItemRepository;
+import org.seng302.model.repository.ListingRepository;
+import org.seng302.model.repository.SoldListingRepository;
+import org.seng302.services.InventoryLedger;
+import org.seng302.services.ListingPurchaseService;
+import org.seng302.services.ScheduledJobLockService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests buying listings with ListingPurchaseService, and reserving items with InventoryLedger, from many threads at
+ * once.
+ * The tests aren't run in a transaction, so each purchase commits (or rolls back) on its own like it does when called
+ * from the buy endpoint, and the context is thrown away afterwards so the committed rows don't reach other tests.
+ */
+@DataJpaTest
+@ContextConfiguration(classes = {Main.class})
+@Import({ListingPurchaseService.class, InventoryLedger.class, ScheduledJobLockService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@ActiveProfiles("test")
+class ListingPurchaseContentionTests {
+
+    private static final Logger logger = LogManager.getLogger(ListingPurchaseContentionTests.class.getName());
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ListingPurchaseService listingPurchaseService;
+
+    @Autowired
+    private InventoryLedger inventoryLedger;
+
+    @Autowired
+    private ListingRepository listingRepository;
+
+    @Autowired
+    private InventoryItemRepository inventoryItemRepository;
+
+    @Autowired
+    private SoldListingRepository soldListingRepository;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Business business;
+
+    private List<User> buyers;
+
+    // Every test creates its own rows, so product ids and emails are made unique with this.
+    private static final AtomicInteger sequence = new AtomicInteger();
+
+    /**
+     * Creates a business and a buyer for each thread.
+     */
+    @BeforeEach
+    void setup() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        buyers = new ArrayList<>();
+        business = transactionTemplate.execute(status -> {
+            try {
+                Address address = entityManager.persist(new Address("3/24", "Ilam Road", "Christchurch", "Canterbury", "New Zealand", "90210", "Ilam"));
+                User owner = entityManager.persist(createUser(address));
+                for (int i = 0; i < THREADS; i++) {
+                    buyers.add(entityManager.persist(createUser(address)));
+                }
+                return entityManager.persist(new Business(owner.getId(), "Corner Shop", "some text", address,
+                        BusinessType.RETAIL_TRADE, LocalDateTime.now(), owner, "$", "NZD"));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private User createUser(Address address) throws Exception {
+        return new User("first", "last", "middle", "nick", "bio", String.format("buyer%d@example.com", sequence.incrementAndGet()),
+                LocalDate.of(2000, Month.JANUARY, 1), "123456789", address, "Password123!",
+                LocalDateTime.of(2021, Month.JANUARY, 1, 0, 0), Role.USER);
+    }
+
+    /**
+     * Creates an inventory item with the given quantity, and a listing of each of the given quantities for it.
+     * @return the ids of the listings
+     */
+    private List<Integer> createListings(int itemQuantity, int... listingQuantities) {
+        return transactionTemplate.execute(status -> {
+            try {
+                String productId = "PRODUCT" + sequence.incrementAndGet();
+                Product product = entityManager.persist(new Product(productId, business, "Apple", "Description", "Manufacturer", 2.0, "9400547002634"));
+                InventoryItem inventoryItem = entityManager.persist(new InventoryItem(product, productId, itemQuantity, 2.0, 20.0,
+                        LocalDate.now().minusDays(10), LocalDate.now().plusDays(20), LocalDate.now().plusDays(20),
+                        LocalDate.now().plusDays(30)));
+                List<Integer> listingIds = new ArrayList<>();
+                for (int quantity : listingQuantities) {
+                    listingIds.add(entityManager.persist(new Listing(inventoryItem, quantity, 2.0, "more info",
+                            LocalDateTime.now(), LocalDateTime.now().plusDays(7))).getId());
+                }
+                return listingIds;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    /**
+     * Gets the id of the inventory item a listing is for.
+     */
+    private Integer getInventoryItemId(Integer listingId) {
+        return transactionTemplate.execute(status ->
+                listingRepository.findById(listingId).orElseThrow().getInventoryItem().getId());
+    }
+
+    /**
+     * Runs each purchase on its own thread, all starting at the same time.
+     * @param listingIds the listing each purchase buys, purchase i is made by buyer i % THREADS
+     * @return the number of purchases which succeeded
+     */
+    private int buyConcurrently(List<Integer> listingIds) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger bought = new AtomicInteger();
+        for (int i = 0; i < listingIds.size(); i++) {
+            Integer listingId = listingIds.get(i);
+            User buyer = buyers.get(i % THREADS);
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    if (listingPurchaseService.purchase(listingId, buyer, null)) {
+                        bought.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException e) {
+                    // lost the race for the listing or the inventory item
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(60, TimeUnit.SECONDS)).isTrue();
+        return bought.get();
+    }
+
+    /**
+     * Tests that when every thread buys the same listing at once, exactly one purchase succeeds and the listing's items
+     * are taken out of the inventory once.
+     */
+    @Test
+    void whenListingBoughtConcurrently_thenSoldExactlyOnce() throws Exception {
+        Integer listingId = createListings(10, 5).get(0);
+        Integer inventoryItemId = getInventoryItemId(listingId);
+        long soldBefore = soldListingRepository.count();
+        List<Integer> purchases = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            purchases.add(listingId);
+        }
+
+        int bought = buyConcurrently(purchases);
+
+        assertThat(bought).isEqualTo(1);
+        assertThat(listingRepository.findById(listingId)).isEmpty();
+        assertThat(soldListingRepository.count() - soldBefore).isEqualTo(1);
+        assertThat(inventoryItemRepository.findInventoryItemById(inventoryItemId).orElseThrow().getQuantity()).isEqualTo(5);
+    }
+
+    /**
+     * Tests that when listings which together have more items than their inventory item are bought at once, only
+     * those the inventory can cover are sold, the others are left as they were and the quantity never goes below zero.
+     */
+    @Test
+    void whenListingsOfOneItemBoughtConcurrently_thenInventoryNeverNegative() throws Exception {
+        List<Integer> listingIds = createListings(10, 6, 6);
+        Integer inventoryItemId = getInventoryItemId(listingIds.get(0));
+        long soldBefore = soldListingRepository.count();
+
+        int bought = buyConcurrently(listingIds);
+
+        assertThat(bought).isEqualTo(1);
+        assertThat(soldListingRepository.count() - soldBefore).isEqualTo(1);
+        assertThat(listingIds.stream().filter(id -> listingRepository.findById(id).isPresent())).hasSize(1);
+        assertThat(inventoryItemRepository.findInventoryItemById(inventoryItemId).orElseThrow().getQuantity()).isEqualTo(4);
+    }
+
+    /**
+     * Tests that when many listings are each bought by two buyers at once every listing is sold exactly once, and
+     * logs the purchase throughput.
+     */
+    @Test
+    void whenManyListingsContended_thenEachSoldOnce() throws Exception {
+        int listings = 100;
+        List<Integer> purchases = new ArrayList<>();
+        for (int i = 0; i < listings; i++) {
+            Integer listingId = createListings(10, 5).get(0);
+            purchases.add(listingId);
+            purchases.add(listingId);
+        }
+        long soldBefore = soldListingRepository.count();
+
+        long started = System.nanoTime();
+        int bought = buyConcurrently(purchases);
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        logger.info("Contended purchases: {} attempts, {} sold in {} s ({} purchases/s, {} threads)",
+                purchases.size(), bought, String.format("%.2f", seconds), String.format("%.0f", bought / seconds), THREADS);
+        assertThat(bought).isEqualTo(listings);
+        assertThat(soldListingRepository.count() - soldBefore).isEqualTo(listings);
+        assertThat(purchases.stream().distinct().filter(id -> listingRepository.findById(id).isPresent())).isEmpty();
+    }
+
+    /**
+     * Tests that when admins list items of the same inventory item at once, only as many items as there are get
+     * reserved.
+     */
+    @Test
+    void whenItemsReservedConcurrently_thenNeverOverReserved() throws Exception {
+        Integer inventoryItemId = getInventoryItemId(createListings(10, 1).get(0));
+        inventoryLedger.reconcile();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger reserved = new AtomicInteger();
+        for (int i = 0; i < THREADS; i++) {
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    inventoryLedger.reserve(inventoryItemId, 3);
+                    reserved.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    // not enough unreserved items left
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(60, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(reserved.get()).isEqualTo(3);
+        InventoryItem inventoryItem = inventoryItemRepository.findInventoryItemById(inventoryItemId).orElseThrow();
+        assertThat(inventoryItem.getReserved()).isEqualTo(10);
+        assertThat(inventoryItem.getAvailableQuantity()).isZero();
+    }
+}
@@ -0,0 +1,168 @@
+package org.seng302.business.listing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.model.Listing;
+import org.seng302.model.repository.ListingRepository;
+import org.seng302.services.ListingRangeIndex;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * ListingRangeIndex test class
+ */
+class ListingRangeIndexTests {
+
+    private ListingRepository listingRepository;
+    private ListingRangeIndex listingRangeIndex;
+
+    private final LocalDateTime now = LocalDateTime.now();
+
+    /**
+     * Sets up the index with a few listings.
+     */
+    @BeforeEach
+    void setup() {
+        listingRepository = mock(ListingRepository.class);
+        listingRangeIndex = new ListingRangeIndex(listingRepository, 1000);
+
+        when(listingRepository.findAllOpenListingRanges(any(LocalDateTime.class))).thenReturn(List.of(
+                createRange(1, 2.5, now.plusDays(1)),
+                createRange(2, 10.0, now.plusDays(3)),
+                createRange(3, 10.0, now.plusDays(10)),
+                createRange(4, 25.0, now.plusDays(2)),
+                createRange(5, 5.0, now.minusDays(1))
+        ));
+        listingRangeIndex.rebuild();
+    }
+
+    /**
+     * Creates the price and closing time of a listing.
+     */
+    private ListingRepository.ListingRange createRange(int id, double price, LocalDateTime closes) {
+        return new ListingRepository.ListingRange() {
+            public Integer getId() { return id; }
+            public Double getPrice() { return price; }
+            public LocalDateTime getCloses() { return closes; }
+        };
+    }
+
+    /**
+     * Tests that the index doesn't answer when there is no range to filter by.
+     */
+    @Test
+    void testFindListingIdsWithoutRangesIsEmpty() {
+        assertThat(listingRangeIndex.findListingIds(null, null, null, null)).isEmpty();
+    }
+
+    /**
+     * Tests that the index doesn't answer until it has been built, as until then it may be missing listings.
+     */
+    @Test
+    void testFindListingIdsBeforeRebuildIsEmpty() {
+        ListingRangeIndex unbuiltIndex = new ListingRangeIndex(listingRepository, 1000);
+        Listing created = mock(Listing.class);
+        when(created.getId()).thenReturn(6);
+        when(created.getPrice()).thenReturn(3.0);
+        when(created.getCloses()).thenReturn(now.plusDays(4));
+        unbuiltIndex.indexListing(created);
+
+        assertThat(unbuiltIndex.findListingIds(1.0, 5.0, null, null)).isEmpty();
+    }
+
+    /**
+     * Tests that price ranges include their ends and exclude listings which have closed.
+     */
+    @Test
+    void testFindListingIdsByPriceRange() {
+        assertThat(listingRangeIndex.findListingIds(2.5, 10.0, null, null)).contains(List.of(1, 2, 3));
+        assertThat(listingRangeIndex.findListingIds(11.0, null, null, null)).contains(List.of(4));
+        assertThat(listingRangeIndex.findListingIds(null, 5.0, null, null)).contains(List.of(1));
+        assertThat(listingRangeIndex.findListingIds(100.0, null, null, null)).contains(List.of());
+    }
+
+    /**
+     * Tests that closing date ranges only match listings which haven't closed.
+     */
+    @Test
+    void testFindListingIdsByClosingDateRange() {
+        assertThat(listingRangeIndex.findListingIds(null, null, null, now.plusDays(3))).contains(List.of(1, 2, 4));
+        assertThat(listingRangeIndex.findListingIds(null, null, now.minusDays(7), now.plusDays(1))).contains(List.of(1));
+    }
+
+    /**
+     * Tests that listings must be within both the price and closing date ranges.
+     */
+    @Test
+    void testFindListingIdsByPriceAndClosingDateRanges() {
+        assertThat(listingRangeIndex.findListingIds(5.0, 30.0, now.plusDays(2), now.plusDays(5))).contains(List.of(2, 4));
+    }
+
+    /**
+     * Tests that created listings are added, modified listings replace their old range and removed listings are
+     * no longer found.
+     */
+    @Test
+    void testIndexAndRemoveListing() {
+        Listing created = mock(Listing.class);
+        when(created.getId()).thenReturn(6);
+        when(created.getPrice()).thenReturn(3.0);
+        when(created.getCloses()).thenReturn(now.plusDays(4));
+        Listing modified = mock(Listing.class);
+        when(modified.getId()).thenReturn(1);
+        when(modified.getPrice()).thenReturn(40.0);
+        when(modified.getCloses()).thenReturn(now.plusDays(4));
+
+        listingRangeIndex.indexListing(created);
+        listingRangeIndex.indexListing(modified);
+        listingRangeIndex.removeListing(2);
+
+        assertThat(listingRangeIndex.findListingIds(null, 10.0, null, null)).contains(List.of(3, 6));
+        assertThat(listingRangeIndex.findListingIds(30.0, null, null, null)).contains(List.of(1));
+    }
+
+    /**
+     * Tests that listings indexed and removed while a rebuild is reading the database are not lost when the rebuilt
+     * index is swapped in.
+     */
+    @Test
+    void testChangesDuringRebuildAreKept() {
+        Listing created = mock(Listing.class);
+        when(created.getId()).thenReturn(6);
+        when(created.getPrice()).thenReturn(3.0);
+        when(created.getCloses()).thenReturn(now.plusDays(4));
+        when(listingRepository.findAllOpenListingRanges(any(LocalDateTime.class))).thenAnswer(invocation -> {
+            listingRangeIndex.indexListing(created);
+            listingRangeIndex.removeListing(1);
+            return List.of(createRange(1, 2.5, now.plusDays(1)), createRange(2, 10.0, now.plusDays(3)));
+        });
+
+        listingRangeIndex.rebuild();
+
+        assertThat(listingRangeIndex.findListingIds(null, 10.0, null, null)).contains(List.of(2, 6));
+    }
+
+    /**
+     * Tests that the index doesn't answer when more listings match than it returns as candidates.
+     */
+    @Test
+    void testFindListingIdsWithTooManyMatchesIsEmpty() {
+        List<ListingRepository.ListingRange> ranges = new ArrayList<>();
+        for (int id = 1; id <= 1001; id++) {
+            ranges.add(createRange(id, 1.0, now.plusDays(1)));
+        }
+        when(listingRepository.findAllOpenListingRanges(any(LocalDateTime.class))).thenReturn(ranges);
+        listingRangeIndex.rebuild();
+
+        assertThat(listingRangeIndex.findListingIds(0.5, 1.5, null, null)).isEqualTo(Optional.empty());
+        assertThat(listingRangeIndex.findListingIds(2.0, null, null, null)).contains(List.of());
+    }
+}
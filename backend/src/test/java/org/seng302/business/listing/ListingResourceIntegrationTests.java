@@ -5,6 +5,7 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.seng302.exceptions.FailedToDeleteListingException;
+import org.seng302.exceptions.InsufficientInventoryException;
 import org.seng302.model.Address;
 import org.seng302.model.Business;
 import org.seng302.model.repository.*;
@@ -17,12 +18,20 @@ import org.seng302.Main;
 import org.seng302.model.Listing;
 import org.seng302.model.enums.Role;
 import org.seng302.model.User;
+import org.seng302.view.outgoing.ListingFacetsPayload;
+import org.seng302.view.outgoing.SearchPlanCacheStatisticsPayload;
+import org.seng302.services.BusinessLocationIndex;
+import org.seng302.services.InventoryLedger;
+import org.seng302.services.ListingCloseScheduler;
+import org.seng302.services.ListingPurchaseService;
+import org.seng302.services.ListingRangeIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.*;
 import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.ActiveProfiles;
@@ -40,7 +49,12 @@ import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 
@@ -84,6 +98,21 @@ class ListingResourceIntegrationTests {
     @MockBean
     private BookmarkedListingMessageRepository bookmarkedListingMessageRepository;
 
+    @MockBean
+    private BusinessLocationIndex businessLocationIndex;
+
+    @MockBean
+    private ListingRangeIndex listingRangeIndex;
+
+    @MockBean
+    private ListingCloseScheduler listingCloseScheduler;
+
+    @MockBean
+    private InventoryLedger inventoryLedger;
+
+    @MockBean
+    private ListingPurchaseRepository listingPurchaseRepository;
+
     private MockHttpServletResponse response;
 
     private User dGAA;
@@ -427,7 +456,10 @@ class ListingResourceIntegrationTests {
         adminListing.setId(1);
 
         this.mvc = MockMvcBuilders.standaloneSetup(new ListingResource(
-                listingRepository, inventoryItemRepository, productRepository, businessRepository, userRepository, soldListingRepository, listingNotificationRepository, soldListingNotificationRepository, bookmarkedListingMessageRepository))
+                listingRepository, inventoryItemRepository, productRepository, businessRepository, userRepository, soldListingRepository, listingNotificationRepository, soldListingNotificationRepository, bookmarkedListingMessageRepository, businessLocationIndex, listingRangeIndex, listingCloseScheduler,
+                new ListingPurchaseService(listingRepository, businessRepository, inventoryItemRepository, soldListingRepository,
+                        listingNotificationRepository, soldListingNotificationRepository, listingPurchaseRepository, inventoryLedger),
+                inventoryLedger))
                 .build();
     }
 
@@ -1575,8 +1607,9 @@ class ListingResourceIntegrationTests {
         Sort sort = Sort.by(Sort.Order.asc("inventoryItemId.expires").ignoreCase());
         Pageable paging = PageRequest.of(0, 12, sort);
 
-        when(listingRepository.findAllListingsByLocation(
-                names, paging, List.of(convertedBusinessType),
+        when(businessLocationIndex.findBusinessIds(names)).thenReturn(List.of(business.getId()));
+        when(listingRepository.findAllListingsByBusinessIds(
+                List.of(business.getId()), paging, List.of(convertedBusinessType),
                 9.0, 12.0,
                 LocalDateTime.of(2020, 1, 1, 0, 0),
                 LocalDateTime.of(2023, 1, 1, 0, 0),
@@ -1917,7 +1950,6 @@ class ListingResourceIntegrationTests {
         // when
         when(soldListingRepository.save(any(SoldListing.class))).thenReturn(soldListing);
         when(listingNotificationRepository.save(any(ListingNotification.class))).thenReturn(listingNotification);
-        when(inventoryItemRepository.save(inventoryItem)).thenReturn(inventoryItem);
         response = mvc.perform(put(String.format("/listings/%d/buy", listing.getId()))
                 .cookie(new Cookie("JSESSIONID", dGAA.getSessionUUID())))
                 .andReturn().getResponse();
@@ -1943,7 +1975,6 @@ class ListingResourceIntegrationTests {
         // when
         when(soldListingRepository.save(any(SoldListing.class))).thenReturn(soldListing);
         when(listingNotificationRepository.save(any(ListingNotification.class))).thenReturn(listingNotification);
-        when(inventoryItemRepository.save(inventoryItem)).thenReturn(inventoryItem);
         response = mvc.perform(put(String.format("/listings/%d/buy", listing.getId()))
                 .cookie(new Cookie("JSESSIONID", anotherUser.getSessionUUID())))
                 .andReturn().getResponse();
@@ -1982,7 +2013,6 @@ class ListingResourceIntegrationTests {
         // when
         when(soldListingRepository.save(any(SoldListing.class))).thenReturn(soldListing);
         when(listingNotificationRepository.save(any(ListingNotification.class))).thenReturn(listingNotification);
-        when(inventoryItemRepository.save(inventoryItem)).thenReturn(inventoryItem);
         response = mvc.perform(put(String.format("/listings/%d/buy", listing.getId()))
                 .cookie(new Cookie("JSESSIONID", user.getSessionUUID())))
                 .andReturn().getResponse();
@@ -2059,6 +2089,131 @@ class ListingResourceIntegrationTests {
         assertThat(response.getErrorMessage()).isEqualTo("Inventory item for listing does not exist");
     }
 
+    /**
+     * Test that when buying a listing whose inventory item no longer has enough items then a CONFLICT status is
+     * received and no sale is recorded.
+     *
+     * @throws Exception Exception error
+     */
+    @Test
+    void cannotBuyListing_WhenInventoryItemHasTooFewItems() throws Exception {
+        // given
+        given(userRepository.findBySessionUUID(anotherUser.getSessionUUID())).willReturn(Optional.ofNullable(anotherUser));
+        given(businessRepository.findBusinessById(business.getId())).willReturn(Optional.ofNullable(business));
+        given(inventoryItemRepository.findInventoryItemById(inventoryItem.getId())).willReturn(Optional.ofNullable(inventoryItem));
+        given(listingRepository.findById(listing.getId())).willReturn(Optional.ofNullable(listing));
+        doThrow(new InsufficientInventoryException("Not enough items")).when(inventoryLedger).sell(inventoryItem.getId(), listing.getQuantity());
+
+        // when
+        response = mvc.perform(put(String.format("/listings/%d/buy", listing.getId()))
+                .cookie(new Cookie("JSESSIONID", anotherUser.getSessionUUID())))
+                .andReturn().getResponse();
+
+        // then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.CONFLICT.value());
+        assertThat(response.getErrorMessage()).isEqualTo("Not enough items in inventory for listing");
+        verify(soldListingRepository, never()).save(any(SoldListing.class));
+    }
+
+    /**
+     * Test that when a listing is bought by someone else while it is being bought (so deleting the listing fails its
+     * version check) then a CONFLICT status is received.
+     *
+     * @throws Exception Exception error
+     */
+    @Test
+    void cannotBuyListing_WhenBoughtConcurrently() throws Exception {
+        // given
+        given(userRepository.findBySessionUUID(anotherUser.getSessionUUID())).willReturn(Optional.ofNullable(anotherUser));
+        given(businessRepository.findBusinessById(business.getId())).willReturn(Optional.ofNullable(business));
+        given(inventoryItemRepository.findInventoryItemById(inventoryItem.getId())).willReturn(Optional.ofNullable(inventoryItem));
+        given(listingRepository.findById(listing.getId())).willReturn(Optional.ofNullable(listing));
+        doThrow(new ObjectOptimisticLockingFailureException(Listing.class, listing.getId())).when(listingRepository).flush();
+
+        // when
+        response = mvc.perform(put(String.format("/listings/%d/buy", listing.getId()))
+                .cookie(new Cookie("JSESSIONID", anotherUser.getSessionUUID())))
+                .andReturn().getResponse();
+
+        // then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.CONFLICT.value());
+        verify(inventoryLedger, never()).sell(anyInt(), anyInt());
+    }
+
+    /**
+     * Test that retrying a purchase with the idempotency key of a purchase which succeeded receives an OK status
+     * without buying anything again.
+     *
+     * @throws Exception Exception error
+     */
+    @Test
+    void canRetryBuyListing_WhenAlreadyBoughtWithIdempotencyKey() throws Exception {
+        // given
+        given(userRepository.findBySessionUUID(anotherUser.getSessionUUID())).willReturn(Optional.ofNullable(anotherUser));
+        given(listingPurchaseRepository.findByUserIdAndIdempotencyKey(anotherUser.getId(), "purchase-1"))
+                .willReturn(Optional.of(new ListingPurchase(anotherUser.getId(), "purchase-1", listing.getId(), LocalDateTime.now())));
+
+        // when
+        response = mvc.perform(put(String.format("/listings/%d/buy", listing.getId()))
+                .header("Idempotency-Key", "purchase-1")
+                .cookie(new Cookie("JSESSIONID", anotherUser.getSessionUUID())))
+                .andReturn().getResponse();
+
+        // then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        verify(listingRepository, never()).delete(any(Listing.class));
+        verify(soldListingRepository, never()).save(any(SoldListing.class));
+    }
+
+    /**
+     * Test that buying a listing with an idempotency key records the purchase under the key.
+     *
+     * @throws Exception Exception error
+     */
+    @Test
+    void canBuyListing_WithIdempotencyKey_RecordsPurchase() throws Exception {
+        // given
+        given(userRepository.findBySessionUUID(anotherUser.getSessionUUID())).willReturn(Optional.ofNullable(anotherUser));
+        given(businessRepository.findBusinessById(business.getId())).willReturn(Optional.ofNullable(business));
+        given(inventoryItemRepository.findInventoryItemById(inventoryItem.getId())).willReturn(Optional.ofNullable(inventoryItem));
+        given(listingRepository.findById(listing.getId())).willReturn(Optional.ofNullable(listing));
+        given(soldListingRepository.save(any(SoldListing.class))).willReturn(soldListing);
+
+        // when
+        response = mvc.perform(put(String.format("/listings/%d/buy", listing.getId()))
+                .header("Idempotency-Key", "purchase-1")
+                .cookie(new Cookie("JSESSIONID", anotherUser.getSessionUUID())))
+                .andReturn().getResponse();
+
+        // then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        verify(listingPurchaseRepository).save(argThat(purchase -> purchase.getUserId().equals(anotherUser.getId())
+                && purchase.getIdempotencyKey().equals("purchase-1") && purchase.getListingId().equals(listing.getId())));
+    }
+
+    /**
+     * Test that using the idempotency key of a purchase of another listing receives a BAD_REQUEST status.
+     *
+     * @throws Exception Exception error
+     */
+    @Test
+    void cannotBuyListing_WhenIdempotencyKeyUsedForAnotherListing() throws Exception {
+        // given
+        given(userRepository.findBySessionUUID(anotherUser.getSessionUUID())).willReturn(Optional.ofNullable(anotherUser));
+        given(listingPurchaseRepository.findByUserIdAndIdempotencyKey(anotherUser.getId(), "purchase-1"))
+                .willReturn(Optional.of(new ListingPurchase(anotherUser.getId(), "purchase-1", listing.getId() + 1, LocalDateTime.now())));
+
+        // when
+        response = mvc.perform(put(String.format("/listings/%d/buy", listing.getId()))
+                .header("Idempotency-Key", "purchase-1")
+                .cookie(new Cookie("JSESSIONID", anotherUser.getSessionUUID())))
+                .andReturn().getResponse();
+
+        // then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+        assertThat(response.getErrorMessage()).isEqualTo("Idempotency key has already been used for another listing");
+    }
+
     /**
      * Test that when a user has already bookmarked and/or un-bookmarked a listing, they can retrieve
      * all BookmarkedListingMessages.
@@ -2390,4 +2545,139 @@ class ListingResourceIntegrationTests {
 
         assertThat(response.getStatus()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR.value());
     }
+
+    /**
+     * Tests that a GAA can retrieve the statistics of the listing search plan cache.
+     */
+    @Test
+    void whenRetrievingSearchPlanCacheStatisticsAsGaa_thenStatisticsReturned() throws Exception {
+        when(userRepository.findBySessionUUID(gAA.getSessionUUID())).thenReturn(Optional.of(gAA));
+        when(listingRepository.getSearchPlanCacheStatistics()).thenReturn(new SearchPlanCacheStatisticsPayload(2, 3, 1));
+
+        response = mvc.perform(get("/listings/search/planCache")
+                .cookie(new Cookie("JSESSIONID", gAA.getSessionUUID()))).andReturn().getResponse();
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(response.getContentAsString()).isEqualTo("{\"cachedPlans\":2,\"hitCount\":3,\"missCount\":1,\"hitRate\":0.75}");
+    }
+
+    /**
+     * Tests that a user who isn't a GAA or DGAA can't retrieve the statistics of the listing search plan cache.
+     */
+    @Test
+    void whenRetrievingSearchPlanCacheStatisticsAsUser_thenForbidden() throws Exception {
+        when(userRepository.findBySessionUUID(user.getSessionUUID())).thenReturn(Optional.of(user));
+
+        response = mvc.perform(get("/listings/search/planCache")
+                .cookie(new Cookie("JSESSIONID", user.getSessionUUID()))).andReturn().getResponse();
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.FORBIDDEN.value());
+        verify(listingRepository, never()).getSearchPlanCacheStatistics();
+    }
+
+    /**
+     * Tests that the facets of a location search are counted for the businesses the location index finds.
+     */
+    @Test
+    void whenRetrievingFacetsOfLocationSearch_thenFacetsOfBusinessesInLocationReturned() throws Exception {
+        ListingFacetsPayload facets = new ListingFacetsPayload(BusinessType.values(), List.of("0-5", "5+"), List.of("today", "later"));
+        facets.add("RETAIL_TRADE", "0-5", "later", 2);
+        when(userRepository.findBySessionUUID(user.getSessionUUID())).thenReturn(Optional.of(user));
+        when(businessLocationIndex.findBusinessIds(List.of("Christchurch"))).thenReturn(List.of(business.getId()));
+        when(listingRepository.countListingFacetsByBusinessIds(List.of(business.getId()), List.of(BusinessType.RETAIL_TRADE), 1.0, null, null, null, null))
+                .thenReturn(facets);
+
+        response = mvc.perform(get("/listings/facets")
+                .param("searchQuery", "Christchurch")
+                .param("searchType", "location")
+                .param("businessTypes", "RETAIL_TRADE")
+                .param("minimumPrice", "1.0")
+                .cookie(new Cookie("JSESSIONID", user.getSessionUUID()))).andReturn().getResponse();
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(response.getContentAsString()).isEqualTo("{\"total\":2," +
+                "\"businessTypes\":{\"ACCOMMODATION_AND_FOOD_SERVICES\":0,\"RETAIL_TRADE\":2,\"CHARITABLE_ORGANISATION\":0,\"NON_PROFIT_ORGANISATION\":0}," +
+                "\"prices\":{\"0-5\":2,\"5+\":0},\"closes\":{\"today\":0,\"later\":2}}");
+    }
+
+    /**
+     * Tests that a listing search can return the facets of the search alongside its results, in the Facets header.
+     */
+    @Test
+    void whenSearchingListingsIncludingFacets_thenFacetsReturnedInHeader() throws Exception {
+        ListingFacetsPayload facets = new ListingFacetsPayload(BusinessType.values(), List.of("0-5", "5+"), List.of("today", "later"));
+        facets.add("RETAIL_TRADE", "5+", "today", 1);
+        Pageable paging = PageRequest.of(0, 12, Sort.by(Sort.Order.asc("inventoryItemId.product.name").ignoreCase()));
+        when(userRepository.findBySessionUUID(user.getSessionUUID())).thenReturn(Optional.of(user));
+        when(listingRepository.findAllListingsByProductName(List.of("Beans"), paging, null, null, null, null, null, null))
+                .thenReturn(new PageImpl<>(List.of(listing)));
+        when(listingRepository.countListingFacetsByProductName(List.of("Beans"), null, null, null, null, null, null))
+                .thenReturn(facets);
+
+        response = mvc.perform(get("/listings")
+                .param("searchQuery", "Beans")
+                .param("includeFacets", "true")
+                .cookie(new Cookie("JSESSIONID", user.getSessionUUID()))).andReturn().getResponse();
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(response.getHeader("Facets")).isEqualTo("{\"total\":1," +
+                "\"businessTypes\":{\"ACCOMMODATION_AND_FOOD_SERVICES\":0,\"RETAIL_TRADE\":1,\"CHARITABLE_ORGANISATION\":0,\"NON_PROFIT_ORGANISATION\":0}," +
+                "\"prices\":{\"0-5\":0,\"5+\":1},\"closes\":{\"today\":1,\"later\":0}}");
+    }
+
+    /**
+     * Tests that a listing search doesn't count facets unless they are asked for.
+     */
+    @Test
+    void whenSearchingListingsWithoutFacets_thenFacetsNotCounted() throws Exception {
+        Pageable paging = PageRequest.of(0, 12, Sort.by(Sort.Order.asc("inventoryItemId.product.name").ignoreCase()));
+        when(userRepository.findBySessionUUID(user.getSessionUUID())).thenReturn(Optional.of(user));
+        when(listingRepository.findAllListingsByProductName(List.of("Beans"), paging, null, null, null, null, null, null))
+                .thenReturn(new PageImpl<>(List.of(listing)));
+
+        response = mvc.perform(get("/listings")
+                .param("searchQuery", "Beans")
+                .cookie(new Cookie("JSESSIONID", user.getSessionUUID()))).andReturn().getResponse();
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(response.getHeader("Facets")).isNull();
+        verify(listingRepository, never()).countListingFacetsByProductName(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    /**
+     * Tests that retrieving the facets of a search with an invalid search type is a bad request.
+     */
+    @Test
+    void whenRetrievingFacetsWithInvalidSearchType_thenBadRequest() throws Exception {
+        when(userRepository.findBySessionUUID(user.getSessionUUID())).thenReturn(Optional.of(user));
+
+        response = mvc.perform(get("/listings/facets")
+                .param("searchType", "colour")
+                .cookie(new Cookie("JSESSIONID", user.getSessionUUID()))).andReturn().getResponse();
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+    }
+
+    /**
+     * Tests that when the listing range index answers the price and closing date filters, the search only checks
+     * the candidate listings it found, still against the ranges.
+     */
+    @Test
+    void whenSearchingWithRangesTheIndexAnswers_thenCandidateListingsSearched() throws Exception {
+        Pageable paging = PageRequest.of(0, 12, Sort.by(Sort.Order.asc("inventoryItemId.product.name").ignoreCase()));
+        when(userRepository.findBySessionUUID(user.getSessionUUID())).thenReturn(Optional.of(user));
+        when(listingRangeIndex.findListingIds(9.0, 12.0, null, null)).thenReturn(Optional.of(List.of(listing.getId())));
+        when(listingRepository.findAllListingsByProductName(List.of("name"), paging, null, 9.0, 12.0, null, null, null, List.of(listing.getId())))
+                .thenReturn(new PageImpl<>(List.of(listing)));
+
+        response = mvc.perform(get("/listings")
+                .param("searchQuery", "name")
+                .param("minimumPrice", "9.0")
+                .param("maximumPrice", "12.0")
+                .cookie(new Cookie("JSESSIONID", user.getSessionUUID()))).andReturn().getResponse();
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(response.getHeader("Total-Rows")).isEqualTo("1");
+        verify(listingRepository, never()).findAllListingsByProductName(any(), any(), any(), any(), any(), any(), any(), any());
+    }
 }
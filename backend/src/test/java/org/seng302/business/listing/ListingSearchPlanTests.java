@@ -0,0 +1,275 @@
+package org.seng302.business.listing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.Main;
+import org.seng302.model.*;
+import org.seng302.model.enums.BusinessType;
+import org.seng302.model.enums.Role;
+import org.seng302.model.repository.BusinessRepository;
+import org.seng302.model.repository.ListingRepository;
+import org.seng302.view.outgoing.ListingFacetsPayload;
+import org.seng302.view.outgoing.SearchPlanCacheStatisticsPayload;
+import org.seng302.services.BusinessLocationIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the JPQL listing searches and facet counts of ListingRepositoryCustomImpl and the cache of their compiled
+ * queries.
+ * Dates are relative to today so that none of the listings have closed or expired.
+ */
+@DataJpaTest
+@ContextConfiguration(classes = {Main.class})
+@ActiveProfiles("test")
+class ListingSearchPlanTests {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ListingRepository listingRepository;
+
+    @Autowired
+    private BusinessRepository businessRepository;
+
+    private Listing appleListing;
+    private Listing beansListing;
+    private Listing charityBeansListing;
+    private Listing closedListing;
+    private Listing expiredListing;
+    private Business shop;
+    private Business charity;
+
+    private final Pageable pageable = PageRequest.of(0, 10, Sort.by(Sort.Order.asc("id")));
+
+    /**
+     * Creates two businesses in different cities with a few listings, one of which has closed and one of which has
+     * an expired inventory item.
+     */
+    @BeforeEach
+    void setup() throws Exception {
+        Address christchurch = new Address("3/24", "Ilam Road", "Christchurch", "Canterbury", "New Zealand", "90210", "Ilam");
+        Address invercargill = new Address("100", "Ilam Road", "Invercargill", "Southland", "New Zealand", "90210", "Georgetown");
+        entityManager.persist(christchurch);
+        entityManager.persist(invercargill);
+        User user = entityManager.persist(new User("first", "last", "middle", "nick", "bio", "test@example.com",
+                LocalDate.of(2000, Month.JANUARY, 1), "123456789", christchurch, "Password123!",
+                LocalDateTime.of(2021, Month.JANUARY, 1, 0, 0), Role.USER));
+        shop = entityManager.persist(new Business(user.getId(), "Corner Shop", "some text", christchurch,
+                BusinessType.RETAIL_TRADE, LocalDateTime.now(), user, "$", "NZD"));
+        charity = entityManager.persist(new Business(user.getId(), "Food Bank", "some text", invercargill,
+                BusinessType.CHARITABLE_ORGANISATION, LocalDateTime.now(), user, "$", "NZD"));
+
+        appleListing = createListing(shop, "APPLE", "Apple", "9400547002634", 5.0);
+        beansListing = createListing(shop, "BEANS", "Baked Beans", "9400547002627", 2.5);
+        charityBeansListing = createListing(charity, "BEANS", "Beans", "9400547002634", 1.0);
+        closedListing = createListing(shop, "CLOSED", "Apple Juice", "9400547002634", 3.0);
+        closedListing.setCloses(LocalDateTime.now().minusDays(1));
+        expiredListing = createListing(shop, "EXPIRED", "Apple Pie", "9400547002634", 4.0);
+        expiredListing.getInventoryItem().setExpires(LocalDate.now());
+        entityManager.flush();
+    }
+
+    /**
+     * Creates a listing which closes in a week for a new product of a business.
+     */
+    private Listing createListing(Business business, String productId, String name, String barcode, double price) throws Exception {
+        Product product = entityManager.persist(new Product(productId, business, name, "Description", "Manufacturer", price, barcode));
+        InventoryItem inventoryItem = entityManager.persist(new InventoryItem(product, productId, 10, price, price * 10,
+                LocalDate.now().minusDays(10), LocalDate.now().plusDays(20), LocalDate.now().plusDays(20),
+                LocalDate.now().plusDays(30)));
+        return entityManager.persist(new Listing(inventoryItem, 5, price, "", LocalDateTime.now(),
+                LocalDateTime.now().plusDays(7)));
+    }
+
+    /**
+     * Tests that names match product names containing them ignoring case, and names in quotation marks only match
+     * product names exactly, and that closed listings and listings of expired items aren't returned.
+     */
+    @Test
+    void whenFindAllListingsByProductName_thenContainingAndExactMatchesReturned() {
+        Page<Listing> containing = listingRepository.findAllListingsByProductName(List.of("aPPle", "beans"), pageable, null, null, null, null, null, null);
+        Page<Listing> exact = listingRepository.findAllListingsByProductName(List.of("\"Beans\""), pageable, null, null, null, null, null, null);
+
+        assertThat(containing.getContent()).containsExactly(appleListing, beansListing, charityBeansListing);
+        assertThat(containing.getTotalElements()).isEqualTo(3);
+        assertThat(exact.getContent()).containsExactly(charityBeansListing);
+    }
+
+    /**
+     * Tests that locations match any part of a business's address.
+     */
+    @Test
+    void whenFindAllListingsByLocation_thenListingsOfBusinessesInLocationReturned() {
+        Page<Listing> southland = findAllListingsByLocation(List.of("southLAND"), pageable);
+        Page<Listing> exactCity = findAllListingsByLocation(List.of("\"Christchurch\""), pageable);
+
+        assertThat(southland.getContent()).containsExactly(charityBeansListing);
+        assertThat(exactCity.getContent()).containsExactly(appleListing, beansListing);
+    }
+
+    /**
+     * Tests that the business type, price, closing date and barcode filters are all applied.
+     */
+    @Test
+    void whenFindAllListingsByBusinessNameWithFilters_thenOnlyListingsMatchingEveryFilterReturned() {
+        List<String> everything = List.of("");
+
+        assertThat(listingRepository.findAllListingsByBusinessName(everything, pageable,
+                List.of(BusinessType.CHARITABLE_ORGANISATION), null, null, null, null, null).getContent())
+                .containsExactly(charityBeansListing);
+        assertThat(listingRepository.findAllListingsByBusinessName(everything, pageable,
+                null, 2.0, 5.0, null, null, null).getContent())
+                .containsExactly(appleListing, beansListing);
+        assertThat(listingRepository.findAllListingsByBusinessName(everything, pageable,
+                null, null, null, LocalDateTime.now().plusDays(8), null, null).getContent())
+                .isEmpty();
+        assertThat(listingRepository.findAllListingsByBusinessName(List.of("corner"), pageable,
+                null, null, null, null, LocalDateTime.now().plusDays(8), "9400547002634").getContent())
+                .containsExactly(appleListing);
+    }
+
+    /**
+     * Tests that the total is counted over every page and that the sort is applied ignoring case.
+     */
+    @Test
+    void whenFindAllListingsSortedAndPaged_thenPageSortedAndTotalCounted() {
+        Pageable firstPage = PageRequest.of(0, 2, Sort.by(Sort.Order.desc("inventoryItem.product.name").ignoreCase()));
+
+        Page<Listing> page = listingRepository.findAllListingsByProductName(List.of(""), firstPage, null, null, null, null, null, null);
+
+        assertThat(page.getContent()).containsExactly(charityBeansListing, beansListing);
+        assertThat(page.getTotalElements()).isEqualTo(3);
+    }
+
+    /**
+     * Tests that searches with no names, or an empty list of business types, match nothing.
+     */
+    @Test
+    void whenFindAllListingsWithNoNamesOrBusinessTypes_thenNoListingsReturned() {
+        assertThat(listingRepository.findAllListingsByProductName(List.of(), pageable, null, null, null, null, null, null)).isEmpty();
+        assertThat(listingRepository.findAllListingsByProductName(List.of(""), pageable, List.of(), null, null, null, null, null)).isEmpty();
+    }
+
+    /**
+     * Tests that searches with the same shape but different values reuse the compiled query, and a new shape
+     * compiles a new one.
+     */
+    @Test
+    void whenSearchesHaveTheSameShape_thenCompiledQueryReused() {
+        // Ordering by moreInfo keeps these shapes distinct from any other test's.
+        Pageable byMoreInfo = PageRequest.of(0, 10, Sort.by(Sort.Order.asc("moreInfo"), Sort.Order.asc("id")));
+        SearchPlanCacheStatisticsPayload before = listingRepository.getSearchPlanCacheStatistics();
+
+        listingRepository.findAllListingsByProductName(List.of("shape test one"), byMoreInfo, null, 1.0, null, null, null, null);
+        listingRepository.findAllListingsByProductName(List.of("shape test two"), byMoreInfo, null, 2.0, null, null, null, null);
+        listingRepository.findAllListingsByProductName(List.of("shape test", "\"three\""), byMoreInfo, null, 3.0, null, null, null, null);
+
+        SearchPlanCacheStatisticsPayload after = listingRepository.getSearchPlanCacheStatistics();
+        assertThat(after.getHitCount() - before.getHitCount()).isEqualTo(1);
+        assertThat(after.getMissCount() - before.getMissCount()).isEqualTo(2);
+        assertThat(after.getHitRate()).isBetween(0.0, 1.0);
+    }
+
+    /**
+     * Tests that searching by business ids returns the listings of those businesses only.
+     */
+    @Test
+    void whenFindAllListingsByBusinessIds_thenListingsOfThoseBusinessesReturned() {
+        assertThat(listingRepository.findAllListingsByBusinessIds(List.of(charity.getId()), pageable, null, null, null, null, null, null).getContent())
+                .containsExactly(charityBeansListing);
+        assertThat(listingRepository.findAllListingsByBusinessIds(List.of(shop.getId(), charity.getId()), pageable, null, 2.0, null, null, null, null).getContent())
+                .containsExactly(appleListing, beansListing);
+        assertThat(listingRepository.findAllListingsByBusinessIds(List.of(), pageable, null, null, null, null, null, null)).isEmpty();
+    }
+
+    /**
+     * Tests that the facets count the matching listings by business type, price range and closing date range, and
+     * include the values which no listings have.
+     */
+    @Test
+    void whenCountListingFacets_thenMatchingListingsCountedByFacet() {
+        ListingFacetsPayload facets = listingRepository.countListingFacetsByProductName(List.of(""), null, null, null, null, null, null);
+
+        assertThat(facets.getTotal()).isEqualTo(3);
+        assertThat(facets.getBusinessTypes()).containsEntry("RETAIL_TRADE", 2L)
+                .containsEntry("CHARITABLE_ORGANISATION", 1L)
+                .containsEntry("NON_PROFIT_ORGANISATION", 0L);
+        assertThat(facets.getPrices()).containsEntry("0-5", 2L).containsEntry("5-10", 1L).containsEntry("50+", 0L);
+        assertThat(facets.getCloses()).containsEntry("withinAWeek", 3L).containsEntry("today", 0L);
+    }
+
+    /**
+     * Tests that the facet counts apply the search and its filters.
+     */
+    @Test
+    void whenCountListingFacetsWithFilters_thenOnlyMatchingListingsCounted() {
+        ListingFacetsPayload byName = listingRepository.countListingFacetsByBusinessName(List.of("corner"), null, null, 3.0, null, null, null);
+        ListingFacetsPayload byIds = listingRepository.countListingFacetsByBusinessIds(List.of(charity.getId()), null, null, null, null, null, null);
+        ListingFacetsPayload none = listingRepository.countListingFacetsByBusinessIds(List.of(), null, null, null, null, null, null);
+
+        assertThat(byName.getTotal()).isEqualTo(1);
+        assertThat(byName.getPrices()).containsEntry("0-5", 1L);
+        assertThat(byIds.getTotal()).isEqualTo(1);
+        assertThat(byIds.getBusinessTypes()).containsEntry("CHARITABLE_ORGANISATION", 1L);
+        assertThat(none.getTotal()).isZero();
+        assertThat(none.getPrices()).containsOnlyKeys("0-5", "5-10", "10-20", "20-50", "50+");
+    }
+
+    /**
+     * Tests that searching among candidate listings only returns the candidates which match the search.
+     */
+    @Test
+    void whenFindAllListingsAmongCandidates_thenOnlyMatchingCandidatesReturned() {
+        List<Integer> candidates = List.of(appleListing.getId(), charityBeansListing.getId(), closedListing.getId());
+
+        assertThat(listingRepository.findAllListingsByProductName(List.of("apple", "beans"), pageable, null, 1.0, null, null, null, null, candidates).getContent())
+                .containsExactly(appleListing, charityBeansListing);
+        assertThat(listingRepository.findAllListingsByBusinessName(List.of("corner"), pageable, null, 1.0, null, null, null, null, candidates).getContent())
+                .containsExactly(appleListing);
+        assertThat(listingRepository.findAllListingsByBusinessIds(List.of(charity.getId()), pageable, null, 1.0, null, null, null, null, candidates).getContent())
+                .containsExactly(charityBeansListing);
+        assertThat(listingRepository.findAllListingsByProductName(List.of(""), pageable, null, 1.0, null, null, null, null, List.of())).isEmpty();
+    }
+
+    /**
+     * Tests that candidate listings are still checked against the price and closing date ranges, so a candidate the
+     * range index has out of date isn't returned.
+     */
+    @Test
+    void whenFindAllListingsAmongCandidatesOutsideRanges_thenCandidatesNotReturned() {
+        List<Integer> candidates = List.of(appleListing.getId(), beansListing.getId(), charityBeansListing.getId());
+
+        assertThat(listingRepository.findAllListingsByProductName(List.of(""), pageable, null, 2.0, 5.0, null, null, null, candidates).getContent())
+                .containsExactly(appleListing, beansListing);
+        assertThat(listingRepository.findAllListingsByProductName(List.of(""), pageable, null, null, null,
+                LocalDateTime.now().plusMonths(1), null, null, candidates).getContent()).isEmpty();
+    }
+
+    /**
+     * Searches for listings by location the way the listing search does, finding the businesses in the locations
+     * with a BusinessLocationIndex built from the saved businesses.
+     */
+    private Page<Listing> findAllListingsByLocation(List<String> locations, Pageable pageable) {
+        BusinessLocationIndex businessLocationIndex = new BusinessLocationIndex(businessRepository);
+        businessLocationIndex.rebuild();
+        return listingRepository.findAllListingsByBusinessIds(
+                businessLocationIndex.findBusinessIds(locations), pageable, null, null, null, null, null, null
+        );
+    }
+}
@@ -855,6 +855,59 @@ class ProductResourceIntegrationTests {
         assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
     }
 
+    /** Tests that a BAD_REQUEST status is received when making a request to the /businesses/{id}/products API endpoint with
+     * a valid business ID and a search query which expands to too many names.
+     *
+     * @throws Exception Exception error
+     */
+    @Test
+    void cantRetrieveProductsWhenBusinessExistsWithTooComplexSearchQuery() throws Exception {
+        // given
+        given(userRepository.findById(1)).willReturn(Optional.ofNullable(dGAA));
+        given(businessRepository.findBusinessById(1)).willReturn(Optional.ofNullable(business));
+        String group = "(a OR b OR c OR d)";
+
+        // when
+        when(userRepository.findBySessionUUID(dGAA.getSessionUUID())).thenReturn(Optional.ofNullable(dGAA));
+        response = mvc.perform(get(String.format("/businesses/%d/products", business.getId()))
+                        .param("searchQuery", String.join(" ", group, group, group, group))
+                        .param("searchBy", "name")
+                        .param("orderBy", "productIdASC")
+                        .param("page", "0")
+                        .cookie(new Cookie("JSESSIONID", dGAA.getSessionUUID())))
+                .andReturn().getResponse();
+
+        // then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+        assertThat(response.getErrorMessage()).isEqualTo("Search query too complex");
+    }
+
+    /** Tests that a BAD_REQUEST status is received when making a request to the /businesses/{id}/products API endpoint with
+     * a valid business ID and a search query which nests groups thousands deep.
+     *
+     * @throws Exception Exception error
+     */
+    @Test
+    void cantRetrieveProductsWhenBusinessExistsWithDeeplyNestedSearchQuery() throws Exception {
+        // given
+        given(userRepository.findById(1)).willReturn(Optional.ofNullable(dGAA));
+        given(businessRepository.findBusinessById(1)).willReturn(Optional.ofNullable(business));
+
+        // when
+        when(userRepository.findBySessionUUID(dGAA.getSessionUUID())).thenReturn(Optional.ofNullable(dGAA));
+        response = mvc.perform(get(String.format("/businesses/%d/products", business.getId()))
+                        .param("searchQuery", "(".repeat(5000) + "a")
+                        .param("searchBy", "name")
+                        .param("orderBy", "productIdASC")
+                        .param("page", "0")
+                        .cookie(new Cookie("JSESSIONID", dGAA.getSessionUUID())))
+                .andReturn().getResponse();
+
+        // then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+        assertThat(response.getErrorMessage()).isEqualTo("Search query too complex");
+    }
+
     /**
      * Test that an OK status is returned along with a payload of valid Products when calling
      * /businesses/{businessId}/productAll with a barcode parameter
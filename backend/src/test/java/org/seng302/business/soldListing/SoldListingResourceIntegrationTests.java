@@ -12,6 +12,11 @@ import org.seng302.model.enums.BusinessType;
 import org.seng302.model.enums.Role;
 import org.seng302.model.repository.*;
 import org.seng302.view.outgoing.SalesReportPayload;
+import org.seng302.services.BusinessLocationIndex;
+import org.seng302.services.InventoryLedger;
+import org.seng302.services.ListingCloseScheduler;
+import org.seng302.services.ListingPurchaseService;
+import org.seng302.services.ListingRangeIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -74,6 +79,21 @@ public class SoldListingResourceIntegrationTests {
     @MockBean
     private BookmarkedListingMessageRepository bookmarkedListingMessageRepository;
 
+    @MockBean
+    private BusinessLocationIndex businessLocationIndex;
+
+    @MockBean
+    private ListingRangeIndex listingRangeIndex;
+
+    @MockBean
+    private ListingCloseScheduler listingCloseScheduler;
+
+    @MockBean
+    private InventoryLedger inventoryLedger;
+
+    @MockBean
+    private ListingPurchaseRepository listingPurchaseRepository;
+
     private MockHttpServletResponse response;
 
     private final ObjectMapper mapper = new ObjectMapper();
@@ -282,7 +302,10 @@ public class SoldListingResourceIntegrationTests {
         soldListing2.setSaleDate(LocalDateTime.of(2021, Month.MARCH, 5, 0, 0));
 
         this.mvc = MockMvcBuilders.standaloneSetup(new ListingResource(
-                listingRepository, inventoryItemRepository, productRepository, businessRepository, userRepository, soldListingRepository, listingNotificationRepository, soldListingNotificationRepository, bookmarkedListingMessageRepository))
+                listingRepository, inventoryItemRepository, productRepository, businessRepository, userRepository, soldListingRepository, listingNotificationRepository, soldListingNotificationRepository, bookmarkedListingMessageRepository, businessLocationIndex, listingRangeIndex, listingCloseScheduler,
+                new ListingPurchaseService(listingRepository, businessRepository, inventoryItemRepository, soldListingRepository,
+                        listingNotificationRepository, soldListingNotificationRepository, listingPurchaseRepository, inventoryLedger),
+                inventoryLedger))
                 .build();
     }
 
@@ -0,0 +1,160 @@
+package org.seng302.conversation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.Main;
+import org.seng302.model.*;
+import org.seng302.model.enums.Role;
+import org.seng302.model.enums.Section;
+import org.seng302.model.repository.ConversationInboxEntryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.Month;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ConversationInboxEntryRepository test class
+ */
+@DataJpaTest
+@ContextConfiguration(classes = {Main.class})
+@ActiveProfiles("test")
+class ConversationInboxEntryRepositoryIntegrationTests {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ConversationInboxEntryRepository conversationInboxEntryRepository;
+
+    private User user1;
+    private User user2;
+    private Conversation conversation1;
+    private Conversation conversation2;
+
+    /**
+     * Sets up two conversations between two users, each with an inbox entry for both users.
+     */
+    @BeforeEach
+    void setup() throws Exception {
+        Address address = new Address(
+                "3/24",
+                "Ilam Road",
+                "Christchurch",
+                "Canterbury",
+                "New Zealand",
+                "90210",
+                "Ilam"
+        );
+        entityManager.persist(address);
+
+        user1 = new User("Jeff", "Alex", "C", "Jeff", "bio", "Jeff@example.com",
+                LocalDate.of(2021, Month.JANUARY, 1).minusYears(13), "123456789", address, "Password123!",
+                LocalDateTime.of(LocalDate.of(2021, Month.JANUARY, 1), LocalTime.of(0, 0)), Role.USER);
+        user1 = entityManager.persist(user1);
+
+        user2 = new User("Abby", "Wyatt", "W", "Abby", "bio", "Abby@example.com",
+                LocalDate.of(2020, Month.JANUARY, 1).minusYears(13), "1234567555", address, "Password123!",
+                LocalDateTime.of(LocalDate.of(2020, Month.JANUARY, 1), LocalTime.of(0, 0)), Role.USER);
+        user2 = entityManager.persist(user2);
+
+        MarketplaceCard marketplaceCard = new MarketplaceCard(user1.getId(), user1, Section.FORSALE,
+                LocalDateTime.of(LocalDate.of(2021, Month.JANUARY, 1), LocalTime.of(0, 0)),
+                "Hayley's Birthday", "Come join Hayley and help her celebrate her birthday!");
+        marketplaceCard = entityManager.persist(marketplaceCard);
+
+        conversation1 = new Conversation(user2, user1, marketplaceCard);
+        conversation1.setCreated(LocalDateTime.of(2021, Month.JUNE, 1, 0, 0));
+        conversation1 = entityManager.persist(conversation1);
+        conversation2 = new Conversation(user2, user1, marketplaceCard);
+        conversation2.setCreated(LocalDateTime.of(2021, Month.JUNE, 2, 0, 0));
+        conversation2 = entityManager.persist(conversation2);
+
+        for (Conversation conversation : List.of(conversation1, conversation2)) {
+            entityManager.persist(new ConversationInboxEntry(user1.getId(), conversation));
+            entityManager.persist(new ConversationInboxEntry(user2.getId(), conversation));
+        }
+        entityManager.flush();
+    }
+
+    /**
+     * Tests that a user's inbox is ordered by last activity, most recent first, and only contains their entries.
+     */
+    @Test
+    void findInboxByUserId_ReturnsEntriesOrderedByLastActivity() {
+        // When
+        conversationInboxEntryRepository.recordMessage(conversation1.getId(), user2.getId(), "Hello",
+                LocalDateTime.of(2021, Month.JUNE, 3, 0, 0));
+        entityManager.clear();
+        List<ConversationInboxEntry> inbox = conversationInboxEntryRepository.findInboxByUserId(user1.getId());
+
+        // Then
+        assertThat(inbox).extracting(entry -> entry.getConversation().getId())
+                .containsExactly(conversation1.getId(), conversation2.getId());
+        assertThat(inbox).allMatch(entry -> entry.getUserId().equals(user1.getId()));
+        assertThat(inbox.get(0).getLastMessage()).isEqualTo("Hello");
+    }
+
+    /**
+     * Tests that recording messages counts them as unread for the other member only, and reading clears the count.
+     */
+    @Test
+    void recordMessageAndMarkRead_UpdateUnreadCounts() {
+        // When
+        LocalDateTime sent = LocalDateTime.of(2021, Month.JUNE, 3, 0, 0);
+        conversationInboxEntryRepository.recordMessage(conversation1.getId(), user2.getId(), "Hello", sent);
+        conversationInboxEntryRepository.recordMessage(conversation1.getId(), user2.getId(), "Are you there?", sent.plusMinutes(1));
+        entityManager.clear();
+
+        // Then
+        assertThat(conversationInboxEntryRepository.findInboxByUserId(user1.getId()).get(0).getUnreadCount()).isEqualTo(2);
+        assertThat(conversationInboxEntryRepository.findInboxByUserId(user2.getId()).get(0).getUnreadCount()).isZero();
+        assertThat(conversationInboxEntryRepository.findInboxByUserId(user1.getId()).get(0).getLastMessage()).isEqualTo("Are you there?");
+
+        // When
+        assertThat(conversationInboxEntryRepository.markRead(conversation1.getId(), user1.getId())).isEqualTo(1);
+        entityManager.clear();
+
+        // Then
+        assertThat(conversationInboxEntryRepository.findInboxByUserId(user1.getId()).get(0).getUnreadCount()).isZero();
+    }
+
+    /**
+     * Tests that removing a member's entry only removes the conversation from their inbox.
+     */
+    @Test
+    void deleteByConversationIdAndUserId_RemovesOnlyThatMembersEntry() {
+        // When
+        conversationInboxEntryRepository.deleteByConversationIdAndUserId(conversation1.getId(), user1.getId());
+
+        // Then
+        assertThat(conversationInboxEntryRepository.findInboxByUserId(user1.getId())).hasSize(1);
+        assertThat(conversationInboxEntryRepository.findInboxByUserId(user2.getId())).hasSize(2);
+    }
+
+    /**
+     * Tests that conversations with a member who hasn't left and has no entry are found.
+     */
+    @Test
+    void findConversationsMissingEntries_ReturnsConversationsWithoutEntries() {
+        // Given
+        conversationInboxEntryRepository.deleteAllByConversationId(conversation1.getId());
+        conversationInboxEntryRepository.deleteByConversationIdAndUserId(conversation2.getId(), user1.getId());
+        conversation2.setDeletedByReceiver(true);
+        entityManager.flush();
+
+        // When
+        List<Conversation> conversations = conversationInboxEntryRepository.findConversationsMissingEntries();
+
+        // Then
+        assertThat(conversations).extracting(Conversation::getId).containsExactly(conversation1.getId());
+    }
+}
@@ -0,0 +1,136 @@
+package org.seng302.conversation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.Main;
+import org.seng302.metrics.QueryCounter;
+import org.seng302.model.*;
+import org.seng302.model.enums.Role;
+import org.seng302.model.enums.Section;
+import org.seng302.services.ConversationInboxService;
+import org.seng302.view.outgoing.ConversationPayload;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ConversationInboxService test class, against the database so the queries listing an inbox are counted. The
+ * scheduled jobs don't run, so their statements aren't counted.
+ */
+@DataJpaTest
+@ContextConfiguration(classes = {Main.class})
+@Import({ConversationInboxService.class})
+@ActiveProfiles("test")
+class ConversationInboxServiceTests {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ConversationInboxService conversationInboxService;
+
+    @MockBean
+    private TaskScheduler taskScheduler;
+
+    private Address address;
+    private User user;
+    private MarketplaceCard card;
+
+    // Every member created gets its own email with this.
+    private int members;
+
+    /**
+     * Creates a user with a card, who conversations are started with.
+     */
+    @BeforeEach
+    void setup() throws Exception {
+        address = entityManager.persist(new Address("3/24", "Ilam Road", "Christchurch", "Canterbury", "New Zealand", "90210", "Ilam"));
+        user = createMember();
+        card = entityManager.persist(new MarketplaceCard(user.getId(), user, Section.FORSALE,
+                LocalDateTime.of(2021, Month.JANUARY, 1, 0, 0), "Hayley's Birthday", "Come join Hayley!"));
+        entityManager.flush();
+    }
+
+    /**
+     * Creates a user with an image.
+     */
+    private User createMember() throws Exception {
+        members++;
+        User member = entityManager.persist(new User("first", "last", "middle", "nick", "bio",
+                String.format("member%d@example.com", members), LocalDate.of(2000, Month.JANUARY, 1), "123456789",
+                address, "Password123!", LocalDateTime.of(2021, Month.JANUARY, 1, 0, 0), Role.USER));
+        entityManager.persist(new UserImage(member.getId(), "image" + members + ".png", "thumbnail" + members + ".png", true));
+        return member;
+    }
+
+    /**
+     * Starts conversations about the user's card with new members.
+     */
+    private void startConversations(int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            Conversation conversation = new Conversation(createMember(), user, card);
+            conversation.setCreated(LocalDateTime.of(2021, Month.JUNE, 1, 0, 0));
+            conversationInboxService.addConversation(entityManager.persist(conversation));
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    /**
+     * Lists the user's inbox from an empty persistence context and counts the statements it runs.
+     */
+    private long countInboxStatements(List<ConversationPayload> inbox) throws Throwable {
+        QueryCounter queryCounter = new QueryCounter(entityManagerFactory);
+        long statements = queryCounter.countStatements(() -> inbox.addAll(conversationInboxService.getInbox(user.getId())));
+        entityManager.clear();
+        return statements;
+    }
+
+    /**
+     * Tests that the inbox comes with the members' images.
+     */
+    @Test
+    void whenGetInbox_thenMemberImagesIncluded() throws Throwable {
+        startConversations(1);
+
+        List<ConversationPayload> inbox = new ArrayList<>();
+        countInboxStatements(inbox);
+
+        assertThat(inbox).hasSize(1);
+        assertThat(inbox.get(0).getInstigatorImages()).extracting("filename").containsExactly("image2.png");
+        assertThat(inbox.get(0).getReceiverImages()).extracting("filename").containsExactly("image1.png");
+    }
+
+    /**
+     * Tests that listing an inbox runs the same number of statements however many conversations (and members) it has.
+     */
+    @Test
+    void whenInboxGrows_thenStatementsStayTheSame() throws Throwable {
+        startConversations(1);
+        long oneConversation = countInboxStatements(new ArrayList<>());
+
+        startConversations(4);
+        List<ConversationPayload> inbox = new ArrayList<>();
+        long fiveConversations = countInboxStatements(inbox);
+
+        assertThat(inbox).hasSize(5);
+        assertThat(fiveConversations).isEqualTo(oneConversation);
+    }
+}
@@ -0,0 +1,86 @@
+package org.seng302.conversation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.model.repository.ConversationInboxEntryRepository;
+import org.seng302.model.repository.MarketplaceConversationMessageRepository;
+import org.seng302.model.repository.MarketplaceConversationRepository;
+import org.seng302.services.ConversationBatchDeleter;
+import org.seng302.services.ConversationPurgeService;
+import org.seng302.services.ScheduledJobLockService;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+/**
+ * ConversationPurgeService test class
+ */
+class ConversationPurgeServiceTests {
+
+    private MarketplaceConversationRepository marketplaceConversationRepository;
+    private MarketplaceConversationMessageRepository marketplaceConversationMessageRepository;
+    private ConversationInboxEntryRepository conversationInboxEntryRepository;
+    private ConversationPurgeService conversationPurgeService;
+
+    /**
+     * Sets up the service with mocked repositories.
+     */
+    @BeforeEach
+    void setup() {
+        marketplaceConversationRepository = mock(MarketplaceConversationRepository.class);
+        marketplaceConversationMessageRepository = mock(MarketplaceConversationMessageRepository.class);
+        conversationInboxEntryRepository = mock(ConversationInboxEntryRepository.class);
+        conversationPurgeService = new ConversationPurgeService(marketplaceConversationRepository,
+                new ConversationBatchDeleter(marketplaceConversationRepository,
+                        marketplaceConversationMessageRepository, conversationInboxEntryRepository),
+                mock(ScheduledJobLockService.class), 500);
+        when(marketplaceConversationRepository.deleteAllByIdIn(anyCollection()))
+                .thenAnswer(invocation -> invocation.<List<Integer>>getArgument(0).size());
+    }
+
+    /**
+     * Tests that conversations are deleted a full batch at a time until a partial batch is found, and that the
+     * inbox entries and messages of each batch are deleted before the conversations.
+     */
+    @Test
+    void testPurgeConversationsDeletesInBatches() {
+        List<Integer> fullBatch = IntStream.rangeClosed(1, 500).boxed().collect(Collectors.toList());
+        List<Integer> partialBatch = List.of(501, 502);
+        when(marketplaceConversationRepository.findIdsWithNoMembers(any(Pageable.class)))
+                .thenReturn(fullBatch)
+                .thenReturn(partialBatch);
+
+        int purged = conversationPurgeService.purgeConversations();
+
+        assertThat(purged).isEqualTo(502);
+        verify(marketplaceConversationRepository, times(2)).findIdsWithNoMembers(any(Pageable.class));
+        var order = inOrder(conversationInboxEntryRepository, marketplaceConversationMessageRepository,
+                marketplaceConversationRepository);
+        order.verify(conversationInboxEntryRepository).deleteAllByConversationIdIn(fullBatch);
+        order.verify(marketplaceConversationMessageRepository).deleteAllByConversationIdIn(fullBatch);
+        order.verify(marketplaceConversationRepository).deleteAllByIdIn(fullBatch);
+        order.verify(conversationInboxEntryRepository).deleteAllByConversationIdIn(partialBatch);
+        order.verify(marketplaceConversationMessageRepository).deleteAllByConversationIdIn(partialBatch);
+        order.verify(marketplaceConversationRepository).deleteAllByIdIn(partialBatch);
+    }
+
+    /**
+     * Tests that nothing is deleted when no conversation has been left by both members.
+     */
+    @Test
+    void testPurgeConversationsWithNothingToPurge() {
+        when(marketplaceConversationRepository.findIdsWithNoMembers(any(Pageable.class))).thenReturn(new ArrayList<>());
+
+        assertThat(conversationPurgeService.purgeConversations()).isZero();
+        verify(marketplaceConversationRepository, never()).deleteAllByIdIn(anyCollection());
+        verify(marketplaceConversationMessageRepository, never()).deleteAllByConversationIdIn(anyCollection());
+    }
+}
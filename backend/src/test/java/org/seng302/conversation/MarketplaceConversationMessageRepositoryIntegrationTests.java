@@ -13,6 +13,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
 
@@ -238,4 +240,83 @@ class MarketplaceConversationMessageRepositoryIntegrationTests {
     }
 
 
+
+    /**
+     * Tests that the newest messages are returned first, up to the page size.
+     */
+    @Test
+    void findLatestByConversationId_ReturnsNewestMessages() {
+        // When
+        List<Message> messageList = marketplaceConversationMessageRepository.findLatestByConversationId(conversation.getId(), PageRequest.of(0, 2));
+
+        // Then
+        assertThat(messageList).extracting(Message::getId).containsExactly(message4.getId(), message3.getId());
+    }
+
+    /**
+     * Tests that every message is returned, newest first, when unpaged.
+     */
+    @Test
+    void findLatestByConversationId_Unpaged_ReturnsEveryMessage() {
+        // When
+        List<Message> messageList = marketplaceConversationMessageRepository.findLatestByConversationId(conversation.getId(), Pageable.unpaged());
+
+        // Then
+        assertThat(messageList).extracting(Message::getId)
+                .containsExactly(message4.getId(), message3.getId(), message2.getId(), message.getId());
+    }
+
+    /**
+     * Tests that paging with a before cursor continues from the cursor, including messages created at the same time
+     * as the cursor.
+     */
+    @Test
+    void findBeforeByConversationId_ReturnsMessagesOlderThanCursor() throws IllegalMessageContentException {
+        // Given
+        Message sameTimeMessage = new Message(conversation, user1, "Sent at the same time as the second message");
+        sameTimeMessage.setCreated(message2.getCreated());
+        entityManager.persist(sameTimeMessage);
+        entityManager.flush();
+
+        // When
+        List<Message> messageList = marketplaceConversationMessageRepository.findBeforeByConversationId(
+                conversation.getId(), sameTimeMessage.getCreated(), sameTimeMessage.getId(), PageRequest.of(0, 10));
+
+        // Then
+        assertThat(messageList).extracting(Message::getId).containsExactly(message2.getId(), message.getId());
+    }
+
+    /**
+     * Tests that the messages after a cursor are returned oldest first, up to the page size.
+     */
+    @Test
+    void findAfterByConversationId_ReturnsMessagesNewerThanCursor() {
+        // When
+        List<Message> messageList = marketplaceConversationMessageRepository.findAfterByConversationId(
+                conversation.getId(), message.getCreated(), message.getId(), PageRequest.of(0, 2));
+
+        // Then
+        assertThat(messageList).extracting(Message::getId).containsExactly(message2.getId(), message3.getId());
+    }
+
+    /**
+     * Tests that deleting the messages of a conversation removes all of its messages and no others.
+     */
+    @Test
+    void deleteAllByConversationId_DeletesOnlyThatConversationsMessages() throws IllegalMessageContentException {
+        // Given
+        Conversation otherConversation = new Conversation(user1, anotherUser, marketplaceCard2);
+        entityManager.persist(otherConversation);
+        Message otherMessage = entityManager.persist(new Message(otherConversation, anotherUser, "Still here"));
+        entityManager.flush();
+
+        // When
+        int deleted = marketplaceConversationMessageRepository.deleteAllByConversationId(conversation.getId());
+        entityManager.clear();
+
+        // Then
+        assertThat(deleted).isEqualTo(4);
+        assertThat(marketplaceConversationMessageRepository.findAll()).extracting(Message::getId)
+                .containsExactly(otherMessage.getId());
+    }
 }
@@ -11,6 +11,7 @@ import org.seng302.model.repository.MarketplaceConversationRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
 
@@ -325,4 +326,51 @@ class MarketplaceConversationRepositoryIntegrationTests {
         Assertions.assertTrue(conversationList.isEmpty());
     }
 
+    /**
+     * Tests that only conversations which both members have left are found for purging, oldest first.
+     */
+    @Test
+    void findIdsWithNoMembers_ReturnsConversationsBothMembersLeft() {
+        // Given
+        Conversation leftByBoth = new Conversation(user1, user2, marketplaceCard1);
+        leftByBoth.setDeletedByInstigator(true);
+        leftByBoth.setDeletedByReceiver(true);
+        entityManager.persist(leftByBoth);
+        Conversation leftByOne = new Conversation(user1, anotherUser, marketplaceCard1);
+        leftByOne.setDeletedByInstigator(true);
+        entityManager.persist(leftByOne);
+        Conversation alsoLeftByBoth = new Conversation(user2, anotherUser, marketplaceCard2);
+        alsoLeftByBoth.setDeletedByInstigator(true);
+        alsoLeftByBoth.setDeletedByReceiver(true);
+        entityManager.persist(alsoLeftByBoth);
+        entityManager.flush();
+
+        // When
+        List<Integer> conversationIds = marketplaceConversationRepository.findIdsWithNoMembers(PageRequest.of(0, 10));
+
+        // Then
+        Assertions.assertEquals(List.of(leftByBoth.getId(), alsoLeftByBoth.getId()), conversationIds);
+        Assertions.assertEquals(List.of(leftByBoth.getId()),
+                marketplaceConversationRepository.findIdsWithNoMembers(PageRequest.of(0, 1)));
+    }
+
+    /**
+     * Tests that deleting conversations by ID removes only those conversations.
+     */
+    @Test
+    void deleteAllByIdIn_DeletesOnlyGivenConversations() {
+        // Given
+        Conversation deletedConversation = entityManager.persist(new Conversation(user1, user2, marketplaceCard1));
+        Conversation keptConversation = entityManager.persist(new Conversation(user1, anotherUser, marketplaceCard2));
+        entityManager.flush();
+
+        // When
+        int deleted = marketplaceConversationRepository.deleteAllByIdIn(List.of(deletedConversation.getId()));
+        entityManager.clear();
+
+        // Then
+        Assertions.assertEquals(1, deleted);
+        Assertions.assertTrue(marketplaceConversationRepository.findById(deletedConversation.getId()).isEmpty());
+        Assertions.assertTrue(marketplaceConversationRepository.findById(keptConversation.getId()).isPresent());
+    }
 }
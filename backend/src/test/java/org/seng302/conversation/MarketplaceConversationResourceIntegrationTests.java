@@ -8,14 +8,20 @@ import org.seng302.controller.MarketplaceConversationResource;
 import org.seng302.model.*;
 import org.seng302.model.enums.Role;
 import org.seng302.model.enums.Section;
+import org.seng302.model.repository.ConversationInboxEntryRepository;
 import org.seng302.model.repository.MarketplaceCardRepository;
 import org.seng302.model.repository.MarketplaceConversationMessageRepository;
 import org.seng302.model.repository.MarketplaceConversationRepository;
 import org.seng302.model.repository.UserRepository;
+import org.seng302.services.ConversationInboxService;
+import org.seng302.services.MessageStreamRegistry;
+import org.seng302.view.outgoing.MessagePayload;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpServletResponse;
@@ -23,6 +29,7 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.servlet.http.Cookie;
 import java.time.LocalDate;
@@ -33,7 +40,12 @@ import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 
@@ -62,6 +74,12 @@ class MarketplaceConversationResourceIntegrationTests {
     @MockBean
     private MarketplaceConversationMessageRepository marketplaceConversationMessageRepository;
 
+    @MockBean
+    private ConversationInboxEntryRepository conversationInboxEntryRepository;
+
+    @MockBean
+    private MessageStreamRegistry messageStreamRegistry;
+
     private MockHttpServletResponse response;
 
     private User instigator;
@@ -245,7 +263,9 @@ class MarketplaceConversationResourceIntegrationTests {
         messageDelete2.setId(3);
 
         this.mvc = MockMvcBuilders.standaloneSetup(
-                   new MarketplaceConversationResource(userRepository, marketplaceCardRepository, marketplaceConversationRepository, marketplaceConversationMessageRepository))
+                   new MarketplaceConversationResource(userRepository, marketplaceCardRepository, marketplaceConversationRepository, marketplaceConversationMessageRepository,
+                           new ConversationInboxService(conversationInboxEntryRepository, marketplaceConversationMessageRepository),
+                           messageStreamRegistry))
                    .build();
     }
 
@@ -292,7 +312,7 @@ class MarketplaceConversationResourceIntegrationTests {
         given(userRepository.findBySessionUUID(instigator.getSessionUUID())).willReturn(Optional.ofNullable(instigator));
 
         // When
-        when(marketplaceConversationRepository.findAllByInstigatorIdAndDeletedByInstigatorOrReceiverIdAndDeletedByReceiver_OrderByCreatedDesc(instigator.getId(), false, instigator.getId(), false)).thenReturn(List.of());
+        when(conversationInboxEntryRepository.findInboxByUserId(instigator.getId())).thenReturn(List.of());
         response = mvc.perform(get("/home/conversation")
                 .cookie(new Cookie("JSESSIONID", instigator.getSessionUUID()))).andReturn().getResponse();
 
@@ -313,13 +333,18 @@ class MarketplaceConversationResourceIntegrationTests {
         given(userRepository.findBySessionUUID(instigator.getSessionUUID())).willReturn(Optional.ofNullable(instigator));
 
         // When
-        when(marketplaceConversationRepository.findAllByInstigatorIdAndDeletedByInstigatorOrReceiverIdAndDeletedByReceiver_OrderByCreatedDesc(instigator.getId(), false, instigator.getId(), false)).thenReturn(List.of(conversation));
+        ConversationInboxEntry inboxEntry = new ConversationInboxEntry(instigator.getId(), conversation);
+        inboxEntry.setLastMessage(content);
+        inboxEntry.setLastActivity(LocalDateTime.of(2021, 6, 2, 0, 0));
+        inboxEntry.setUnreadCount(2);
+        when(conversationInboxEntryRepository.findInboxByUserId(instigator.getId())).thenReturn(List.of(inboxEntry));
         response = mvc.perform(get("/home/conversation")
                 .cookie(new Cookie("JSESSIONID", instigator.getSessionUUID()))).andReturn().getResponse();
 
         // Then
         assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
-        assertThat(response.getContentAsString()).isEqualTo("[" + conversation.toConversationPayload().toString() + "]");
+        assertThat(response.getContentAsString()).isEqualTo("[" + inboxEntry.toConversationPayload().toString() + "]");
+        assertThat(inboxEntry.toConversationPayload().getUnreadCount()).isEqualTo(2);
     }
 
     // --------------------------------- Tests for POST /home/conversation/{conversationId} ----------------------------
@@ -534,6 +559,74 @@ class MarketplaceConversationResourceIntegrationTests {
         assertThat(response.getStatus()).isEqualTo(HttpStatus.CREATED.value());
         assertThat(conversation.getReadByReceiver()).isFalse();
         assertThat(conversation.getReadByInstigator()).isTrue();
+        verify(conversationInboxEntryRepository).recordMessage(eq(conversation.getId()), eq(instigator.getId()), eq(content), any(LocalDateTime.class));
+            verify(messageStreamRegistry).publish(eq(receiver.getId()), any(MessagePayload.class));
+    }
+
+    /**
+     * Tests that a message is not delivered to the stream of a member who has left the conversation.
+     * @throws Exception exception
+     */
+    @Test
+    void testMessageNotStreamed_WhenReceiverHasLeftConversation() throws Exception {
+        // given
+        given(userRepository.findBySessionUUID(instigator.getSessionUUID())).willReturn(Optional.ofNullable(instigator));
+        given(userRepository.findById(instigator.getId())).willReturn(Optional.ofNullable(instigator));
+        given(userRepository.findById(receiver.getId())).willReturn(Optional.ofNullable(receiver));
+        given(marketplaceCardRepository.findById(marketplaceCard.getId())).willReturn(Optional.ofNullable(marketplaceCard));
+        given(marketplaceConversationRepository.findConversationById(conversation.getId())).willReturn(Optional.ofNullable(conversation));
+        conversation.setDeletedByReceiver(true);
+
+        payloadJson = String.format(messagePayloadJson, instigator.getId(), receiver.getId(),
+                marketplaceCard.getId(), content, LocalDateTime.of(LocalDate.of(2021, 2, 2),
+                        LocalTime.of(0, 0)));
+
+        // when
+        response = mvc.perform(post(String.format("/home/conversation/%d", conversation.getId()))
+                .cookie(new Cookie("JSESSIONID", instigator.getSessionUUID()))
+                .contentType(MediaType.APPLICATION_JSON).content(payloadJson))
+                .andReturn().getResponse();
+
+        // then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.CREATED.value());
+        verify(messageStreamRegistry, never()).publish(anyInt(), any(MessagePayload.class));
+    }
+
+    // ------------------------------------- Tests for GET /home/conversation/stream -------------------------------------
+
+    /**
+     * Tests that a logged in user can open a message stream.
+     * @throws Exception exception
+     */
+    @Test
+    void testOpenMessageStream_WhenLoggedIn() throws Exception {
+        // given
+        given(userRepository.findBySessionUUID(receiver.getSessionUUID())).willReturn(Optional.ofNullable(receiver));
+        given(messageStreamRegistry.subscribe(receiver.getId())).willReturn(new SseEmitter());
+
+        // when
+        response = mvc.perform(get("/home/conversation/stream")
+                .cookie(new Cookie("JSESSIONID", receiver.getSessionUUID())))
+                .andReturn().getResponse();
+
+        // then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        verify(messageStreamRegistry).subscribe(receiver.getId());
+    }
+
+    /**
+     * Tests that a user who is not logged in can't open a message stream.
+     * @throws Exception exception
+     */
+    @Test
+    void testOpenMessageStream_WhenNotLoggedIn() throws Exception {
+        // when
+        response = mvc.perform(get("/home/conversation/stream"))
+                .andReturn().getResponse();
+
+        // then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.UNAUTHORIZED.value());
+        verify(messageStreamRegistry, never()).subscribe(anyInt());
     }
 
     /**
@@ -581,7 +674,7 @@ class MarketplaceConversationResourceIntegrationTests {
 
         // When
         when(marketplaceConversationRepository.findConversationById(1)).thenReturn(Optional.of(conversation));
-        when(marketplaceConversationMessageRepository.findAllByConversationId_OrderByCreatedDesc(1)).thenReturn(List.of(message));
+        when(marketplaceConversationMessageRepository.findLatestByConversationId(eq(1), any(Pageable.class))).thenReturn(List.of(message));
         response = mvc.perform(get("/home/conversation/" + conversation.getId() + "/messages")
                 .cookie(new Cookie("JSESSIONID", instigator.getSessionUUID()))).andReturn().getResponse();
 
@@ -590,6 +683,49 @@ class MarketplaceConversationResourceIntegrationTests {
         assertThat(response.getContentAsString()).isEqualTo("[" + message.toMessagePayload().toString() + "]");
     }
 
+    /**
+     * Tests that every message is requested when no limit is given, as the conversation view doesn't send one.
+     *
+     * @throws Exception thrown if there's an error with the mock mvc methods.
+     */
+    @Test
+    void canRetrieveEveryMessageWhenNoLimitGiven() throws Exception {
+        // Given
+        given(userRepository.findBySessionUUID(instigator.getSessionUUID())).willReturn(Optional.ofNullable(instigator));
+
+        // When
+        when(marketplaceConversationRepository.findConversationById(1)).thenReturn(Optional.of(conversation));
+        when(marketplaceConversationMessageRepository.findLatestByConversationId(eq(1), any(Pageable.class))).thenReturn(List.of(message));
+        response = mvc.perform(get("/home/conversation/" + conversation.getId() + "/messages")
+                .cookie(new Cookie("JSESSIONID", instigator.getSessionUUID()))).andReturn().getResponse();
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        verify(marketplaceConversationMessageRepository).findLatestByConversationId(1, Pageable.unpaged());
+    }
+
+    /**
+     * Tests that only the newest limit messages are requested when a limit is given.
+     *
+     * @throws Exception thrown if there's an error with the mock mvc methods.
+     */
+    @Test
+    void canRetrieveNewestMessagesUpToLimit() throws Exception {
+        // Given
+        given(userRepository.findBySessionUUID(instigator.getSessionUUID())).willReturn(Optional.ofNullable(instigator));
+
+        // When
+        when(marketplaceConversationRepository.findConversationById(1)).thenReturn(Optional.of(conversation));
+        when(marketplaceConversationMessageRepository.findLatestByConversationId(eq(1), any(Pageable.class))).thenReturn(List.of(message));
+        response = mvc.perform(get("/home/conversation/" + conversation.getId() + "/messages")
+                .param("limit", "10")
+                .cookie(new Cookie("JSESSIONID", instigator.getSessionUUID()))).andReturn().getResponse();
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        verify(marketplaceConversationMessageRepository).findLatestByConversationId(1, PageRequest.of(0, 10));
+    }
+
     /**
      * Tests the read by receiver/instigator is set correctly when receiver views the conversation
      *
@@ -605,7 +741,7 @@ class MarketplaceConversationResourceIntegrationTests {
 
         // When
         when(marketplaceConversationRepository.findConversationById(1)).thenReturn(Optional.of(conversation));
-        when(marketplaceConversationMessageRepository.findAllByConversationId_OrderByCreatedDesc(1)).thenReturn(List.of(message));
+        when(marketplaceConversationMessageRepository.findLatestByConversationId(eq(1), any(Pageable.class))).thenReturn(List.of(message));
         response = mvc.perform(get("/home/conversation/" + conversation.getId() + "/messages")
                 .cookie(new Cookie("JSESSIONID", instigator.getSessionUUID()))).andReturn().getResponse();
 
@@ -632,7 +768,7 @@ class MarketplaceConversationResourceIntegrationTests {
 
         // When
         when(marketplaceConversationRepository.findConversationById(1)).thenReturn(Optional.of(conversation));
-        when(marketplaceConversationMessageRepository.findAllByConversationId_OrderByCreatedDesc(1)).thenReturn(List.of(message));
+        when(marketplaceConversationMessageRepository.findLatestByConversationId(eq(1), any(Pageable.class))).thenReturn(List.of(message));
         response = mvc.perform(get("/home/conversation/" + conversation.getId() + "/messages")
                 .cookie(new Cookie("JSESSIONID", receiver.getSessionUUID()))).andReturn().getResponse();
 
@@ -654,7 +790,7 @@ class MarketplaceConversationResourceIntegrationTests {
 
         // When
         when(marketplaceConversationRepository.findConversationById(1)).thenReturn(Optional.of(conversation));
-        when(marketplaceConversationMessageRepository.findAllByConversationId_OrderByCreatedDesc(1)).thenReturn(List.of(message));
+        when(marketplaceConversationMessageRepository.findLatestByConversationId(eq(1), any(Pageable.class))).thenReturn(List.of(message));
         response = mvc.perform(get("/home/conversation/" + conversation.getId() + "/messages")
                 .cookie(new Cookie("JSESSIONID", instigator.getSessionUUID()))).andReturn().getResponse();
 
@@ -692,7 +828,7 @@ class MarketplaceConversationResourceIntegrationTests {
 
         // When
         when(marketplaceConversationRepository.findConversationById(1)).thenReturn(Optional.of(conversation));
-        when(marketplaceConversationMessageRepository.findAllByConversationId_OrderByCreatedDesc(1)).thenReturn(List.of(message));
+        when(marketplaceConversationMessageRepository.findLatestByConversationId(eq(1), any(Pageable.class))).thenReturn(List.of(message));
         response = mvc.perform(get("/home/conversation/" + conversation.getId() + "/messages")
                 .cookie(new Cookie("JSESSIONID", anotherUser.getSessionUUID()))).andReturn().getResponse();
 
@@ -713,7 +849,7 @@ class MarketplaceConversationResourceIntegrationTests {
 
         // When
         when(marketplaceConversationRepository.findConversationById(1)).thenReturn(Optional.of(conversation));
-        when(marketplaceConversationMessageRepository.findAllByConversationId_OrderByCreatedDesc(1)).thenReturn(List.of(message));
+        when(marketplaceConversationMessageRepository.findLatestByConversationId(eq(1), any(Pageable.class))).thenReturn(List.of(message));
         response = mvc.perform(get("/home/conversation/" + conversation.getId() + "/messages")
                 .cookie(new Cookie("JSESSIONID", dgaa.getSessionUUID()))).andReturn().getResponse();
 
@@ -735,7 +871,7 @@ class MarketplaceConversationResourceIntegrationTests {
 
         // When
         when(marketplaceConversationRepository.findConversationById(1)).thenReturn(Optional.of(conversation));
-        when(marketplaceConversationMessageRepository.findAllByConversationId_OrderByCreatedDesc(1)).thenReturn(List.of(message));
+        when(marketplaceConversationMessageRepository.findLatestByConversationId(eq(1), any(Pageable.class))).thenReturn(List.of(message));
         response = mvc.perform(get("/home/conversation/" + conversation.getId() + "/messages")
                 .cookie(new Cookie("JSESSIONID", gaa.getSessionUUID()))).andReturn().getResponse();
 
@@ -745,6 +881,111 @@ class MarketplaceConversationResourceIntegrationTests {
     }
 
 
+    /**
+     * Tests that the messages older than the before cursor are returned, and the conversation is not marked as read.
+     *
+     * @throws Exception thrown if there's an error with the mock mvc methods.
+     */
+    @Test
+    void canRetrieveOlderMessagesBeforeCursor() throws Exception {
+        // Given
+        given(userRepository.findBySessionUUID(receiver.getSessionUUID())).willReturn(Optional.ofNullable(receiver));
+        Message newerMessage = new Message(conversation, receiver, "Newer message");
+        newerMessage.setId(2);
+        conversation.setReadByReceiver(false);
+
+        // When
+        when(marketplaceConversationRepository.findConversationById(1)).thenReturn(Optional.of(conversation));
+        when(marketplaceConversationMessageRepository.findMessageById(2)).thenReturn(Optional.of(newerMessage));
+        when(marketplaceConversationMessageRepository.findBeforeByConversationId(eq(1), eq(newerMessage.getCreated()), eq(2), any(Pageable.class)))
+                .thenReturn(List.of(message));
+        response = mvc.perform(get("/home/conversation/" + conversation.getId() + "/messages")
+                .param("before", "2").param("limit", "10")
+                .cookie(new Cookie("JSESSIONID", receiver.getSessionUUID()))).andReturn().getResponse();
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(response.getContentAsString()).isEqualTo("[" + message.toMessagePayload().toString() + "]");
+        assertThat(conversation.getReadByReceiver()).isFalse();
+    }
+
+    /**
+     * Tests that the messages sent after the cursor are returned newest first, and the conversation is marked as read.
+     *
+     * @throws Exception thrown if there's an error with the mock mvc methods.
+     */
+    @Test
+    void canRetrieveMessagesSinceCursor() throws Exception {
+        // Given
+        given(userRepository.findBySessionUUID(receiver.getSessionUUID())).willReturn(Optional.ofNullable(receiver));
+        Message secondMessage = new Message(conversation, instigator, "Second message");
+        secondMessage.setId(2);
+        Message thirdMessage = new Message(conversation, instigator, "Third message");
+        thirdMessage.setId(3);
+        conversation.setReadByReceiver(false);
+
+        // When
+        when(marketplaceConversationRepository.findConversationById(1)).thenReturn(Optional.of(conversation));
+        when(marketplaceConversationMessageRepository.findMessageById(1)).thenReturn(Optional.of(message));
+        when(marketplaceConversationMessageRepository.findAfterByConversationId(eq(1), eq(message.getCreated()), eq(1), any(Pageable.class)))
+                .thenReturn(List.of(secondMessage, thirdMessage));
+        response = mvc.perform(get("/home/conversation/" + conversation.getId() + "/messages/since")
+                .param("after", "1")
+                .cookie(new Cookie("JSESSIONID", receiver.getSessionUUID()))).andReturn().getResponse();
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(response.getContentAsString()).isEqualTo("[" + thirdMessage.toMessagePayload().toString() + ","
+                + secondMessage.toMessagePayload().toString() + "]");
+        assertThat(conversation.getReadByReceiver()).isTrue();
+    }
+
+    /**
+     * Tests that a BAD REQUEST status is received when the cursor message is in a different conversation.
+     *
+     * @throws Exception thrown if there's an error with the mock mvc methods.
+     */
+    @Test
+    void cannotRetrieveMessagesWithCursorFromAnotherConversation() throws Exception {
+        // Given
+        given(userRepository.findBySessionUUID(instigator.getSessionUUID())).willReturn(Optional.ofNullable(instigator));
+        Conversation otherConversation = new Conversation(instigator, receiver, marketplaceCard);
+        otherConversation.setId(2);
+        Message otherMessage = new Message(otherConversation, instigator, "Other message");
+        otherMessage.setId(5);
+
+        // When
+        when(marketplaceConversationRepository.findConversationById(1)).thenReturn(Optional.of(conversation));
+        when(marketplaceConversationMessageRepository.findMessageById(5)).thenReturn(Optional.of(otherMessage));
+        response = mvc.perform(get("/home/conversation/" + conversation.getId() + "/messages")
+                .param("before", "5")
+                .cookie(new Cookie("JSESSIONID", instigator.getSessionUUID()))).andReturn().getResponse();
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+    }
+
+    /**
+     * Tests that a BAD REQUEST status is received when the limit is not a positive number.
+     *
+     * @throws Exception thrown if there's an error with the mock mvc methods.
+     */
+    @Test
+    void cannotRetrieveMessagesWithInvalidLimit() throws Exception {
+        // Given
+        given(userRepository.findBySessionUUID(instigator.getSessionUUID())).willReturn(Optional.ofNullable(instigator));
+
+        // When
+        when(marketplaceConversationRepository.findConversationById(1)).thenReturn(Optional.of(conversation));
+        response = mvc.perform(get("/home/conversation/" + conversation.getId() + "/messages")
+                .param("limit", "0")
+                .cookie(new Cookie("JSESSIONID", instigator.getSessionUUID()))).andReturn().getResponse();
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+    }
+
+
     // ------------------------------ Tests for DELETE /users/conversation/{conversationId} ----------------------------
 
     /**
@@ -832,6 +1073,8 @@ class MarketplaceConversationResourceIntegrationTests {
 
         // Then
         assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        verify(conversationInboxEntryRepository).deleteAllByConversationId(conversationDelete.getId());
+        verify(marketplaceConversationMessageRepository).deleteAllByConversationId(conversationDelete.getId());
     }
 
     /**
@@ -882,6 +1125,7 @@ class MarketplaceConversationResourceIntegrationTests {
 
         // Then
         assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        verify(conversationInboxEntryRepository).deleteByConversationIdAndUserId(conversationDelete.getId(), instigator.getId());
     }
 
     /**
@@ -0,0 +1,119 @@
+package org.seng302.conversation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.services.MessageStreamRegistry;
+import org.seng302.view.outgoing.MessagePayload;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * MessageStreamRegistry test class
+ */
+class MessageStreamRegistryTests {
+
+    private List<Runnable> pendingTasks;
+    private MessageStreamRegistry messageStreamRegistry;
+
+    /**
+     * Sets up a registry whose sender never runs, so messages stay buffered, with room for one message per stream
+     * and two streams per user.
+     */
+    @BeforeEach
+    void setup() {
+        pendingTasks = new ArrayList<>();
+        messageStreamRegistry = new MessageStreamRegistry(60000, 1, 2, pendingTasks::add);
+    }
+
+    /**
+     * Creates a message payload with the given id.
+     */
+    private MessagePayload createMessage(int id) {
+        return new MessagePayload(id, 1, 2, 3, "Hello", LocalDateTime.now());
+    }
+
+    /**
+     * Tests that each subscription is counted against its own user.
+     */
+    @Test
+    void testSubscribeCountsStreamsPerUser() {
+        messageStreamRegistry.subscribe(1);
+        messageStreamRegistry.subscribe(1);
+        messageStreamRegistry.subscribe(2);
+
+        assertThat(messageStreamRegistry.countSubscriptions(1)).isEqualTo(2);
+        assertThat(messageStreamRegistry.countSubscriptions(2)).isEqualTo(1);
+        assertThat(messageStreamRegistry.countSubscriptions(3)).isZero();
+    }
+
+    /**
+     * Tests that opening more streams than a user can have closes their oldest stream, so it no longer gets messages.
+     */
+    @Test
+    void testSubscribeBeyondLimitClosesOldestStream() {
+        messageStreamRegistry.subscribe(1);
+        messageStreamRegistry.subscribe(1);
+        messageStreamRegistry.subscribe(1);
+
+        assertThat(messageStreamRegistry.countSubscriptions(1)).isEqualTo(2);
+
+        messageStreamRegistry.publish(1, createMessage(1));
+        assertThat(pendingTasks).hasSize(2);
+    }
+
+    /**
+     * Tests that publishing a message schedules a single send for each stream of the recipient only.
+     */
+    @Test
+    void testPublishSchedulesSendForRecipientStreams() {
+        messageStreamRegistry.subscribe(1);
+        messageStreamRegistry.subscribe(2);
+
+        messageStreamRegistry.publish(1, createMessage(1));
+
+        assertThat(pendingTasks).hasSize(1);
+    }
+
+    /**
+     * Tests that publishing to a user with no open streams does nothing.
+     */
+    @Test
+    void testPublishWithoutSubscribersDoesNothing() {
+        messageStreamRegistry.publish(1, createMessage(1));
+
+        assertThat(pendingTasks).isEmpty();
+        assertThat(messageStreamRegistry.countSubscriptions(1)).isZero();
+    }
+
+    /**
+     * Tests that a stream whose buffer is full is disconnected instead of the publisher waiting for it.
+     */
+    @Test
+    void testSlowStreamIsDisconnectedWhenBufferIsFull() {
+        messageStreamRegistry.subscribe(1);
+
+        messageStreamRegistry.publish(1, createMessage(1));
+        assertThat(messageStreamRegistry.countSubscriptions(1)).isEqualTo(1);
+
+        messageStreamRegistry.publish(1, createMessage(2));
+        assertThat(messageStreamRegistry.countSubscriptions(1)).isZero();
+    }
+
+    /**
+     * Tests that closing the registry removes every stream.
+     */
+    @Test
+    void testCloseAllRemovesEveryStream() {
+        messageStreamRegistry.subscribe(1);
+        messageStreamRegistry.subscribe(2);
+
+        messageStreamRegistry.closeAll();
+
+        assertThat(messageStreamRegistry.countSubscriptions(1)).isZero();
+        assertThat(messageStreamRegistry.countSubscriptions(2)).isZero();
+    }
+}
@@ -3,7 +3,12 @@ package org.seng302.keyword;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.seng302.Main;
+import org.seng302.model.Address;
 import org.seng302.model.Keyword;
+import org.seng302.model.MarketplaceCard;
+import org.seng302.model.User;
+import org.seng302.model.enums.Role;
+import org.seng302.model.enums.Section;
 import org.seng302.model.repository.KeywordRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
@@ -11,6 +16,7 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -153,4 +159,39 @@ class KeywordRepositoryIntegrationTests {
         // Then
         assertThat(foundKeyword).isNotPresent();
     }
+
+    /**
+     * Tests a keyword can be removed from every card and deleted with the bulk delete methods,
+     * leaving the cards' other keywords alone.
+     */
+    @Test
+    void whenBulkDeleteKeyword_ThenKeywordRemovedFromCardsAndDeleted() throws Exception {
+        // Given
+        Address address = new Address("3/24", "Ilam Road", "Christchurch", "Canterbury", "New Zealand", "90210", "Ilam");
+        entityManager.persist(address);
+        User user = new User("testfirst", "testlast", "testmiddle", "testnick", "testbiography", "testemail@email.com",
+                LocalDate.of(2000, 2, 2), "0271316", address, "Testpassword123!", LocalDateTime.now(), Role.USER);
+        entityManager.persist(user);
+
+        MarketplaceCard card1 = new MarketplaceCard(user.getId(), user, Section.FORSALE, LocalDateTime.now(), "One", "");
+        card1.addKeyword(keyword1);
+        card1.addKeyword(keyword2);
+        entityManager.persist(card1);
+        MarketplaceCard card2 = new MarketplaceCard(user.getId(), user, Section.WANTED, LocalDateTime.now(), "Two", "");
+        card2.addKeyword(keyword1);
+        entityManager.persist(card2);
+        entityManager.flush();
+
+        // When
+        int cardCount = keywordRepository.deleteCardKeywordsByKeywordId(keyword1.getId());
+        int keywordCount = keywordRepository.deleteKeywordById(keyword1.getId());
+
+        // Then
+        assertThat(cardCount).isEqualTo(2);
+        assertThat(keywordCount).isEqualTo(1);
+        assertThat(keywordRepository.findById(keyword1.getId())).isNotPresent();
+        assertThat(entityManager.find(MarketplaceCard.class, card1.getId()).getKeywords())
+                .extracting(Keyword::getId).containsExactly(keyword2.getId());
+        assertThat(entityManager.find(MarketplaceCard.class, card2.getId()).getKeywords()).isEmpty();
+    }
 }
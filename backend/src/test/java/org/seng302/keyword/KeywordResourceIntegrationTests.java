@@ -1,15 +1,20 @@
 package org.seng302.keyword;
 
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.seng302.Main;
 import org.seng302.model.Address;
 import org.seng302.model.Keyword;
+import org.seng302.model.MarketplaceCard;
 import org.seng302.model.User;
 import org.seng302.model.enums.Role;
+import org.seng302.model.enums.Section;
 import org.seng302.model.repository.KeywordRepository;
 import org.seng302.model.repository.UserRepository;
+import org.seng302.services.CardKeywordIndex;
+import org.seng302.services.KeywordSearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -25,11 +30,11 @@ import javax.servlet.http.Cookie;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -54,6 +59,12 @@ class KeywordResourceIntegrationTests {
     @MockBean
     private KeywordRepository keywordRepository;
 
+    @Autowired
+    private KeywordSearchIndex keywordSearchIndex;
+
+    @Autowired
+    private CardKeywordIndex cardKeywordIndex;
+
     private MockHttpServletResponse response;
 
     private static User user;
@@ -139,6 +150,23 @@ class KeywordResourceIntegrationTests {
         keyword5 = new Keyword("Fifth", LocalDateTime.of(2021, 1, 1, 1, 1));
         keyword6 = new Keyword("Sixth", LocalDateTime.of(2021, 1, 1, 1, 1));
         keyword7 = new Keyword("Seventh", LocalDateTime.of(2021, 1, 1, 1, 1));
+
+        List<Keyword> keywords = List.of(keyword, keyword2, keyword3, keyword4, keyword5, keyword6, keyword7);
+        for (int i = 0; i < keywords.size(); i++) {
+            keywords.get(i).setId(i + 1);
+        }
+    }
+
+    /**
+     * Resets the search indexes so that each test starts with only the keywords above and no cards.
+     */
+    @BeforeEach
+    void setupIndexes() {
+        given(keywordRepository.findAll()).willReturn(
+                List.of(keyword, keyword2, keyword3, keyword4, keyword5, keyword6, keyword7)
+        );
+        keywordSearchIndex.rebuild();
+        cardKeywordIndex.rebuild();
     }
 
     // -------- POST ENDPOINT TESTS ----------------------------
@@ -233,6 +261,8 @@ class KeywordResourceIntegrationTests {
         // Then
         assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
         assertThat(keywordRepository.findByName(keyword2.getName())).isEmpty();
+        verify(keywordRepository).deleteCardKeywordsByKeywordId(id);
+        verify(keywordRepository).deleteKeywordById(id);
     }
 
     /**
@@ -334,15 +364,12 @@ class KeywordResourceIntegrationTests {
     void returnsListOfKeywordsWhenQuerySubstringExists() throws Exception {
         String searchQuery = "ou";
 
-        String expectedJson = "[{\"id\":0,\"name\":\"Resource\",\"created\":\"2021-01-01T01:01\"}," +
-                "{\"id\":0,\"name\":\"Our\",\"created\":\"2021-01-01T01:01\"}," +
-                "{\"id\":0,\"name\":\"Out\",\"created\":\"2021-01-01T01:01\"}," +
-                "{\"id\":0,\"name\":\"Fourth\",\"created\":\"2021-01-01T01:01\"}]";
+        String expectedJson = "[{\"id\":2,\"name\":\"Our\",\"created\":\"2021-01-01T01:01\"}," +
+                "{\"id\":3,\"name\":\"Out\",\"created\":\"2021-01-01T01:01\"}," +
+                "{\"id\":4,\"name\":\"Fourth\",\"created\":\"2021-01-01T01:01\"}," +
+                "{\"id\":1,\"name\":\"Resource\",\"created\":\"2021-01-01T01:01\"}]";
 
         given(userRepository.findById(1)).willReturn(Optional.ofNullable(user));
-        given(keywordRepository.findTop6ByNameIgnoreCaseContaining(searchQuery)).willReturn(
-                List.of(keyword, keyword2, keyword3, keyword4)
-        );
 
         when(userRepository.findBySessionUUID(user.getSessionUUID())).thenReturn(Optional.ofNullable(user));
         response = mvc.perform(get("/keywords/search")
@@ -361,17 +388,14 @@ class KeywordResourceIntegrationTests {
     void returnsFirstSixListOfKeywordsWhenQuerySubstringExists() throws Exception {
         String searchQuery = "";
 
-        String expectedJson = "[{\"id\":0,\"name\":\"Resource\",\"created\":\"2021-01-01T01:01\"}," +
-                "{\"id\":0,\"name\":\"Our\",\"created\":\"2021-01-01T01:01\"}," +
-                "{\"id\":0,\"name\":\"Out\",\"created\":\"2021-01-01T01:01\"}," +
-                "{\"id\":0,\"name\":\"Fourth\",\"created\":\"2021-01-01T01:01\"}," +
-                "{\"id\":0,\"name\":\"Fifth\",\"created\":\"2021-01-01T01:01\"}," +
-                "{\"id\":0,\"name\":\"Sixth\",\"created\":\"2021-01-01T01:01\"}]";
+        String expectedJson = "[{\"id\":5,\"name\":\"Fifth\",\"created\":\"2021-01-01T01:01\"}," +
+                "{\"id\":4,\"name\":\"Fourth\",\"created\":\"2021-01-01T01:01\"}," +
+                "{\"id\":2,\"name\":\"Our\",\"created\":\"2021-01-01T01:01\"}," +
+                "{\"id\":3,\"name\":\"Out\",\"created\":\"2021-01-01T01:01\"}," +
+                "{\"id\":1,\"name\":\"Resource\",\"created\":\"2021-01-01T01:01\"}," +
+                "{\"id\":7,\"name\":\"Seventh\",\"created\":\"2021-01-01T01:01\"}]";
 
         given(userRepository.findById(1)).willReturn(Optional.ofNullable(user));
-        given(keywordRepository.findTop6ByNameIgnoreCaseContaining(searchQuery)).willReturn(
-                List.of(keyword, keyword2, keyword3, keyword4, keyword5, keyword6)
-        );
 
         when(userRepository.findBySessionUUID(user.getSessionUUID())).thenReturn(Optional.ofNullable(user));
         response = mvc.perform(get("/keywords/search")
@@ -393,7 +417,6 @@ class KeywordResourceIntegrationTests {
         String expectedJson = "[]";
 
         given(userRepository.findById(1)).willReturn(Optional.ofNullable(user));
-        given(keywordRepository.findTop6ByNameIgnoreCaseContaining(searchQuery)).willReturn(new ArrayList<>());
 
         when(userRepository.findBySessionUUID(user.getSessionUUID())).thenReturn(Optional.ofNullable(user));
         response = mvc.perform(get("/keywords/search")
@@ -413,7 +436,6 @@ class KeywordResourceIntegrationTests {
         String searchQuery = "qwerty";
 
         given(userRepository.findById(1)).willReturn(Optional.ofNullable(user));
-        given(keywordRepository.findTop6ByNameIgnoreCaseContaining(searchQuery)).willReturn(new ArrayList<>());
 
         when(userRepository.findBySessionUUID(user.getSessionUUID())).thenReturn(Optional.empty());
         response = mvc.perform(get("/keywords/search")
@@ -423,4 +445,51 @@ class KeywordResourceIntegrationTests {
         // then
         assertThat(response.getStatus()).isEqualTo(HttpStatus.UNAUTHORIZED.value());
     }
+
+    /**
+     * Checks keywords used by more cards are returned first when no keyword name starts with the query
+     */
+    @Test
+    void returnsKeywordsUsedByMoreCardsFirst() throws Exception {
+        String searchQuery = "ur";
+
+        MarketplaceCard card = new MarketplaceCard(user.getId(), user, Section.FORSALE,
+                LocalDateTime.of(2021, 1, 1, 1, 1), "Title", "Description");
+        card.setId(1);
+        card.addKeyword(keyword);
+        cardKeywordIndex.indexCard(card);
+
+        String expectedJson = "[{\"id\":1,\"name\":\"Resource\",\"created\":\"2021-01-01T01:01\"}," +
+                "{\"id\":4,\"name\":\"Fourth\",\"created\":\"2021-01-01T01:01\"}," +
+                "{\"id\":2,\"name\":\"Our\",\"created\":\"2021-01-01T01:01\"}]";
+
+        when(userRepository.findBySessionUUID(user.getSessionUUID())).thenReturn(Optional.ofNullable(user));
+        response = mvc.perform(get("/keywords/search")
+                        .param("searchQuery", searchQuery)
+                        .cookie(new Cookie("JSESSIONID", user.getSessionUUID())))
+                .andReturn().getResponse();
+        // then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(response.getContentAsString()).isEqualTo(expectedJson);
+    }
+
+    /**
+     * Checks a newly created keyword is returned by a search straight away
+     */
+    @Test
+    void returnsNewlyCreatedKeywordWhenSearched() throws Exception {
+        given(keywordRepository.findByName("Creation")).willReturn(Optional.empty());
+        when(userRepository.findBySessionUUID(user.getSessionUUID())).thenReturn(Optional.ofNullable(user));
+        mvc.perform(post("/keywords")
+                .contentType(MediaType.APPLICATION_JSON).content(String.format(jsonPOST, "Creation"))
+                .cookie(new Cookie("JSESSIONID", user.getSessionUUID())));
+
+        response = mvc.perform(get("/keywords/search")
+                        .param("searchQuery", "creat")
+                        .cookie(new Cookie("JSESSIONID", user.getSessionUUID())))
+                .andReturn().getResponse();
+        // then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(response.getContentAsString()).contains("\"name\":\"Creation\"");
+    }
 }
@@ -0,0 +1,128 @@
+package org.seng302.keyword;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.model.Keyword;
+import org.seng302.model.repository.KeywordRepository;
+import org.seng302.model.repository.MarketplaceCardRepository;
+import org.seng302.services.CardKeywordIndex;
+import org.seng302.services.KeywordSearchIndex;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * KeywordSearchIndex test class
+ */
+class KeywordSearchIndexTests {
+
+    private KeywordRepository keywordRepository;
+    private CardKeywordIndex cardKeywordIndex;
+    private KeywordSearchIndex keywordSearchIndex;
+
+    /**
+     * Sets up the index with a few keywords.
+     */
+    @BeforeEach
+    void setup() throws Exception {
+        keywordRepository = mock(KeywordRepository.class);
+        cardKeywordIndex = mock(CardKeywordIndex.class);
+        keywordSearchIndex = new KeywordSearchIndex(keywordRepository, cardKeywordIndex);
+
+        when(keywordRepository.findAll()).thenReturn(List.of(
+                createKeyword(1, "Vegetable"),
+                createKeyword(2, "Vegan"),
+                createKeyword(3, "Table"),
+                createKeyword(4, "Stable"),
+                createKeyword(5, "Tea")
+        ));
+        keywordSearchIndex.rebuild();
+    }
+
+    /**
+     * Creates a keyword with the given id and name.
+     */
+    private Keyword createKeyword(int id, String name) throws Exception {
+        Keyword keyword = new Keyword(name, LocalDateTime.now());
+        keyword.setId(id);
+        return keyword;
+    }
+
+    /**
+     * Gets the names of the keywords returned by a search.
+     */
+    private List<String> search(String query, int limit) {
+        return keywordSearchIndex.search(query, limit).stream().map(Keyword::getName).collect(Collectors.toList());
+    }
+
+    /**
+     * Tests that short queries (a single n-gram) match anywhere in a name, ignoring case.
+     */
+    @Test
+    void testSearchWithShortQueryMatchesSubstringsIgnoringCase() {
+        assertThat(search("TA", 6)).containsExactlyInAnyOrder("Vegetable", "Table", "Stable");
+    }
+
+    /**
+     * Tests that long queries only return names which contain the whole query, not just its trigrams.
+     */
+    @Test
+    void testSearchWithLongQueryMatchesWholeQuery() throws Exception {
+        when(keywordRepository.findAll()).thenReturn(List.of(createKeyword(1, "abcxbcd"), createKeyword(2, "abcd")));
+        keywordSearchIndex.rebuild();
+
+        assertThat(search("abcd", 6)).containsExactly("abcd");
+    }
+
+    /**
+     * Tests that names starting with the query come before names containing it.
+     */
+    @Test
+    void testSearchRanksPrefixMatchesFirst() {
+        assertThat(search("ta", 6)).containsExactly("Table", "Stable", "Vegetable");
+    }
+
+    /**
+     * Tests that keywords used by more cards come first among equally good matches.
+     */
+    @Test
+    void testSearchRanksKeywordsUsedByMoreCardsFirst() {
+        when(cardKeywordIndex.countCards(1)).thenReturn(3);
+        when(cardKeywordIndex.countCards(4)).thenReturn(1);
+
+        assertThat(search("table", 6)).containsExactly("Table", "Vegetable", "Stable");
+    }
+
+    /**
+     * Tests that an empty query matches every keyword, up to the limit.
+     */
+    @Test
+    void testSearchWithEmptyQueryReturnsUpToLimit() {
+        assertThat(search("", 3)).containsExactly("Stable", "Table", "Tea");
+    }
+
+    /**
+     * Tests that created keywords can be found and deleted keywords can't.
+     */
+    @Test
+    void testIndexedAndRemovedKeywordsAreSearchable() throws Exception {
+        keywordSearchIndex.indexKeyword(createKeyword(6, "Vegemite"));
+        keywordSearchIndex.removeKeyword(2);
+
+        assertThat(search("vege", 6)).containsExactly("Vegemite", "Vegetable");
+    }
+
+    /**
+     * Tests that a query matching nothing returns no keywords.
+     */
+    @Test
+    void testSearchWithNoMatchesReturnsEmptyList() {
+        assertThat(search("qwerty", 6)).isEmpty();
+        assertThat(search("q", 6)).isEmpty();
+    }
+}
@@ -12,6 +12,7 @@ import org.seng302.model.User;
 import org.seng302.model.enums.Role;
 import org.seng302.model.enums.Section;
 import org.seng302.model.repository.*;
+import org.seng302.services.CardKeywordIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
@@ -76,7 +77,8 @@ class MainApplicationRunnerTest {
                 addressRepository,
                 productRepository,
                 marketplaceCardRepository,
-                marketCardNotificationRepository);
+                marketCardNotificationRepository,
+                new CardKeywordIndex(marketplaceCardRepository));
 
         // Address
         Address address = new Address(
@@ -360,4 +362,30 @@ class MainApplicationRunnerTest {
         // Then
         assertThat(marketplaceCardRepository.findMarketplaceCardByCreatorId(user.getId()).contains(marketplaceCard)).isTrue();
     }
+
+    /**
+     * Test that fillMissingCreatorLocations fills in the creator location of a card which does not have one.
+     */
+    @Test
+    void testFillMissingCreatorLocationsFillsCardWithoutLocation() throws IllegalMarketplaceCardArgumentException {
+        // Given
+        marketplaceCard = new MarketplaceCard(
+                user.getId(),
+                user,
+                Section.FORSALE,
+                LocalDateTime.now(),
+                "Hayley's Birthday",
+                "Come join Hayley and help her celebrate her birthday!");
+        marketplaceCard.setCreatorLocation(null);
+        entityManager.persist(marketplaceCard);
+        entityManager.flush();
+
+        // When
+        mainApplicationRunner.fillMissingCreatorLocations();
+
+        // Then
+        MarketplaceCard filledCard = marketplaceCardRepository.findById(marketplaceCard.getId()).orElseThrow();
+        assertThat(filledCard.getCreatorSuburb()).isEqualTo("ilam");
+        assertThat(filledCard.getCreatorCity()).isEqualTo("christchurch");
+    }
 }
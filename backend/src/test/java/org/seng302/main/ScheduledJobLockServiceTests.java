@@ -0,0 +1,111 @@
+package org.seng302.main;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.Main;
+import org.seng302.model.ScheduledJobLease;
+import org.seng302.model.repository.ScheduledJobLeaseRepository;
+import org.seng302.services.ScheduledJobLockService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * ScheduledJobLockService test class
+ */
+@DataJpaTest
+@ContextConfiguration(classes = {Main.class})
+@ActiveProfiles("test")
+class ScheduledJobLockServiceTests {
+
+    @Autowired
+    private ScheduledJobLeaseRepository scheduledJobLeaseRepository;
+
+    private ScheduledJobLockService nodeOne;
+    private ScheduledJobLockService nodeTwo;
+
+    private AtomicInteger runs;
+
+    /**
+     * Sets up two "nodes" sharing the same lease table.
+     */
+    @BeforeEach
+    void setup() {
+        nodeOne = new ScheduledJobLockService(scheduledJobLeaseRepository, "node-one");
+        nodeTwo = new ScheduledJobLockService(scheduledJobLeaseRepository, "node-two");
+        runs = new AtomicInteger();
+    }
+
+    /**
+     * Tests that a job is only run by one node while the lease is held.
+     */
+    @Test
+    void testJobOnlyRunsOnceWhileLeaseIsHeld() throws Exception {
+        boolean firstRan = nodeOne.runExclusively("job", Duration.ofMinutes(10), Duration.ofMinutes(1), runs::incrementAndGet);
+        boolean secondRan = nodeTwo.runExclusively("job", Duration.ofMinutes(10), Duration.ofMinutes(1), runs::incrementAndGet);
+
+        assertThat(firstRan).isTrue();
+        assertThat(secondRan).isFalse();
+        assertThat(runs.get()).isEqualTo(1);
+    }
+
+    /**
+     * Tests that another node can take over the job once the lease expires.
+     */
+    @Test
+    void testJobFailsOverWhenLeaseExpires() throws Exception {
+        nodeOne.runExclusively("job", Duration.ofMinutes(10), Duration.ZERO, runs::incrementAndGet);
+        boolean secondRan = nodeTwo.runExclusively("job", Duration.ofMinutes(10), Duration.ZERO, runs::incrementAndGet);
+
+        assertThat(secondRan).isTrue();
+        assertThat(runs.get()).isEqualTo(2);
+        assertThat(scheduledJobLeaseRepository.findById("job").map(ScheduledJobLease::getOwner)).contains("node-two");
+    }
+
+    /**
+     * Tests that different jobs are leased separately.
+     */
+    @Test
+    void testDifferentJobsAreLeasedSeparately() throws Exception {
+        boolean firstRan = nodeOne.runExclusively("jobOne", Duration.ofMinutes(10), Duration.ofMinutes(1), runs::incrementAndGet);
+        boolean secondRan = nodeTwo.runExclusively("jobTwo", Duration.ofMinutes(10), Duration.ofMinutes(1), runs::incrementAndGet);
+
+        assertThat(firstRan).isTrue();
+        assertThat(secondRan).isTrue();
+        assertThat(runs.get()).isEqualTo(2);
+    }
+
+    /**
+     * Tests that the timing of a run is recorded against the lease.
+     */
+    @Test
+    void testRunTimingIsRecorded() throws Exception {
+        nodeOne.runExclusively("job", Duration.ofMinutes(10), Duration.ZERO, runs::incrementAndGet);
+        nodeOne.runExclusively("job", Duration.ofMinutes(10), Duration.ZERO, runs::incrementAndGet);
+
+        ScheduledJobLease lease = scheduledJobLeaseRepository.findById("job").orElseThrow();
+        assertThat(lease.getRunCount()).isEqualTo(2);
+        assertThat(lease.getLastStarted()).isNotNull();
+        assertThat(lease.getLastFinished()).isNotNull();
+        assertThat(lease.getLastDurationMillis()).isNotNull();
+    }
+
+    /**
+     * Tests that a failing job still has its run recorded and its exception rethrown.
+     */
+    @Test
+    void testFailingJobIsRecordedAndRethrown() {
+        assertThrows(IllegalStateException.class, () -> nodeOne.runExclusively(
+                "job", Duration.ofMinutes(10), Duration.ZERO, () -> { throw new IllegalStateException("failed"); }));
+
+        ScheduledJobLease lease = scheduledJobLeaseRepository.findById("job").orElseThrow();
+        assertThat(lease.getRunCount()).isEqualTo(1);
+    }
+}
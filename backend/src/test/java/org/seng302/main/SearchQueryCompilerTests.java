@@ -0,0 +1,134 @@
+package org.seng302.main;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.seng302.exceptions.IllegalSearchQueryException;
+import org.seng302.utils.SearchQuery;
+import org.seng302.utils.SearchQueryCompiler;
+
+import java.util.List;
+
+/**
+ * Tests for the SearchQueryCompiler class.
+ * The AND, OR and exact match behaviour shared with SearchUtils.convertSearchQueryToNames is covered by
+ * SearchUtilsTests, these tests cover grouping, the syntax tree and caching.
+ */
+class SearchQueryCompilerTests {
+
+    /**
+     * Test that a group joined to a word is expanded into one name per alternative in the group.
+     */
+    @Test
+    void compileWithParenthesesGroup_ExpectNameForEachAlternativeTest() throws Exception {
+        SearchQuery searchQuery = SearchQueryCompiler.compile("(Big OR Small) AND Red Apple");
+        Assertions.assertEquals(List.of("Big Red Apple", "Small Red Apple"), searchQuery.getNames());
+        Assertions.assertEquals("AND(OR(Big, Small), Red, Apple)", searchQuery.toString());
+    }
+
+    /**
+     * Test that two groups are expanded into every combination of their alternatives.
+     */
+    @Test
+    void compileWithTwoParenthesesGroups_ExpectEveryCombinationTest() throws Exception {
+        SearchQuery searchQuery = SearchQueryCompiler.compile("(Big OR Small) (\"Red\" OR Green)");
+        Assertions.assertEquals(List.of("Big \"Red\"", "Big Green", "Small \"Red\"", "Small Green"), searchQuery.getNames());
+    }
+
+    /**
+     * Test that parentheses inside an exact match phrase are part of the phrase.
+     */
+    @Test
+    void compileWithParenthesesInsidePhrase_ExpectPhraseKeptTest() throws Exception {
+        SearchQuery searchQuery = SearchQueryCompiler.compile("(\"Cafe (Central)\" OR Bakery)");
+        Assertions.assertEquals(List.of("\"Cafe (Central)\"", "Bakery"), searchQuery.getNames());
+        SearchQuery.Term phrase = (SearchQuery.Term) ((SearchQuery.Or) searchQuery.getRoot()).getChildren().get(0);
+        Assertions.assertEquals("Cafe (Central)", phrase.getText());
+        Assertions.assertTrue(phrase.isExact());
+    }
+
+    /**
+     * Test that unmatched parentheses and operators with nothing to join are ignored.
+     */
+    @Test
+    void compileWithUnmatchedParenthesesAndDanglingOperators_ExpectTheyAreIgnoredTest() throws Exception {
+        Assertions.assertEquals(List.of("Big Red"), SearchQueryCompiler.compile("(Big AND Red").getNames());
+        Assertions.assertEquals(List.of("Big Red"), SearchQueryCompiler.compile("Big) Red").getNames());
+        Assertions.assertEquals(List.of("Big", "Red"), SearchQueryCompiler.compile("OR Big OR OR Red AND").getNames());
+    }
+
+    /**
+     * Test that a quotation mark which is never closed is kept as part of the word.
+     */
+    @Test
+    void compileWithUnclosedQuote_ExpectQuoteKeptInWordTest() throws Exception {
+        Assertions.assertEquals(List.of("\"Big Red"), SearchQueryCompiler.compile("\"Big Red").getNames());
+    }
+
+    /**
+     * Test that the empty query matches everything, and a query of only spaces or parentheses matches nothing.
+     */
+    @Test
+    void compileEmptyAndBlankQueries_ExpectEmptyNameAndNoNamesTest() throws Exception {
+        Assertions.assertEquals(List.of(""), SearchQueryCompiler.compile("").getNames());
+        Assertions.assertEquals(List.of(), SearchQueryCompiler.compile("   ").getNames());
+        Assertions.assertEquals(List.of(), SearchQueryCompiler.compile("( )").getNames());
+    }
+
+    /**
+     * Test that a query made up of only operators is searched for as the words it is made of.
+     */
+    @Test
+    void compileQueryOfOnlyOperators_ExpectOperatorsSearchedAsWordsTest() throws Exception {
+        Assertions.assertEquals(List.of("OR"), SearchQueryCompiler.compile("OR").getNames());
+        Assertions.assertEquals(List.of("AND"), SearchQueryCompiler.compile("AND ()").getNames());
+        Assertions.assertEquals(List.of("OR AND"), SearchQueryCompiler.compile("OR AND").getNames());
+    }
+
+    /**
+     * Test that the same compiled query is returned when a query is compiled again.
+     */
+    @Test
+    void compileSameQueryTwice_ExpectCachedQueryReturnedTest() throws Exception {
+        SearchQuery first = SearchQueryCompiler.compile("New World OR Countdown");
+        SearchQuery second = SearchQueryCompiler.compile("New World OR Countdown");
+        Assertions.assertSame(first, second);
+        Assertions.assertNotSame(first, SearchQueryCompiler.parse("New World OR Countdown"));
+    }
+
+    /**
+     * Test that compiled names can't be modified, since compiled queries are shared between requests.
+     */
+    @Test
+    void compileQuery_ExpectNamesUnmodifiableTest() throws Exception {
+        List<String> names = SearchQueryCompiler.compile("Brink").getNames();
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> names.add("Food"));
+    }
+
+    /**
+     * Test that a query which expands to too many names is rejected.
+     */
+    @Test
+    void compileQueryExpandingToTooManyNames_ExpectIllegalSearchQueryExceptionTest() {
+        String group = "(a OR b OR c OR d)";
+        String searchQuery = String.join(" ", group, group, group, group);
+        Assertions.assertThrows(IllegalSearchQueryException.class, () -> SearchQueryCompiler.compile(searchQuery));
+    }
+
+    /**
+     * Test that a query which nests groups too deeply is rejected instead of overflowing the stack.
+     */
+    @Test
+    void compileQueryNestedTooDeeply_ExpectIllegalSearchQueryExceptionTest() {
+        String searchQuery = "(".repeat(5000) + "a" + ")".repeat(5000);
+        Assertions.assertThrows(IllegalSearchQueryException.class, () -> SearchQueryCompiler.compile(searchQuery));
+    }
+
+    /**
+     * Test that groups can be nested up to the limit.
+     */
+    @Test
+    void compileQueryNestedToLimit_ExpectNamesTest() throws Exception {
+        String searchQuery = "(".repeat(32) + "a OR b" + ")".repeat(32);
+        Assertions.assertEquals(List.of("a", "b"), SearchQueryCompiler.compile(searchQuery).getNames());
+    }
+}
@@ -21,7 +21,7 @@ class SearchUtilsTests {
      * statement.
      */
     @Test
-    void convertSearchQueryToNamesWithOneAndTest_ExpectListContainingConcatenatedWordTest() {
+    void convertSearchQueryToNamesWithOneAndTest_ExpectListContainingConcatenatedWordTest() throws Exception {
         String searchQuery = "Brink AND Food";
         List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
         List<String> expectedNames = new ArrayList<>();
@@ -34,7 +34,7 @@ class SearchUtilsTests {
      * contains two ANDs.
      */
     @Test
-    void convertSearchQueryToNamesWithTwoAnds_ExpectListContainingConcatenatedWordTest() {
+    void convertSearchQueryToNamesWithTwoAnds_ExpectListContainingConcatenatedWordTest() throws Exception {
         String searchQuery = "Big AND Red AND Apple";
         List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
         List<String> expectedNames = new ArrayList<>();
@@ -47,7 +47,7 @@ class SearchUtilsTests {
      * contains three ANDs.
      */
     @Test
-    void convertSearchQueryToNamesWithThreeAnds_ExpectListContainingConcatenatedWordTest() {
+    void convertSearchQueryToNamesWithThreeAnds_ExpectListContainingConcatenatedWordTest() throws Exception {
         String searchQuery = "Big AND Crunchy AND Red AND Apple";
         List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
         List<String> expectedNames = new ArrayList<>();
@@ -61,7 +61,7 @@ class SearchUtilsTests {
      * Test to see whether searchQuery is parsed into a list containing one name when the searchQuery contains one word.
      */
     @Test
-    void convertSearchQueryToNamesWithOneWordTest_ExpectListContainingOneWordTest() {
+    void convertSearchQueryToNamesWithOneWordTest_ExpectListContainingOneWordTest() throws Exception {
         String searchQuery = "Brink";
         List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
         List<String> expectedNames = new ArrayList<>();
@@ -74,7 +74,7 @@ class SearchUtilsTests {
      * contains two words separated by a space (no logical operator).
      */
     @Test
-    void convertSearchQueryToNamesWithTwoWords_ExpectListContainingConcatenatedWordTest() {
+    void convertSearchQueryToNamesWithTwoWords_ExpectListContainingConcatenatedWordTest() throws Exception {
         String searchQuery = "Brink Food";
         List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
         List<String> expectedNames = new ArrayList<>();
@@ -87,7 +87,7 @@ class SearchUtilsTests {
      * contains three words separated by spaces (no logical operator).
      */
     @Test
-    void convertSearchQueryToNamesWithWords_ExpectListContainingConcatenatedWordTest() {
+    void convertSearchQueryToNamesWithWords_ExpectListContainingConcatenatedWordTest() throws Exception {
         String searchQuery = "Big Red Apple";
         List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
         List<String> expectedNames = new ArrayList<>();
@@ -102,7 +102,7 @@ class SearchUtilsTests {
      * contains an AND and no logical operator (a space).
      */
     @Test
-    void convertSearchQueryToNamesWithOneAndAndNoLogicalOperator_ExpectListContainingConcatenatedWordTest() {
+    void convertSearchQueryToNamesWithOneAndAndNoLogicalOperator_ExpectListContainingConcatenatedWordTest() throws Exception {
         String searchQuery = "Big AND Red Apple";
         List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
         List<String> expectedNames = new ArrayList<>();
@@ -115,7 +115,7 @@ class SearchUtilsTests {
      * contains two ANDs and no logical operator (a space).
      */
     @Test
-    void convertSearchQueryToNamesWithTwoAndsAndNoLogicalOperator_ExpectListContainingConcatenatedWordTest() {
+    void convertSearchQueryToNamesWithTwoAndsAndNoLogicalOperator_ExpectListContainingConcatenatedWordTest() throws Exception {
         String searchQuery = "Big Crunchy AND Red AND Apple";
         List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
         List<String> expectedNames = new ArrayList<>();
@@ -130,7 +130,7 @@ class SearchUtilsTests {
      * contains an OR statement.
      */
     @Test
-    void convertSearchQueryToNamesWithOneOr_ExpectListContainingSeparateWordsTest() {
+    void convertSearchQueryToNamesWithOneOr_ExpectListContainingSeparateWordsTest() throws Exception {
         String searchQuery = "Plant OR House";
         List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
         List<String> expectedNames = Arrays.asList("Plant", "House");
@@ -142,7 +142,7 @@ class SearchUtilsTests {
      * contains two OR's.
      */
     @Test
-    void convertSearchQueryToNamesWithTwoOrs_ExpectListContainingSeparateWordsTest() {
+    void convertSearchQueryToNamesWithTwoOrs_ExpectListContainingSeparateWordsTest() throws Exception {
         String searchQuery = "Big OR Red OR Apple";
         List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
         List<String> expectedNames = Arrays.asList("Big", "Red", "Apple");
@@ -154,7 +154,7 @@ class SearchUtilsTests {
      * contains three OR's.
      */
     @Test
-    void convertSearchQueryToNamesWithThreeOrs_ExpectListContainingSeparateWordsTest() {
+    void convertSearchQueryToNamesWithThreeOrs_ExpectListContainingSeparateWordsTest() throws Exception {
         String searchQuery = "Big OR Crunchy OR Red OR Apple";
         List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
         List<String> expectedNames = Arrays.asList("Big", "Crunchy", "Red", "Apple");
@@ -168,7 +168,7 @@ class SearchUtilsTests {
      * contains an OR and no logical operator (a space).
      */
     @Test
-    void convertSearchQueryToNamesWithOneOrAndNoLogicalOperator_ExpectListContainingTwoWordsTest() {
+    void convertSearchQueryToNamesWithOneOrAndNoLogicalOperator_ExpectListContainingTwoWordsTest() throws Exception {
         String searchQuery = "Big OR Red Apple";
         List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
         List<String> expectedNames = Arrays.asList("Big", "Red Apple");
@@ -180,7 +180,7 @@ class SearchUtilsTests {
      * contains two OR's and no logical operator (a space).
      */
     @Test
-    void convertSearchQueryToNamesWithTwoOrsAndNoLogicalOperator_ExpectListContainingThreeWordsTest() {
+    void convertSearchQueryToNamesWithTwoOrsAndNoLogicalOperator_ExpectListContainingThreeWordsTest() throws Exception {
         String searchQuery = "Big Crunchy OR Red OR Apple";
         List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
         List<String> expectedNames = Arrays.asList("Big Crunchy", "Red", "Apple");
@@ -194,7 +194,7 @@ class SearchUtilsTests {
      * separate when the searchQuery contains two words with AND between them, followed by OR and another word.
      */
     @Test
-    void convertSearchQueryToNamesWithOneAndAndOneOr_ExpectListContainingFirstTwoWordsConcatenatedAndLastWordSeparateTest() {
+    void convertSearchQueryToNamesWithOneAndAndOneOr_ExpectListContainingFirstTwoWordsConcatenatedAndLastWordSeparateTest() throws Exception {
         String searchQuery = "Big AND Red OR Apple";
         List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
         List<String> expectedNames = Arrays.asList("Big Red", "Apple");
@@ -206,7 +206,7 @@ class SearchUtilsTests {
      * when the searchQuery contains two words with OR between them, followed by AND and another word.
      */
     @Test
-    void convertSearchQueryToNamesWithOneOrAndOneAnd_ExpectListContainingFirstWordSeparateAndLastTwoWordsConcatenatedTest() {
+    void convertSearchQueryToNamesWithOneOrAndOneAnd_ExpectListContainingFirstWordSeparateAndLastTwoWordsConcatenatedTest() throws Exception {
         String searchQuery = "Big OR Red AND Apple";
         List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
         List<String> expectedNames = Arrays.asList("Big", "Red Apple");
@@ -219,7 +219,7 @@ class SearchUtilsTests {
      * between them.
      */
     @Test
-    void convertSearchQueryToNamesWithAndThenOrThenAnd_ExpectListContainingTwoWordsSeparatedTest() {
+    void convertSearchQueryToNamesWithAndThenOrThenAnd_ExpectListContainingTwoWordsSeparatedTest() throws Exception {
         String searchQuery = "Big AND Crunchy OR Red AND Apple";
         List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
         List<String> expectedNames = Arrays.asList("Big Crunchy", "Red Apple");
@@ -233,7 +233,7 @@ class SearchUtilsTests {
      * same case.
      */
     @Test
-    void convertSearchQueryToNameWithExactMatchOneWord_ExpectListContainingExactWordTest() {
+    void convertSearchQueryToNameWithExactMatchOneWord_ExpectListContainingExactWordTest() throws Exception {
         String searchQuery = "\"Big\"";
         List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
         List<String> expectedNames = new ArrayList<>();
@@ -246,7 +246,7 @@ class SearchUtilsTests {
      * same case.
      */
     @Test
-    void convertSearchQueryToNameWithExactMatchThreeWords_ExpectListContainingExactWordsTest() {
+    void convertSearchQueryToNameWithExactMatchThreeWords_ExpectListContainingExactWordsTest() throws Exception {
         String searchQuery = "\"Big Red Apple\"";
         List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
         List<String> expectedNames = new ArrayList<>();
@@ -259,7 +259,7 @@ class SearchUtilsTests {
      * case-insensitive-word when the search string is an exact word followed by AND then a non-exact word.
      */
     @Test
-    void convertSearchQueryToNameWithExactMatchAndNonExactMatch_ExpectListContainingOneWordOfExactConcatenatedWithNonExactWordTest() {
+    void convertSearchQueryToNameWithExactMatchAndNonExactMatch_ExpectListContainingOneWordOfExactConcatenatedWithNonExactWordTest() throws Exception {
         String searchQuery = "\"Big\" AND Red";
         List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
         List<String> expectedNames = Arrays.asList("\"Big\" Red");
@@ -271,7 +271,7 @@ class SearchUtilsTests {
      * exact match word when the search string is a non-exact word followed by AND then an exact word.
      */
     @Test
-    void convertSearchQueryToNameWithNonExactMatchAndExactMatch_ExpectListContainingOneWordOfNonExactConcatenatedWithExactWordTest() {
+    void convertSearchQueryToNameWithNonExactMatchAndExactMatch_ExpectListContainingOneWordOfNonExactConcatenatedWithExactWordTest() throws Exception {
         String searchQuery = "Big AND \"Red\"";
         List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
         List<String> expectedNames = Arrays.asList("Big \"Red\"");
@@ -283,7 +283,7 @@ class SearchUtilsTests {
      * case-insensitive-word when the search string is an exact word followed by OR then a non-exact word.
      */
     @Test
-    void convertSearchQueryToNameWithExactMatchOrNonExactMatch_ExpectListContainingTwoSeparateWordsTest() {
+    void convertSearchQueryToNameWithExactMatchOrNonExactMatch_ExpectListContainingTwoSeparateWordsTest() throws Exception {
         String searchQuery = "\"Big\" OR Red";
         List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
         List<String> expectedNames = Arrays.asList("\"Big\"", "Red");
@@ -295,7 +295,7 @@ class SearchUtilsTests {
      * exact match word when the search string is a non-exact word followed by OR then an exact word.
      */
     @Test
-    void convertSearchQueryToNameWithNonExactMatchOrExactMatch_ExpectListContainingTwoSeparateWordsTest() {
+    void convertSearchQueryToNameWithNonExactMatchOrExactMatch_ExpectListContainingTwoSeparateWordsTest() throws Exception {
         String searchQuery = "Big OR \"Red\"";
         List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
         List<String> expectedNames = Arrays.asList("Big", "\"Red\"");
@@ -307,7 +307,7 @@ class SearchUtilsTests {
      * is two exact words separated by OR.
      */
     @Test
-    void convertSearchQueryToNameWithOneExactMatchOrOneExactMatch_ExpectListContainingBothExactMatchWordsTest() {
+    void convertSearchQueryToNameWithOneExactMatchOrOneExactMatch_ExpectListContainingBothExactMatchWordsTest() throws Exception {
         String searchQuery = "\"Big\" OR \"Red\"";
         List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
         List<String> expectedNames = Arrays.asList("\"Big\"", "\"Red\"");
@@ -319,7 +319,7 @@ class SearchUtilsTests {
      * is two exact words separated by AND.
      */
     @Test
-    void convertSearchQueryToNameWithOneExactMatchAndOneExactMatch_ExpectListContainingCombinedExactMatchWordsTest() {
+    void convertSearchQueryToNameWithOneExactMatchAndOneExactMatch_ExpectListContainingCombinedExactMatchWordsTest() throws Exception {
         String searchQuery = "\"Big\" AND \"Red\"";
         List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
         List<String> expectedNames = Arrays.asList("\"Big\" \"Red\"");
@@ -332,7 +332,7 @@ class SearchUtilsTests {
      * is one exact match phrase contained a word followed by OR. Note that OR is within the "".
      */
     @Test
-    void convertSearchQueryToNameOneExactMatchPhraseContainingOr_ExpectListContainingPhraseTest() {
+    void convertSearchQueryToNameOneExactMatchPhraseContainingOr_ExpectListContainingPhraseTest() throws Exception {
         String searchQuery = "\"Big OR\"";
         List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
         List<String> expectedNames = Arrays.asList("\"Big OR\"");
@@ -344,7 +344,7 @@ class SearchUtilsTests {
      * is one exact match phrase contained a word followed by AND. Note that AND is within the "".
      */
     @Test
-    void convertSearchQueryToNameOneExactMatchPhraseContainingAnd_ExpectListContainingPhraseTest() {
+    void convertSearchQueryToNameOneExactMatchPhraseContainingAnd_ExpectListContainingPhraseTest() throws Exception {
         String searchQuery = "\"Big AND\"";
         List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
         List<String> expectedNames = Arrays.asList("\"Big AND\"");
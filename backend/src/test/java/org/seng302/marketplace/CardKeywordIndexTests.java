@@ -0,0 +1,295 @@
+package org.seng302.marketplace;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.model.Address;
+import org.seng302.model.Keyword;
+import org.seng302.model.MarketplaceCard;
+import org.seng302.model.User;
+import org.seng302.model.enums.Role;
+import org.seng302.model.enums.Section;
+import org.seng302.model.repository.MarketplaceCardRepository;
+import org.seng302.services.CardKeywordIndex;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * CardKeywordIndex test class
+ */
+class CardKeywordIndexTests {
+
+    // Big enough to hold every matching card, ordered by id.
+    private static final Pageable PAGING = PageRequest.of(0, 10);
+
+    private MarketplaceCardRepository marketplaceCardRepository;
+    private CardKeywordIndex cardKeywordIndex;
+
+    private User user;
+    private Keyword fruit;
+    private Keyword vegetable;
+    private Keyword organic;
+
+    /**
+     * Sets up a user and keywords for creating cards.
+     */
+    @BeforeEach
+    void setup() throws Exception {
+        marketplaceCardRepository = mock(MarketplaceCardRepository.class);
+        cardKeywordIndex = new CardKeywordIndex(marketplaceCardRepository);
+
+        Address address = new Address("3/24", "Ilam Road", "Christchurch", "Canterbury", "New Zealand", "90210", "Ilam");
+        user = new User("John", "Doe", "S", "Generic", "Biography", "email@email.com",
+                LocalDate.of(2000, 2, 2), "0271316", address, "Password123!",
+                LocalDateTime.of(LocalDate.of(2021, 2, 2), LocalTime.of(0, 0)), Role.USER);
+        user.setId(1);
+
+        fruit = new Keyword("Fruit", LocalDateTime.now());
+        fruit.setId(1);
+        vegetable = new Keyword("Vegetable", LocalDateTime.now());
+        vegetable.setId(2);
+        organic = new Keyword("Organic", LocalDateTime.now());
+        organic.setId(3);
+    }
+
+    /**
+     * Creates a card with the given id, section and keywords.
+     */
+    private MarketplaceCard createCard(int id, Section section, Keyword... keywords) throws Exception {
+        return createCard(id, section, "Title", LocalDateTime.now(), keywords);
+    }
+
+    /**
+     * Creates a card with the given id, section, title, created date and keywords.
+     */
+    private MarketplaceCard createCard(int id, Section section, String title, LocalDateTime created,
+                                       Keyword... keywords) throws Exception {
+        MarketplaceCard card = new MarketplaceCard(user.getId(), user, section, created, title, "Description");
+        card.setId(id);
+        for (Keyword keyword : keywords) {
+            card.addKeyword(keyword);
+        }
+        return card;
+    }
+
+    /**
+     * Tests that OR returns cards with any of the keywords.
+     */
+    @Test
+    void testFindCardIdsWithOrReturnsCardsWithAnyKeyword() throws Exception {
+        cardKeywordIndex.indexCard(createCard(1, Section.FORSALE, fruit));
+        cardKeywordIndex.indexCard(createCard(2, Section.FORSALE, vegetable));
+        cardKeywordIndex.indexCard(createCard(3, Section.FORSALE, organic));
+
+        assertThat(cardKeywordIndex.findCardIds(Section.FORSALE, List.of(1, 2), false, PAGING).getContent()).containsExactly(1, 2);
+    }
+
+    /**
+     * Tests that AND only returns cards with every keyword.
+     */
+    @Test
+    void testFindCardIdsWithAndReturnsCardsWithEveryKeyword() throws Exception {
+        cardKeywordIndex.indexCard(createCard(1, Section.FORSALE, fruit, organic));
+        cardKeywordIndex.indexCard(createCard(2, Section.FORSALE, fruit));
+        cardKeywordIndex.indexCard(createCard(3, Section.FORSALE, organic));
+
+        assertThat(cardKeywordIndex.findCardIds(Section.FORSALE, List.of(1, 3), true, PAGING).getContent()).containsExactly(1);
+    }
+
+    /**
+     * Tests that only cards in the requested section are returned.
+     */
+    @Test
+    void testFindCardIdsOnlyReturnsCardsInSection() throws Exception {
+        cardKeywordIndex.indexCard(createCard(1, Section.FORSALE, fruit));
+        cardKeywordIndex.indexCard(createCard(2, Section.WANTED, fruit));
+
+        assertThat(cardKeywordIndex.findCardIds(Section.WANTED, List.of(1), false, PAGING).getContent()).containsExactly(2);
+    }
+
+    /**
+     * Tests that an unknown keyword matches no cards.
+     */
+    @Test
+    void testFindCardIdsWithUnknownKeywordReturnsNoCards() throws Exception {
+        cardKeywordIndex.indexCard(createCard(1, Section.FORSALE, fruit));
+
+        assertThat(cardKeywordIndex.findCardIds(Section.FORSALE, List.of(1, 99), true, PAGING).getContent()).isEmpty();
+    }
+
+    /**
+     * Tests that re-indexing an edited card replaces its old keywords.
+     */
+    @Test
+    void testIndexCardReplacesOldKeywords() throws Exception {
+        cardKeywordIndex.indexCard(createCard(1, Section.FORSALE, fruit));
+        cardKeywordIndex.indexCard(createCard(1, Section.FORSALE, vegetable));
+
+        assertThat(cardKeywordIndex.findCardIds(Section.FORSALE, List.of(1), false, PAGING).getContent()).isEmpty();
+        assertThat(cardKeywordIndex.findCardIds(Section.FORSALE, List.of(2), false, PAGING).getContent()).containsExactly(1);
+    }
+
+    /**
+     * Tests that removed cards and keywords are no longer matched.
+     */
+    @Test
+    void testRemovedCardsAndKeywordsAreNotReturned() throws Exception {
+        cardKeywordIndex.indexCard(createCard(1, Section.FORSALE, fruit, vegetable));
+        cardKeywordIndex.indexCard(createCard(2, Section.FORSALE, fruit));
+
+        cardKeywordIndex.removeCard(2);
+        cardKeywordIndex.removeKeyword(2);
+
+        assertThat(cardKeywordIndex.findCardIds(Section.FORSALE, List.of(1), false, PAGING).getContent()).containsExactly(1);
+        assertThat(cardKeywordIndex.findCardIds(Section.FORSALE, List.of(2), false, PAGING).getContent()).isEmpty();
+    }
+
+    /**
+     * Tests that the index can be rebuilt from the card keyword rows.
+     */
+    @Test
+    void testRebuildIndexesCardKeywordPairs() {
+        when(marketplaceCardRepository.findAllCardKeywordPairs()).thenReturn(List.of(
+                pair(1, Section.FORSALE, 1),
+                pair(1, Section.FORSALE, 2),
+                pair(2, Section.FORSALE, 2),
+                pair(3, Section.FORSALE, null)
+        ));
+
+        cardKeywordIndex.rebuild();
+
+        assertThat(cardKeywordIndex.findCardIds(Section.FORSALE, List.of(1, 2), true, PAGING).getContent()).containsExactly(1);
+        assertThat(cardKeywordIndex.findCardIds(Section.FORSALE, List.of(2), false, PAGING).getContent()).containsExactly(1, 2);
+    }
+
+    /**
+     * Tests that cards indexed and removed while a rebuild is reading the database are not lost when the rebuilt
+     * index is swapped in, as the rows the rebuild read may be from before those changes.
+     */
+    @Test
+    void testChangesDuringRebuildAreKept() {
+        when(marketplaceCardRepository.findAllCardKeywordPairs()).thenAnswer(invocation -> {
+            cardKeywordIndex.indexCard(createCard(4, Section.FORSALE, organic));
+            cardKeywordIndex.removeCard(2);
+            return List.of(
+                    pair(1, Section.FORSALE, 1),
+                    pair(2, Section.FORSALE, 1)
+            );
+        });
+
+        cardKeywordIndex.rebuild();
+
+        assertThat(cardKeywordIndex.findCardIds(Section.FORSALE, List.of(1), false, PAGING).getContent()).containsExactly(1);
+        assertThat(cardKeywordIndex.findCardIds(Section.FORSALE, List.of(3), false, PAGING).getContent()).containsExactly(4);
+    }
+
+    /**
+     * Tests that changes made while no rebuild is running are not replayed onto a later rebuild.
+     */
+    @Test
+    void testChangesBeforeRebuildAreNotReplayed() throws Exception {
+        cardKeywordIndex.indexCard(createCard(4, Section.FORSALE, organic));
+        when(marketplaceCardRepository.findAllCardKeywordPairs()).thenReturn(List.of(pair(1, Section.FORSALE, 1)));
+
+        cardKeywordIndex.rebuild();
+
+        assertThat(cardKeywordIndex.findCardIds(Section.FORSALE, List.of(3), false, PAGING).getContent()).isEmpty();
+    }
+
+    /**
+     * Tests that the matching cards are ordered and paged, with the total number of matching cards.
+     */
+    @Test
+    void testFindCardIdsReturnsRequestedPageInOrder() throws Exception {
+        cardKeywordIndex.indexCard(createCard(1, Section.FORSALE, "banana", LocalDateTime.of(2021, 3, 1, 0, 0), fruit));
+        cardKeywordIndex.indexCard(createCard(2, Section.FORSALE, "Apple", LocalDateTime.of(2021, 1, 1, 0, 0), fruit));
+        cardKeywordIndex.indexCard(createCard(3, Section.FORSALE, "cherry", LocalDateTime.of(2021, 2, 1, 0, 0, 30), fruit));
+
+        Page<Integer> byTitle = cardKeywordIndex.findCardIds(Section.FORSALE, List.of(1), false,
+                PageRequest.of(0, 2, Sort.by(Sort.Order.asc("title").ignoreCase())));
+        Page<Integer> byCreated = cardKeywordIndex.findCardIds(Section.FORSALE, List.of(1), false,
+                PageRequest.of(1, 2, Sort.by(Sort.Order.desc("created").ignoreCase())));
+
+        assertThat(byTitle.getContent()).containsExactly(2, 1);
+        assertThat(byTitle.getTotalElements()).isEqualTo(3);
+        assertThat(byCreated.getContent()).containsExactly(2);
+        assertThat(byCreated.getTotalElements()).isEqualTo(3);
+    }
+
+    /**
+     * Tests that cards are ordered by the new location of their creator after the creator's address changes.
+     */
+    @Test
+    void testUpdateCreatorLocationChangesLocationOrder() throws Exception {
+        Address otherAddress = new Address("1", "Main Road", "Dunedin", "Otago", "New Zealand", "9016", "Mosgiel");
+        User otherUser = new User("Jane", "Doe", "S", "Generic", "Biography", "jane@email.com",
+                LocalDate.of(2000, 2, 2), "0271316", otherAddress, "Password123!",
+                LocalDateTime.of(LocalDate.of(2021, 2, 2), LocalTime.of(0, 0)), Role.USER);
+        otherUser.setId(2);
+        MarketplaceCard otherCard = new MarketplaceCard(otherUser.getId(), otherUser, Section.FORSALE, LocalDateTime.now(),
+                "Title", "Description");
+        otherCard.setId(2);
+        otherCard.addKeyword(fruit);
+        cardKeywordIndex.indexCard(createCard(1, Section.FORSALE, fruit));
+        cardKeywordIndex.indexCard(otherCard);
+        Pageable byLocation = PageRequest.of(0, 10, Sort.by(Sort.Order.asc("creatorSuburb"), Sort.Order.asc("creatorCity")));
+
+        assertThat(cardKeywordIndex.findCardIds(Section.FORSALE, List.of(1), false, byLocation).getContent())
+                .containsExactly(1, 2);
+
+        cardKeywordIndex.updateCreatorLocation(user.getId(), "Riccarton", "Christchurch");
+
+        assertThat(cardKeywordIndex.findCardIds(Section.FORSALE, List.of(1), false, byLocation).getContent())
+                .containsExactly(2, 1);
+    }
+
+    /**
+     * Tests that a rebuilt index orders cards by the values read with the card keyword rows.
+     */
+    @Test
+    void testRebuildIndexesSortValues() {
+        when(marketplaceCardRepository.findAllCardKeywordPairs()).thenReturn(List.of(
+                pair(1, Section.FORSALE, "banana", 1),
+                pair(1, Section.FORSALE, "banana", 2),
+                pair(2, Section.FORSALE, "apple", 1)
+        ));
+
+        cardKeywordIndex.rebuild();
+
+        assertThat(cardKeywordIndex.findCardIds(Section.FORSALE, List.of(1), false,
+                PageRequest.of(0, 10, Sort.by("title"))).getContent()).containsExactly(2, 1);
+    }
+
+    /**
+     * Creates a card keyword row as returned by the repository.
+     */
+    private MarketplaceCardRepository.CardKeywordPair pair(Integer cardId, Section section, Integer keywordId) {
+        return pair(cardId, section, "Title", keywordId);
+    }
+
+    /**
+     * Creates a card keyword row with the given title as returned by the repository.
+     */
+    private MarketplaceCardRepository.CardKeywordPair pair(Integer cardId, Section section, String title, Integer keywordId) {
+        return new MarketplaceCardRepository.CardKeywordPair() {
+            public Integer getCardId() { return cardId; }
+            public Section getSection() { return section; }
+            public Integer getCreatorId() { return user.getId(); }
+            public LocalDateTime getCreated() { return LocalDateTime.of(2021, 1, 1, 0, 0); }
+            public String getTitle() { return title; }
+            public String getCreatorSuburb() { return "ilam"; }
+            public String getCreatorCity() { return "christchurch"; }
+            public Integer getKeywordId() { return keywordId; }
+        };
+    }
+}
@@ -24,7 +24,9 @@ import java.time.LocalTime;
 import java.time.Month;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -251,7 +253,8 @@ class MarketplaceCardRepositoryIntegrationTests {
         // given
         int pageNo = 0;
         int pageSize = 3;
-        Sort sortBy = Sort.by(Sort.Order.desc("created").ignoreCase());
+        // Two cards were created at the same time, so they are ordered by title to keep the order deterministic.
+        Sort sortBy = Sort.by(Sort.Order.desc("created"), Sort.Order.asc("title"));
         Pageable pageable = PageRequest.of(pageNo, pageSize, sortBy);
 
         ArrayList<String> orderedCardTitles = new ArrayList<>();
@@ -276,7 +279,8 @@ class MarketplaceCardRepositoryIntegrationTests {
         // given
         int pageNo = 0;
         int pageSize = 3;
-        Sort sortBy = Sort.by(Sort.Order.asc("created").ignoreCase());
+        // Two cards were created at the same time, so they are ordered by title to keep the order deterministic.
+        Sort sortBy = Sort.by(Sort.Order.asc("created"), Sort.Order.asc("title"));
         Pageable pageable = PageRequest.of(pageNo, pageSize, sortBy);
 
         ArrayList<String> orderedCardTitles = new ArrayList<>();
@@ -352,7 +356,7 @@ class MarketplaceCardRepositoryIntegrationTests {
         // given
         int pageNo = 0;
         int pageSize = 1;
-        Sort sortBy = Sort.by(Sort.Order.asc("creator.homeAddress.suburb").ignoreCase()).and(Sort.by(Sort.Order.asc("creator.homeAddress.city").ignoreCase()));
+        Sort sortBy = Sort.by(Sort.Order.asc("creatorSuburb"), Sort.Order.asc("creatorCity"));
         Pageable pageable = PageRequest.of(pageNo, pageSize, sortBy);
 
         // Expected suburb
@@ -374,7 +378,7 @@ class MarketplaceCardRepositoryIntegrationTests {
         // given
         int pageNo = 0;
         int pageSize = 1;
-        Sort sortBy = Sort.by(Sort.Order.desc("creator.homeAddress.suburb").ignoreCase()).and(Sort.by(Sort.Order.desc("creator.homeAddress.city").ignoreCase()));
+        Sort sortBy = Sort.by(Sort.Order.desc("creatorSuburb"), Sort.Order.desc("creatorCity"));
         Pageable pageable = PageRequest.of(pageNo, pageSize, sortBy);
 
         // Expected suburb
@@ -481,4 +485,102 @@ class MarketplaceCardRepositoryIntegrationTests {
         // then
         assertThat(foundMarketplaceCardsList.isEmpty()).isTrue();
     }
+
+    /**
+     * Tests that updating a card's keywords persists only the wanted keywords.
+     */
+    @Test
+    void whenKeywordsUpdated_thenOnlyNewKeywordsAreStored() throws Exception {
+        // given
+        Keyword keyword1 = new Keyword("One", LocalDateTime.now());
+        Keyword keyword2 = new Keyword("Two", LocalDateTime.now());
+        Keyword keyword3 = new Keyword("Three", LocalDateTime.now());
+        entityManager.persist(keyword1);
+        entityManager.persist(keyword2);
+        entityManager.persist(keyword3);
+        marketplaceCard.addKeyword(keyword1);
+        marketplaceCard.addKeyword(keyword2);
+        entityManager.flush();
+
+        // when
+        marketplaceCard.updateKeywords(List.of(keyword2, keyword3));
+        marketplaceCardRepository.saveAndFlush(marketplaceCard);
+        entityManager.clear();
+
+        // then
+        MarketplaceCard storedCard = marketplaceCardRepository.findById(marketplaceCard.getId()).orElseThrow();
+        assertThat(storedCard.getKeywords().stream().map(Keyword::getId).collect(Collectors.toList()))
+                .containsExactly(keyword2.getId(), keyword3.getId());
+    }
+
+    /**
+     * Tests that findAllCardKeywordPairs returns a row for each keyword of a card, and a row for cards with
+     * no keywords, with the creator and sort values of the card.
+     */
+    @Test
+    void whenFindAllCardKeywordPairs_thenReturnEveryCardKeyword() throws Exception {
+        // given
+        Keyword keyword1 = new Keyword("One", LocalDateTime.now());
+        entityManager.persist(keyword1);
+        marketplaceCard.addKeyword(keyword1);
+        entityManager.flush();
+
+        // when
+        List<MarketplaceCardRepository.CardKeywordPair> pairs = marketplaceCardRepository.findAllCardKeywordPairs();
+
+        // then
+        assertThat(pairs).hasSize(marketplaceCards.size());
+        assertThat(pairs).anyMatch(pair -> pair.getCardId() == marketplaceCard.getId()
+                && pair.getSection() == Section.FORSALE && pair.getKeywordId() == keyword1.getId());
+        assertThat(pairs).anyMatch(pair -> pair.getCardId() == marketplaceCard2.getId() && pair.getKeywordId() == null);
+        assertThat(pairs).anyMatch(pair -> pair.getCardId() == marketplaceCard.getId()
+                && pair.getCreatorId() == marketplaceCard.getCreatorId() && pair.getTitle().equals(marketplaceCard.getTitle())
+                && pair.getCreated() != null
+                && Objects.equals(pair.getCreatorSuburb(), marketplaceCard.getCreatorSuburb())
+                && Objects.equals(pair.getCreatorCity(), marketplaceCard.getCreatorCity()));
+    }
+
+    /**
+     * Tests that updateCreatorLocation changes the (lower cased) creator suburb and city of only that creator's cards.
+     */
+    @Test
+    void whenUpdateCreatorLocation_thenOnlyCreatorsCardsAreUpdated() {
+        // when
+        int updatedCards = marketplaceCardRepository.updateCreatorLocation(creatorId1, "Riccarton", "Christchurch");
+
+        // then
+        assertThat(updatedCards).isEqualTo(4);
+        assertThat(marketplaceCardRepository.findMarketplaceCardByCreatorId(creatorId1))
+                .allMatch(card -> card.getCreatorSuburb().equals("riccarton") && card.getCreatorCity().equals("christchurch"));
+        assertThat(marketplaceCardRepository.findMarketplaceCardByCreatorId(creatorId2))
+                .allMatch(card -> card.getCreatorSuburb().equals("otatara") && card.getCreatorCity().equals("invercargill"));
+    }
+
+    /**
+     * Tests that fillMissingCreatorLocations copies the creator's suburb and city onto cards which do not have them.
+     */
+    @Test
+    void whenFillMissingCreatorLocations_thenCardsWithoutLocationAreFilled() throws Exception {
+        // given
+        MarketplaceCard cardWithoutLocation = new MarketplaceCard(
+                creatorId2,
+                null,
+                Section.EXCHANGE,
+                LocalDateTime.of(LocalDate.of(2021, Month.MAY, 1), LocalTime.of(0, 0)),
+                "No location",
+                ""
+        );
+        entityManager.persist(cardWithoutLocation);
+        entityManager.flush();
+        assertThat(cardWithoutLocation.getCreatorSuburb()).isNull();
+
+        // when
+        int updatedCards = marketplaceCardRepository.fillMissingCreatorLocations();
+
+        // then
+        assertThat(updatedCards).isEqualTo(1);
+        MarketplaceCard storedCard = marketplaceCardRepository.findById(cardWithoutLocation.getId()).orElseThrow();
+        assertThat(storedCard.getCreatorSuburb()).isEqualTo("otatara");
+        assertThat(storedCard.getCreatorCity()).isEqualTo("invercargill");
+    }
 }
@@ -13,6 +13,7 @@ import org.seng302.model.repository.KeywordRepository;
 import org.seng302.model.repository.MarketCardNotificationRepository;
 import org.seng302.model.repository.MarketplaceCardRepository;
 import org.seng302.model.repository.UserRepository;
+import org.seng302.services.CardKeywordIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -67,6 +68,8 @@ class MarketplaceCardResourceIntegrationTests {
     @MockBean
     private KeywordRepository keywordRepository;
 
+    private CardKeywordIndex cardKeywordIndex;
+
     private MockHttpServletResponse response;
 
     private final String cardPayloadJson = "{\"creatorId\":\"%d\"," +
@@ -221,8 +224,11 @@ class MarketplaceCardResourceIntegrationTests {
         keyword = new Keyword("Resource", LocalDateTime.now());
         keyword.setId(1);
 
+        cardKeywordIndex = new CardKeywordIndex(marketplaceCardRepository);
+
         this.mvc = MockMvcBuilders.standaloneSetup(new MarketplaceCardResource(
-                marketplaceCardRepository, userRepository, keywordRepository, marketCardNotificationRepository))
+                marketplaceCardRepository, userRepository, keywordRepository, marketCardNotificationRepository,
+                cardKeywordIndex))
                 .build();
     }
 
@@ -238,7 +244,7 @@ class MarketplaceCardResourceIntegrationTests {
     void canCreateCardWhenUserExistsAndDataValid() throws Exception {
         // given
         given(userRepository.findById(1)).willReturn(Optional.ofNullable(user));
-        given(keywordRepository.findById(keyword.getId())).willReturn(Optional.ofNullable(keyword));
+        given(keywordRepository.findAllById(List.of(keyword.getId()))).willReturn(List.of(keyword));
 
         payloadJson = String.format(cardPayloadJson, marketplaceCard.getCreatorId(), marketplaceCard.getSection(),
                 marketplaceCard.getTitle(), marketplaceCard.getDescription(), "[" + keyword.getId() + "]");
@@ -269,7 +275,7 @@ class MarketplaceCardResourceIntegrationTests {
     void cantCreateCardWhenCreatorExistsButCardAlreadyExists() throws Exception {
         // given
         given(userRepository.findById(1)).willReturn(Optional.ofNullable(user));
-        given(keywordRepository.findById(keyword.getId())).willReturn(Optional.ofNullable(keyword));
+        given(keywordRepository.findAllById(List.of(keyword.getId()))).willReturn(List.of(keyword));
         given(marketplaceCardRepository.findMarketplaceCardByCreatorIdAndSectionAndTitleAndDescription(
                 marketplaceCard.getCreatorId(), marketplaceCard.getSection(), marketplaceCard.getTitle(), marketplaceCard.getDescription()))
                 .willReturn(Optional.ofNullable(marketplaceCard));
@@ -297,7 +303,7 @@ class MarketplaceCardResourceIntegrationTests {
     void cantCreateCardWhenUserExistsButDataIsInvalid() throws Exception {
         // given
         given(userRepository.findById(1)).willReturn(Optional.ofNullable(user));
-        given(keywordRepository.findById(keyword.getId())).willReturn(Optional.ofNullable(keyword));
+        given(keywordRepository.findAllById(List.of(keyword.getId()))).willReturn(List.of(keyword));
         given(marketplaceCardRepository.findMarketplaceCardByCreatorIdAndSectionAndTitleAndDescription(
                 marketplaceCard.getCreatorId(), marketplaceCard.getSection(), marketplaceCard.getTitle(),
                 marketplaceCard.getDescription())).willReturn(Optional.empty());
@@ -329,7 +335,7 @@ class MarketplaceCardResourceIntegrationTests {
     void cantCreateCardWhenUserExistsAndDataIsValidButKeywordDoesntExist() throws Exception {
         // given
         given(userRepository.findById(1)).willReturn(Optional.ofNullable(user));
-        given(keywordRepository.findById(keyword.getId())).willReturn(Optional.ofNullable(keyword));
+        given(keywordRepository.findAllById(List.of(keyword.getId(), 5))).willReturn(List.of(keyword));
         given(marketplaceCardRepository.findMarketplaceCardByCreatorIdAndSectionAndTitleAndDescription(
                 marketplaceCard.getCreatorId(), marketplaceCard.getSection(), marketplaceCard.getTitle(),
                 marketplaceCard.getDescription())).willReturn(Optional.empty());
@@ -359,7 +365,7 @@ class MarketplaceCardResourceIntegrationTests {
     void cantCreateCardWhenUserExistsAndDataValidWithNoCookie() throws Exception {
         // given
         given(userRepository.findById(1)).willReturn(Optional.ofNullable(user));
-        given(keywordRepository.findById(keyword.getId())).willReturn(Optional.ofNullable(keyword));
+        given(keywordRepository.findAllById(List.of(keyword.getId()))).willReturn(List.of(keyword));
 
         payloadJson = String.format(cardPayloadJson, marketplaceCard.getCreatorId(), marketplaceCard.getSection(),
                 marketplaceCard.getTitle(), marketplaceCard.getDescription(), "[" + keyword.getId() + "]");
@@ -386,7 +392,7 @@ class MarketplaceCardResourceIntegrationTests {
     void cantCreateCardWhenUserExistsAndDataValidWithInvalidUUID() throws Exception {
         // given
         given(userRepository.findById(1)).willReturn(Optional.ofNullable(user));
-        given(keywordRepository.findById(keyword.getId())).willReturn(Optional.ofNullable(keyword));
+        given(keywordRepository.findAllById(List.of(keyword.getId()))).willReturn(List.of(keyword));
         given(marketplaceCardRepository.findMarketplaceCardByCreatorIdAndSectionAndTitleAndDescription(
                 marketplaceCard.getCreatorId(), marketplaceCard.getSection(), marketplaceCard.getTitle(),
                 marketplaceCard.getDescription())).willReturn(Optional.empty());
@@ -417,7 +423,7 @@ class MarketplaceCardResourceIntegrationTests {
     void cantCreateCardWhenCreatorIdIsForAnotherUserWithUserNotBeingAGAAOrDGAA() throws Exception {
         // given
         given(userRepository.findById(2)).willReturn(Optional.ofNullable(anotherUser));
-        given(keywordRepository.findById(keyword.getId())).willReturn(Optional.ofNullable(keyword));
+        given(keywordRepository.findAllById(List.of(keyword.getId()))).willReturn(List.of(keyword));
         given(marketplaceCardRepository.findMarketplaceCardByCreatorIdAndSectionAndTitleAndDescription(
                 anotherMarketplaceCard.getCreatorId(), anotherMarketplaceCard.getSection(), anotherMarketplaceCard.getTitle(),
                 anotherMarketplaceCard.getDescription())).willReturn(Optional.empty());
@@ -446,7 +452,7 @@ class MarketplaceCardResourceIntegrationTests {
     void canCreateCardWhenCreatorIdIsForAnotherUserWithUserBeingGAA() throws Exception {
         // given
         given(userRepository.findById(2)).willReturn(Optional.ofNullable(anotherUser));
-        given(keywordRepository.findById(keyword.getId())).willReturn(Optional.ofNullable(keyword));
+        given(keywordRepository.findAllById(List.of(keyword.getId()))).willReturn(List.of(keyword));
         given(marketplaceCardRepository.findMarketplaceCardByCreatorIdAndSectionAndTitleAndDescription(
                 anotherMarketplaceCard.getCreatorId(), anotherMarketplaceCard.getSection(), anotherMarketplaceCard.getTitle(),
                 anotherMarketplaceCard.getDescription())).willReturn(Optional.empty());
@@ -738,6 +744,77 @@ class MarketplaceCardResourceIntegrationTests {
         assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
     }
 
+    /**
+     * Tests that an OK status and the marketplace cards with any of the given keywords are received
+     * when the keyword operator is OR.
+     */
+    @Test
+    void canRetrieveCardsWithAnyOfTheGivenKeywords() throws Exception {
+        // given
+        // the index only needs the card's id, section, creator, sort values and keywords
+        MarketplaceCard indexedCard = new MarketplaceCard(user.getId(), user, Section.FORSALE,
+                marketplaceCard.getCreated(), marketplaceCard.getTitle(), marketplaceCard.getDescription());
+        indexedCard.setId(marketplaceCard.getId());
+        indexedCard.addKeyword(keyword);
+        cardKeywordIndex.indexCard(indexedCard);
+        expectedJson = "[" + String.format(expectedCardJson, marketplaceCard.getId(), user.getId(), user.getFirstName(),
+                user.getLastName(), user.getMiddleName(), user.getNickname(), user.getBio(), user.getEmail(),
+                user.getCreated(), user.getRole(), user.getHomeAddress().toSecureString(), marketplaceCard.getSection().toString(),
+                marketplaceCard.getCreated(), marketplaceCard.getDisplayPeriodEnd(), marketplaceCard.getTitle(),
+                marketplaceCard.getDescription(), marketplaceCard.getKeywords()) + "]";
+
+        given(userRepository.findBySessionUUID(user.getSessionUUID())).willReturn(Optional.ofNullable(user));
+
+        // when
+        when(marketplaceCardRepository.findAllByIdIn(List.of(marketplaceCard.getId()))).thenReturn(List.of(marketplaceCard));
+        response = mvc.perform(get("/cards").param("section", "FORSALE")
+                .param("keywordIds", String.valueOf(keyword.getId()), "99").param("keywordOperator", "OR")
+                .cookie(new Cookie("JSESSIONID", user.getSessionUUID()))).andReturn().getResponse();
+
+        // then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(response.getContentAsString()).isEqualTo(expectedJson);
+    }
+
+    /**
+     * Tests that an OK status and no marketplace cards are received when the keyword operator is AND
+     * and no card has every keyword.
+     */
+    @Test
+    void canRetrieveNoCardsWhenNoCardHasEveryKeyword() throws Exception {
+        // given
+        marketplaceCard.addKeyword(keyword);
+        cardKeywordIndex.indexCard(marketplaceCard);
+
+        given(userRepository.findBySessionUUID(user.getSessionUUID())).willReturn(Optional.ofNullable(user));
+
+        // when
+        response = mvc.perform(get("/cards").param("section", "FORSALE")
+                .param("keywordIds", String.valueOf(keyword.getId()), "99").param("keywordOperator", "AND")
+                .cookie(new Cookie("JSESSIONID", user.getSessionUUID()))).andReturn().getResponse();
+
+        // then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(response.getContentAsString()).isEqualTo("[]");
+    }
+
+    /**
+     * Tests that the user cannot retrieve cards with an invalid keyword operator parameter
+     */
+    @Test
+    void cantRetrieveCardsWithInvalidKeywordOperator() throws Exception {
+        // given
+        given(userRepository.findBySessionUUID(user.getSessionUUID())).willReturn(Optional.ofNullable(user));
+
+        // when
+        response = mvc.perform(get("/cards").param("section", "FORSALE")
+                .param("keywordIds", String.valueOf(keyword.getId())).param("keywordOperator", "XOR")
+                .cookie(new Cookie("JSESSIONID", user.getSessionUUID()))).andReturn().getResponse();
+
+        // then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+    }
+
     /**
      * Tests that the user can extend the display period of a card with a valid cookie when
      * they are the creator of the card and the card exists, and that an OK response is received.
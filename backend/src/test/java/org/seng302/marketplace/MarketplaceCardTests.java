@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 import org.seng302.exceptions.IllegalAddressArgumentException;
 import org.seng302.exceptions.IllegalMarketplaceCardArgumentException;
 import org.seng302.model.Address;
+import org.seng302.model.Keyword;
 import org.seng302.model.MarketplaceCard;
 import org.seng302.model.enums.Role;
 import org.seng302.model.enums.Section;
@@ -14,6 +15,8 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.Month;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -72,6 +75,8 @@ class MarketplaceCardTests {
         Assertions.assertEquals(marketplaceCard.getDisplayPeriodEnd(), LocalDateTime.of(LocalDate.of(2021, Month.JANUARY, 15), LocalTime.of(0, 0)));
         Assertions.assertEquals("Hayley's Birthday", marketplaceCard.getTitle());
         Assertions.assertEquals("Come join Hayley and help her celebrate her birthday!", marketplaceCard.getDescription());
+        Assertions.assertEquals("ilam", marketplaceCard.getCreatorSuburb());
+        Assertions.assertEquals("christchurch", marketplaceCard.getCreatorCity());
     }
 
     /**
@@ -331,4 +336,47 @@ class MarketplaceCardTests {
         Assertions.assertNotEquals(originalDisplayPeriodEnd, marketplaceCard.getDisplayPeriodEnd());
         Assertions.assertEquals(expectedNewDisplayPeriodEnd, marketplaceCard.getDisplayPeriodEnd());
     }
+
+    // ***************** updateKeywords ********************
+
+    /**
+     * Tests that updateKeywords removes keywords which are no longer wanted, keeps the rest and adds new ones.
+     */
+    @Test
+    void updateKeywordsOnlyChangesDifferentKeywordsTest() throws Exception {
+        Keyword keyword1 = new Keyword("One", LocalDateTime.now());
+        keyword1.setId(1);
+        Keyword keyword2 = new Keyword("Two", LocalDateTime.now());
+        keyword2.setId(2);
+        Keyword keyword3 = new Keyword("Three", LocalDateTime.now());
+        keyword3.setId(3);
+
+        MarketplaceCard marketplaceCard = new MarketplaceCard(user.getId(), user, Section.FORSALE,
+                LocalDateTime.of(LocalDate.of(2021, Month.JANUARY, 1), LocalTime.of(0, 0)), "Title", "Description");
+        marketplaceCard.addKeyword(keyword1);
+        marketplaceCard.addKeyword(keyword2);
+
+        marketplaceCard.updateKeywords(List.of(keyword2, keyword3, keyword3));
+
+        Assertions.assertEquals(List.of(2, 3),
+                marketplaceCard.getKeywords().stream().map(Keyword::getId).collect(Collectors.toList()));
+        Assertions.assertTrue(marketplaceCard.getKeywords().contains(keyword2));
+    }
+
+    /**
+     * Tests that updateKeywords with no keywords removes every keyword.
+     */
+    @Test
+    void updateKeywordsWithNoKeywordsRemovesAllKeywordsTest() throws Exception {
+        Keyword keyword1 = new Keyword("One", LocalDateTime.now());
+        keyword1.setId(1);
+
+        MarketplaceCard marketplaceCard = new MarketplaceCard(user.getId(), user, Section.FORSALE,
+                LocalDateTime.of(LocalDate.of(2021, Month.JANUARY, 1), LocalTime.of(0, 0)), "Title", "Description");
+        marketplaceCard.addKeyword(keyword1);
+
+        marketplaceCard.updateKeywords(List.of());
+
+        Assertions.assertTrue(marketplaceCard.getKeywords().isEmpty());
+    }
 }
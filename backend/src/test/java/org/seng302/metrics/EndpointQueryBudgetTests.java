@@ -0,0 +1,190 @@
+package org.seng302.metrics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.Main;
+import org.seng302.model.*;
+import org.seng302.model.enums.BusinessType;
+import org.seng302.model.enums.Role;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.servlet.http.Cookie;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Query budgets of the hot endpoints: each request has to run at most a fixed number of SQL statements, and a page of
+ * results has to run as many statements as a page of one result, so a lazy loading regression (an N+1 query) fails
+ * the build. The data is created in the test's transaction, which the
+ * requests join, and rolled back afterwards. The persistence context is cleared before each request so nothing is
+ * served from it.
+ * The tests have their own database, as rolling back doesn't undo the ids the data was given, and the scheduled jobs
+ * don't run, so their statements aren't counted against the requests.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@ContextConfiguration(classes = {Main.class})
+@Transactional
+@ActiveProfiles("test")
+class EndpointQueryBudgetTests {
+
+    // Results asked for in each request, the listing search's default page size.
+    private static final int PAGE_SIZE = 12;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    private TaskScheduler taskScheduler;
+
+    // Most SQL statements each endpoint may run, whatever the size of the page. The associations of a page of results
+    // are loaded in batches (see hibernate.default_batch_fetch_size), a statement per association rather than per
+    // result.
+    private static final long LISTING_SEARCH_BUDGET = 12;
+    private static final long BUSINESS_LISTINGS_BUDGET = 13;
+    private static final long PRODUCTS_BUDGET = 10;
+    private static final long BUSINESS_BUDGET = 7;
+
+    // Name of the products, which no other test uses, so the listing search only finds this test's listings.
+    private static final String PRODUCT_NAME = "Budgeted Feijoa";
+
+    private QueryCounter queryCounter;
+
+    private User user;
+
+    private Business business;
+
+    /**
+     * Creates a business with more products and listings than fit on a page.
+     */
+    @BeforeEach
+    void setup() throws Exception {
+        queryCounter = new QueryCounter(entityManagerFactory);
+        Address address = new Address("3/24", "Ilam Road", "Christchurch", "Canterbury", "New Zealand", "90210", "Ilam");
+        entityManager.persist(address);
+        user = new User("first", "last", "middle", "nick", "bio", "budget@example.com",
+                LocalDate.of(2000, Month.JANUARY, 1), "123456789", address, "Password123!",
+                LocalDateTime.of(2021, Month.JANUARY, 1, 0, 0), Role.USER);
+        user.setSessionUUID(User.generateSessionUUID());
+        entityManager.persist(user);
+        business = new Business(user.getId(), "Corner Shop", "some text", address,
+                BusinessType.RETAIL_TRADE, LocalDateTime.now(), user, "$", "NZD");
+        entityManager.persist(business);
+        user.getBusinessesAdministeredObjects().add(business);
+
+        for (int i = 0; i < PAGE_SIZE + 3; i++) {
+            String productId = "PRODUCT" + i;
+            Product product = new Product(productId, business, PRODUCT_NAME + " " + i, "Description", "Manufacturer", 2.0, "9400547002634");
+            entityManager.persist(product);
+            InventoryItem inventoryItem = new InventoryItem(product, productId, 10, 2.0, 20.0,
+                    LocalDate.now().minusDays(10), LocalDate.now().plusDays(20), LocalDate.now().plusDays(20),
+                    LocalDate.now().plusDays(30));
+            entityManager.persist(inventoryItem);
+            entityManager.persist(new Listing(inventoryItem, 5, 2.0, "more info", LocalDateTime.now(),
+                    LocalDateTime.now().plusDays(7)));
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    /**
+     * Sends a request as the business's administrator and checks it succeeded.
+     */
+    private void perform(MockHttpServletRequestBuilder request) throws Exception {
+        int status = mvc.perform(request.cookie(new Cookie("JSESSIONID", user.getSessionUUID())))
+                .andReturn().getResponse().getStatus();
+        entityManager.clear();
+        assertThat(status).isEqualTo(HttpStatus.OK.value());
+    }
+
+    /**
+     * Requests a page of one result and a page of PAGE_SIZE results, and checks they run the same number of statements
+     * and the full page stays within the budget.
+     * @param budget Most statements allowed.
+     * @param route The route requested, for the failure message.
+     * @param request Builds the request for a page of the given size.
+     */
+    private void assertPageWithinQueryBudget(long budget, String route, IntFunction<MockHttpServletRequestBuilder> request)
+            throws Throwable {
+        long onePerPage = queryCounter.countStatements(() -> perform(request.apply(1)));
+        long fullPage = queryCounter.countStatements(() -> perform(request.apply(PAGE_SIZE)));
+        assertThat(fullPage).as("statements run by %s page of %d compared to a page of 1", route, PAGE_SIZE)
+                .isEqualTo(onePerPage);
+        queryCounter.assertStatementsAtMost(budget, route + " page of " + PAGE_SIZE,
+                () -> perform(request.apply(PAGE_SIZE)));
+    }
+
+    /**
+     * Tests that a page of the listing search stays within its query budget, whatever its size.
+     */
+    @Test
+    void whenSearchListings_thenWithinQueryBudget() throws Throwable {
+        assertPageWithinQueryBudget(LISTING_SEARCH_BUDGET, "GET /listings",
+                pageSize -> get("/listings").param("searchQuery", PRODUCT_NAME).param("pageSize", String.valueOf(pageSize)));
+    }
+
+    /**
+     * Tests that a page of a business's listings stays within its query budget, whatever its size.
+     */
+    @Test
+    void whenRetrieveBusinessListings_thenWithinQueryBudget() throws Throwable {
+        assertPageWithinQueryBudget(BUSINESS_LISTINGS_BUDGET, "GET /businesses/{id}/listings",
+                pageSize -> get("/businesses/{id}/listings", business.getId()).param("pageSize", String.valueOf(pageSize)));
+    }
+
+    /**
+     * Tests that a page of a business's products stays within its query budget, whatever its size.
+     */
+    @Test
+    void whenRetrieveProducts_thenWithinQueryBudget() throws Throwable {
+        assertPageWithinQueryBudget(PRODUCTS_BUDGET, "GET /businesses/{id}/products",
+                pageSize -> get("/businesses/{id}/products", business.getId()).param("pageSize", String.valueOf(pageSize)));
+    }
+
+    /**
+     * Tests that retrieving a business stays within its query budget.
+     */
+    @Test
+    void whenRetrieveBusiness_thenWithinQueryBudget() throws Throwable {
+        queryCounter.assertStatementsAtMost(BUSINESS_BUDGET, "GET /businesses/{id}",
+                () -> perform(get("/businesses/{id}", business.getId())));
+    }
+
+    /**
+     * Tests that the query counter fails a request which runs more statements than its budget, e.g. because a page
+     * of listings is loaded one listing at a time.
+     */
+    @Test
+    void whenOverQueryBudget_thenFails() {
+        AssertionError error = assertThrows(AssertionError.class, () -> queryCounter.assertStatementsAtMost(1,
+                "GET /listings page of " + PAGE_SIZE,
+                () -> perform(get("/listings").param("searchQuery", PRODUCT_NAME).param("pageSize", String.valueOf(PAGE_SIZE)))));
+        assertThat(error.getMessage()).startsWith("GET /listings page of 12 ran ").contains("more than its budget of 1");
+    }
+}
@@ -0,0 +1,119 @@
+package org.seng302.metrics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.Main;
+import org.seng302.controller.MetricsResource;
+import org.seng302.model.Address;
+import org.seng302.model.User;
+import org.seng302.model.enums.Role;
+import org.seng302.model.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.servlet.http.Cookie;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * MetricsResource test class, with the application's filters and Hibernate so real requests and queries are recorded.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ContextConfiguration(classes = {Main.class})
+@ActiveProfiles("test")
+class MetricsResourceIntegrationTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @MockBean
+    private UserRepository userRepository;
+
+    private User admin;
+    private User user;
+
+    /**
+     * Creates a GAA and a user with sessions.
+     */
+    @BeforeEach
+    void setup() throws Exception {
+        admin = createUser("metrics-admin@example.com", Role.GLOBALAPPLICATIONADMIN);
+        user = createUser("metrics-user@example.com", Role.USER);
+        given(userRepository.findBySessionUUID(admin.getSessionUUID())).willReturn(Optional.of(admin));
+        given(userRepository.findBySessionUUID(user.getSessionUUID())).willReturn(Optional.of(user));
+    }
+
+    /**
+     * Creates a user with the given email, role and a new session.
+     */
+    private User createUser(String email, Role role) throws Exception {
+        Address address = new Address("3/24", "Ilam Road", "Christchurch", "Canterbury", "New Zealand", "90210", "Ilam");
+        User newUser = new User("John", "Doe", "S", "Generic", "Biography", email,
+                LocalDate.of(2000, 2, 2), "0271316", address, "Password123!",
+                LocalDateTime.of(2021, 2, 2, 0, 0), role);
+        newUser.setSessionUUID(User.generateSessionUUID());
+        return newUser;
+    }
+
+    /**
+     * Tests that a request's route, and the query it ran to find the business, are in the scraped metrics.
+     */
+    @Test
+    void whenRequestHandled_thenRouteAndQueriesInMetrics() throws Exception {
+        mvc.perform(get("/businesses/{id}", 1).cookie(new Cookie("JSESSIONID", admin.getSessionUUID())))
+                .andReturn();
+
+        MockHttpServletResponse response = mvc.perform(get("/metrics")
+                .cookie(new Cookie("JSESSIONID", admin.getSessionUUID()))).andReturn().getResponse();
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(response.getContentType()).isEqualTo(MetricsResource.PROMETHEUS_CONTENT_TYPE);
+        String labels = "method=\"GET\",route=\"/businesses/{id}\"";
+        assertThat(response.getContentAsString())
+                .contains("# TYPE http_server_requests_seconds histogram")
+                .contains("http_server_requests_seconds_bucket{" + labels + ",le=\"+Inf\"}");
+        Matcher statements = Pattern.compile("http_server_sql_statements_total\\{" + Pattern.quote(labels) + "} (\\d+)")
+                .matcher(response.getContentAsString());
+        assertThat(statements.find()).isTrue();
+        assertThat(Long.parseLong(statements.group(1))).isPositive();
+    }
+
+    /**
+     * Tests that the metrics can't be scraped without a session.
+     */
+    @Test
+    void whenNoSession_thenMetricsUnauthorized() throws Exception {
+        MockHttpServletResponse response = mvc.perform(get("/metrics")).andReturn().getResponse();
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.UNAUTHORIZED.value());
+        assertThat(response.getContentAsString()).isEmpty();
+    }
+
+    /**
+     * Tests that users who aren't GAAs or DGAAs can't scrape the metrics.
+     */
+    @Test
+    void whenNotAdmin_thenMetricsForbidden() throws Exception {
+        MockHttpServletResponse response = mvc.perform(get("/metrics")
+                .cookie(new Cookie("JSESSIONID", user.getSessionUUID()))).andReturn().getResponse();
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.FORBIDDEN.value());
+        assertThat(response.getContentAsString()).isEmpty();
+    }
+}
@@ -0,0 +1,58 @@
+package org.seng302.metrics;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.function.Executable;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Counts the SQL statements Hibernate runs, for tests which check that an endpoint stays within its query budget.
+ * Uses the session factory's statistics, which this turns on, so the counts cover every session (including the
+ * ones opened while handling a MockMvc request) but tests using it must not run statements on other threads.
+ */
+public class QueryCounter {
+
+    private final Statistics statistics;
+
+    /**
+     * Constructor for QueryCounter.
+     * @param entityManagerFactory Entity manager factory of the application context under test.
+     */
+    public QueryCounter(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        this.statistics.setStatisticsEnabled(true);
+    }
+
+    /**
+     * Runs something and counts the statements it runs.
+     * @param action What to run.
+     * @return Number of SQL statements prepared.
+     * @throws Throwable thrown if the action throws.
+     */
+    public long countStatements(Executable action) throws Throwable {
+        statistics.clear();
+        action.execute();
+        return statistics.getPrepareStatementCount();
+    }
+
+    /**
+     * Runs something and fails if it runs more statements than its budget. The failure says how many entities and
+     * collections were loaded, which grow with the number of results when there is an N+1 query.
+     * @param budget Most statements allowed.
+     * @param description What is being run, e.g. "GET /listings page of 12".
+     * @param action What to run.
+     * @throws Throwable thrown if the action throws.
+     */
+    public void assertStatementsAtMost(long budget, String description, Executable action) throws Throwable {
+        long statements = countStatements(action);
+        if (statements > budget) {
+            fail(String.format("%s ran %d SQL statements, more than its budget of %d "
+                            + "(%d entities loaded, %d entities fetched lazily, %d collections fetched lazily)",
+                    description, statements, budget, statistics.getEntityLoadCount(),
+                    statistics.getEntityFetchCount(), statistics.getCollectionFetchCount()));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.seng302.metrics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.QueryMetricsInterceptor;
+import org.seng302.RequestMetricsFilter;
+import org.seng302.services.RequestMetrics;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * RequestMetrics test class, recording requests through RequestMetricsFilter and queries through
+ * QueryMetricsInterceptor.
+ */
+class RequestMetricsTests {
+
+    private RequestMetrics requestMetrics;
+    private RequestMetricsFilter requestMetricsFilter;
+    private QueryMetricsInterceptor queryMetricsInterceptor;
+
+    @BeforeEach
+    void setup() {
+        requestMetrics = new RequestMetrics();
+        requestMetricsFilter = new RequestMetricsFilter(requestMetrics);
+        queryMetricsInterceptor = new QueryMetricsInterceptor(requestMetrics);
+    }
+
+    /**
+     * Sends a request through the filter to a servlet which runs the given number of statements, loads the given
+     * number of entities and writes the body.
+     */
+    private void handle(String method, String path, String pattern, int statements, int rows, String body) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        HttpServlet servlet = new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                for (int i = 0; i < statements; i++) {
+                    queryMetricsInterceptor.inspect("select 1");
+                }
+                for (int i = 0; i < rows; i++) {
+                    queryMetricsInterceptor.onLoad(new Object(), i, new Object[0], new String[0], null);
+                }
+                if (pattern != null) {
+                    req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern);
+                }
+                resp.getOutputStream().write(body.getBytes());
+            }
+        };
+        requestMetricsFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain(servlet));
+    }
+
+    /**
+     * Tests that requests to different paths of the same route are recorded together, with their statements, rows
+     * and bytes.
+     */
+    @Test
+    void whenRequestsHandled_thenRecordedByRoute() throws Exception {
+        handle("GET", "/listings/1", "/listings/{id}", 3, 2, "abcd");
+        handle("GET", "/listings/2", "/listings/{id}", 5, 1, "ef");
+
+        String metrics = requestMetrics.scrape();
+
+        String labels = "method=\"GET\",route=\"/listings/{id}\"";
+        assertThat(metrics).contains("http_server_requests_seconds_count{" + labels + "} 2\n")
+                .contains("http_server_requests_seconds_bucket{" + labels + ",le=\"+Inf\"} 2\n")
+                .contains("http_server_sql_statements_total{" + labels + "} 8\n")
+                .contains("http_server_sql_statements_max{" + labels + "} 5\n")
+                .contains("http_server_rows_fetched_total{" + labels + "} 3\n")
+                .contains("http_server_response_bytes_total{" + labels + "} 6\n")
+                .contains("http_server_requests_seconds_quantile{" + labels + ",quantile=\"0.99\"}");
+    }
+
+    /**
+     * Tests that requests which didn't match a handler are recorded under one route.
+     */
+    @Test
+    void whenRequestNotMatched_thenRecordedAsUnmatched() throws Exception {
+        handle("GET", "/unknown/1", null, 0, 0, "");
+        handle("GET", "/unknown/2", null, 0, 0, "");
+
+        assertThat(requestMetrics.scrape())
+                .contains("http_server_requests_seconds_count{method=\"GET\",route=\"UNMATCHED\"} 2\n")
+                .doesNotContain("/unknown");
+    }
+
+    /**
+     * Tests that statements outside of requests are only counted in the totals.
+     */
+    @Test
+    void whenStatementOutsideRequest_thenOnlyCountedInTotal() throws Exception {
+        queryMetricsInterceptor.inspect("select 1");
+        handle("POST", "/listings", "/listings", 1, 0, "");
+
+        assertThat(requestMetrics.scrape())
+                .contains("db_sql_statements_total 2\n")
+                .contains("http_server_sql_statements_total{method=\"POST\",route=\"/listings\"} 1\n");
+    }
+
+    /**
+     * Tests that quantiles are interpolated within the bucket they fall in.
+     */
+    @Test
+    void whenEstimateQuantile_thenInterpolatedWithinBucket() {
+        long[] counts = new long[12];
+        counts[0] = 50; // <= 5ms
+        counts[1] = 50; // 5ms - 10ms
+
+        assertThat(RequestMetrics.estimateQuantile(counts, 0.5)).isEqualTo(0.005);
+        assertThat(RequestMetrics.estimateQuantile(counts, 0.75)).isCloseTo(0.0075, within(1e-9));
+        assertThat(RequestMetrics.estimateQuantile(new long[12], 0.5)).isZero();
+    }
+}
@@ -0,0 +1,137 @@
+package org.seng302.metrics;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.SlowQueryLogger;
+import org.seng302.controller.MetricsResource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * SlowQueryLogger test class, running statements on an H2 database through a wrapped data source.
+ */
+class SlowQueryLoggerTests {
+
+    private List<String> logged;
+    private JdbcDataSource h2;
+
+    /**
+     * Creates a table with three rows.
+     */
+    @BeforeEach
+    void setup() throws Exception {
+        logged = new ArrayList<>();
+        h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:slowquery;DB_CLOSE_DELAY=-1");
+        try (Connection connection = h2.getConnection()) {
+            connection.createStatement().execute("CREATE TABLE item (id INT PRIMARY KEY, name VARCHAR(50))");
+            connection.createStatement().execute("INSERT INTO item VALUES (1, 'apple'), (2, 'pear'), (3, 'plum')");
+        }
+    }
+
+    @AfterEach
+    void teardown() throws Exception {
+        RequestContextHolder.resetRequestAttributes();
+        try (Connection connection = h2.getConnection()) {
+            connection.createStatement().execute("DROP TABLE item");
+        }
+    }
+
+    /**
+     * Runs a query with a bind value, fetching every row.
+     */
+    private void query(DataSource dataSource) throws Exception {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT * FROM item WHERE id >= ?")) {
+            statement.setInt(1, 2);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    resultSet.getString("name");
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that a statement over the threshold is logged with its rows, bind values and the method that ran it.
+     */
+    @Test
+    void whenQueryOverThreshold_thenLogged() throws Exception {
+        query(new SlowQueryLogger(0, true, logged::add).wrap(h2));
+
+        assertThat(logged).hasSize(1);
+        assertThat(logged.get(0)).contains(" ms, 2 rows - SlowQueryLoggerTests.query from no request")
+                .contains("SELECT * FROM item WHERE id >= ?")
+                .endsWith("binds [1=2]");
+    }
+
+    /**
+     * Tests that statements under the threshold aren't logged.
+     */
+    @Test
+    void whenQueryUnderThreshold_thenNotLogged() throws Exception {
+        query(new SlowQueryLogger(60000, true, logged::add).wrap(h2));
+
+        assertThat(logged).isEmpty();
+    }
+
+    /**
+     * Tests that updates are logged with the number of rows they changed, and only the length of text bind values.
+     */
+    @Test
+    void whenUpdateOverThreshold_thenLoggedWithRowsUpdated() throws Exception {
+        DataSource dataSource = new SlowQueryLogger(0, true, logged::add).wrap(h2);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("UPDATE item SET name = ? WHERE id < ?")) {
+            statement.setString(1, "fig");
+            statement.setInt(2, 3);
+            statement.executeUpdate();
+        }
+
+        assertThat(logged).hasSize(1);
+        assertThat(logged.get(0)).contains(" ms, 2 rows - ").endsWith("binds [1=<3 chars>, 2=3]")
+                .doesNotContain("fig");
+    }
+
+    /**
+     * Tests that bind values aren't logged when turned off.
+     */
+    @Test
+    void whenBindValuesOff_thenNotLogged() throws Exception {
+        query(new SlowQueryLogger(0, false, logged::add).wrap(h2));
+
+        assertThat(logged).hasSize(1);
+        assertThat(logged.get(0)).doesNotContain("binds");
+    }
+
+    /**
+     * Tests that statements run while handling a request are logged with the endpoint and controller method.
+     */
+    @Test
+    void whenQueryDuringRequest_thenLoggedWithEndpoint() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/metrics");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/metrics");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE,
+                new HandlerMethod(new MetricsResource(null, null), MetricsResource.class.getMethod("getMetrics", String.class)));
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        query(new SlowQueryLogger(0, true, logged::add).wrap(h2));
+
+        assertThat(logged).hasSize(1);
+        assertThat(logged.get(0)).contains("from GET /metrics (MetricsResource.getMetrics)");
+    }
+}
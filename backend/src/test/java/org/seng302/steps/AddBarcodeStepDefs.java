@@ -11,6 +11,8 @@ import org.seng302.model.*;
 import org.seng302.model.enums.BusinessType;
 import org.seng302.model.enums.Role;
 import org.seng302.model.repository.*;
+import org.seng302.services.CardKeywordIndex;
+import org.seng302.services.UserNameSearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpStatus;
@@ -66,6 +68,10 @@ public class AddBarcodeStepDefs extends CucumberSpringConfiguration {
     @MockBean
     private ForgotPasswordRepository forgotPasswordRepository;
 
+    @Autowired
+    @MockBean
+    private MarketplaceCardRepository marketplaceCardRepository;
+
     private MockHttpServletResponse response;
 
     private User user;
@@ -98,7 +104,8 @@ public class AddBarcodeStepDefs extends CucumberSpringConfiguration {
         this.productMVC = MockMvcBuilders.standaloneSetup(new ProductResource(
                 productRepository, businessRepository, userRepository, productUpdateService
         )).build();
-        this.userMVC = MockMvcBuilders.standaloneSetup(new UserResource(userRepository, addressRepository, forgotPasswordRepository)).build();
+        this.userMVC = MockMvcBuilders.standaloneSetup(new UserResource(userRepository, addressRepository, forgotPasswordRepository, marketplaceCardRepository,
+                mock(UserNameSearchIndex.class), mock(CardKeywordIndex.class))).build();
     }
 
     @Given("I am logged in as a business administrator for an existing business.")
@@ -12,6 +12,13 @@ import org.seng302.model.*;
 import org.seng302.model.enums.BusinessType;
 import org.seng302.model.enums.Role;
 import org.seng302.model.repository.*;
+import org.seng302.services.CardKeywordIndex;
+import org.seng302.services.UserNameSearchIndex;
+import org.seng302.services.BusinessLocationIndex;
+import org.seng302.services.InventoryLedger;
+import org.seng302.services.ListingCloseScheduler;
+import org.seng302.services.ListingPurchaseService;
+import org.seng302.services.ListingRangeIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.*;
@@ -89,6 +96,21 @@ public class BarcodeBusinessSearchStepDefs extends CucumberSpringConfiguration {
     @MockBean
     private BookmarkedListingMessageRepository bookmarkedListingMessageRepository;
 
+    @MockBean
+    private BusinessLocationIndex businessLocationIndex;
+
+    @MockBean
+    private ListingRangeIndex listingRangeIndex;
+
+    @MockBean
+    private ListingCloseScheduler listingCloseScheduler;
+
+    @MockBean
+    private InventoryLedger inventoryLedger;
+
+    @MockBean
+    private ListingPurchaseService listingPurchaseService;
+
     @Autowired
     @MockBean
     private ProductUpdateService productUpdateService;
@@ -97,6 +119,10 @@ public class BarcodeBusinessSearchStepDefs extends CucumberSpringConfiguration {
     @MockBean
     private ForgotPasswordRepository forgotPasswordRepository;
 
+    @Autowired
+    @MockBean
+    private MarketplaceCardRepository marketplaceCardRepository;
+
     private MockHttpServletResponse response;
 
     private User user;
@@ -160,9 +186,10 @@ public class BarcodeBusinessSearchStepDefs extends CucumberSpringConfiguration {
         productUpdateService = mock(ProductUpdateService.class);
 
         this.productMVC = MockMvcBuilders.standaloneSetup(new ProductResource(productRepository, businessRepository, userRepository, productUpdateService)).build();
-        this.inventoryMVC = MockMvcBuilders.standaloneSetup(new InventoryItemResource(inventoryRepository, productRepository, businessRepository, userRepository)).build();
-        this.listingMVC = MockMvcBuilders.standaloneSetup(new ListingResource(listingRepository, inventoryRepository, productRepository, businessRepository, userRepository, soldListingRepository, listingNotificationRepository, soldListingNotificationRepository, bookmarkedListingMessageRepository)).build();
-        this.userMVC = MockMvcBuilders.standaloneSetup(new UserResource(userRepository, addressRepository, forgotPasswordRepository)).build();
+        this.inventoryMVC = MockMvcBuilders.standaloneSetup(new InventoryItemResource(inventoryRepository, productRepository, businessRepository, userRepository, inventoryLedger)).build();
+        this.listingMVC = MockMvcBuilders.standaloneSetup(new ListingResource(listingRepository, inventoryRepository, productRepository, businessRepository, userRepository, soldListingRepository, listingNotificationRepository, soldListingNotificationRepository, bookmarkedListingMessageRepository, businessLocationIndex, listingRangeIndex, listingCloseScheduler, listingPurchaseService, inventoryLedger)).build();
+        this.userMVC = MockMvcBuilders.standaloneSetup(new UserResource(userRepository, addressRepository, forgotPasswordRepository, marketplaceCardRepository,
+                mock(UserNameSearchIndex.class), mock(CardKeywordIndex.class))).build();
     }
 
     @Given("I am a logged in business administrator.")
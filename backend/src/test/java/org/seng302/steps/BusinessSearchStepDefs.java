@@ -16,6 +16,10 @@ import org.seng302.model.User;
 import org.seng302.model.enums.BusinessType;
 import org.seng302.model.enums.Role;
 import org.seng302.model.repository.*;
+import org.seng302.services.BusinessSearchIndex;
+import org.seng302.services.CardKeywordIndex;
+import org.seng302.services.UserNameSearchIndex;
+import org.seng302.services.BusinessLocationIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.*;
@@ -32,6 +36,7 @@ import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.BDDMockito.given;
@@ -51,6 +56,8 @@ public class BusinessSearchStepDefs extends CucumberSpringConfiguration {
     @MockBean
     private BusinessRepository businessRepository;
 
+    private BusinessSearchIndex businessSearchIndex;
+
     @Autowired
     @MockBean
     private UserRepository userRepository;
@@ -63,6 +70,10 @@ public class BusinessSearchStepDefs extends CucumberSpringConfiguration {
     @MockBean
     private ForgotPasswordRepository forgotPasswordRepository;
 
+    @Autowired
+    @MockBean
+    private MarketplaceCardRepository marketplaceCardRepository;
+
     private Address address1;
     private User user1;
 
@@ -174,9 +185,21 @@ public class BusinessSearchStepDefs extends CucumberSpringConfiguration {
         userRepository = mock(UserRepository.class);
         businessRepository = mock(BusinessRepository.class);
 
+        businessSearchIndex = mock(BusinessSearchIndex.class);
+
         this.businessMVC = MockMvcBuilders.standaloneSetup(new BusinessResource(
-                businessRepository, userRepository, addressRepository)).build();
-        this.userMVC = MockMvcBuilders.standaloneSetup(new UserResource(userRepository, addressRepository, forgotPasswordRepository)).build();
+                businessRepository, userRepository, addressRepository, businessSearchIndex, mock(BusinessLocationIndex.class))).build();
+        this.userMVC = MockMvcBuilders.standaloneSetup(new UserResource(userRepository, addressRepository, forgotPasswordRepository, marketplaceCardRepository,
+                mock(UserNameSearchIndex.class), mock(CardKeywordIndex.class))).build();
+    }
+
+    /**
+     * Makes a search for the given names and business type return the current businesses.
+     */
+    private void givenSearchResults(List<String> names, BusinessType businessType) {
+        List<Integer> businessIds = businesses.stream().map(Business::getId).collect(Collectors.toList());
+        given(businessSearchIndex.search(names, businessType, paging)).willReturn(new PageImpl<>(businessIds, paging, businessIds.size()));
+        given(businessRepository.findAllByIdIn(businessIds)).willReturn(businesses);
     }
 
     /* ------------------------------------------AC2------------------------------------------ */
@@ -202,9 +225,7 @@ public class BusinessSearchStepDefs extends CucumberSpringConfiguration {
         businesses.add(business);
 
         given(userRepository.findBySessionUUID(user1.getSessionUUID())).willReturn(Optional.ofNullable(user1));
-        given(businessRepository.findAllBusinessesByNames(names, paging)).willReturn(new PageImpl<>(businesses, paging, businesses.size()));
-
-        assertThat(businessRepository.findAllBusinessesByNames(names, paging)).isNotEmpty();
+        givenSearchResults(names, null);
     }
 
     @Given("there exists businesses with names {string} and {string}")
@@ -233,6 +254,9 @@ public class BusinessSearchStepDefs extends CucumberSpringConfiguration {
                 "NZD"
         );
 
+        business1.setId(1);
+        business2.setId(2);
+
         List<String> names = new ArrayList<>();
         names.add(name1);
         names.add(name2);
@@ -242,9 +266,7 @@ public class BusinessSearchStepDefs extends CucumberSpringConfiguration {
         businesses.add(business2);
 
         given(userRepository.findBySessionUUID(user1.getSessionUUID())).willReturn(Optional.ofNullable(user1));
-        given(businessRepository.findAllBusinessesByNames(names, paging)).willReturn(new PageImpl<>(businesses, paging, businesses.size()));
-
-        assertThat(businessRepository.findAllBusinessesByNames(names, paging)).isNotEmpty();
+        givenSearchResults(names, null);
     }
 
     @When("I enter the full name {string} and search for businesses")
@@ -252,7 +274,7 @@ public class BusinessSearchStepDefs extends CucumberSpringConfiguration {
         List<String> names = new ArrayList<>();
         names.add(name);
 
-        when(businessRepository.findAllBusinessesByNames(names, paging)).thenReturn(new PageImpl<>(businesses, paging, businesses.size()));
+        givenSearchResults(names, null);
 
         response = businessMVC.perform(get("/businesses/search")
                 .param("searchQuery", name)
@@ -265,7 +287,7 @@ public class BusinessSearchStepDefs extends CucumberSpringConfiguration {
         List<String> names = new ArrayList<>();
         names.add(name);
 
-        when(businessRepository.findAllBusinessesByNames(names, paging)).thenReturn(new PageImpl<>(businesses, paging, businesses.size()));
+        givenSearchResults(names, null);
 
         response = businessMVC.perform(get("/businesses/search")
                 .param("searchQuery", name)
@@ -277,7 +299,7 @@ public class BusinessSearchStepDefs extends CucumberSpringConfiguration {
     public void i_search_for_businesses_using_a_search_query_containing(String searchQuery) throws Exception {
         List<String> names = SearchUtils.convertSearchQueryToNames(searchQuery);
 
-        when(businessRepository.findAllBusinessesByNames(names, paging)).thenReturn(new PageImpl<>(businesses, paging, businesses.size()));
+        givenSearchResults(names, null);
 
         response = businessMVC.perform(get("/businesses/search")
                 .param("searchQuery", searchQuery)
@@ -342,9 +364,7 @@ public class BusinessSearchStepDefs extends CucumberSpringConfiguration {
         businesses.add(business);
 
         given(userRepository.findBySessionUUID(user1.getSessionUUID())).willReturn(Optional.ofNullable(user1));
-        given(businessRepository.findBusinessesByBusinessType(businessType, paging)).willReturn(new PageImpl<>(businesses, paging, businesses.size()));
-
-        assertThat(businessRepository.findBusinessesByBusinessType(businessType, paging)).isNotEmpty();
+        givenSearchResults(null, businessType);
     }
 
     @Given("there exists a business with name {string} and business type {string}")
@@ -370,16 +390,14 @@ public class BusinessSearchStepDefs extends CucumberSpringConfiguration {
         names.add(name);
 
         given(userRepository.findBySessionUUID(user1.getSessionUUID())).willReturn(Optional.ofNullable(user1));
-        given(businessRepository.findAllBusinessesByNamesAndType(names, businessType, paging)).willReturn(new PageImpl<>(businesses, paging, businesses.size()));
-
-        assertThat(businessRepository.findAllBusinessesByNamesAndType(names, businessType, paging)).isNotEmpty();
+        givenSearchResults(names, businessType);
     }
 
     @When("I search for businesses with business type {string}")
     public void i_search_for_businesses_with_business_type(String type) throws Exception {
         BusinessType businessType = BusinessType.valueOf(type);
 
-        when(businessRepository.findBusinessesByBusinessType(businessType, paging)).thenReturn(new PageImpl<>(businesses, paging, businesses.size()));
+        givenSearchResults(null, businessType);
 
         response = businessMVC.perform(get("/businesses/search")
                 .param("businessType", type)
@@ -394,7 +412,7 @@ public class BusinessSearchStepDefs extends CucumberSpringConfiguration {
 
         BusinessType businessType = BusinessType.valueOf(type);
 
-        when(businessRepository.findAllBusinessesByNamesAndType(names, businessType, paging)).thenReturn(new PageImpl<>(businesses, paging, businesses.size()));
+        givenSearchResults(names, businessType);
 
         response = businessMVC.perform(get("/businesses/search")
                 .param("searchQuery", name)
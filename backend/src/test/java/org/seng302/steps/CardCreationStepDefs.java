@@ -11,6 +11,8 @@ import org.seng302.model.repository.*;
 import org.seng302.controller.MarketplaceCardResource;
 import org.seng302.model.*;
 import org.seng302.controller.UserResource;
+import org.seng302.services.CardKeywordIndex;
+import org.seng302.services.UserNameSearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpStatus;
@@ -24,6 +26,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.Month;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -98,9 +101,11 @@ public class CardCreationStepDefs extends CucumberSpringConfiguration {
                 marketplaceCardRepository,
                 userRepository,
                 keywordRepository,
-                marketCardNotificationRepository
+                marketCardNotificationRepository,
+                new CardKeywordIndex(marketplaceCardRepository)
         )).build();
-        this.userMVC = MockMvcBuilders.standaloneSetup(new UserResource(userRepository, addressRepository, forgotPasswordRepository)).build();
+        this.userMVC = MockMvcBuilders.standaloneSetup(new UserResource(userRepository, addressRepository, forgotPasswordRepository, marketplaceCardRepository,
+                mock(UserNameSearchIndex.class), mock(CardKeywordIndex.class))).build();
     }
 
     @Given("I am logged in.")
@@ -158,7 +163,7 @@ public class CardCreationStepDefs extends CucumberSpringConfiguration {
         );
 
         given(userRepository.findById(1)).willReturn(Optional.ofNullable(user));
-        given(keywordRepository.findById(keyword.getId())).willReturn(Optional.ofNullable(keyword));
+        given(keywordRepository.findAllById(List.of(keyword.getId()))).willReturn(List.of(keyword));
 
         cardPayloadJson = String.format(cardPayloadJsonFormat, card.getCreatorId(), card.getSection(), card.getTitle(),
                 card.getDescription(), "[" + keyword.getId() + "]");
@@ -186,7 +191,7 @@ public class CardCreationStepDefs extends CucumberSpringConfiguration {
         );
 
         given(userRepository.findById(1)).willReturn(Optional.ofNullable(user));
-        given(keywordRepository.findById(keyword.getId())).willReturn(Optional.ofNullable(keyword));
+        given(keywordRepository.findAllById(List.of(keyword.getId()))).willReturn(List.of(keyword));
 
         cardPayloadJson = String.format(cardPayloadJsonFormat, card.getCreatorId(), card.getSection(), card.getTitle(),
                 card.getDescription(), "[" + keyword.getId() + "]");
@@ -215,7 +220,7 @@ public class CardCreationStepDefs extends CucumberSpringConfiguration {
         );
 
         given(userRepository.findById(1)).willReturn(Optional.ofNullable(user));
-        given(keywordRepository.findById(keyword.getId())).willReturn(Optional.ofNullable(keyword));
+        given(keywordRepository.findAllById(List.of(keyword.getId()))).willReturn(List.of(keyword));
 
         cardPayloadJson = String.format(cardPayloadJsonFormat, card.getCreatorId(), card.getSection(), card.getTitle(),
                 card.getDescription(), "[" + keyword.getId() + "]");
@@ -243,7 +248,7 @@ public class CardCreationStepDefs extends CucumberSpringConfiguration {
         );
 
         given(userRepository.findById(1)).willReturn(Optional.ofNullable(user));
-        given(keywordRepository.findById(keyword.getId())).willReturn(Optional.ofNullable(keyword));
+        given(keywordRepository.findAllById(List.of(keyword.getId()))).willReturn(List.of(keyword));
 
         // Empty string for no title.
         cardPayloadJson = String.format(cardPayloadJsonFormat, card.getCreatorId(), card.getSection(), "",
@@ -273,8 +278,8 @@ public class CardCreationStepDefs extends CucumberSpringConfiguration {
         );
 
         given(userRepository.findById(1)).willReturn(Optional.ofNullable(user));
-        given(keywordRepository.findById(keyword.getId())).willReturn(Optional.ofNullable(keyword));
-        given(keywordRepository.findById(anotherKeyword.getId())).willReturn(Optional.ofNullable(anotherKeyword));
+        given(keywordRepository.findAllById(List.of(keyword.getId(), anotherKeyword.getId())))
+                .willReturn(List.of(keyword, anotherKeyword));
 
         cardPayloadJson = String.format(cardPayloadJsonFormat, card.getCreatorId(), card.getSection(), card.getTitle(),
                 card.getDescription(), "[" + keyword.getId() + ", " + anotherKeyword.getId() + "]");
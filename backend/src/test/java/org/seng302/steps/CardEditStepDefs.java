@@ -15,6 +15,7 @@ import org.seng302.model.repository.KeywordRepository;
 import org.seng302.model.repository.MarketCardNotificationRepository;
 import org.seng302.model.repository.MarketplaceCardRepository;
 import org.seng302.model.repository.UserRepository;
+import org.seng302.services.CardKeywordIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpStatus;
@@ -28,6 +29,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.Month;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -86,7 +88,8 @@ public class CardEditStepDefs extends CucumberSpringConfiguration {
                 marketplaceCardRepository,
                 userRepository,
                 keywordRepository,
-                marketCardNotificationRepository
+                marketCardNotificationRepository,
+                new CardKeywordIndex(marketplaceCardRepository)
         )).build();
     }
 
@@ -206,8 +209,7 @@ public class CardEditStepDefs extends CucumberSpringConfiguration {
         keyword2 = new Keyword("Celebrate", LocalDateTime.of(2021,1,1,0,0));
         keyword2.setId(2);
 
-        when(keywordRepository.findById(1)).thenReturn(Optional.ofNullable(keyword));
-        when(keywordRepository.findById(2)).thenReturn(Optional.ofNullable(keyword2));
+        when(keywordRepository.findAllById(List.of(1, 2))).thenReturn(List.of(keyword, keyword2));
 
         String keywordsPayload = "[1,2]";
         String payload = String.format(cardEditPayloadJson , "New Title", "New Description", keywordsPayload);
@@ -224,8 +226,7 @@ public class CardEditStepDefs extends CucumberSpringConfiguration {
         keyword2 = new Keyword("Celebrate", LocalDateTime.of(2021,1,1,0,0));
         keyword2.setId(2);
 
-        when(keywordRepository.findById(1)).thenReturn(Optional.ofNullable(keyword));
-        when(keywordRepository.findById(2)).thenReturn(Optional.ofNullable(keyword2));
+        when(keywordRepository.findAllById(List.of(1, 2))).thenReturn(List.of(keyword, keyword2));
 
         String keywordsPayload = "[1,2]";
         String payload = String.format(cardEditPayloadJson , "New Title", "New Description", keywordsPayload);
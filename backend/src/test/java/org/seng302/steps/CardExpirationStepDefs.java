@@ -17,6 +17,7 @@ import org.seng302.model.User;
 import org.seng302.model.enums.Role;
 import org.seng302.model.enums.Section;
 import org.seng302.model.repository.*;
+import org.seng302.services.CardKeywordIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpStatus;
@@ -97,7 +98,8 @@ public class CardExpirationStepDefs extends CucumberSpringConfiguration {
                 marketplaceCardRepository,
                 userRepository,
                 keywordRepository,
-                marketCardNotificationRepository
+                marketCardNotificationRepository,
+                new CardKeywordIndex(marketplaceCardRepository)
         )).build();
     }
 
@@ -265,7 +267,8 @@ public class CardExpirationStepDefs extends CucumberSpringConfiguration {
                 unMockAddressRepository,
                 unMockProductRepository,
                 unMockMarketplaceCardRepository,
-                unMockMarketCardNotificationRepository);
+                unMockMarketCardNotificationRepository,
+                new CardKeywordIndex(unMockMarketplaceCardRepository));
 
         notificationMessage = "Your card (Hayley's Birthday) expired 0h ago and will soon be deleted.";
         Address address = new Address(
@@ -13,6 +13,8 @@ import org.seng302.model.*;
 import org.seng302.model.enums.Role;
 import org.seng302.model.enums.Section;
 import org.seng302.model.repository.*;
+import org.seng302.services.ConversationInboxService;
+import org.seng302.services.MessageStreamRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpStatus;
@@ -68,7 +70,8 @@ public class DeleteConversationStepDefs extends CucumberSpringConfiguration {
         messageRepository = mock(MarketplaceConversationMessageRepository.class);
         marketplaceCardRepository = mock(MarketplaceCardRepository.class);
         this.mvc = MockMvcBuilders.standaloneSetup(new MarketplaceConversationResource(userRepository,
-                marketplaceCardRepository, conversationRepository, messageRepository)).build();
+                marketplaceCardRepository, conversationRepository, messageRepository,
+                new ConversationInboxService(mock(ConversationInboxEntryRepository.class), messageRepository), mock(MessageStreamRegistry.class))).build();
     }
 
     @Given("I have received a message from another user.")
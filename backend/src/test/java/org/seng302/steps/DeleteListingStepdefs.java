@@ -12,6 +12,11 @@ import org.seng302.model.*;
 import org.seng302.model.enums.BusinessType;
 import org.seng302.model.enums.Role;
 import org.seng302.model.repository.*;
+import org.seng302.services.BusinessLocationIndex;
+import org.seng302.services.InventoryLedger;
+import org.seng302.services.ListingCloseScheduler;
+import org.seng302.services.ListingPurchaseService;
+import org.seng302.services.ListingRangeIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpStatus;
@@ -71,6 +76,21 @@ public class DeleteListingStepdefs {
     @MockBean
     private BookmarkedListingMessageRepository bookmarkedListingMessageRepository;
 
+    @MockBean
+    private BusinessLocationIndex businessLocationIndex;
+
+    @MockBean
+    private ListingRangeIndex listingRangeIndex;
+
+    @MockBean
+    private ListingCloseScheduler listingCloseScheduler;
+
+    @MockBean
+    private InventoryLedger inventoryLedger;
+
+    @MockBean
+    private ListingPurchaseService listingPurchaseService;
+
     private MockHttpServletResponse response;
 
     private User dGAA;
@@ -98,10 +118,13 @@ public class DeleteListingStepdefs {
         listingNotificationRepository = mock(ListingNotificationRepository.class);
         soldListingNotificationRepository = mock(SoldListingNotificationRepository.class);
         bookmarkedListingMessageRepository = mock(BookmarkedListingMessageRepository.class);
+        businessLocationIndex = mock(BusinessLocationIndex.class);
+        listingRangeIndex = mock(ListingRangeIndex.class);
+        listingCloseScheduler = mock(ListingCloseScheduler.class);
 
         this.mvc = MockMvcBuilders.standaloneSetup(new ListingResource(
                 listingRepository, inventoryItemRepository, productRepository, businessRepository, userRepository,
-                soldListingRepository, listingNotificationRepository, soldListingNotificationRepository, bookmarkedListingMessageRepository))
+                soldListingRepository, listingNotificationRepository, soldListingNotificationRepository, bookmarkedListingMessageRepository, businessLocationIndex, listingRangeIndex, listingCloseScheduler, listingPurchaseService, inventoryLedger))
                 .build();
     }
 
@@ -18,6 +18,7 @@ import org.seng302.model.repository.KeywordRepository;
 import org.seng302.model.repository.MarketCardNotificationRepository;
 import org.seng302.model.repository.MarketplaceCardRepository;
 import org.seng302.model.repository.UserRepository;
+import org.seng302.services.CardKeywordIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpStatus;
@@ -104,7 +105,8 @@ public class FindMyCardsStepDefs extends CucumberSpringConfiguration {
                 marketplaceCardRepository,
                 userRepository,
                 keywordRepository,
-                marketCardNotificationRepository
+                marketCardNotificationRepository,
+                new CardKeywordIndex(marketplaceCardRepository)
         )).build();
     }
 
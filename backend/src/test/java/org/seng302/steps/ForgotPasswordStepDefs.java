@@ -13,6 +13,8 @@ import org.seng302.model.ForgotPassword;
 import org.seng302.model.User;
 import org.seng302.model.enums.Role;
 import org.seng302.model.repository.*;
+import org.seng302.services.CardKeywordIndex;
+import org.seng302.services.UserNameSearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpStatus;
@@ -43,6 +45,9 @@ public class ForgotPasswordStepDefs {
     @MockBean
     private ForgotPasswordRepository forgotPasswordRepository;
 
+    @MockBean
+    private MarketplaceCardRepository marketplaceCardRepository;
+
     private MockHttpServletResponse response;
 
     private User user;
@@ -57,7 +62,8 @@ public class ForgotPasswordStepDefs {
         addressRepository = mock(AddressRepository.class);
         forgotPasswordRepository = mock(ForgotPasswordRepository.class);
 
-        this.mvc = MockMvcBuilders.standaloneSetup(new UserResource(userRepository, addressRepository, forgotPasswordRepository)).build();
+        this.mvc = MockMvcBuilders.standaloneSetup(new UserResource(userRepository, addressRepository, forgotPasswordRepository, marketplaceCardRepository,
+                mock(UserNameSearchIndex.class), mock(CardKeywordIndex.class))).build();
     }
 
     @Given("A user exists with the email {string}")
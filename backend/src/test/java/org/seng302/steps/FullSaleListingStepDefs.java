@@ -11,6 +11,11 @@ import org.seng302.model.*;
 import org.seng302.model.enums.BusinessType;
 import org.seng302.model.enums.Role;
 import org.seng302.model.repository.*;
+import org.seng302.services.BusinessLocationIndex;
+import org.seng302.services.InventoryLedger;
+import org.seng302.services.ListingCloseScheduler;
+import org.seng302.services.ListingPurchaseService;
+import org.seng302.services.ListingRangeIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpStatus;
@@ -73,6 +78,21 @@ public class FullSaleListingStepDefs extends CucumberSpringConfiguration {
     @MockBean
     private BookmarkedListingMessageRepository bookmarkedListingMessageRepository;
 
+    @MockBean
+    private BusinessLocationIndex businessLocationIndex;
+
+    @MockBean
+    private ListingRangeIndex listingRangeIndex;
+
+    @MockBean
+    private ListingCloseScheduler listingCloseScheduler;
+
+    @MockBean
+    private InventoryLedger inventoryLedger;
+
+    @MockBean
+    private ListingPurchaseService listingPurchaseService;
+
     private User user;
 
     private Business business;
@@ -99,7 +119,7 @@ public class FullSaleListingStepDefs extends CucumberSpringConfiguration {
         businessRepository = mock(BusinessRepository.class);
         userRepository = mock(UserRepository.class);
         soldListingRepository = mock(SoldListingRepository.class);
-        this.mvc = MockMvcBuilders.standaloneSetup(new ListingResource(listingRepository, inventoryItemRepository, productRepository, businessRepository, userRepository, soldListingRepository, listingNotificationRepository, soldListingNotificationRepository, bookmarkedListingMessageRepository)).build();
+        this.mvc = MockMvcBuilders.standaloneSetup(new ListingResource(listingRepository, inventoryItemRepository, productRepository, businessRepository, userRepository, soldListingRepository, listingNotificationRepository, soldListingNotificationRepository, bookmarkedListingMessageRepository, businessLocationIndex, listingRangeIndex, listingCloseScheduler, listingPurchaseService, inventoryLedger)).build();
     }
 
     @Given("I am logged in as a business administrator.")
@@ -165,7 +185,7 @@ public class FullSaleListingStepDefs extends CucumberSpringConfiguration {
         );
         user.setBusinessesAdministeredObjects(List.of(business));
         this.mvc = MockMvcBuilders.standaloneSetup(new ListingResource(listingRepository, inventoryItemRepository, productRepository,
-                    businessRepository, userRepository, soldListingRepository, listingNotificationRepository, soldListingNotificationRepository, bookmarkedListingMessageRepository)).build();
+                    businessRepository, userRepository, soldListingRepository, listingNotificationRepository, soldListingNotificationRepository, bookmarkedListingMessageRepository, businessLocationIndex, listingRangeIndex, listingCloseScheduler, listingPurchaseService, inventoryLedger)).build();
     }
 
     @Given("I have a listing with quantity {int}, price {double}, closing date {string}, and {string} in the more-info section.")
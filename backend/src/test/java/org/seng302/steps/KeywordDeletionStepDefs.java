@@ -16,6 +16,8 @@ import org.seng302.model.repository.KeywordNotificationRepository;
 import org.seng302.model.repository.KeywordRepository;
 import org.seng302.model.repository.MarketplaceCardRepository;
 import org.seng302.model.repository.UserRepository;
+import org.seng302.services.CardKeywordIndex;
+import org.seng302.services.KeywordSearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpStatus;
@@ -52,6 +54,12 @@ public class KeywordDeletionStepDefs extends CucumberSpringConfiguration {
     @MockBean
     private KeywordNotificationRepository keywordNotificationRepository;
 
+    @Autowired
+    private CardKeywordIndex cardKeywordIndex;
+
+    @Autowired
+    private KeywordSearchIndex keywordSearchIndex;
+
     private User user;
     private Keyword keyword;
 
@@ -63,7 +71,7 @@ public class KeywordDeletionStepDefs extends CucumberSpringConfiguration {
         keywordRepository = mock(KeywordRepository.class);
         keywordNotificationRepository = mock(KeywordNotificationRepository.class);
 
-        this.mvc = MockMvcBuilders.standaloneSetup(new KeywordResource(keywordRepository, userRepository, keywordNotificationRepository)).build();
+        this.mvc = MockMvcBuilders.standaloneSetup(new KeywordResource(keywordRepository, userRepository, keywordNotificationRepository, cardKeywordIndex, keywordSearchIndex)).build();
     }
 
     @Given("I am a system admin and a keyword at id {int} exists")
@@ -11,6 +11,9 @@ import org.seng302.model.KeywordNotification;
 import org.seng302.model.User;
 import org.seng302.model.enums.Role;
 import org.seng302.model.repository.*;
+import org.seng302.services.CardKeywordIndex;
+import org.seng302.services.KeywordSearchIndex;
+import org.seng302.services.UserNameSearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpStatus;
@@ -55,10 +58,20 @@ public class KeywordManagementStepDefs extends CucumberSpringConfiguration {
     @MockBean
     private KeywordNotificationRepository keywordNotificationRepository;
 
+    @Autowired
+    private CardKeywordIndex cardKeywordIndex;
+
+    @Autowired
+    private KeywordSearchIndex keywordSearchIndex;
+
     @Autowired
     @MockBean
     private ForgotPasswordRepository forgotPasswordRepository;
 
+    @Autowired
+    @MockBean
+    private MarketplaceCardRepository marketplaceCardRepository;
+
     private MockHttpServletResponse response;
 
     private User user;
@@ -77,8 +90,9 @@ public class KeywordManagementStepDefs extends CucumberSpringConfiguration {
         userRepository = mock(UserRepository.class);
         keywordRepository = mock(KeywordRepository.class);
 
-        this.keywordMVC = MockMvcBuilders.standaloneSetup(new KeywordResource(keywordRepository, userRepository, keywordNotificationRepository)).build();
-        this.userMVC = MockMvcBuilders.standaloneSetup(new UserResource(userRepository, addressRepository, forgotPasswordRepository)).build();
+        this.keywordMVC = MockMvcBuilders.standaloneSetup(new KeywordResource(keywordRepository, userRepository, keywordNotificationRepository, cardKeywordIndex, keywordSearchIndex)).build();
+        this.userMVC = MockMvcBuilders.standaloneSetup(new UserResource(userRepository, addressRepository, forgotPasswordRepository, marketplaceCardRepository,
+                mock(UserNameSearchIndex.class), mock(CardKeywordIndex.class))).build();
     }
 
     @Given("I am already logged in.")
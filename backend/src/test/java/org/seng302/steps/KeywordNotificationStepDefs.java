@@ -17,6 +17,8 @@ import org.seng302.model.User;
 import org.seng302.model.enums.Role;
 import org.seng302.model.repository.*;
 import org.seng302.view.outgoing.KeywordPayload;
+import org.seng302.services.CardKeywordIndex;
+import org.seng302.services.KeywordSearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpStatus;
@@ -62,6 +64,12 @@ public class KeywordNotificationStepDefs extends CucumberSpringConfiguration {
     @MockBean
     private KeywordNotificationRepository keywordNotificationRepository;
 
+    @Autowired
+    private CardKeywordIndex cardKeywordIndex;
+
+    @Autowired
+    private KeywordSearchIndex keywordSearchIndex;
+
     @Autowired
     @MockBean
     private ListingNotificationRepository listingNotificationRepository;
@@ -96,7 +104,7 @@ public class KeywordNotificationStepDefs extends CucumberSpringConfiguration {
 
         this.notificationMvc = MockMvcBuilders.standaloneSetup(new NotificationResource(userRepository, businessRepository, marketCardNotificationRepository,
                 keywordNotificationRepository, listingNotificationRepository, soldListingNotificationRepository)).build();
-        this.keywordMvc = MockMvcBuilders.standaloneSetup(new KeywordResource(keywordRepository, userRepository, keywordNotificationRepository)).build();
+        this.keywordMvc = MockMvcBuilders.standaloneSetup(new KeywordResource(keywordRepository, userRepository, keywordNotificationRepository, cardKeywordIndex, keywordSearchIndex)).build();
     }
 
     @Given("A keyword has been created")
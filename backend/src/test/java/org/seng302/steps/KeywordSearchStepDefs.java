@@ -12,6 +12,8 @@ import org.seng302.model.enums.Role;
 import org.seng302.model.repository.KeywordNotificationRepository;
 import org.seng302.model.repository.KeywordRepository;
 import org.seng302.model.repository.UserRepository;
+import org.seng302.services.CardKeywordIndex;
+import org.seng302.services.KeywordSearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpStatus;
@@ -50,6 +52,11 @@ public class KeywordSearchStepDefs extends CucumberSpringConfiguration {
     @MockBean
     private KeywordNotificationRepository keywordNotificationRepository;
 
+    @Autowired
+    private CardKeywordIndex cardKeywordIndex;
+
+    private KeywordSearchIndex keywordSearchIndex;
+
     private User user;
 
     private MockHttpServletResponse response;
@@ -62,6 +69,7 @@ public class KeywordSearchStepDefs extends CucumberSpringConfiguration {
     // AC3
     private Keyword keyword4;
     private Keyword keyword5;
+    private Keyword keyword6;
 
     private String expectedJson = "{" +
             "\"id\":%d," +
@@ -74,7 +82,8 @@ public class KeywordSearchStepDefs extends CucumberSpringConfiguration {
         userRepository = mock(UserRepository.class);
         keywordRepository = mock(KeywordRepository.class);
         keywordNotificationRepository = mock(KeywordNotificationRepository.class);
-        this.mvc = MockMvcBuilders.standaloneSetup(new KeywordResource(keywordRepository, userRepository, keywordNotificationRepository)).build();
+        keywordSearchIndex = new KeywordSearchIndex(keywordRepository, cardKeywordIndex);
+        this.mvc = MockMvcBuilders.standaloneSetup(new KeywordResource(keywordRepository, userRepository, keywordNotificationRepository, cardKeywordIndex, keywordSearchIndex)).build();
     }
 
     @Given("A list of keywords exist in the system")
@@ -106,8 +115,11 @@ public class KeywordSearchStepDefs extends CucumberSpringConfiguration {
         user.setSessionUUID(User.generateSessionUUID());
 
         keyword = new Keyword("Event", LocalDateTime.now());
+        keyword.setId(1);
         keyword2 = new Keyword("Health", LocalDateTime.now());
+        keyword2.setId(2);
         keyword3 = new Keyword("Music", LocalDateTime.now());
+        keyword3.setId(3);
 
         given(userRepository.findBySessionUUID(user.getSessionUUID())).willReturn(Optional.ofNullable(user));
     }
@@ -115,7 +127,8 @@ public class KeywordSearchStepDefs extends CucumberSpringConfiguration {
     @When("The user tries to get all keywords")
     public void userTriesToGetAllKeywords() throws Exception {
 
-        when(keywordRepository.findTop6ByNameIgnoreCaseContaining("")).thenReturn(List.of(keyword, keyword2, keyword3));
+        when(keywordRepository.findAll()).thenReturn(List.of(keyword, keyword2, keyword3));
+        keywordSearchIndex.rebuild();
 
         response = mvc.perform(get("/keywords/search?searchQuery=")
                 .cookie(new Cookie("JSESSIONID", user.getSessionUUID())))
@@ -162,7 +175,11 @@ public class KeywordSearchStepDefs extends CucumberSpringConfiguration {
         user.setSessionUUID(User.generateSessionUUID());
 
         keyword4 = new Keyword(keywordName1, LocalDateTime.now());
+        keyword4.setId(4);
         keyword5 = new Keyword(keywordName2, LocalDateTime.now());
+        keyword5.setId(5);
+        keyword6 = new Keyword(keywordName3, LocalDateTime.now());
+        keyword6.setId(6);
 
         given(userRepository.findBySessionUUID(user.getSessionUUID())).willReturn(Optional.ofNullable(user));
     }
@@ -170,7 +187,8 @@ public class KeywordSearchStepDefs extends CucumberSpringConfiguration {
     @When("The user searches for {string}")
     public void userSearchesForX(String search) throws Exception {
 
-        when(keywordRepository.findTop6ByNameIgnoreCaseContaining(search)).thenReturn(List.of(keyword4, keyword5));
+        when(keywordRepository.findAll()).thenReturn(List.of(keyword4, keyword5, keyword6));
+        keywordSearchIndex.rebuild();
 
         response = mvc.perform(get(String.format("/keywords/search?searchQuery=%s", search))
                 .cookie(new Cookie("JSESSIONID", user.getSessionUUID())))
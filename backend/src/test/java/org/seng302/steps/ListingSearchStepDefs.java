@@ -10,6 +10,11 @@ import org.seng302.model.*;
 import org.seng302.model.enums.BusinessType;
 import org.seng302.model.enums.Role;
 import org.seng302.model.repository.*;
+import org.seng302.services.BusinessLocationIndex;
+import org.seng302.services.InventoryLedger;
+import org.seng302.services.ListingCloseScheduler;
+import org.seng302.services.ListingPurchaseService;
+import org.seng302.services.ListingRangeIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.*;
@@ -73,6 +78,21 @@ public class ListingSearchStepDefs extends CucumberSpringConfiguration {
     @MockBean
     private  BookmarkedListingMessageRepository bookmarkedListingMessageRepository;
 
+    @MockBean
+    private BusinessLocationIndex businessLocationIndex;
+
+    @MockBean
+    private ListingRangeIndex listingRangeIndex;
+
+    @MockBean
+    private ListingCloseScheduler listingCloseScheduler;
+
+    @MockBean
+    private InventoryLedger inventoryLedger;
+
+    @MockBean
+    private ListingPurchaseService listingPurchaseService;
+
     private MockHttpServletResponse response;
 
     private User dGAA;
@@ -312,9 +332,12 @@ public class ListingSearchStepDefs extends CucumberSpringConfiguration {
 
         userRepository = mock(UserRepository.class);
         listingRepository = mock(ListingRepository.class);
+        businessLocationIndex = mock(BusinessLocationIndex.class);
+        listingRangeIndex = mock(ListingRangeIndex.class);
+        listingCloseScheduler = mock(ListingCloseScheduler.class);
 
         this.mvc = MockMvcBuilders.standaloneSetup(new ListingResource(
-                        listingRepository, inventoryItemRepository, productRepository, businessRepository, userRepository, soldListingRepository, listingNotificationRepository, soldListingNotificationRepository, bookmarkedListingMessageRepository))
+                        listingRepository, inventoryItemRepository, productRepository, businessRepository, userRepository, soldListingRepository, listingNotificationRepository, soldListingNotificationRepository, bookmarkedListingMessageRepository, businessLocationIndex, listingRangeIndex, listingCloseScheduler, listingPurchaseService, inventoryLedger))
                 .build();
     }
 
@@ -566,8 +589,9 @@ public class ListingSearchStepDefs extends CucumberSpringConfiguration {
         Sort sort = Sort.by(Sort.Order.asc("inventoryItemId.product.name").ignoreCase());
         Pageable paging = PageRequest.of(0, 12, sort);
 
-        when(listingRepository.findAllListingsByLocation(
-                names, paging, null, null, null, null, null, null
+        when(businessLocationIndex.findBusinessIds(names)).thenReturn(List.of(business.getId()));
+        when(listingRepository.findAllListingsByBusinessIds(
+                List.of(business.getId()), paging, null, null, null, null, null, null
         )).thenReturn(pagedResponse);
         when(userRepository.findBySessionUUID(user.getSessionUUID())).thenReturn(Optional.ofNullable(user));
 
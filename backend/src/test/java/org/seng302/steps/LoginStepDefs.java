@@ -11,8 +11,11 @@ import org.seng302.model.repository.AddressRepository;
 import org.seng302.model.enums.Role;
 import org.seng302.model.User;
 import org.seng302.model.repository.ForgotPasswordRepository;
+import org.seng302.model.repository.MarketplaceCardRepository;
 import org.seng302.model.repository.UserRepository;
 import org.seng302.controller.UserResource;
+import org.seng302.services.CardKeywordIndex;
+import org.seng302.services.UserNameSearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpStatus;
@@ -53,6 +56,10 @@ public class LoginStepDefs extends CucumberSpringConfiguration {
     @MockBean
     private ForgotPasswordRepository forgotPasswordRepository;
 
+    @Autowired
+    @MockBean
+    private MarketplaceCardRepository marketplaceCardRepository;
+
     private User user;
     private Address address;
     private final String loginPayloadJson = "{\"email\": \"%s\", " +
@@ -68,7 +75,8 @@ public class LoginStepDefs extends CucumberSpringConfiguration {
     public void createMockMvc() {
         userRepository = mock(UserRepository.class);
         addressRepository = mock(AddressRepository.class);
-        this.mvc = MockMvcBuilders.standaloneSetup(new UserResource(userRepository, addressRepository, forgotPasswordRepository)).build();
+        this.mvc = MockMvcBuilders.standaloneSetup(new UserResource(userRepository, addressRepository, forgotPasswordRepository, marketplaceCardRepository,
+                mock(UserNameSearchIndex.class), mock(CardKeywordIndex.class))).build();
     }
 
     @Given("The user's details exist in the database, with email of {string} and password of {string}")
@@ -15,8 +15,13 @@ import org.seng302.model.*;
 import org.seng302.model.enums.Role;
 import org.seng302.model.enums.Section;
 import org.seng302.model.repository.*;
+import org.seng302.services.ConversationInboxService;
+import org.seng302.services.MessageStreamRegistry;
+import org.seng302.services.CardKeywordIndex;
+import org.seng302.services.UserNameSearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpServletResponse;
@@ -35,6 +40,7 @@ import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -74,6 +80,10 @@ public class MarketplaceConversationStepDefs extends CucumberSpringConfiguration
     @MockBean
     private MarketplaceConversationMessageRepository marketplaceConversationMessageRepository;
 
+    @Autowired
+    @MockBean
+    private ConversationInboxEntryRepository conversationInboxEntryRepository;
+
     @Autowired
     @MockBean
     private ForgotPasswordRepository forgotPasswordRepository;
@@ -113,8 +123,11 @@ public class MarketplaceConversationStepDefs extends CucumberSpringConfiguration
         marketplaceCardRepository = mock(MarketplaceCardRepository.class);
         marketplaceConversationRepository = mock(MarketplaceConversationRepository.class);
         marketplaceConversationMessageRepository = mock(MarketplaceConversationMessageRepository.class);
-        this.mvc = MockMvcBuilders.standaloneSetup(new MarketplaceConversationResource(userRepository, marketplaceCardRepository, marketplaceConversationRepository, marketplaceConversationMessageRepository)).build();
-        this.userMVC = MockMvcBuilders.standaloneSetup(new UserResource(userRepository, addressRepository, forgotPasswordRepository)).build();
+        conversationInboxEntryRepository = mock(ConversationInboxEntryRepository.class);
+        this.mvc = MockMvcBuilders.standaloneSetup(new MarketplaceConversationResource(userRepository, marketplaceCardRepository, marketplaceConversationRepository, marketplaceConversationMessageRepository,
+                new ConversationInboxService(conversationInboxEntryRepository, marketplaceConversationMessageRepository), mock(MessageStreamRegistry.class))).build();
+        this.userMVC = MockMvcBuilders.standaloneSetup(new UserResource(userRepository, addressRepository, forgotPasswordRepository, marketplaceCardRepository,
+                mock(UserNameSearchIndex.class), mock(CardKeywordIndex.class))).build();
     }
 
     @Given("I am logged in as a user")
@@ -268,7 +281,7 @@ public class MarketplaceConversationStepDefs extends CucumberSpringConfiguration
     public void theUserWithIdTriesToRetrieveTheirConversations(int id) throws Exception {
         given(userRepository.findBySessionUUID(receiver.getSessionUUID())).willReturn(Optional.ofNullable(receiver));
 
-        when(marketplaceConversationRepository.findAllByInstigatorIdAndDeletedByInstigatorOrReceiverIdAndDeletedByReceiver_OrderByCreatedDesc(id, false, id, false)).thenReturn(List.of(conversation));
+        when(conversationInboxEntryRepository.findInboxByUserId(id)).thenReturn(List.of(new ConversationInboxEntry(id, conversation)));
 
         response = mvc.perform(get("/home/conversation")
                 .cookie(new Cookie("JSESSIONID", receiver.getSessionUUID()))).andReturn().getResponse();
@@ -277,7 +290,7 @@ public class MarketplaceConversationStepDefs extends CucumberSpringConfiguration
     @Then("I receive a 200 response and a conversation with instigator {string}, recipient {string}, and marketplace card {string} is returned in a list.")
     public void iReceiveA200ResponseAndAConversationWithInstigatorRecipientAndMarketplaceCardIsReturnedInAList(String instigatorName, String receiverName, String cardTitle) throws UnsupportedEncodingException {
         assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
-        assertThat(response.getContentAsString()).isEqualTo("[" + conversation.toConversationPayload().toString() + "]");
+        assertThat(response.getContentAsString()).isEqualTo("[" + new ConversationInboxEntry(receiver.getId(), conversation).toConversationPayload().toString() + "]");
 
         assertThat(conversation.toConversationPayload().getInstigatorName()).isEqualTo(instigatorName);
         assertThat(conversation.toConversationPayload().getReceiverName()).isEqualTo(receiverName);
@@ -291,7 +304,7 @@ public class MarketplaceConversationStepDefs extends CucumberSpringConfiguration
         when(marketplaceConversationRepository.findConversationById(conversation.getId())).thenReturn(Optional.of(conversation));
         messageArrayList.add(message2);
         messageArrayList.add(message);
-        when(marketplaceConversationMessageRepository.findAllByConversationId_OrderByCreatedDesc(conversation.getId())).thenReturn(messageArrayList);
+        when(marketplaceConversationMessageRepository.findLatestByConversationId(conversation.getId(), Pageable.unpaged())).thenReturn(messageArrayList);
 
         response = mvc.perform(get("/home/conversation/" + conversation.getId() + "/messages")
                 .cookie(new Cookie("JSESSIONID", receiver.getSessionUUID()))).andReturn().getResponse();
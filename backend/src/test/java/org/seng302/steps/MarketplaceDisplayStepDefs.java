@@ -13,6 +13,7 @@ import org.seng302.model.repository.KeywordRepository;
 import org.seng302.model.repository.MarketCardNotificationRepository;
 import org.seng302.model.repository.MarketplaceCardRepository;
 import org.seng302.model.repository.UserRepository;
+import org.seng302.services.CardKeywordIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.*;
@@ -123,7 +124,8 @@ public class MarketplaceDisplayStepDefs extends CucumberSpringConfiguration {
         userRepository = mock(UserRepository.class);
         keywordRepository = mock(KeywordRepository.class);
         this.mvc = MockMvcBuilders.standaloneSetup(new MarketplaceCardResource(
-                marketplaceCardRepository, userRepository, keywordRepository, marketCardNotificationRepository
+                marketplaceCardRepository, userRepository, keywordRepository, marketCardNotificationRepository,
+                new CardKeywordIndex(marketplaceCardRepository)
         )).build();
     }
 
@@ -708,10 +710,10 @@ public class MarketplaceDisplayStepDefs extends CucumberSpringConfiguration {
         });
 
         if (sortBy.equals("ascending")) {
-            sort = Sort.by(Sort.Order.asc("creator.homeAddress.suburb").ignoreCase()).and(Sort.by(Sort.Order.asc("creator.homeAddress.city").ignoreCase()).and(Sort.by(Sort.Order.desc("created").ignoreCase())));
+            sort = Sort.by(Sort.Order.asc("creatorSuburb"), Sort.Order.asc("creatorCity"), Sort.Order.desc("created"));
         } else {
             Collections.reverse(list);
-            sort = Sort.by(Sort.Order.desc("creator.homeAddress.suburb").ignoreCase()).and(Sort.by(Sort.Order.desc("creator.homeAddress.city").ignoreCase()).and(Sort.by(Sort.Order.desc("created").ignoreCase())));
+            sort = Sort.by(Sort.Order.desc("creatorSuburb"), Sort.Order.desc("creatorCity"), Sort.Order.desc("created"));
         }
 
         Page<MarketplaceCard> pagedResponse = new PageImpl<>(list);
@@ -21,6 +21,8 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 
 import org.seng302.services.FileStorageService;
 import org.seng302.view.outgoing.AddressPayload;
+import org.seng302.services.BusinessSearchIndex;
+import org.seng302.services.BusinessLocationIndex;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -111,7 +113,7 @@ public class ModifyBusinessStepDefs {
         fileStorageService = Mockito.mock(FileStorageService.class, withSettings().stubOnly());
 
         this.mvc = MockMvcBuilders.standaloneSetup(
-                new BusinessResource(businessRepository, userRepository, addressRepository)
+                new BusinessResource(businessRepository, userRepository, addressRepository, mock(BusinessSearchIndex.class), mock(BusinessLocationIndex.class))
         ).build();
         this.imageMvc = MockMvcBuilders.standaloneSetup(new ImageResource(
                 businessRepository, userRepository, productRepository, productImageRepository,
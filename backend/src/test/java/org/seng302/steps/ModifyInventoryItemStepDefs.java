@@ -16,6 +16,7 @@ import org.seng302.model.repository.ProductRepository;
 import org.seng302.model.enums.Role;
 import org.seng302.model.User;
 import org.seng302.model.repository.UserRepository;
+import org.seng302.services.InventoryLedger;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -86,7 +87,8 @@ public class ModifyInventoryItemStepDefs {
         productRepository = mock(ProductRepository.class);
         businessRepository = mock(BusinessRepository.class);
         userRepository = mock(UserRepository.class);
-        this.mvc = MockMvcBuilders.standaloneSetup(new InventoryItemResource(inventoryItemRepository, productRepository, businessRepository, userRepository)).build();
+        this.mvc = MockMvcBuilders.standaloneSetup(new InventoryItemResource(inventoryItemRepository, productRepository, businessRepository, userRepository,
+                mock(InventoryLedger.class))).build();
     }
 
     @Given("I am logged in as an administrator of a business.")
@@ -15,6 +15,8 @@ import org.seng302.model.UserImage;
 import org.seng302.model.enums.Role;
 import org.seng302.model.repository.*;
 import org.seng302.services.FileStorageService;
+import org.seng302.services.CardKeywordIndex;
+import org.seng302.services.UserNameSearchIndex;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -78,6 +80,9 @@ public class ModifyUserStepDefs {
     @MockBean
     private ForgotPasswordRepository forgotPasswordRepository;
 
+    @MockBean
+    private MarketplaceCardRepository marketplaceCardRepository;
+
     private MockMultipartFile image;
 
     private MockMultipartFile anotherImage;
@@ -139,9 +144,11 @@ public class ModifyUserStepDefs {
         productRepository = mock(ProductRepository.class);
         productImageRepository = mock(ProductImageRepository.class);
         userImageRepository = mock(UserImageRepository.class);
+        marketplaceCardRepository = mock(MarketplaceCardRepository.class);
         fileStorageService = Mockito.mock(FileStorageService.class, withSettings().stubOnly());
 
-        this.userMvc = MockMvcBuilders.standaloneSetup(new UserResource(userRepository, addressRepository, forgotPasswordRepository)).build();
+        this.userMvc = MockMvcBuilders.standaloneSetup(new UserResource(userRepository, addressRepository, forgotPasswordRepository, marketplaceCardRepository,
+                mock(UserNameSearchIndex.class), mock(CardKeywordIndex.class))).build();
         this.imageMvc = MockMvcBuilders.standaloneSetup(new ImageResource(
                 businessRepository, userRepository, productRepository, productImageRepository,
                 userImageRepository, businessImageRepository, fileStorageService)
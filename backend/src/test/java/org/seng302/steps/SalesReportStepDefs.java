@@ -12,6 +12,11 @@ import org.seng302.model.enums.BusinessType;
 import org.seng302.model.enums.Role;
 import org.seng302.model.repository.*;
 import org.seng302.view.outgoing.SalesReportPayload;
+import org.seng302.services.BusinessLocationIndex;
+import org.seng302.services.InventoryLedger;
+import org.seng302.services.ListingCloseScheduler;
+import org.seng302.services.ListingPurchaseService;
+import org.seng302.services.ListingRangeIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpStatus;
@@ -73,6 +78,21 @@ public class SalesReportStepDefs extends CucumberSpringConfiguration {
     @MockBean
     private BookmarkedListingMessageRepository bookmarkedListingMessageRepository;
 
+    @MockBean
+    private BusinessLocationIndex businessLocationIndex;
+
+    @MockBean
+    private ListingRangeIndex listingRangeIndex;
+
+    @MockBean
+    private ListingCloseScheduler listingCloseScheduler;
+
+    @MockBean
+    private InventoryLedger inventoryLedger;
+
+    @MockBean
+    private ListingPurchaseService listingPurchaseService;
+
     private User user;
 
     private Business business;
@@ -110,7 +130,7 @@ public class SalesReportStepDefs extends CucumberSpringConfiguration {
         this.mvc = MockMvcBuilders.standaloneSetup(new ListingResource(
                 listingRepository, inventoryItemRepository, productRepository, businessRepository, userRepository,
                 soldListingRepository, listingNotificationRepository, soldListingNotificationRepository,
-                bookmarkedListingMessageRepository
+                bookmarkedListingMessageRepository, businessLocationIndex, listingRangeIndex, listingCloseScheduler, listingPurchaseService, inventoryLedger
         )).build();
     }
 
@@ -7,6 +7,7 @@ import org.seng302.Main;
 import org.seng302.model.enums.Role;
 import org.seng302.model.User;
 import org.seng302.model.repository.UserRepository;
+import org.seng302.services.UserNameSearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
@@ -1130,4 +1131,46 @@ class SearchUserByNameTests {
         assertThat(userPage.getContent().get(0).getNickname()).isEqualTo("Min");
     }
 
+    /**
+     * Tests that the user name search index finds the same users as the findAllUsersByNames query, and pages them in
+     * the same order.
+     */
+    @Test
+    void whenSearchUserNameIndex_thenReturnSameUsersAsFindAllUsersByNames() {
+        // given
+        UserNameSearchIndex userNameSearchIndex = new UserNameSearchIndex(userRepository);
+        userNameSearchIndex.rebuild();
+        List<Pageable> pageables = List.of(
+                PageRequest.of(0, 20, Sort.by(Sort.Order.asc("nickname").ignoreCase()).and(Sort.by(Sort.Order.asc("id")))),
+                PageRequest.of(1, 2, Sort.by(Sort.Order.desc("homeAddress.city").ignoreCase())
+                        .and(Sort.by(Sort.Order.desc("firstName").ignoreCase()))
+                        .and(Sort.by(Sort.Order.asc("email").ignoreCase()))
+                        .and(Sort.by(Sort.Order.asc("id"))))
+        );
+        List<List<String>> searches = List.of(
+                List.of("a"),
+                List.of("FRAN"),
+                List.of("Alex Hine"),
+                List.of("x h"),
+                List.of("testfirst testmiddle"),
+                List.of("\"Alex Hine\"", "Seti"),
+                List.of("nothing like this")
+        );
+
+        for (Pageable pageable : pageables) {
+            for (List<String> names : searches) {
+                // when
+                Page<Integer> userIds = userNameSearchIndex.search(names, pageable);
+
+                // then
+                Page<User> expectedUsers = userRepository.findAllUsersByNames(names, pageable);
+                assertThat(userIds.getContent()).as("search for %s ordered by %s", names, pageable.getSort())
+                        .containsExactlyElementsOf(expectedUsers.map(User::getId));
+                assertThat(userIds.getTotalElements()).isEqualTo(expectedUsers.getTotalElements());
+                assertThat(userRepository.findAllByIdIn(userIds.getContent())).extracting(User::getId)
+                        .containsExactlyInAnyOrderElementsOf(userIds.getContent());
+            }
+        }
+    }
 }
+
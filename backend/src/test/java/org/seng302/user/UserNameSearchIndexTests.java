@@ -0,0 +1,165 @@
+package org.seng302.user;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.model.User;
+import org.seng302.model.repository.UserRepository;
+import org.seng302.services.UserNameSearchIndex;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * UserNameSearchIndex test class
+ */
+class UserNameSearchIndexTests {
+
+    private UserRepository userRepository;
+    private UserNameSearchIndex userNameSearchIndex;
+
+    /**
+     * Sets up the index with a few users.
+     */
+    @BeforeEach
+    void setup() {
+        userRepository = mock(UserRepository.class);
+        userNameSearchIndex = new UserNameSearchIndex(userRepository);
+
+        when(userRepository.findAllUserNames()).thenReturn(List.of(
+                createUserNames(1, "Jeffy", "Jeff", "Alex", "Bezos", "Seattle"),
+                createUserNames(2, null, "Alexa", null, "Smith", "auckland"),
+                createUserNames(3, "Tim", "Timothy", "John", "Doe", null)
+        ));
+        userNameSearchIndex.rebuild();
+    }
+
+    /**
+     * Creates the names and sort values of a user.
+     */
+    private UserRepository.UserNames createUserNames(int id, String nickname, String firstName, String middleName,
+                                                     String lastName, String city) {
+        return new UserRepository.UserNames() {
+            public Integer getId() { return id; }
+            public String getNickname() { return nickname; }
+            public String getFirstName() { return firstName; }
+            public String getMiddleName() { return middleName; }
+            public String getLastName() { return lastName; }
+            public String getEmail() { return "user" + id + "@email.com"; }
+            public String getCity() { return city; }
+            public String getRegion() { return null; }
+            public String getCountry() { return null; }
+        };
+    }
+
+    /**
+     * Tests that short names match anywhere in any name of a user, ignoring case.
+     */
+    @Test
+    void testSearchWithShortNameMatchesSubstringsIgnoringCase() {
+        assertThat(userNameSearchIndex.search(List.of("ALE"))).containsExactly(1, 2);
+    }
+
+    /**
+     * Tests that long names only match users with a name containing the whole search, not just its trigrams.
+     */
+    @Test
+    void testSearchWithLongNameMatchesWholeName() {
+        assertThat(userNameSearchIndex.search(List.of("jeff bezos"))).containsExactly(1);
+        assertThat(userNameSearchIndex.search(List.of("jeff alex bezos"))).containsExactly(1);
+        assertThat(userNameSearchIndex.search(List.of("bezos jeff"))).isEmpty();
+    }
+
+    /**
+     * Tests that combinations including a missing middle name can't be matched.
+     */
+    @Test
+    void testSearchDoesNotMatchAcrossMissingMiddleName() {
+        assertThat(userNameSearchIndex.search(List.of("alexa smith"))).containsExactly(2);
+        assertThat(userNameSearchIndex.search(List.of("alexa  smith"))).isEmpty();
+    }
+
+    /**
+     * Tests that a quoted name must be exactly one of a user's names.
+     */
+    @Test
+    void testSearchWithQuotedNameMatchesWholeNamesOnly() {
+        assertThat(userNameSearchIndex.search(List.of("\"tim\""))).containsExactly(3);
+        assertThat(userNameSearchIndex.search(List.of("\"Jeff Bezos\""))).containsExactly(1);
+        assertThat(userNameSearchIndex.search(List.of("\"Jeff\""))).isEmpty();
+    }
+
+    /**
+     * Tests that users matching any of the names are returned.
+     */
+    @Test
+    void testSearchWithSeveralNamesReturnsUnion() {
+        assertThat(userNameSearchIndex.search(List.of("doe", "smith"))).containsExactly(2, 3);
+    }
+
+    /**
+     * Tests that an empty name matches every user.
+     */
+    @Test
+    void testSearchWithEmptyNameMatchesEveryUser() {
+        assertThat(userNameSearchIndex.search(List.of(""))).containsExactly(1, 2, 3);
+    }
+
+    /**
+     * Tests that a modified user is found by their new name and not their old one.
+     */
+    @Test
+    void testIndexUserReplacesOldNames() throws Exception {
+        User user = mock(User.class);
+        when(user.getId()).thenReturn(3);
+        when(user.getNickname()).thenReturn(null);
+        when(user.getFirstName()).thenReturn("Tom");
+        when(user.getMiddleName()).thenReturn(null);
+        when(user.getLastName()).thenReturn("Dough");
+
+        userNameSearchIndex.indexUser(user);
+
+        assertThat(userNameSearchIndex.search(List.of("tim"))).isEmpty();
+        assertThat(userNameSearchIndex.search(List.of("dough"))).containsExactly(3);
+    }
+
+    /**
+     * Tests that matching users are ordered ignoring case, with missing values first, and that only the requested
+     * page of them is returned along with the total number of matches.
+     */
+    @Test
+    void testSearchWithPagingOrdersAndPagesMatches() {
+        Sort byCity = Sort.by(Sort.Order.asc("homeAddress.city").ignoreCase());
+
+        Page<Integer> firstPage = userNameSearchIndex.search(List.of(""), PageRequest.of(0, 2, byCity));
+        Page<Integer> secondPage = userNameSearchIndex.search(List.of(""), PageRequest.of(1, 2, byCity));
+
+        assertThat(firstPage.getContent()).containsExactly(3, 2);
+        assertThat(secondPage.getContent()).containsExactly(1);
+        assertThat(firstPage.getTotalElements()).isEqualTo(3);
+        assertThat(userNameSearchIndex.search(List.of("ale"), PageRequest.of(0, 2, Sort.by(Sort.Order.desc("firstName")))))
+                .containsExactly(1, 2);
+    }
+
+    /**
+     * Tests that a modified user is ordered by their new values.
+     */
+    @Test
+    void testIndexUserReplacesOldSortValues() throws Exception {
+        User user = mock(User.class);
+        when(user.getId()).thenReturn(2);
+        when(user.getFirstName()).thenReturn("Alexa");
+        when(user.getLastName()).thenReturn("Smith");
+        when(user.getEmail()).thenReturn("zzz@email.com");
+
+        userNameSearchIndex.indexUser(user);
+
+        Sort byEmail = Sort.by(Sort.Order.asc("email").ignoreCase());
+        assertThat(userNameSearchIndex.search(List.of(""), PageRequest.of(0, 5, byEmail))).containsExactly(1, 3, 2);
+    }
+}
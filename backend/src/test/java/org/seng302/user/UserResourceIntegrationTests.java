@@ -9,7 +9,10 @@ import org.seng302.Main;
 import org.seng302.model.enums.Role;
 import org.seng302.model.User;
 import org.seng302.model.repository.ForgotPasswordRepository;
+import org.seng302.model.repository.MarketplaceCardRepository;
 import org.seng302.model.repository.UserRepository;
+import org.seng302.services.CardKeywordIndex;
+import org.seng302.services.UserNameSearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -29,10 +32,14 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
@@ -59,6 +66,15 @@ class UserResourceIntegrationTests {
     @MockBean
     private ForgotPasswordRepository forgotPasswordRepository;
 
+    @MockBean
+    private MarketplaceCardRepository marketplaceCardRepository;
+
+    @MockBean
+    private UserNameSearchIndex userNameSearchIndex;
+
+    @MockBean
+    private CardKeywordIndex cardKeywordIndex;
+
     private final String loginPayloadJson = "{\"email\": \"%s\", " +
                                         "\"password\": \"%s\"}";
 
@@ -309,7 +325,8 @@ class UserResourceIntegrationTests {
         forgotPassword = new ForgotPassword(user.getId());
 
         // initializes the MockMVC object and tells it to use the userRepository
-        this.mvc = MockMvcBuilders.standaloneSetup(new UserResource(userRepository, addressRepository, forgotPasswordRepository)).build();
+        this.mvc = MockMvcBuilders.standaloneSetup(new UserResource(userRepository, addressRepository, forgotPasswordRepository, marketplaceCardRepository,
+                userNameSearchIndex, cardKeywordIndex)).build();
 
     }
 
@@ -823,25 +840,27 @@ class UserResourceIntegrationTests {
 
         // when
         List<User> list = List.of(user);
-        Page<User> pagedResponse = new PageImpl<>(list);
         Sort sort = Sort.by(Sort.Order.asc("firstName").ignoreCase())
                 .and(Sort.by(Sort.Order.asc("middleName").ignoreCase()))
                 .and(Sort.by(Sort.Order.asc("lastName").ignoreCase()))
                 .and(Sort.by(Sort.Order.asc("email").ignoreCase()));
         Pageable paging = PageRequest.of(0, 5, sort);
-
-        when(userRepository.findAllUsersByNames(List.of(searchQueryList.get(0)), paging))
-                .thenReturn(pagedResponse);
-        when(userRepository.findAllUsersByNames(List.of(searchQueryList.get(1)), paging))
-                .thenReturn(pagedResponse);
-        when(userRepository.findAllUsersByNames(List.of(searchQueryList.get(2)), paging))
-                .thenReturn(pagedResponse);
-        when(userRepository.findAllUsersByNames(List.of(searchQueryList.get(3)), paging))
-                .thenReturn(pagedResponse);
-        when(userRepository.findAllUsersByNames(List.of(searchQueryList.get(4)), paging))
-                .thenReturn(pagedResponse);
-        when(userRepository.findAllUsersByNames(List.of(searchQueryList.get(5)), paging))
-                .thenReturn(pagedResponse);
+        List<Integer> userIds = list.stream().map(User::getId).collect(Collectors.toList());
+        Page<Integer> pagedUserIds = new PageImpl<>(userIds, paging, userIds.size());
+        when(userRepository.findAllByIdIn(userIds)).thenReturn(list);
+
+        when(userNameSearchIndex.search(List.of(searchQueryList.get(0)), paging))
+                .thenReturn(pagedUserIds);
+        when(userNameSearchIndex.search(List.of(searchQueryList.get(1)), paging))
+                .thenReturn(pagedUserIds);
+        when(userNameSearchIndex.search(List.of(searchQueryList.get(2)), paging))
+                .thenReturn(pagedUserIds);
+        when(userNameSearchIndex.search(List.of(searchQueryList.get(3)), paging))
+                .thenReturn(pagedUserIds);
+        when(userNameSearchIndex.search(List.of(searchQueryList.get(4)), paging))
+                .thenReturn(pagedUserIds);
+        when(userNameSearchIndex.search(List.of(searchQueryList.get(5)), paging))
+                .thenReturn(pagedUserIds);
         when(userRepository.findBySessionUUID(dGAA.getSessionUUID())).thenReturn(Optional.ofNullable(dGAA));
 
         for (String searchQuery: searchQueryList) {
@@ -882,25 +901,27 @@ class UserResourceIntegrationTests {
 
         // when
         List<User> list = List.of(user);
-        Page<User> pagedResponse = new PageImpl<>(list);
         Sort sort = Sort.by(Sort.Order.asc("firstName").ignoreCase())
                 .and(Sort.by(Sort.Order.asc("middleName").ignoreCase()))
                 .and(Sort.by(Sort.Order.asc("lastName").ignoreCase()))
                 .and(Sort.by(Sort.Order.asc("email").ignoreCase()));
         Pageable paging = PageRequest.of(0, 1, sort);
-
-        when(userRepository.findAllUsersByNames(Arrays.asList(searchQueryList.get(0)), paging))
-                .thenReturn(pagedResponse);
-        when(userRepository.findAllUsersByNames(Arrays.asList(searchQueryList.get(1)), paging))
-                .thenReturn(pagedResponse);
-        when(userRepository.findAllUsersByNames(Arrays.asList(searchQueryList.get(2)), paging))
-                .thenReturn(pagedResponse);
-        when(userRepository.findAllUsersByNames(Arrays.asList(searchQueryList.get(3)), paging))
-                .thenReturn(pagedResponse);
-        when(userRepository.findAllUsersByNames(Arrays.asList(searchQueryList.get(4)), paging))
-                .thenReturn(pagedResponse);
-        when(userRepository.findAllUsersByNames(Arrays.asList(searchQueryList.get(5)), paging))
-                .thenReturn(pagedResponse);
+        List<Integer> userIds = list.stream().map(User::getId).collect(Collectors.toList());
+        Page<Integer> pagedUserIds = new PageImpl<>(userIds, paging, userIds.size());
+        when(userRepository.findAllByIdIn(userIds)).thenReturn(list);
+
+        when(userNameSearchIndex.search(List.of(searchQueryList.get(0)), paging))
+                .thenReturn(pagedUserIds);
+        when(userNameSearchIndex.search(List.of(searchQueryList.get(1)), paging))
+                .thenReturn(pagedUserIds);
+        when(userNameSearchIndex.search(List.of(searchQueryList.get(2)), paging))
+                .thenReturn(pagedUserIds);
+        when(userNameSearchIndex.search(List.of(searchQueryList.get(3)), paging))
+                .thenReturn(pagedUserIds);
+        when(userNameSearchIndex.search(List.of(searchQueryList.get(4)), paging))
+                .thenReturn(pagedUserIds);
+        when(userNameSearchIndex.search(List.of(searchQueryList.get(5)), paging))
+                .thenReturn(pagedUserIds);
         when(userRepository.findBySessionUUID(dGAA.getSessionUUID())).thenReturn(Optional.ofNullable(dGAA));
 
         for (String searchQuery: searchQueryList) {
@@ -943,19 +964,27 @@ class UserResourceIntegrationTests {
 
         // when
         List<User> list = List.of(user);
-        Page<User> pagedResponse = new PageImpl<>(list);
         Sort sort = Sort.by(Sort.Order.asc("firstName").ignoreCase())
                 .and(Sort.by(Sort.Order.asc("middleName").ignoreCase()))
                 .and(Sort.by(Sort.Order.asc("lastName").ignoreCase()))
                 .and(Sort.by(Sort.Order.asc("email").ignoreCase()));
         Pageable paging = PageRequest.of(0, 5, sort);
-
-        when(userRepository.findAllUsersByNames(List.of(searchQueryList.get(0)), paging)).thenReturn(pagedResponse);
-        when(userRepository.findAllUsersByNames(List.of(searchQueryList.get(1)), paging)).thenReturn(pagedResponse);
-        when(userRepository.findAllUsersByNames(List.of(searchQueryList.get(2)), paging)).thenReturn(pagedResponse);
-        when(userRepository.findAllUsersByNames(List.of(searchQueryList.get(3)), paging)).thenReturn(pagedResponse);
-        when(userRepository.findAllUsersByNames(List.of(searchQueryList.get(4)), paging)).thenReturn(pagedResponse);
-        when(userRepository.findAllUsersByNames(List.of(searchQueryList.get(5)), paging)).thenReturn(pagedResponse);
+        List<Integer> userIds = list.stream().map(User::getId).collect(Collectors.toList());
+        Page<Integer> pagedUserIds = new PageImpl<>(userIds, paging, userIds.size());
+        when(userRepository.findAllByIdIn(userIds)).thenReturn(list);
+
+        when(userNameSearchIndex.search(List.of(searchQueryList.get(0)), paging))
+                .thenReturn(pagedUserIds);
+        when(userNameSearchIndex.search(List.of(searchQueryList.get(1)), paging))
+                .thenReturn(pagedUserIds);
+        when(userNameSearchIndex.search(List.of(searchQueryList.get(2)), paging))
+                .thenReturn(pagedUserIds);
+        when(userNameSearchIndex.search(List.of(searchQueryList.get(3)), paging))
+                .thenReturn(pagedUserIds);
+        when(userNameSearchIndex.search(List.of(searchQueryList.get(4)), paging))
+                .thenReturn(pagedUserIds);
+        when(userNameSearchIndex.search(List.of(searchQueryList.get(5)), paging))
+                .thenReturn(pagedUserIds);
         when(userRepository.findBySessionUUID(user.getSessionUUID())).thenReturn(Optional.ofNullable(user));
 
         for (String searchQuery: searchQueryList) {
@@ -995,19 +1024,27 @@ class UserResourceIntegrationTests {
 
         // when
         List<User> list = List.of(user);
-        Page<User> pagedResponse = new PageImpl<>(list);
         Sort sort = Sort.by(Sort.Order.asc("firstName").ignoreCase())
                 .and(Sort.by(Sort.Order.asc("middleName").ignoreCase()))
                 .and(Sort.by(Sort.Order.asc("lastName").ignoreCase()))
                 .and(Sort.by(Sort.Order.asc("email").ignoreCase()));
         Pageable paging = PageRequest.of(0, 5, sort);
-
-        when(userRepository.findAllUsersByNames(List.of(searchQueryList.get(0)), paging)).thenReturn(pagedResponse);
-        when(userRepository.findAllUsersByNames(List.of(searchQueryList.get(1)), paging)).thenReturn(pagedResponse);
-        when(userRepository.findAllUsersByNames(List.of(searchQueryList.get(2)), paging)).thenReturn(pagedResponse);
-        when(userRepository.findAllUsersByNames(List.of(searchQueryList.get(3)), paging)).thenReturn(pagedResponse);
-        when(userRepository.findAllUsersByNames(List.of(searchQueryList.get(4)), paging)).thenReturn(pagedResponse);
-        when(userRepository.findAllUsersByNames(List.of(searchQueryList.get(5)), paging)).thenReturn(pagedResponse);
+        List<Integer> userIds = list.stream().map(User::getId).collect(Collectors.toList());
+        Page<Integer> pagedUserIds = new PageImpl<>(userIds, paging, userIds.size());
+        when(userRepository.findAllByIdIn(userIds)).thenReturn(list);
+
+        when(userNameSearchIndex.search(List.of(searchQueryList.get(0)), paging))
+                .thenReturn(pagedUserIds);
+        when(userNameSearchIndex.search(List.of(searchQueryList.get(1)), paging))
+                .thenReturn(pagedUserIds);
+        when(userNameSearchIndex.search(List.of(searchQueryList.get(2)), paging))
+                .thenReturn(pagedUserIds);
+        when(userNameSearchIndex.search(List.of(searchQueryList.get(3)), paging))
+                .thenReturn(pagedUserIds);
+        when(userNameSearchIndex.search(List.of(searchQueryList.get(4)), paging))
+                .thenReturn(pagedUserIds);
+        when(userNameSearchIndex.search(List.of(searchQueryList.get(5)), paging))
+                .thenReturn(pagedUserIds);
         when(userRepository.findBySessionUUID(anotherUser.getSessionUUID()))
                 .thenReturn(Optional.ofNullable(anotherUser));
 
@@ -1044,20 +1081,28 @@ class UserResourceIntegrationTests {
 
         // when
         List<User> list = List.of();
-        Page<User> pagedResponse = new PageImpl<>(list);
         Sort sort = Sort.by(Sort.Order.asc("firstName").ignoreCase())
                 .and(Sort.by(Sort.Order.asc("middleName").ignoreCase()))
                 .and(Sort.by(Sort.Order.asc("lastName").ignoreCase()))
                 .and(Sort.by(Sort.Order.asc("email").ignoreCase()));
         Pageable paging = PageRequest.of(0, 5, sort);
+        List<Integer> userIds = list.stream().map(User::getId).collect(Collectors.toList());
+        Page<Integer> pagedUserIds = new PageImpl<>(userIds, paging, userIds.size());
+        when(userRepository.findAllByIdIn(userIds)).thenReturn(list);
 
         when(userRepository.findBySessionUUID(dGAA.getSessionUUID())).thenReturn(Optional.ofNullable(dGAA));
-        when(userRepository.findAllUsersByNames(List.of(searchQueryList.get(0)), paging)).thenReturn(pagedResponse);
-        when(userRepository.findAllUsersByNames(List.of(searchQueryList.get(1)), paging)).thenReturn(pagedResponse);
-        when(userRepository.findAllUsersByNames(List.of(searchQueryList.get(2)), paging)).thenReturn(pagedResponse);
-        when(userRepository.findAllUsersByNames(List.of(searchQueryList.get(3)), paging)).thenReturn(pagedResponse);
-        when(userRepository.findAllUsersByNames(List.of(searchQueryList.get(4)), paging)).thenReturn(pagedResponse);
-        when(userRepository.findAllUsersByNames(List.of(searchQueryList.get(5)), paging)).thenReturn(pagedResponse);
+        when(userNameSearchIndex.search(List.of(searchQueryList.get(0)), paging))
+                .thenReturn(pagedUserIds);
+        when(userNameSearchIndex.search(List.of(searchQueryList.get(1)), paging))
+                .thenReturn(pagedUserIds);
+        when(userNameSearchIndex.search(List.of(searchQueryList.get(2)), paging))
+                .thenReturn(pagedUserIds);
+        when(userNameSearchIndex.search(List.of(searchQueryList.get(3)), paging))
+                .thenReturn(pagedUserIds);
+        when(userNameSearchIndex.search(List.of(searchQueryList.get(4)), paging))
+                .thenReturn(pagedUserIds);
+        when(userNameSearchIndex.search(List.of(searchQueryList.get(5)), paging))
+                .thenReturn(pagedUserIds);
         for (String searchQuery: searchQueryList) {
             responseList.add(mvc.perform(
                     get("/users/search").param("searchQuery", searchQuery)
@@ -1279,23 +1324,20 @@ class UserResourceIntegrationTests {
 
         // when
         List<User> list = List.of(user, searchUser1);
-        Page<User> pagedResponse = new PageImpl<>(list);
         Sort sort = Sort.by(Sort.Order.asc("firstName").ignoreCase())
                 .and(Sort.by(Sort.Order.asc("middleName").ignoreCase()))
                 .and(Sort.by(Sort.Order.asc("lastName").ignoreCase()))
                 .and(Sort.by(Sort.Order.asc("email").ignoreCase()));
         Pageable paging = PageRequest.of(0, 5, sort);
-
-        when(userRepository.findAllUsersByNames(Arrays.asList("TESTFIRST", "ALEX"), paging))
-                .thenReturn(pagedResponse);
-        when(userRepository.findAllUsersByNames(Arrays.asList("testfirst", "alex"), paging))
-                .thenReturn(pagedResponse);
-        when(userRepository.findAllUsersByNames(Arrays.asList("TESTFIRST TESTLAST", "alex"), paging))
-                .thenReturn(pagedResponse);
-        when(userRepository.findAllUsersByNames(Arrays.asList("TESTFIRST", "TESTLAST", "Alex"), paging))
-                .thenReturn(pagedResponse);
-        when(userRepository.findAllUsersByNames(Arrays.asList("TESTFIRST TESTLAST", "ALEX"), paging))
-                .thenReturn(pagedResponse);
+        List<Integer> userIds = list.stream().map(User::getId).collect(Collectors.toList());
+        Page<Integer> pagedUserIds = new PageImpl<>(userIds, paging, userIds.size());
+        when(userRepository.findAllByIdIn(userIds)).thenReturn(list);
+
+        when(userNameSearchIndex.search(Arrays.asList("TESTFIRST", "ALEX"), paging)).thenReturn(pagedUserIds);
+        when(userNameSearchIndex.search(Arrays.asList("testfirst", "alex"), paging)).thenReturn(pagedUserIds);
+        when(userNameSearchIndex.search(Arrays.asList("TESTFIRST TESTLAST", "alex"), paging)).thenReturn(pagedUserIds);
+        when(userNameSearchIndex.search(Arrays.asList("TESTFIRST", "TESTLAST", "Alex"), paging)).thenReturn(pagedUserIds);
+        when(userNameSearchIndex.search(Arrays.asList("TESTFIRST TESTLAST", "ALEX"), paging)).thenReturn(pagedUserIds);
         when(userRepository.findBySessionUUID(anotherUser.getSessionUUID()))
                 .thenReturn(Optional.ofNullable(anotherUser));
 
@@ -1677,6 +1719,40 @@ class UserResourceIntegrationTests {
         // then
         assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
         assertThat(selectedUser.getDateOfBirth()).isEqualTo(newDateOfBirth);
+        verify(marketplaceCardRepository, never()).updateCreatorLocation(any(), any(), any());
+        verify(cardKeywordIndex, never()).updateCreatorLocation(anyInt(), any(), any());
+    }
+
+    /**
+     * Test that when a user moves to a different suburb, the location copied onto their cards is updated.
+     * @throws Exception User Create Error
+     */
+    @Test
+    void testChangingHomeAddressUpdatesCardLocations() throws Exception {
+        // given
+        User selectedUser = new User("Bob", "Boberson", "Robert", "Bobert",
+                "Bobsbio", "bob@email.com", LocalDate.of(2000, 5, 10),
+                "01234567", address, "Testpassword123!", LocalDateTime.now(), Role.USER);
+        selectedUser.setId(4);
+        selectedUser.setSessionUUID(User.generateSessionUUID());
+
+        String registerJson = String.format(modifiedUserPayload, "Bob", "Boberson", "Robert", "Bobert", "Bobsbio",
+                "bob@email.com", LocalDate.of(2000, 5, 10).toString(), "01234567", "3/24", "Ilam Road", "Riccarton",
+                "Christchurch", "Canterbury", "New Zealand", "90210", "Testpassword123!", "Testpassword123!");
+        Cookie cookie = new Cookie("JSESSIONID", selectedUser.getSessionUUID());
+
+        // when
+        when(userRepository.findBySessionUUID(selectedUser.getSessionUUID())).thenReturn(Optional.of(selectedUser));
+        when(userRepository.findById(selectedUser.getId())).thenReturn(Optional.of(selectedUser));
+        when(userRepository.findByEmail("bob@email.com")).thenReturn(Optional.empty());
+        response = mvc.perform(put(String.format("/users/%d/profile", selectedUser.getId()))
+                .contentType(MediaType.APPLICATION_JSON).content(registerJson)
+                .cookie(cookie)).andReturn().getResponse();
+
+        // then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        verify(marketplaceCardRepository).updateCreatorLocation(selectedUser.getId(), "Riccarton", "Christchurch");
+        verify(cardKeywordIndex).updateCreatorLocation(selectedUser.getId(), "Riccarton", "Christchurch");
     }
 
     /**